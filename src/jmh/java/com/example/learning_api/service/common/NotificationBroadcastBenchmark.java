@@ -0,0 +1,114 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.NotificationEntity;
+import com.example.learning_api.enums.RoleEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One class-wide notification to every session of a class, through the simple broker the application configures on
+ * {@code /topic}, with each student session subscribed to its own topic and to its classroom's. Compares the original
+ * per-user {@code convertAndSend} loop, which converts the notification for every user, with
+ * {@link NotificationBroadcaster#toUsers} (serialized once, still one send per user) and
+ * {@link NotificationBroadcaster#toClassroom} (one send). The channels are synchronous, so an operation ends once every
+ * session has been handed its message.
+ * <p>
+ * Run with {@code mvn -Pbenchmark -DskipTests verify -Djmh.args="NotificationBroadcastBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationBroadcastBenchmark {
+    private static final String CLASSROOM = "classroom-1";
+
+    @Param({"5000"})
+    private int sessions;
+
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate messagingTemplate;
+    private NotificationBroadcaster broadcaster;
+    private List<String> userIds;
+    private NotificationEntity notification;
+    private long delivered;
+
+    @Setup
+    public void setUp() {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> delivered++);
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+        messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        // The JSON conversion the application's brokerMessagingTemplate applies to convertAndSend
+        messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+        broadcaster = new NotificationBroadcaster(messagingTemplate, new ObjectMapper());
+
+        userIds = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = "session-" + i;
+            String userId = "student-" + i;
+            userIds.add(userId);
+            broker.handleMessage(clientMessage(SimpMessageType.CONNECT, sessionId, null, null));
+            broker.handleMessage(clientMessage(SimpMessageType.SUBSCRIBE, sessionId, "user",
+                    NotificationBroadcaster.userTopic(userId)));
+            broker.handleMessage(clientMessage(SimpMessageType.SUBSCRIBE, sessionId, "classroom",
+                    NotificationBroadcaster.classroomTopic(CLASSROOM, RoleEnum.USER)));
+        }
+        notification = NotificationEntity.builder()
+                .id("notification-1")
+                .title("New lesson")
+                .message("Chapter 3 is available, with a 20 question quiz")
+                .authorId("teacher-1")
+                .authorRole(RoleEnum.TEACHER)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public long perUserConvertAndSend() {
+        for (String userId : userIds) {
+            messagingTemplate.convertAndSend("/topic/notifications/" + userId, notification);
+        }
+        return delivered;
+    }
+
+    @Benchmark
+    public long perUserSerializedOnce() {
+        broadcaster.toUsers(userIds, notification);
+        return delivered;
+    }
+
+    @Benchmark
+    public long classroomTopic() {
+        broadcaster.toClassroom(CLASSROOM, RoleEnum.USER, notification);
+        return delivered;
+    }
+
+    private static Message<byte[]> clientMessage(SimpMessageType type, String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.learning_api.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fill-in answer grading, {@link AnswerTextMatcher} against {@link FormerAnswerGrading}: one operation grades one
+ * answer, so throughput is answers per millisecond and {@code -prof gc} reports the bytes allocated per answer.
+ * Answers are near misses of the correct text, the case that needs the edit distance.
+ * <p>
+ * Run with {@code mvn -Pbenchmark -DskipTests verify -Djmh.args="AnswerTextMatcherBenchmark -prof gc"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnswerTextMatcherBenchmark {
+    private static final int PAIRS = 1024;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz      àáạảãâầấậẩẫăằắặẳẵèéẹẻẽêềếệểễđ.,?!";
+
+    @Param({"12", "60", "400"})
+    private int length;
+
+    private String[] submitted;
+    private String[] correct;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(9);
+        submitted = new String[PAIRS];
+        correct = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            StringBuilder text = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            correct[i] = text.toString();
+            // Up to one edit in ten characters, around the similarity threshold
+            for (int edits = random.nextInt(length / 10 + 2); edits > 0; edits--) {
+                text.setCharAt(random.nextInt(text.length()), ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            submitted[i] = text.toString().toUpperCase();
+        }
+    }
+
+    @Benchmark
+    public boolean answerTextMatcher() {
+        int i = next++ & (PAIRS - 1);
+        return AnswerTextMatcher.isCorrect(submitted[i], correct[i]);
+    }
+
+    @Benchmark
+    public boolean formerGrading() {
+        int i = next++ & (PAIRS - 1);
+        return FormerAnswerGrading.isCorrect(submitted[i], correct[i]);
+    }
+}
@@ -17,6 +17,7 @@ public class ErrorConstant {
     public static final String FILE_INVALID = "Invalid file";
     public static final String FILE_PROCESSING_ERROR = "File processing error";
     public static final String IMPORT_TEST_ERROR = "Error importing test";
+    public static final String SERVER_BUSY = "Server is busy, please retry shortly";
     //
     public static final String USER_TOKEN_NOT_FOUND = "User token not found: ";
     public static final String USER_NOT_FOUND = "User not found: ";
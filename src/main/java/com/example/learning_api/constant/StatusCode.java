@@ -8,7 +8,9 @@ public class StatusCode {
     public static final HttpStatus OK = HttpStatus.OK;
     public static final HttpStatus BAD_REQUEST = HttpStatus.BAD_REQUEST;
     public static final HttpStatus CREATED = HttpStatus.CREATED;
+    public static final HttpStatus ACCEPTED = HttpStatus.ACCEPTED;
     public static final HttpStatus FORBIDDEN = HttpStatus.FORBIDDEN;
     public static final HttpStatus NOT_FOUND = HttpStatus.NOT_FOUND;
     public static final HttpStatus UNAUTHORIZED = HttpStatus.UNAUTHORIZED;
+    public static final HttpStatus TOO_MANY_REQUESTS = HttpStatus.TOO_MANY_REQUESTS;
 }
@@ -200,6 +200,41 @@ public class ClassRoomController {
         }
     }
 
+    @GetMapping(path = "/home/feed")
+    public ResponseEntity<ResponseAPI<GetClassRoomFeedResponse>> getClassRoomFeed(
+            @RequestParam(name="search",required = false,defaultValue = "") String search,
+            @RequestParam(name="size",required = false,defaultValue = "10") int size,
+            @RequestParam(name="category",required = false,defaultValue = "") String category,
+            @RequestParam(name="tag",required = false,defaultValue = "") String tag,
+            @RequestParam(name="order",required = false,defaultValue = "") String order,
+            @RequestParam(name="cursor",required = false) String cursor,
+            @RequestParam(name="seed",required = false) Double seed,
+            @RequestHeader(name = "Authorization") String authorizationHeader) {
+        try{
+            String token = authorizationHeader.replace("Bearer ", "");
+            String userId = jwtService.extractUserId(token);
+            String role = jwtService.extractRole(token);
+            String studentId = null;
+            if (role.equals("USER")){
+                studentId = studentService.getStudentByUserId(userId).getId();
+            }
+            GetClassRoomFeedResponse resData = classRoomService.getClassRoomFeed(studentId, search, category, tag, order, cursor, seed, size);
+            ResponseAPI<GetClassRoomFeedResponse> res = ResponseAPI.<GetClassRoomFeedResponse>builder()
+                    .timestamp(new Date())
+                    .message("Get class room successfully")
+                    .data(resData)
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.OK);
+        }
+        catch (Exception e){
+            ResponseAPI<GetClassRoomFeedResponse> res = ResponseAPI.<GetClassRoomFeedResponse>builder()
+                    .timestamp(new Date())
+                    .message(e.getMessage())
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
+        }
+    }
+
     @DeleteMapping(path = "/{classroomId}")
     @PreAuthorize("hasAnyAuthority('TEACHER','ADMIN')")
     public ResponseEntity<ResponseAPI<String>> deleteClassRoom(@PathVariable String classroomId) {
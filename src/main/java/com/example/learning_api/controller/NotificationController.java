@@ -1,8 +1,11 @@
 package com.example.learning_api.controller;
 
+import com.example.learning_api.dto.common.MarkNotificationsSeenDto;
 import com.example.learning_api.dto.request.notification.SendNotificationRequest;
 import com.example.learning_api.dto.request.notification.UpdateUserNotificationSettingRequest;
+import com.example.learning_api.dto.response.notification.GetNotificationInboxResponse;
 import com.example.learning_api.dto.response.notification.GetUserNotificationResponse;
+import com.example.learning_api.dto.response.notification.MarkNotificationsSeenResponse;
 import com.example.learning_api.dto.response.notification.NotificationResponse;
 import com.example.learning_api.entity.sql.database.NotificationEntity;
 import com.example.learning_api.entity.sql.database.NotificationSettingsEntity;
@@ -85,6 +88,101 @@ public class NotificationController {
         }
     }
 
+    // Hộp thư thông báo của người dùng hiện tại, phân trang theo cursor
+    @GetMapping("/inbox")
+    public ResponseEntity<ResponseAPI<GetNotificationInboxResponse>> getNotificationInbox(
+            @RequestHeader("Authorization") String authorizationHeader,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false, defaultValue = "20") int size) {
+        try {
+            String token = authorizationHeader.substring(7);
+            String currentUserId = jwtService.extractUserId(token);
+            GetNotificationInboxResponse inbox = notificationService.getNotificationInbox(currentUserId, cursor, size);
+            return ResponseEntity.ok(
+                    ResponseAPI.<GetNotificationInboxResponse>builder()
+                            .data(inbox)
+                            .message("Notification inbox retrieved")
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Error retrieving notification inbox", e);
+            return ResponseEntity.badRequest().body(
+                    ResponseAPI.<GetNotificationInboxResponse>builder()
+                            .message(e.getMessage())
+                            .build()
+            );
+        }
+    }
+
+    @GetMapping("/unread-count")
+    public ResponseEntity<ResponseAPI<Integer>> getUnreadNotificationCount(
+            @RequestHeader("Authorization") String authorizationHeader) {
+        try {
+            String token = authorizationHeader.substring(7);
+            String currentUserId = jwtService.extractUserId(token);
+            return ResponseEntity.ok(
+                    ResponseAPI.<Integer>builder()
+                            .data(notificationService.getUnreadNotificationCount(currentUserId))
+                            .message("Unread notification count retrieved")
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Error retrieving unread notification count", e);
+            return ResponseEntity.badRequest().body(
+                    ResponseAPI.<Integer>builder()
+                            .message(e.getMessage())
+                            .build()
+            );
+        }
+    }
+
+    // Đánh dấu tất cả thông báo đã đọc
+    @PostMapping("/mark-all-seen")
+    public ResponseEntity<ResponseAPI<MarkNotificationsSeenResponse>> markAllNotificationsAsSeen(
+            @RequestHeader("Authorization") String authorizationHeader) {
+        try {
+            String token = authorizationHeader.substring(7);
+            String currentUserId = jwtService.extractUserId(token);
+            return ResponseEntity.ok(
+                    ResponseAPI.<MarkNotificationsSeenResponse>builder()
+                            .data(notificationService.markAllNotificationsAsSeen(currentUserId))
+                            .message("All notifications marked as seen")
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Error marking all notifications as seen", e);
+            return ResponseEntity.badRequest().body(
+                    ResponseAPI.<MarkNotificationsSeenResponse>builder()
+                            .message("Failed to mark notifications as seen")
+                            .build()
+            );
+        }
+    }
+
+    // Đánh dấu nhiều thông báo đã đọc trong một request
+    @PostMapping("/mark-seen/bulk")
+    public ResponseEntity<ResponseAPI<MarkNotificationsSeenResponse>> markNotificationsAsSeen(
+            @RequestHeader("Authorization") String authorizationHeader,
+            @RequestBody MarkNotificationsSeenDto body) {
+        try {
+            String token = authorizationHeader.substring(7);
+            String currentUserId = jwtService.extractUserId(token);
+            return ResponseEntity.ok(
+                    ResponseAPI.<MarkNotificationsSeenResponse>builder()
+                            .data(notificationService.markNotificationsAsSeen(currentUserId, body.getNotificationIds()))
+                            .message("Notifications marked as seen")
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("Error marking notifications as seen", e);
+            return ResponseEntity.badRequest().body(
+                    ResponseAPI.<MarkNotificationsSeenResponse>builder()
+                            .message(e.getMessage())
+                            .build()
+            );
+        }
+    }
+
     // Đánh dấu thông báo đã đọc
     @PostMapping("/mark-seen")
     public ResponseEntity<ResponseAPI<Void>> markNotificationAsSeen(
@@ -1,6 +1,8 @@
 package com.example.learning_api.controller;
 
 import com.example.learning_api.dto.common.MarkNotificationSeenDto;
+import com.example.learning_api.dto.common.MarkNotificationsSeenDto;
+import com.example.learning_api.dto.response.notification.MarkNotificationsSeenResponse;
 import com.example.learning_api.service.core.INotificationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -39,4 +41,21 @@ public class NotificationWebSocketController {
             throw new IllegalArgumentException(e.getMessage());
         }
     }
+
+    // Marks many notifications in one bulk write; the new badge is pushed to /topic/notifications/{userId}/unread
+    @MessageMapping("/notifications.markManyAsSeen")
+    public void markNotificationsAsSeen(@Payload MarkNotificationsSeenDto markNotificationsSeenDto) {
+        try {
+            MarkNotificationsSeenResponse response = notificationService.markNotificationsAsSeen(
+                    markNotificationsSeenDto.getUserId(), markNotificationsSeenDto.getNotificationIds());
+            messagingTemplate.convertAndSendToUser(
+                    markNotificationsSeenDto.getUserId(),
+                    "/queue/notifications.seen",
+                    response
+            );
+        } catch (Exception e) {
+            logger.error("Error processing markNotificationsAsSeen: ", e);
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
 }
\ No newline at end of file
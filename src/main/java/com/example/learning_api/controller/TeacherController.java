@@ -136,6 +136,28 @@ public class TeacherController {
     }
 
 
+    @PostMapping(path = "/dashboard/rebuild")
+    public ResponseEntity<ResponseAPI<String>> rebuildTeacherDashboard(@RequestHeader("Authorization") String authorization) {
+        try{
+            String token = authorization.substring(7);
+            String userId = jwtService.extractUserId(token);
+            String teacherId = teacherService.getTeacherByUserId(userId).getId();
+            teacherService.rebuildTeacherDashboard(teacherId);
+            ResponseAPI<String> res = ResponseAPI.<String>builder()
+                    .timestamp(new Date())
+                    .message("Rebuild teacher dashboard successfully")
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.OK);
+        }
+        catch (Exception e){
+            ResponseAPI<String> res = ResponseAPI.<String>builder()
+                    .timestamp(new Date())
+                    .message(e.getMessage())
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
+        }
+    }
+
     @GetMapping(path = "/dashboard")
     public ResponseEntity<ResponseAPI<TeacherDashboardResponse>> getTeacherDashboard(@RequestHeader("Authorization") String authorization) {
         try{
@@ -6,9 +6,13 @@ import com.example.learning_api.dto.response.question.GetQuestionsResponse;
 import com.example.learning_api.dto.response.teacher.GetTeachersResponse;
 import com.example.learning_api.dto.response.test.*;
 import com.example.learning_api.entity.sql.database.StudentEntity;
+import com.example.learning_api.entity.sql.database.TestExitCountEntity;
+import com.example.learning_api.entity.sql.database.TestImportJobEntity;
 import com.example.learning_api.entity.sql.database.UserEntity;
+import com.example.learning_api.model.CustomException;
 import com.example.learning_api.model.ResponseAPI;
 import com.example.learning_api.repository.database.UserRepository;
+import com.example.learning_api.service.common.AdmissionControl;
 import com.example.learning_api.service.common.JwtService;
 import com.example.learning_api.service.core.ITestResultService;
 import com.example.learning_api.service.core.ITestService;
@@ -18,6 +22,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -39,23 +44,40 @@ public class TestController {
     private final UserRepository userRepository;
     @PostMapping(path = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAnyAuthority('ADMIN','TEACHER')")
-    public ResponseEntity<ResponseAPI<String>> importTest(@ModelAttribute @Valid ImportTestRequest body) {
+    public ResponseEntity<ResponseAPI<TestImportJobEntity>> importTest(@ModelAttribute @Valid ImportTestRequest body) {
         try{
-            testService.importTest(body);
-            ResponseAPI<String> res = ResponseAPI.<String>builder()
+            TestImportJobEntity data = testService.importTest(body);
+            ResponseAPI<TestImportJobEntity> res = ResponseAPI.<TestImportJobEntity>builder()
                     .timestamp(new Date())
-                    .message("Import test successfully")
+                    .message("Import test started")
+                    .data(data)
                     .build();
-            return new ResponseEntity<>(res, StatusCode.CREATED);
+            return new ResponseEntity<>(res, StatusCode.ACCEPTED);
         }
         catch (Exception e){
-            ResponseAPI<String> res = ResponseAPI.<String>builder()
+            return failure(e);
+        }
+
+    }
+    @GetMapping(path = "/import/{jobId}")
+    @PreAuthorize("hasAnyAuthority('ADMIN','TEACHER')")
+    public ResponseEntity<ResponseAPI<TestImportJobEntity>> getImportJob(@PathVariable String jobId) {
+        try{
+            TestImportJobEntity data = testService.getImportJob(jobId);
+            ResponseAPI<TestImportJobEntity> res = ResponseAPI.<TestImportJobEntity>builder()
+                    .timestamp(new Date())
+                    .message("Get import job successfully")
+                    .data(data)
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.OK);
+        }
+        catch (Exception e){
+            ResponseAPI<TestImportJobEntity> res = ResponseAPI.<TestImportJobEntity>builder()
                     .timestamp(new Date())
                     .message(e.getMessage())
                     .build();
             return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
         }
-
     }
     @GetMapping(path = "/{testId}")
     public ResponseEntity<ResponseAPI<GetTestDetailResponse>> getTestDetail(@PathVariable String testId) {
@@ -198,11 +220,7 @@ public class TestController {
             return new ResponseEntity<>(res, StatusCode.CREATED);
         }
         catch (Exception e){
-            ResponseAPI<StartTestResponse> res = ResponseAPI.<StartTestResponse>builder()
-                    .timestamp(new Date())
-                    .message(e.getMessage())
-                    .build();
-            return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
+            return failure(e);
         }
 
     }
@@ -274,11 +292,7 @@ public class TestController {
             return new ResponseEntity<>(res, StatusCode.CREATED);
         }
         catch (Exception e){
-            ResponseAPI<String> res = ResponseAPI.<String>builder()
-                    .timestamp(new Date())
-                    .message(e.getMessage())
-                    .build();
-            return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
+            return failure(e);
         }
 
     }
@@ -303,6 +317,46 @@ public class TestController {
 
     }
 
+    @PostMapping(path = "/exit-logs")
+    @PreAuthorize("hasAnyAuthority('USER')")
+    public ResponseEntity<ResponseAPI<Integer>> addExitLogs(@RequestHeader("Authorization") String authorizationHeader,
+                                                            @RequestBody CreateExitLogsRequest body) {
+        try{
+            String userId = jwtService.extractUserId(authorizationHeader.substring(7));
+            int accepted = testResultService.addExitLogs(userId, body);
+            ResponseAPI<Integer> res = ResponseAPI.<Integer>builder()
+                    .timestamp(new Date())
+                    .message("Add exit logs successfully")
+                    .data(accepted)
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.ACCEPTED);
+        }
+        catch (Exception e){
+            return failure(e);
+        }
+    }
+
+    @GetMapping(path = "/exit-logs/{testId}")
+    @PreAuthorize("hasAnyAuthority('ADMIN','TEACHER')")
+    public ResponseEntity<ResponseAPI<List<TestExitCountEntity>>> getExitCounts(@PathVariable String testId) {
+        try{
+            List<TestExitCountEntity> resData = testResultService.getExitCounts(testId);
+            ResponseAPI<List<TestExitCountEntity>> res = ResponseAPI.<List<TestExitCountEntity>>builder()
+                    .timestamp(new Date())
+                    .message("Get exit counts successfully")
+                    .data(resData)
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.OK);
+        }
+        catch (Exception e){
+            ResponseAPI<List<TestExitCountEntity>> res = ResponseAPI.<List<TestExitCountEntity>>builder()
+                    .timestamp(new Date())
+                    .message(e.getMessage())
+                    .build();
+            return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
+        }
+    }
+
     @GetMapping(path = "/progress/{studentId}/{testId}")
     public ResponseEntity<ResponseAPI<GetTestProgressResponse>> getProgress(@PathVariable String studentId, @PathVariable String testId) {
         try{
@@ -542,4 +596,19 @@ public class TestController {
         }
     }
 
+    /**
+     * 429 with a Retry-After header when admission control turned the request away, 400 otherwise.
+     */
+    private static <T> ResponseEntity<ResponseAPI<T>> failure(Exception e) {
+        ResponseAPI<T> res = ResponseAPI.<T>builder()
+                .timestamp(new Date())
+                .message(e.getMessage())
+                .build();
+        if (e instanceof CustomException busy && AdmissionControl.BUSY_CODE.equals(busy.getErrorCode())) {
+            return ResponseEntity.status(StatusCode.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, busy.getDetailMessage())
+                    .body(res);
+        }
+        return new ResponseEntity<>(res, StatusCode.BAD_REQUEST);
+    }
 }
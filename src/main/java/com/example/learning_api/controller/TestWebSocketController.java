@@ -0,0 +1,41 @@
+package com.example.learning_api.controller;
+
+import com.example.learning_api.dto.request.test.CreateExitLogsRequest;
+import com.example.learning_api.service.core.ITestResultService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+@Controller
+@RequiredArgsConstructor
+public class TestWebSocketController {
+    private static final Logger logger = LoggerFactory.getLogger(TestWebSocketController.class);
+    private final ITestResultService testResultService;
+
+    // Exam clients already connected over STOMP send their focus events to /app/tests.exitLogs; the student is the
+    // session's principal, set from the access token of the CONNECT frame
+    @MessageMapping("/tests.exitLogs")
+    public void addExitLogs(@Payload CreateExitLogsRequest body, Principal principal) {
+        if (!isStudent(principal)) {
+            logger.warn("Exit logs rejected: session is not authenticated as a student");
+            return;
+        }
+        try {
+            testResultService.addExitLogs(principal.getName(), body);
+        } catch (Exception e) {
+            // Nothing to answer on a fire-and-forget frame; rejected events show up in the exit.log.events metric
+            logger.warn("Error processing exit logs: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isStudent(Principal principal) {
+        return principal instanceof Authentication authentication
+                && authentication.getAuthorities().stream().anyMatch(authority -> "USER".equals(authority.getAuthority()));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.learning_api.dto.common;
+
+import com.example.learning_api.entity.sql.database.StudentAnswersEntity;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every answer of one test result, built in memory and written at once by AnswerSheetWriter.
+ */
+@Getter
+public class AnswerSheet {
+    private final String testResultId;
+    private final String studentId;
+    private final String createdAt = String.valueOf(System.currentTimeMillis());
+    private final List<StudentAnswersEntity> answers = new ArrayList<>();
+
+    public AnswerSheet(String testResultId, String studentId) {
+        this.testResultId = testResultId;
+        this.studentId = studentId;
+    }
+
+    /**
+     * @param answerId   the chosen answer, null for text answers
+     * @param answerText the submitted text, null for choices
+     * @param isCorrect  null while the test is still in progress
+     */
+    public void add(String questionId, String answerId, String answerText, Boolean isCorrect) {
+        StudentAnswersEntity studentAnswer = new StudentAnswersEntity();
+        studentAnswer.setQuestionId(questionId);
+        studentAnswer.setStudentId(studentId);
+        studentAnswer.setTestResultId(testResultId);
+        studentAnswer.setAnswerId(answerId);
+        studentAnswer.setTextAnswer(answerText);
+        studentAnswer.setContent(answerText);
+        studentAnswer.setIsCorrect(isCorrect);
+        studentAnswer.setCreatedAt(createdAt);
+        studentAnswer.setUpdatedAt(createdAt);
+        answers.add(studentAnswer);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.learning_api.dto.common;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Keyset position in the classroom discovery feed. Clients only ever see it as an opaque token.
+ */
+@Data
+@NoArgsConstructor
+public class ClassRoomFeedCursor {
+    private String sort;    // popular, new, price_asc, price_desc or random
+    private Object value;   // sort key of the last row read, null before the first page
+    private String id;      // _id of the last row read, breaks ties between equal sort keys
+    private Double seed;    // random feed only: where the shuffled order starts
+    private Integer phase;  // random feed only: 0 before wrapping around the shuffle, 1 after
+
+    public ClassRoomFeedCursor(String sort) {
+        this.sort = sort;
+    }
+}
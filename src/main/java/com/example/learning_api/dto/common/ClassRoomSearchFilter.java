@@ -0,0 +1,21 @@
+package com.example.learning_api.dto.common;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Collection;
+
+/**
+ * Structured restrictions applied by {@link com.example.learning_api.service.common.ClassRoomSearchIndex}
+ * before scoring. Null fields do not filter.
+ */
+@Data
+@Builder
+public class ClassRoomSearchFilter {
+    private String status;
+    private String excludedStatus;
+    private String categoryId;
+    private String teacherId;
+    private Collection<String> includeIds;
+    private Collection<String> excludeIds;
+}
@@ -0,0 +1,10 @@
+package com.example.learning_api.dto.common;
+
+import lombok.Data;
+
+@Data
+public class ClassroomRatingBucket {
+    private String classroomId;
+    private Double rating;
+    private int count;
+}
@@ -0,0 +1,92 @@
+package com.example.learning_api.dto.common;
+
+import com.example.learning_api.enums.QuestionType;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Read-only answer key of one test at a given version: questions in test order with their answers,
+ * the set of correct answer IDs and the normalized text of every answer.
+ * Keys are shared between submissions and must never be changed.
+ */
+@Getter
+public class CompiledAnswerKey {
+    private final String testId;
+    private final long version;
+    private final Double passingGrade;
+    private final String lessonId;
+    private final String classroomId;
+    private final List<QuestionKey> questions;
+    private final Map<String, QuestionKey> questionsById = new HashMap<>();
+
+    public CompiledAnswerKey(String testId, long version, Double passingGrade, String lessonId, String classroomId,
+                             List<QuestionKey> questions) {
+        this.testId = testId;
+        this.version = version;
+        this.passingGrade = passingGrade;
+        this.lessonId = lessonId;
+        this.classroomId = classroomId;
+        this.questions = List.copyOf(questions);
+        for (QuestionKey question : this.questions) {
+            questionsById.put(question.getId(), question);
+        }
+    }
+
+    public QuestionKey getQuestion(String questionId) {
+        return questionsById.get(questionId);
+    }
+
+    public int getTotalQuestions() {
+        return questions.size();
+    }
+
+    @Getter
+    public static class QuestionKey {
+        private final String id;
+        private final String content;
+        private final String description;
+        private final String type;
+        private final List<AnswerKey> answers;
+        private final Set<String> correctAnswerIds;
+        // Normalized content of the answers, in answer order; the expected text of TEXT_ANSWER and FILL_IN_THE_BLANK
+        private final List<String> normalizedTextAnswers;
+
+        public QuestionKey(String id, String content, String description, String type, List<AnswerKey> answers) {
+            this.id = id;
+            this.content = content;
+            this.description = description;
+            this.type = type;
+            this.answers = List.copyOf(answers);
+            Set<String> correct = new HashSet<>();
+            List<String> normalized = new ArrayList<>(this.answers.size());
+            for (AnswerKey answer : this.answers) {
+                if (answer.isCorrect()) {
+                    correct.add(answer.getId());
+                }
+                normalized.add(answer.getNormalizedContent());
+            }
+            this.correctAnswerIds = Collections.unmodifiableSet(correct);
+            this.normalizedTextAnswers = Collections.unmodifiableList(normalized);
+        }
+
+        public boolean isTextType() {
+            return QuestionType.TEXT_ANSWER.name().equals(type) || QuestionType.FILL_IN_THE_BLANK.name().equals(type);
+        }
+    }
+
+    @Getter
+    public static class AnswerKey {
+        private final String id;
+        private final String content;
+        private final String normalizedContent;
+        private final boolean correct;
+
+        public AnswerKey(String id, String content, String normalizedContent, boolean correct) {
+            this.id = id;
+            this.content = content;
+            this.normalizedContent = normalizedContent;
+            this.correct = correct;
+        }
+    }
+}
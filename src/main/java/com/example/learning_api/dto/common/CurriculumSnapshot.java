@@ -0,0 +1,137 @@
+package com.example.learning_api.dto.common;
+
+import com.example.learning_api.entity.sql.database.*;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Read-only section → lesson → content tree of one classroom at a given curriculum version.
+ * Snapshots are shared between requests, so callers must copy before changing anything they hold.
+ */
+@Getter
+public class CurriculumSnapshot {
+    private final String classroomId;
+    private final long version;
+    private final List<SectionNode> sections;
+    private final Map<String, SectionNode> sectionsById = new HashMap<>();
+    private final Map<Integer, SectionNode> sectionsByIndex = new HashMap<>();
+    private final Map<String, LessonNode> lessonsById = new HashMap<>();
+    // Position of each section and lesson in curriculum order, used as bit index by the progress bitmaps
+    private final Map<String, Integer> sectionOrdinals = new HashMap<>();
+    private final Map<String, Integer> lessonOrdinals = new HashMap<>();
+    private final Map<String, Integer> firstLessonOrdinals = new HashMap<>();
+    private final int lessonCount;
+
+    public CurriculumSnapshot(String classroomId, long version, List<SectionNode> sections) {
+        this.classroomId = classroomId;
+        this.version = version;
+        this.sections = List.copyOf(sections);
+        int lessonOrdinal = 0;
+        for (SectionNode section : this.sections) {
+            sectionsById.put(section.getSection().getId(), section);
+            sectionsByIndex.putIfAbsent(section.getIndex(), section);
+            sectionOrdinals.put(section.getSection().getId(), sectionOrdinals.size());
+            firstLessonOrdinals.put(section.getSection().getId(), lessonOrdinal);
+            for (LessonNode lesson : section.getLessons()) {
+                lessonsById.put(lesson.getLesson().getId(), lesson);
+                lessonOrdinals.put(lesson.getLesson().getId(), lessonOrdinal++);
+            }
+        }
+        this.lessonCount = lessonOrdinal;
+    }
+
+    public SectionNode getSection(String sectionId) {
+        return sectionsById.get(sectionId);
+    }
+
+    public SectionNode getSectionAt(int index) {
+        return sectionsByIndex.get(index);
+    }
+
+    public LessonNode getLesson(String lessonId) {
+        return lessonsById.get(lessonId);
+    }
+
+    /**
+     * @return the lesson's position in curriculum order, or -1 when it is not part of this classroom
+     */
+    public int getLessonOrdinal(String lessonId) {
+        return lessonOrdinals.getOrDefault(lessonId, -1);
+    }
+
+    /**
+     * @return the section's position in curriculum order, or -1 when it is not part of this classroom
+     */
+    public int getSectionOrdinal(String sectionId) {
+        return sectionOrdinals.getOrDefault(sectionId, -1);
+    }
+
+    /**
+     * Lessons of a section are numbered contiguously, starting at this ordinal.
+     */
+    public int getFirstLessonOrdinal(String sectionId) {
+        return firstLessonOrdinals.getOrDefault(sectionId, -1);
+    }
+
+    public List<SectionNode> getSections(Collection<String> statuses) {
+        return sections.stream()
+                .filter(section -> section.getSection().getStatus() != null && statuses.contains(section.getSection().getStatus().toString()))
+                .toList();
+    }
+
+    @Getter
+    public static class SectionNode {
+        private final SectionEntity section;
+        private final List<LessonNode> lessons;
+        private final Map<Integer, LessonNode> lessonsByIndex = new HashMap<>();
+
+        public SectionNode(SectionEntity section, List<LessonNode> lessons) {
+            this.section = section;
+            this.lessons = List.copyOf(lessons);
+            for (LessonNode lesson : this.lessons) {
+                lessonsByIndex.putIfAbsent(lesson.getIndex(), lesson);
+            }
+        }
+
+        public int getIndex() {
+            return section.getIndex() != null ? section.getIndex() : 0;
+        }
+
+        public LessonNode getLessonAt(int index) {
+            return lessonsByIndex.get(index);
+        }
+
+        public List<LessonNode> getLessons(Collection<String> statuses) {
+            return lessons.stream()
+                    .filter(lesson -> lesson.getLesson().getStatus() != null && statuses.contains(lesson.getLesson().getStatus().toString()))
+                    .toList();
+        }
+    }
+
+    @Getter
+    public static class LessonNode {
+        private final LessonEntity lesson;
+        private final List<ResourceEntity> resources;
+        private final List<MediaEntity> media;
+        private final List<SubstanceEntity> substances;
+        private final List<DeadlineEntity> deadlines;
+        private final List<TestEntity> quizzes;
+        private final List<TestEntity> exams;
+
+        public LessonNode(LessonEntity lesson, List<ResourceEntity> resources, List<MediaEntity> media, List<SubstanceEntity> substances,
+                          List<DeadlineEntity> deadlines, List<TestEntity> quizzes, List<TestEntity> exams) {
+            this.lesson = lesson;
+            this.resources = List.copyOf(resources);
+            this.media = List.copyOf(media);
+            this.substances = List.copyOf(substances);
+            this.deadlines = List.copyOf(deadlines);
+            this.quizzes = List.copyOf(quizzes);
+            this.exams = List.copyOf(exams);
+        }
+
+        public int getIndex() {
+            return lesson.getIndex() != null ? lesson.getIndex() : 0;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.learning_api.dto.common;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MarkNotificationsSeenDto {
+    private List<String> notificationIds;
+    private String userId;
+}
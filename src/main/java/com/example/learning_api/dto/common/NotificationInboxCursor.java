@@ -0,0 +1,16 @@
+package com.example.learning_api.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Keyset position in a user's notification inbox. Clients only ever see it as an opaque token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationInboxCursor {
+    private String receivedAt; // receivedAt of the last receive read
+    private String id;         // _id of the last receive read, breaks ties between equal receivedAt
+}
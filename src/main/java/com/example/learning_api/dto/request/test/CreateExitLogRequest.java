@@ -4,7 +4,6 @@ import lombok.Data;
 
 @Data
 public class CreateExitLogRequest {
-    private String studentId;
     private String testResultId;
     private String time;
 }
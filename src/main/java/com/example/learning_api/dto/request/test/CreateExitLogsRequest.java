@@ -0,0 +1,10 @@
+package com.example.learning_api.dto.request.test;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateExitLogsRequest {
+    private List<CreateExitLogRequest> events;
+}
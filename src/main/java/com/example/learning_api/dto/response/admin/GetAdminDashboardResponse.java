@@ -5,6 +5,7 @@ import com.example.learning_api.dto.common.TotalTestOfDayDto;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class GetAdminDashboardResponse {
@@ -16,6 +17,7 @@ public class GetAdminDashboardResponse {
     private List<ClassroomPerformance> classroomPerfomance;
     private UserEngagement userEngagement;
     private List<GetRecentActivity> recentActivity;
+    private List<ActivityBucket> hourlyActivity;
     @Data
     public static class EnrollmentTrend{
         private String date;
@@ -34,4 +36,9 @@ public class GetAdminDashboardResponse {
         private int totalActiveUser;
         private int totalInactiveUser;
     }
+    @Data
+    public static class ActivityBucket{
+        private String bucket;
+        private Map<String, Long> counters;
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.learning_api.dto.response.classroom;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GetClassRoomFeedResponse {
+    private List<GetClassRoomsResponse.ClassRoomResponse> classRooms;
+    private String nextCursor;
+    private Boolean hasMore;
+}
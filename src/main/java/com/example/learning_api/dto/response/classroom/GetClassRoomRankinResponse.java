@@ -5,6 +5,7 @@ import com.example.learning_api.enums.ClassRoomStatus;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class GetClassRoomRankinResponse {
@@ -12,6 +13,7 @@ public class GetClassRoomRankinResponse {
     private Integer totalPage;
     private Double averageRating;
     private Integer totalReview;
+    private Map<String, Integer> ratingHistogram;
     private List<Review> data;
     @Data
     public static class Review{
@@ -0,0 +1,13 @@
+package com.example.learning_api.dto.response.notification;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GetNotificationInboxResponse {
+    private List<GetUserNotificationResponse> notifications;
+    private String nextCursor;
+    private Boolean hasMore;
+    private Integer unreadCount;
+}
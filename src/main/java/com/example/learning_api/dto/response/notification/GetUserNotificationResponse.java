@@ -32,4 +32,6 @@ public class GetUserNotificationResponse {
 
     private String updatedAt;
     private Boolean seen = false;
+    private String receivedAt;
+    private String seenAt;
 }
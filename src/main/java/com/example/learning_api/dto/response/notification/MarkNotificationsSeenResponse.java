@@ -0,0 +1,16 @@
+package com.example.learning_api.dto.response.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkNotificationsSeenResponse {
+    private List<String> notificationIds; // Null when every notification was marked
+    private Integer marked;
+    private Integer unreadCount;
+}
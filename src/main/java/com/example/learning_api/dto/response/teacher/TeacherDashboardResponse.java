@@ -3,13 +3,18 @@ package com.example.learning_api.dto.response.teacher;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class TeacherDashboardResponse {
     private int totalClasses;
     private int totalStudents;
-    private int totalRevenue;
+    private long totalRevenue;
     private Double averageRating;
+    private Map<String, Long> revenueByDay;
+    private Map<String, Long> revenueByMonth;
+    private Map<String, Integer> enrollmentsByClass;
+    private Map<String, Double> averageRatingByClass;
     private List<RecentSales> recentSales;
     private List<Review> reviews;
     @Data
@@ -18,7 +23,7 @@ public class TeacherDashboardResponse {
         private String studentAvatar;
         private String className;
         private String classroomId;
-        private int price;
+        private long price;
     }
 
     @Data
@@ -11,6 +11,8 @@ public class ScoreDistributionResponse {
     private Integer totalPage;
     private Long totalElements;
     private List<ScoreDistribution> scoreDistributions;
+    private Summary summary;
+    private List<Bucket> histogram;
     @Data
     public static class ScoreDistribution{
         private String fullname;
@@ -25,6 +27,25 @@ public class ScoreDistributionResponse {
         private Boolean isPassed;
 
     }
+    @Data
+    public static class Summary{
+        private Integer count;
+        private Integer totalPassed;
+        private Double mean;
+        private Double stdDev;
+        private Double min;
+        private Double max;
+        private Double p25;
+        private Double p50;
+        private Double p75;
+        private Double p90;
+    }
+    @Data
+    public static class Bucket{
+        private Double from;
+        private Double to;
+        private Integer count;
+    }
 
 
 
@@ -0,0 +1,26 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Pre-aggregated admin analytics counters for one time bucket (minute, hour, day or month),
+ * or the running totals when {@code granularity} is "total".
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "analytics_buckets")
+public class AnalyticsBucketEntity {
+    @Id
+    private String id; // granularity:bucket, e.g. hour:2024-05-01T13
+    private String granularity;
+    private String bucket;
+    private Date start;
+    private Map<String, Long> counters;
+    private Boolean seeded; // totals only: set once they have been counted from the source collections
+}
@@ -0,0 +1,19 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Version counter of a test's answer key (its questions, answers and grading settings).
+ * Kept out of the test document so full saves of {@link TestEntity} cannot roll it back.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "answer_key_versions")
+public class AnswerKeyVersionEntity {
+    @Id
+    private String id; // ID bài kiểm tra
+    private Long version;
+}
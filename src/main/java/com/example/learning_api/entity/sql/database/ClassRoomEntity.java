@@ -9,6 +9,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.Builder;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -33,6 +34,12 @@ public class ClassRoomEntity {
     private Integer totalExam;
     private Integer totalDocument;
     private Integer price;
+    // Maintained with $inc by ClassRoomStatsService, repaired by ClassRoomStatsReconcileSchedule
+    private Double ratingSum;
+    private Integer ratingCount;
+    private Map<String, Integer> ratingHistogram;
+    // Random position used by the discovery feed's stable shuffle, see ClassRoomFeedReader
+    private Double shuffleKey;
     private String categoryId;
     private Boolean isPublic;
     private String teacherId;
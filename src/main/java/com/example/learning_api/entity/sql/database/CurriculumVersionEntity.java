@@ -0,0 +1,19 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Version counter of a classroom's curriculum (sections, lessons and their content).
+ * Kept out of the classroom document so full saves of {@link ClassRoomEntity} cannot roll it back.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "curriculum_versions")
+public class CurriculumVersionEntity {
+    @Id
+    private String id; // ID lớp học
+    private Long version;
+}
@@ -0,0 +1,42 @@
+package com.example.learning_api.entity.sql.database;
+
+import com.example.learning_api.enums.MailJobStatus;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * One queued email of the mail outbox, rendered from a template when it is sent.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "mail_jobs")
+@CompoundIndex(def = "{'status': 1, 'priority': 1, 'nextAttemptAt': 1}")
+public class MailJobEntity {
+    @Id
+    private String id;
+    private String to; // Null when only the user is known; resolved when sending
+    private String userId;
+    private String subject;
+    private String template;
+    private Map<String, String> variables;
+    private MailJobStatus status;
+    private Integer priority; // Lower is claimed first: transactional mail ahead of fan-out
+    private Integer attempts;
+    private Long nextAttemptAt;
+    private Long deadline; // Neither sent nor retried after this, e.g. once the code it carries has expired
+    private Long lockedUntil; // Lease of the instance sending it; expired leases are picked up again
+    @Indexed
+    private String claimToken;
+    private String lastError;
+    private String createdAt;
+    private String sentAt;
+    @Indexed(expireAfterSeconds = 0)
+    private Date expireAt; // Set once sent or failed, or to the deadline when enqueued, so old mail is purged
+}
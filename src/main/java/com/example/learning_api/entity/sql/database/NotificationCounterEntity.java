@@ -0,0 +1,21 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Unread notification badge of one user, kept in step with their receives.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "notification_counters")
+public class NotificationCounterEntity {
+    @Id
+    private String id; // userId
+    private Integer unread;
+    private Long version;    // Bumped by every change, so a build knows whether one landed while it counted
+    private String building; // Token of the build in progress; unread is not trusted while set
+    private String updatedAt;
+}
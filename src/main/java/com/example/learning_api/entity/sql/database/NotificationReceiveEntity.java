@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -12,6 +14,10 @@ import java.time.Instant;
 
 
 @Document(collection = "notification_receives")
+@CompoundIndexes({
+        @CompoundIndex(def = "{'userId': 1, 'receivedAt': -1, '_id': -1}"),
+        @CompoundIndex(def = "{'userId': 1, 'seen': 1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,6 +26,7 @@ public class NotificationReceiveEntity {
     @Id
     private String id;
 
+    @Indexed
     private String notificationId;
 
     private String userId;
@@ -31,6 +38,7 @@ public class NotificationReceiveEntity {
     private String receivedAt = String.valueOf(System.currentTimeMillis());
 
     private String seenAt;
+    private String seenBatch; // Bulk mark-as-seen that flipped this receive, to count what it changed
 
     @Builder.Default
     private Boolean isDeleted = false;
@@ -0,0 +1,24 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Completed lessons and sections of one student in one classroom, as bitsets indexed by curriculum ordinal.
+ * Derived from the progress collection; rebuilt whenever the classroom's curriculum version moves.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "progress_bitmaps")
+public class ProgressBitmapEntity {
+    @Id
+    private String id; // studentId:classroomId
+    private String studentId;
+    private String classroomId;
+    private Long curriculumVersion;
+    private byte[] lessons;
+    private byte[] sections;
+    private Long revision;
+}
@@ -0,0 +1,28 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+/**
+ * Answer statistics of one question over the best finished attempt of every student, kept up to date by
+ * QuestionStatsStore.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "question_stats")
+@CompoundIndex(def = "{'testId': 1, 'generation': 1}")
+public class QuestionStatsEntity {
+    @Id
+    private String id; // generation:questionId
+    private String questionId;
+    private String testId;
+    private String generation; // Build of TestStatsEntity these counts belong to
+    private Integer totalCorrect;
+    private Integer totalIncorrect;
+    private Map<String, Integer> selections; // ID đáp án -> số lượt chọn
+}
@@ -0,0 +1,19 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Entry of the admin "recent activity" feed. Stored in a capped collection, so it behaves as a ring buffer.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "recent_activity")
+public class RecentActivityEntity {
+    @Id
+    private String id;
+    private String title;
+    private String time;
+}
@@ -0,0 +1,58 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed teacher dashboard, maintained by TeacherRollupService from the payment, enrollment and review
+ * write paths and rebuilt from the source collections on demand.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "teacher_rollups")
+public class TeacherRollupEntity {
+    @Id
+    private String id; // ID giáo viên
+    private Long totalRevenue;
+    private Integer totalStudents;
+    private Double ratingSum;
+    private Integer ratingCount;
+    private Map<String, Long> revenueByDay; // yyyy-MM-dd
+    private Map<String, Long> revenueByMonth; // yyyy-MM
+    private Map<String, Integer> enrollmentsByClass;
+    private Map<String, Double> ratingSumByClass;
+    private Map<String, Integer> ratingCountByClass;
+    private List<RecentSale> recentSales; // Newest first
+    private List<RecentReview> recentReviews; // Newest first
+    private String rebuiltAt;
+
+    @Data
+    @NoArgsConstructor
+    public static class RecentSale {
+        private String transactionId;
+        private String studentName;
+        private String studentAvatar;
+        private String className;
+        private String classroomId;
+        private Long amount;
+        private String createdAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class RecentReview {
+        private String reviewId;
+        private String studentName;
+        private String studentAvatar;
+        private String className;
+        private String classroomId;
+        private Double rating;
+        private String comment;
+        private String createdAt;
+    }
+}
@@ -28,6 +28,8 @@ public class TestEntity {
     private TestShowResultType showResultType;
     private TestStatus status;
     private Double passingGrade;
+    private String startAt;
+    private String endAt;
     private String createdAt;
     private String updatedAt;
 
@@ -0,0 +1,24 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Running count of the tab/window exits of one test attempt, kept next to the exit log so teachers can watch an
+ * exam without scanning it.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "test_exit_counts")
+public class TestExitCountEntity {
+    @Id
+    private String id; // ID kết quả bài kiểm tra (testResultId)
+    @Indexed
+    private String testId;
+    private String studentId;
+    private Integer count;
+    private String lastExitAt;
+}
@@ -0,0 +1,42 @@
+package com.example.learning_api.entity.sql.database;
+
+import com.example.learning_api.enums.ImportJobStatus;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Progress and outcome of an asynchronous test import, polled by the client after submitting it.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "test_import_jobs")
+public class TestImportJobEntity {
+    @Id
+    private String id;
+    private String testId;
+    private ImportJobStatus status;
+    private Integer totalUnits; // Số trang (PDF), đoạn văn (DOCX) hoặc dòng (text)
+    private Integer processedUnits;
+    private Integer parsedQuestions;
+    private Integer importedQuestions;
+    private Integer failedQuestions;
+    private List<QuestionError> errors;
+    private String message;
+    private String createdAt;
+    private String updatedAt;
+    private String finishedAt;
+    private String heartbeatAt; // Touched every minute by the instance holding the job, until it finishes
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QuestionError {
+        private Integer number; // Số thứ tự "Câu N" trong file
+        private String message;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * The attempt of a student that is currently counted in the question statistics of a test, with what it added,
+ * so it can be taken back out when a better attempt replaces it.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "test_stats_attempts")
+@CompoundIndex(def = "{'testId': 1, 'generation': 1}")
+public class TestStatsAttemptEntity {
+    @Id
+    private String id; // generation:studentId
+    private String testId;
+    private String generation;
+    private String studentId;
+    private String testResultId;
+    private Double grade;
+    private List<QuestionOutcome> outcomes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QuestionOutcome {
+        private String questionId;
+        private Boolean correct;
+        private List<String> answerIds;
+    }
+}
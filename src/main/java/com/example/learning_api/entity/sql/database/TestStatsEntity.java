@@ -0,0 +1,23 @@
+package com.example.learning_api.entity.sql.database;
+
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Marks the question statistics of a test as built, or being built, against a version of its answer key.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "test_stats")
+public class TestStatsEntity {
+    @Id
+    private String id; // ID bài kiểm tra
+    private Long keyVersion;
+    private String generation; // Statistics and counted attempts of the current build are tagged with it
+    private Boolean building; // Set while the statistics are rebuilt from the stored results
+    private String buildStartedAt;
+    private Long leaseUntil; // Held by the instance building; an expired lease can be taken over
+    private String builtAt;
+}
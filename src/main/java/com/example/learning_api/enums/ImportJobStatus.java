@@ -0,0 +1,8 @@
+package com.example.learning_api.enums;
+
+public enum ImportJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
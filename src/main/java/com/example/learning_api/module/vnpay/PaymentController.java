@@ -11,6 +11,9 @@ import com.example.learning_api.repository.database.ClassRoomRepository;
 import com.example.learning_api.repository.database.StudentEnrollmentsRepository;
 import com.example.learning_api.repository.database.StudentRepository;
 import com.example.learning_api.repository.database.TransactionRepository;
+import com.example.learning_api.service.common.ClassRoomStatsService;
+import com.example.learning_api.service.common.MailOutbox;
+import com.example.learning_api.service.common.TeacherRollupService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -18,7 +21,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
@@ -27,21 +29,15 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.web.bind.annotation.*;
-import org.thymeleaf.context.Context;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.thymeleaf.spring6.SpringTemplateEngine;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 @RestController
 @RequestMapping("/api/v1/payment")
 @RequiredArgsConstructor
@@ -50,14 +46,12 @@ public class PaymentController {
     private final TransactionRepository transactionRepository;
     private final StudentEnrollmentsRepository studentEnrollmentsRepository;
     private final StudentRepository studentRepository;
-    private final JavaMailSender javaMailSender;
+    private final MailOutbox mailOutbox;
     private final ClassRoomRepository classroomRepository;
+    private final ClassRoomStatsService classRoomStatsService;
+    private final TeacherRollupService teacherRollupService;
     @Value("${client.url.payment-status}")
     private String clientRedirectUrl;
-    @Value("${spring.mail.username}")
-    private String mailFrom;
-    @Autowired
-    private SpringTemplateEngine templateEngine;
     @PostMapping("/vn-pay")
     public ResponseObject<PaymentDTO.VNPayResponse> pay(HttpServletRequest request, @RequestBody PaymentRequest body) {
         return new ResponseObject<>(HttpStatus.OK, "Success", paymentService.createVnPayPayment(request, body));
@@ -71,8 +65,13 @@ public class PaymentController {
 
         if (status.equals("00")) { // Giao dịch thành công
             for (TransactionEntity transactionEntity : transactionEntities) {
+                boolean alreadyPaid = "SUCCESS".equals(transactionEntity.getStatus());
                 transactionEntity.setStatus("SUCCESS");
                 transactionRepository.save(transactionEntity);
+                if (!alreadyPaid) {
+                    // VNPay may call back more than once for the same payment
+                    teacherRollupService.saleCompleted(transactionEntity);
+                }
 
                 StudentEnrollmentsEntity studentEnrollmentsEntity = new StudentEnrollmentsEntity();
                 StudentEntity studentEntity = studentRepository.findByUserId(transactionEntity.getUserId());
@@ -81,6 +80,10 @@ public class PaymentController {
                 studentEnrollmentsEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
                 studentEnrollmentsEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
                 studentEnrollmentsRepository.save(studentEnrollmentsEntity);
+                if (!alreadyPaid) {
+                    classRoomStatsService.enrollmentAdded(transactionEntity.getClassroomId());
+                    teacherRollupService.enrollmentAdded(transactionEntity.getClassroomId());
+                }
                 ClassRoomEntity classRoomEntity = classroomRepository.findById(transactionEntity.getClassroomId()).get();
                 // Send email notification
                 sendEnrollmentSuccessEmail(studentEntity.getUser().getEmail(), classRoomEntity.getName(), transactionRef);
@@ -91,26 +94,9 @@ public class PaymentController {
             response.sendRedirect(clientRedirectUrl + "?status=failed&transactionRef=" + transactionRef);
         }
     }
-    @Async
     private void sendEnrollmentSuccessEmail(String toMail, String courseName, String transactionRef) {
-        try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-            MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, StandardCharsets.UTF_8.name());
-
-            Context context = new Context();
-            context.setVariable("courseName", courseName);
-            context.setVariable("transactionRef", transactionRef);
-            String htmlContent = templateEngine.process("course-enrollment-success", context);
-
-            mimeMessageHelper.setFrom(mailFrom);
-            mimeMessageHelper.setTo(toMail);
-            mimeMessageHelper.setText(htmlContent, true);
-            mimeMessageHelper.setSubject("Course Enrollment Success");
-
-            javaMailSender.send(mimeMessage);
-        } catch (MessagingException e) {
-            throw new CustomException("Error while sending email");
-        }
+        mailOutbox.enqueue(toMail, "Course Enrollment Success", "course-enrollment-success",
+                Map.of("courseName", courseName, "transactionRef", transactionRef));
     }
 
     @GetMapping("/payment-status/{transactionRef}")
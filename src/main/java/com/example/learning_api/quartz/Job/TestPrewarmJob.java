@@ -0,0 +1,32 @@
+package com.example.learning_api.quartz.Job;
+
+import com.example.learning_api.service.common.AnswerKeyCache;
+import com.example.learning_api.service.core.ITestService;
+import lombok.RequiredArgsConstructor;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs shortly before a test starts and loads its content and answer key into cache,
+ * so the students starting together are served from memory.
+ */
+@RequiredArgsConstructor
+public class TestPrewarmJob implements Job {
+    private final ITestService testService;
+    private final AnswerKeyCache answerKeyCache;
+    private static final Logger logger = LoggerFactory.getLogger(TestPrewarmJob.class);
+
+    @Override
+    public void execute(JobExecutionContext context) {
+        String testId = context.getJobDetail().getJobDataMap().getString("testId");
+        try {
+            answerKeyCache.get(testId);
+            testService.getTestDetail(testId);
+            logger.info("Prewarmed test: ID = {}", testId);
+        } catch (Exception e) {
+            logger.error("Error when prewarming test {}: {}", testId, e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.example.learning_api.quartz.Schedules;
 
 import com.example.learning_api.entity.sql.database.TestEntity;
+import com.example.learning_api.quartz.Job.TestPrewarmJob;
 import com.example.learning_api.quartz.Job.TestReminderJob;
 import org.quartz.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.Set;
 
 @Service
 public class TestSchedulerService {
@@ -38,4 +40,25 @@ public class TestSchedulerService {
         // Lên lịch job
         scheduler.scheduleJob(jobDetail, trigger);
     }
-}
\ No newline at end of file
+
+    public void scheduleTestPrewarm(TestEntity test, long triggerTimeMillis) throws SchedulerException {
+        JobKey jobKey = JobKey.jobKey("TestPrewarmJob-" + test.getId(), "TestPrewarmGroup");
+        JobDetail jobDetail = JobBuilder.newJob(TestPrewarmJob.class)
+                .withIdentity(jobKey)
+                .usingJobData("testId", test.getId())
+                .build();
+
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity("PrewarmTrigger-" + test.getId(), "TestPrewarmGroup")
+                .startAt(new Date(triggerTimeMillis))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule())
+                .build();
+
+        // Thay thế lịch cũ nếu giờ bắt đầu bị đổi
+        scheduler.scheduleJob(jobDetail, Set.of(trigger), true);
+    }
+
+    public void cancelTestPrewarm(String testId) throws SchedulerException {
+        scheduler.deleteJob(JobKey.jobKey("TestPrewarmJob-" + testId, "TestPrewarmGroup"));
+    }
+}
@@ -92,6 +92,8 @@ public interface ClassRoomRepository extends MongoRepository<ClassRoomEntity, St
     @Query("{ 'teacherId' : ?0, 'status': { $ne: 'BLOCKED' } }")
     Page<ClassRoomEntity> findByTeacherId(String teacherId, Pageable pageable);
     List<ClassRoomEntity> findByTeacherId(String teacherId);
+    long countByTeacherId(String teacherId);
+    List<ClassRoomEntity> findTop5ByOrderByCurrentEnrollmentDesc();
 
     @Query("{ '_id' : { $in: ?0 }, 'categoryId' : ?1, 'name' : { $regex: ?2, $options: 'i' }, 'status': { $ne: 'BLOCKED' } }")
     Page<ClassRoomEntity> findByCategoryAndNameContaining(List<String> classroomIds, String categoryId, String search, Pageable pageable);
@@ -117,19 +119,11 @@ public interface ClassRoomRepository extends MongoRepository<ClassRoomEntity, St
     @Query("{'_id': { $nin: ?0 }, 'categoryId': ?1, 'name': { $regex: ?2, $options: 'i' }, 'status': ?3 }")
     Page<ClassRoomEntity> findByCategoryAndNameContainingAndStatusNotIn(List<String> excludedIds, String categoryId, String name, String status, Pageable pageable);
 
-    @Aggregation(pipeline = {
-            "{ $match: { '_id': { $nin: ?0 }, 'status': 'COMPLETED', 'name': { $regex: ?1, $options: 'i' } } }",
-            "{ $sort: { 'createdAt': -1 } }",
-            "{ $skip: ?#{#pageable.offset} }",
-            "{ $limit: ?#{#pageable.pageSize} }"
-    })
-    List<ClassRoomEntity> findNewClassrooms(List<String> excludedIds, String search, Pageable pageable);
+    @Query(value = "{'_id': { $nin: ?0 }, 'categoryId': ?1, 'name': { $regex: ?2, $options: 'i' }, 'status': ?3 }", count = true)
+    long countByCategoryAndNameContainingAndStatusNotIn(List<String> excludedIds, String categoryId, String name, String status);
 
-    @Aggregation(pipeline = {
-            "{ $match: { '_id': { $nin: ?0 }, 'status': ?2, 'name': { $regex: ?1, $options: 'i' } } }",
-            "{ $sort: { 'currentEnrollment': -1 } }"
-    })
-    List<ClassRoomEntity> findPopularClassrooms(List<String> excludedIds, String search, String status);
+    @Query(value = "{ '_id': { $nin: ?0 }, 'name': { $regex: ?1, $options: 'i' }, 'status': ?2 }", count = true)
+    long countByIdNotInAndNameContainingAndStatus(List<String> excludedIds, String name, String status);
 
     @Aggregation(pipeline = {
             "{ $match: { '_id': { $nin: ?0 }, 'status': 'COMPLETED', 'name': { $regex: ?1, $options: 'i' } } }",
@@ -137,39 +131,16 @@ public interface ClassRoomRepository extends MongoRepository<ClassRoomEntity, St
     })
     List<ClassRoomEntity> findRandomClassrooms(List<String> excludedIds, String search, int sampleSize);
 
-    @Aggregation(pipeline = {
-            "{ $match: { '_id': { $nin: ?0 }, 'categoryId': ?1, 'status': ?3, 'name': { $regex: ?2, $options: 'i' } } }",
-            "{ $sort: { 'currentEnrollment': -1 } }"
-    })
-    List<ClassRoomEntity> findPopularClassroomsByCategory(List<String> excludedIds, String categoryId, String search, String status);
-
-    @Aggregation(pipeline = {
-            "{ $match: { '_id': { $nin: ?0 }, 'categoryId': ?1, 'status': ?3, 'name': { $regex: ?2, $options: 'i' } } }",
-            "{ $sort: { 'createdAt': -1 } }",
-            "{ $skip: ?#{#pageable.offset} }",
-            "{ $limit: ?#{#pageable.pageSize} }"
-    })
-    List<ClassRoomEntity> findNewClassroomsByCategory(List<String> excludedIds, String categoryId, String search, Pageable pageable, String status);
-
     @Aggregation(pipeline = {
             "{ $match: { '_id': { $nin: ?0 }, 'categoryId': ?1, 'status': 'COMPLETED', 'name': { $regex: ?2, $options: 'i' } } }",
             "{ $sample: { size: ?3 } }"
     })
     List<ClassRoomEntity> findRandomClassroomsByCategory(List<String> excludedIds, String categoryId, String search, int sampleSize);
 
-    @Aggregation(pipeline = {
-            "{ $match: { category: ?0, name: { $regex: ?1, $options: 'i' }, classroomId: { $nin: ?2 } } }",
-            "{ $sort: { price: ?4 } }",
-            "{ $skip: ?3 }",
-            "{ $limit: ?5 }"
-    })
-    List<ClassRoomEntity> findByCategoryAndSortByPrice(String category, List<String> registeredClassRoomIds, String search, Pageable pageable, boolean ascending);
-
-    @Aggregation(pipeline = {
-            "{ $match: { '_id': { $nin: ?0 }, 'status': 'COMPLETED', 'name': { $regex: ?1, $options: 'i' } } }"
-    })
-    List<ClassRoomEntity> findByAndSortByPrice(List<String> registeredClassRoomIds, String search, Pageable pageable);
-
     @Query("{ 'name': { $regex: ?0, $options: 'i' } }")
     List<ClassRoomEntity> findIdsByNameRegex(String regex);
+
+    // Page over ids already matched and filtered by ClassRoomSearchIndex, sorted by the pageable
+    @Query("{ '_id': { $in: ?0 } }")
+    Page<ClassRoomEntity> findByIdIn(List<String> ids, Pageable pageable);
 }
\ No newline at end of file
@@ -53,6 +53,8 @@ public interface DeadlineRepository extends MongoRepository<DeadlineEntity, Stri
     @Query("{'classroomId': ?0, 'status': {$ne: 'NOT_PUBLISHED'}}")
     List<DeadlineEntity> findAllByClassroomId(String classroomId);
 
+    List<DeadlineEntity> findByLessonIdIn(List<String> lessonIds);
+
     @Query("{'teacherId': ?0}")
     List<DeadlineEntity> findAllByTeacherId(String teacherId);
 
@@ -33,5 +33,6 @@ public interface LessonRepository extends MongoRepository<LessonEntity, String>{
     LessonEntity findBySectionIdAndIndex(String sectionId, Integer index);
 
     List<LessonEntity> findBySectionId(String sectionId);
+    List<LessonEntity> findBySectionIdIn(List<String> sectionIds);
 
 }
@@ -5,8 +5,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.List;
+
 public interface MediaRepository extends MongoRepository<MediaEntity, String>{
     Page<MediaEntity> findByLessonId(String lessonId, Pageable pageable);
     Page<MediaEntity> findByClassroomId(String classroomId, Pageable pageable);
     void deleteByLessonId(String lessonId);
+    List<MediaEntity> findByLessonIdIn(List<String> lessonIds);
 }
@@ -21,7 +21,9 @@ public interface ProgressRepository extends MongoRepository<ProgressEntity, Stri
 
     // Kiểm tra section đã hoàn thành hay chưa
     boolean existsByStudentIdAndClassroomIdAndSectionIdAndCompleted(String studentId, String classroomId, String sectionId, Boolean completed);
+    List<ProgressEntity> findByStudentIdAndClassroomIdAndCompleted(String studentId, String classroomId, Boolean completed);
     List<ProgressEntity> findByClassroomIdAndLessonIdInAndCompletedAndStudentId(String classroomId, List<String> lessonId, Boolean completed, String studentId);
+    List<ProgressEntity> findByClassroomIdInAndLessonIdInAndCompletedAndStudentId(List<String> classroomIds, List<String> lessonIds, Boolean completed, String studentId);
     @Query(value = "{ 'studentId' : ?0, 'classroomId' : ?1 , 'completed' : true, 'sectionId' : null }")
     Page<ProgressEntity> findByStudentIdAndClassroomId(String studentId, String classroomId, Pageable pageable);
 
@@ -6,7 +6,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.List;
+
 public interface ResourceRepository extends MongoRepository<ResourceEntity, String> {
     Page<ResourceEntity> findByLessonId(String lessonId, Pageable pageable);
     void deleteByLessonId(String lessonId);
+    List<ResourceEntity> findByLessonIdIn(List<String> lessonIds);
 }
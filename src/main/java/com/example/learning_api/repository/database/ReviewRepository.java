@@ -1,8 +1,10 @@
 package com.example.learning_api.repository.database;
 
+import com.example.learning_api.dto.common.ClassroomRatingBucket;
 import com.example.learning_api.entity.sql.database.ReviewEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
@@ -12,4 +14,10 @@ public interface ReviewRepository extends MongoRepository<ReviewEntity, String>
     Page<ReviewEntity> findByClassroomId(String classroomId, Pageable pageable);
     List<ReviewEntity> findByClassroomId(String classroomId);
     List<ReviewEntity> findByClassroomIdIn(List<String> classroomIds);
+    @Aggregation(pipeline = {
+            "{ $match: { classroomId: { $ne: null }, rating: { $ne: null } } }",
+            "{ $group: { _id: { classroomId: '$classroomId', rating: '$rating' }, count: { $sum: 1 } } }",
+            "{ $project: { _id: 0, classroomId: '$_id.classroomId', rating: '$_id.rating', count: 1 } }"
+    })
+    List<ClassroomRatingBucket> aggregateRatingBuckets();
 }
\ No newline at end of file
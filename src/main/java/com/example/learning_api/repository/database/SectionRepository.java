@@ -21,4 +21,5 @@ public interface SectionRepository extends MongoRepository<SectionEntity, String
     SectionEntity findByClassRoomIdAndIndex(String classroomId, Integer index);
 
     List<SectionEntity> findByClassRoomId(String classRoomId);
+    List<SectionEntity> findByClassRoomIdIn(List<String> classRoomIds);
 }
\ No newline at end of file
@@ -34,6 +34,8 @@ public interface StudentEnrollmentsRepository extends MongoRepository<StudentEnr
 
     List<StudentEnrollmentsEntity> findByClassroomIdIn(List<String> classroomIds);
 
+    List<StudentEnrollmentsEntity> findByStudentIdInAndClassroomIdIn(List<String> studentIds, List<String> classroomIds);
+
     @Aggregation(pipeline = {
             "{$addFields: {_classroomId: {$toObjectId: '$classroomId'}}}",
             "{$match: {studentId: '?0'}}",
@@ -96,6 +98,10 @@ public interface StudentEnrollmentsRepository extends MongoRepository<StudentEnr
     })
     List<TestResultForStudentResponse> getTestResultsForStudent(String studentId, String classroomId);
     int countByClassroomId(String classroomId);
+    @Aggregation(pipeline = {
+            "{ $group: { _id: '$classroomId', enrollmentCount: { $sum: 1 } } }"
+    })
+    List<StudentSubmissionCountDto> countEnrollmentsGroupByClassroom();
     @Aggregation(pipeline = {
             "{$match: {classroomId: ?0}}",
             "{$lookup: {from: 'test_results', let: { student_id: '$studentId' }, pipeline: [{$match: {$expr: {$and: [{ $eq: ['$studentId', '$$student_id'] },{ $eq: ['$testId', ?1] }]}}}], as: 'result'}}",
@@ -185,10 +191,10 @@ public interface StudentEnrollmentsRepository extends MongoRepository<StudentEnr
     @Aggregation(pipeline = {
             "{$addFields: { createdAtLong: { $toLong: '$createdAt' } }}",
             "{$match: { createdAtLong: { $exists: true, $ne: null } }}",
-            "{$group: { _id: { $dateToString: { format: '%Y-%m', date: { $toDate: '$createdAtLong' } } }, enrollmentCount: { $sum: 1 } }}",
+            "{$group: { _id: { $dateToString: { format: '%Y-%m', date: { $toDate: '$createdAtLong' }, timezone: ?0 } }, enrollmentCount: { $sum: 1 } }}",
             "{$sort: { _id: 1 }}"
     })
-    List<StudentSubmissionCountDto> getMonthlyEnrollmentStats();
+    List<StudentSubmissionCountDto> getMonthlyEnrollmentStats(String timezone);
 
     @Aggregation(pipeline = {
             "{ $group: { _id: '$classroomId', enrollmentCount: { $sum: 1 } } }",
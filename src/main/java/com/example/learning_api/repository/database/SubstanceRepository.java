@@ -5,7 +5,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.List;
+
 public interface SubstanceRepository extends MongoRepository<SubstanceEntity, String> {
     Page<SubstanceEntity> findByLessonId(String lessonId, Pageable pageable);
     void deleteByLessonId(String lessonId);
+    List<SubstanceEntity> findByLessonIdIn(List<String> lessonIds);
 }
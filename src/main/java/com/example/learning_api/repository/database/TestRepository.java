@@ -30,6 +30,8 @@ public interface TestRepository extends MongoRepository<TestEntity, String> {
     @Query("{'lessonId': ?0, 'showResultType': ?1}")
     List<TestEntity> findByLessonIdAndShowResultType(String lessonId, String showResultType);
 
+    List<TestEntity> findByLessonIdIn(List<String> lessonIds);
+
     void deleteByLessonId(String classroomId, String showResultType);
 
 }
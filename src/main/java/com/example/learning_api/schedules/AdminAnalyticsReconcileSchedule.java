@@ -0,0 +1,23 @@
+package com.example.learning_api.schedules;
+
+import com.example.learning_api.service.common.AdminAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdminAnalyticsReconcileSchedule {
+    private final AdminAnalyticsService adminAnalyticsService;
+
+    @Scheduled(cron = "0 0 3 * * ?") // Every day at 03:00
+    public void reconcileAdminAnalytics() {
+        try {
+            adminAnalyticsService.reconcile();
+        } catch (Exception e) {
+            log.error("Error reconciling admin analytics: ", e);
+        }
+    }
+}
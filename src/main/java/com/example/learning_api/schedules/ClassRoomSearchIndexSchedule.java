@@ -0,0 +1,24 @@
+package com.example.learning_api.schedules;
+
+import com.example.learning_api.service.common.ClassRoomSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClassRoomSearchIndexSchedule {
+    private final ClassRoomSearchIndex classRoomSearchIndex;
+
+    // Save events do not cover category renames, teacher name changes or bulk deletes
+    @Scheduled(initialDelay = 900000, fixedDelay = 900000) // Every 15 minutes
+    public void rebuildClassRoomSearchIndex() {
+        try {
+            classRoomSearchIndex.rebuild();
+        } catch (Exception e) {
+            log.error("Error rebuilding classroom search index: ", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.learning_api.schedules;
+
+import com.example.learning_api.service.common.ClassRoomStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClassRoomStatsReconcileSchedule {
+    private final ClassRoomStatsService classRoomStatsService;
+
+    @Scheduled(initialDelay = 60000, fixedDelay = 3600000) // One minute after startup, then every hour
+    public void reconcileClassRoomStats() {
+        try {
+            classRoomStatsService.reconcileAll();
+        } catch (Exception e) {
+            log.error("Error reconciling classroom stats: ", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.learning_api.schedules;
+
+import com.example.learning_api.service.common.TeacherRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TeacherRollupRebuildSchedule {
+    private final TeacherRollupService teacherRollupService;
+
+    @Scheduled(cron = "0 30 2 * * ?") // Every day at 02:30
+    public void rebuildTeacherRollups() {
+        try {
+            teacherRollupService.rebuildAll();
+        } catch (Exception e) {
+            log.error("Error rebuilding teacher dashboard rollups: ", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.learning_api.secutiry.jwt;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.learning_api.service.common.JwtService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * Authenticates a STOMP session from the {@code Authorization: Bearer} header of its CONNECT frame. The session's
+ * principal is then the user id of the access token, with its role as authority, and is handed to every
+ * {@code @MessageMapping} of the session. A CONNECT without the header stays anonymous; one with an invalid token is
+ * refused.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtChannelInterceptor implements ChannelInterceptor {
+    private final JwtService jwtService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (!StringUtils.hasText(authHeader) || !authHeader.startsWith("Bearer ")) {
+            return message;
+        }
+        try {
+            DecodedJWT jwt = jwtService.decodeAccessToken(authHeader.substring(7));
+            String role = jwt.getClaim(JwtService.ROLES_CLAIM_KEY).asString();
+            accessor.setUser(new UsernamePasswordAuthenticationToken(jwt.getSubject(), null,
+                    role == null ? List.of() : List.of(new SimpleGrantedAuthority(role))));
+        } catch (JWTVerificationException e) {
+            throw new MessageDeliveryException("Invalid access token");
+        }
+        return message;
+    }
+}
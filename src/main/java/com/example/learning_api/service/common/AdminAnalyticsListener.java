@@ -0,0 +1,223 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.ClassRoomEntity;
+import com.example.learning_api.entity.sql.database.NotificationEntity;
+import com.example.learning_api.entity.sql.database.StudentEnrollmentsEntity;
+import com.example.learning_api.entity.sql.database.UserEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeDeleteEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * Feeds {@link AdminAnalyticsService} from the save/delete events of users, classrooms, enrollments and
+ * notifications, so every write path is counted without touching the services.
+ * <p>
+ * Whether a save creates a document, and a user's previous role and status, are captured before conversion
+ * and consumed after the save on the same thread; likewise whether a delete by id has anything to delete, so deletes
+ * that match nothing are not counted. Captured state is held weakly by the entity or delete filter it belongs to, so a
+ * write that fails before its after-event leaves nothing behind once the entity is gone. Concurrent deletes of one
+ * document can both count; {@link AdminAnalyticsService#reconcile()} corrects the totals. Failures are logged and
+ * never fail the write itself.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdminAnalyticsListener extends AbstractMongoEventListener<Object> {
+    private static final Object CREATED = new Object();
+
+    private final AdminAnalyticsService adminAnalyticsService;
+    private final MongoTemplate mongoTemplate;
+
+    // Entity (by identity) -> CREATED, or the previous state of an existing user; delete filter -> whether it matched
+    private final ThreadLocal<List<Pending>> pending = new ThreadLocal<>();
+
+    private static final class Pending {
+        private final WeakReference<Object> key;
+        private final Object value;
+
+        private Pending(Object key, Object value) {
+            this.key = new WeakReference<>(key);
+            this.value = value;
+        }
+    }
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Object> event) {
+        Object source = event.getSource();
+        if (!(source instanceof UserEntity) && !(source instanceof ClassRoomEntity)
+                && !(source instanceof StudentEnrollmentsEntity) && !(source instanceof NotificationEntity)) {
+            return;
+        }
+        try {
+            String id = idOf(source);
+            if (id == null) {
+                stash(source, CREATED);
+            } else if (source instanceof UserEntity) {
+                Query query = new Query(Criteria.where("_id").is(id));
+                query.fields().include("role").include("status");
+                UserEntity previous = mongoTemplate.findOne(query, UserEntity.class);
+                stash(source, previous != null ? previous : CREATED);
+            }
+        } catch (Exception e) {
+            log.warn("Could not capture analytics state: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        Object before = take(event.getSource());
+        if (before == null) {
+            return;
+        }
+        try {
+            Object source = event.getSource();
+            if (source instanceof UserEntity user) {
+                userSaved(before == CREATED ? null : (UserEntity) before, user);
+            } else if (source instanceof ClassRoomEntity) {
+                adminAnalyticsService.record(AdminAnalyticsService.CLASSROOMS, 1, true);
+            } else if (source instanceof StudentEnrollmentsEntity) {
+                adminAnalyticsService.record(AdminAnalyticsService.ENROLLMENTS, 1, true);
+            } else if (source instanceof NotificationEntity notification) {
+                adminAnalyticsService.record(AdminAnalyticsService.NOTIFICATIONS, 1, true);
+                adminAnalyticsService.recordActivity(notification.getTitle(),
+                        notification.getCreatedAt() != null ? notification.getCreatedAt() : String.valueOf(System.currentTimeMillis()));
+            }
+        } catch (Exception e) {
+            log.warn("Could not record analytics event: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onBeforeDelete(BeforeDeleteEvent<Object> event) {
+        // Deletes by id only; bulk deletes are picked up by AdminAnalyticsService.reconcile
+        Document filter = event.getSource();
+        Class<?> type = event.getType();
+        if (filter.get("_id") == null || filter.get("_id") instanceof Document
+                || (!ClassRoomEntity.class.equals(type) && !StudentEnrollmentsEntity.class.equals(type) && !NotificationEntity.class.equals(type))) {
+            return;
+        }
+        try {
+            // The after-event gets the same filter instance
+            stash(filter, mongoTemplate.exists(new Query(Criteria.where("_id").is(filter.get("_id"))), type));
+        } catch (Exception e) {
+            log.warn("Could not capture analytics state: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        if (!Boolean.TRUE.equals(take(event.getSource()))) {
+            return;
+        }
+        try {
+            Class<?> type = event.getType();
+            if (ClassRoomEntity.class.equals(type)) {
+                adminAnalyticsService.adjustTotals(Map.of(AdminAnalyticsService.CLASSROOMS, -1L));
+            } else if (StudentEnrollmentsEntity.class.equals(type)) {
+                adminAnalyticsService.adjustTotals(Map.of(AdminAnalyticsService.ENROLLMENTS, -1L));
+            } else if (NotificationEntity.class.equals(type)) {
+                adminAnalyticsService.adjustTotals(Map.of(AdminAnalyticsService.NOTIFICATIONS, -1L));
+            }
+        } catch (Exception e) {
+            log.warn("Could not record analytics delete: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Captures state for the after-event of {@code key}, replacing any left by an earlier write of it that failed.
+     */
+    private void stash(Object key, Object value) {
+        List<Pending> entries = pending.get();
+        if (entries == null) {
+            entries = new ArrayList<>();
+            pending.set(entries);
+        }
+        entries.removeIf(entry -> {
+            Object current = entry.key.get();
+            return current == null || current == key;
+        });
+        entries.add(new Pending(key, value));
+    }
+
+    /**
+     * @return the state captured for {@code key}, or null; entries whose key is gone are dropped on the way
+     */
+    private Object take(Object key) {
+        List<Pending> entries = pending.get();
+        if (entries == null) {
+            return null;
+        }
+        Object value = null;
+        // After-events come in the order of their before-events, so the match is usually first
+        for (Iterator<Pending> iterator = entries.iterator(); iterator.hasNext(); ) {
+            Pending entry = iterator.next();
+            Object current = entry.key.get();
+            if (current == key) {
+                value = entry.value;
+                iterator.remove();
+                break;
+            }
+            if (current == null) {
+                iterator.remove();
+            }
+        }
+        if (entries.isEmpty()) {
+            pending.remove();
+        }
+        return value;
+    }
+
+    private void userSaved(UserEntity previous, UserEntity user) {
+        String role = user.getRole() != null ? user.getRole().name() : null;
+        String status = user.getStatus() != null ? user.getStatus().name() : null;
+        if (previous == null) {
+            adminAnalyticsService.record(AdminAnalyticsService.USERS_CREATED, 1, false);
+        }
+        String previousRole = previous != null && previous.getRole() != null ? previous.getRole().name() : null;
+        String previousStatus = previous != null && previous.getStatus() != null ? previous.getStatus().name() : null;
+        Map<String, Long> deltas = new HashMap<>();
+        if (!Objects.equals(previousRole, role)) {
+            move(deltas, previousRole != null ? AdminAnalyticsService.userRole(previousRole) : null,
+                    role != null ? AdminAnalyticsService.userRole(role) : null);
+        }
+        if (!Objects.equals(previousStatus, status)) {
+            move(deltas, previousStatus != null ? AdminAnalyticsService.userStatus(previousStatus) : null,
+                    status != null ? AdminAnalyticsService.userStatus(status) : null);
+        }
+        adminAnalyticsService.adjustTotals(deltas);
+    }
+
+    private static void move(Map<String, Long> deltas, String from, String to) {
+        if (from != null) {
+            deltas.merge(from, -1L, Long::sum);
+        }
+        if (to != null) {
+            deltas.merge(to, 1L, Long::sum);
+        }
+    }
+
+    private static String idOf(Object source) {
+        if (source instanceof UserEntity user) {
+            return user.getId();
+        }
+        if (source instanceof ClassRoomEntity classRoom) {
+            return classRoom.getId();
+        }
+        if (source instanceof StudentEnrollmentsEntity enrollment) {
+            return enrollment.getId();
+        }
+        return ((NotificationEntity) source).getId();
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.StudentSubmissionCountDto;
+import com.example.learning_api.entity.sql.database.AnalyticsBucketEntity;
+import com.example.learning_api.entity.sql.database.NotificationEntity;
+import com.example.learning_api.entity.sql.database.RecentActivityEntity;
+import com.example.learning_api.enums.RoleEnum;
+import com.example.learning_api.enums.UserStatus;
+import com.example.learning_api.repository.database.ClassRoomRepository;
+import com.example.learning_api.repository.database.NotificationRepository;
+import com.example.learning_api.repository.database.StudentEnrollmentsRepository;
+import com.example.learning_api.repository.database.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Pre-aggregated counters behind the admin dashboard.
+ * <p>
+ * Every recorded event is counted with one unordered bulk of {@code $inc} upserts into its minute, hour, day and
+ * month buckets, and optionally into the running totals. Writes are captured by AdminAnalyticsListener;
+ * {@link #reconcile()} recomputes the totals and monthly enrollments from the source collections, seeds an empty
+ * recent activity feed from the newest notifications, and drops minute/hour buckets past their retention.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdminAnalyticsService {
+    public static final String TOTAL = "total";
+    public static final String MINUTE = "minute";
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+    public static final String MONTH = "month";
+
+    public static final String USERS_CREATED = "users:created";
+    public static final String CLASSROOMS = "classrooms";
+    public static final String ENROLLMENTS = "enrollments";
+    public static final String NOTIFICATIONS = "notifications";
+
+    private static final String RECENT_ACTIVITY = "recent_activity";
+    private static final int RECENT_ACTIVITY_CAPACITY = 100;
+    private static final long RECENT_ACTIVITY_BYTES = 1024 * 1024;
+    private static final Duration MINUTE_RETENTION = Duration.ofDays(2);
+    private static final Duration HOUR_RETENTION = Duration.ofDays(30);
+
+    private static final Map<String, DateTimeFormatter> BUCKET_FORMATS = Map.of(
+            MINUTE, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"),
+            HOUR, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH"),
+            DAY, DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+            MONTH, DateTimeFormatter.ofPattern("yyyy-MM"));
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final ClassRoomRepository classRoomRepository;
+    private final StudentEnrollmentsRepository studentEnrollmentsRepository;
+    private final NotificationRepository notificationRepository;
+
+    public static String userRole(String role) {
+        return "users:role:" + role;
+    }
+
+    public static String userStatus(String status) {
+        return "users:status:" + status;
+    }
+
+    /**
+     * Counts an event in its time buckets; with {@code countInTotals} the running total moves by the same delta.
+     */
+    public void record(String counter, long delta, boolean countInTotals) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.systemDefault());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AnalyticsBucketEntity.class);
+        for (String granularity : BUCKET_FORMATS.keySet()) {
+            ZonedDateTime start = startOf(now, granularity);
+            String bucket = start.format(BUCKET_FORMATS.get(granularity));
+            bulk.upsert(new Query(Criteria.where("_id").is(granularity + ":" + bucket)), new Update()
+                    .inc("counters." + counter, delta)
+                    .setOnInsert("granularity", granularity)
+                    .setOnInsert("bucket", bucket)
+                    .setOnInsert("start", Date.from(start.toInstant())));
+        }
+        if (countInTotals) {
+            bulk.upsert(new Query(Criteria.where("_id").is(TOTAL)), new Update()
+                    .inc("counters." + counter, delta)
+                    .setOnInsert("granularity", TOTAL));
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Moves running totals only, e.g. when a user changes role or status.
+     */
+    public void adjustTotals(Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Update update = new Update().setOnInsert("granularity", TOTAL);
+        deltas.forEach((counter, delta) -> update.inc("counters." + counter, delta));
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(TOTAL)), update, AnalyticsBucketEntity.class);
+    }
+
+    public void recordActivity(String title, String time) {
+        RecentActivityEntity activity = new RecentActivityEntity();
+        activity.setTitle(title);
+        activity.setTime(time);
+        mongoTemplate.insert(activity);
+    }
+
+    public Map<String, Long> getTotals() {
+        AnalyticsBucketEntity totals = mongoTemplate.findById(TOTAL, AnalyticsBucketEntity.class);
+        if (totals == null || !Boolean.TRUE.equals(totals.getSeeded())) {
+            // First use: seed the totals and the monthly history from the source collections. The document may
+            // already exist, holding only the deltas recorded since deploy, so its presence alone proves nothing
+            reconcile();
+            totals = mongoTemplate.findById(TOTAL, AnalyticsBucketEntity.class);
+        }
+        return totals != null && totals.getCounters() != null ? totals.getCounters() : new HashMap<>();
+    }
+
+    /**
+     * @return the latest {@code count} buckets of a granularity, oldest first
+     */
+    public List<AnalyticsBucketEntity> getBuckets(String granularity, int count) {
+        Query query = new Query(Criteria.where("granularity").is(granularity))
+                .with(Sort.by(Sort.Direction.DESC, "start"))
+                .limit(count);
+        List<AnalyticsBucketEntity> buckets = new ArrayList<>(mongoTemplate.find(query, AnalyticsBucketEntity.class));
+        Collections.reverse(buckets);
+        return buckets;
+    }
+
+    public long getCurrent(String granularity, String counter) {
+        String bucket = startOf(ZonedDateTime.now(ZoneId.systemDefault()), granularity).format(BUCKET_FORMATS.get(granularity));
+        AnalyticsBucketEntity current = mongoTemplate.findById(granularity + ":" + bucket, AnalyticsBucketEntity.class);
+        return current != null && current.getCounters() != null ? current.getCounters().getOrDefault(counter, 0L) : 0L;
+    }
+
+    public List<RecentActivityEntity> getRecentActivity(int limit) {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "_id")).limit(limit);
+        return mongoTemplate.find(query, RecentActivityEntity.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureRecentActivityCollection() {
+        try {
+            if (!mongoTemplate.collectionExists(RECENT_ACTIVITY)) {
+                mongoTemplate.createCollection(RECENT_ACTIVITY, CollectionOptions.empty()
+                        .capped()
+                        .size(RECENT_ACTIVITY_BYTES)
+                        .maxDocuments(RECENT_ACTIVITY_CAPACITY));
+            }
+        } catch (Exception e) {
+            log.error("Error creating recent activity collection: ", e);
+        }
+    }
+
+    public void reconcile() {
+        reconcileTotals();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AnalyticsBucketEntity.class);
+        // Months in the same zone record() buckets in; $dateToString defaults to UTC
+        List<StudentSubmissionCountDto> months = studentEnrollmentsRepository.getMonthlyEnrollmentStats(ZoneId.systemDefault().getId());
+        for (StudentSubmissionCountDto month : months) {
+            YearMonth yearMonth = YearMonth.parse(month.get_id());
+            bulk.upsert(new Query(Criteria.where("_id").is(MONTH + ":" + month.get_id())), new Update()
+                    .set("counters." + ENROLLMENTS, (long) month.getEnrollmentCount())
+                    .setOnInsert("granularity", MONTH)
+                    .setOnInsert("bucket", month.get_id())
+                    .setOnInsert("start", Date.from(yearMonth.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant())));
+        }
+        if (!months.isEmpty()) {
+            bulk.execute();
+        }
+        seedRecentActivity();
+
+        Instant now = Instant.now();
+        mongoTemplate.remove(new Query(Criteria.where("granularity").is(MINUTE).and("start").lt(Date.from(now.minus(MINUTE_RETENTION)))),
+                AnalyticsBucketEntity.class);
+        mongoTemplate.remove(new Query(Criteria.where("granularity").is(HOUR).and("start").lt(Date.from(now.minus(HOUR_RETENTION)))),
+                AnalyticsBucketEntity.class);
+    }
+
+    private void reconcileTotals() {
+        Map<String, Long> counters = new HashMap<>();
+        for (RoleEnum role : RoleEnum.values()) {
+            counters.put(userRole(role.name()), userRepository.countByRole(role.name()));
+        }
+        for (UserStatus status : UserStatus.values()) {
+            counters.put(userStatus(status.name()), userRepository.countByStatus(status.name()));
+        }
+        counters.put(CLASSROOMS, classRoomRepository.count());
+        counters.put(ENROLLMENTS, studentEnrollmentsRepository.count());
+        counters.put(NOTIFICATIONS, notificationRepository.count());
+
+        AnalyticsBucketEntity totals = new AnalyticsBucketEntity();
+        totals.setId(TOTAL);
+        totals.setGranularity(TOTAL);
+        totals.setCounters(counters);
+        totals.setSeeded(true);
+        mongoTemplate.save(totals);
+        log.info("Reconciled admin analytics totals");
+    }
+
+    /**
+     * Fills an empty feed with the newest notifications, oldest first, so the feed's insertion order stays its time
+     * order. A feed holding anything is left alone; the listener keeps it current.
+     */
+    private void seedRecentActivity() {
+        if (mongoTemplate.estimatedCount(RecentActivityEntity.class) > 0) {
+            return;
+        }
+        Query newest = new Query().with(Sort.by(Sort.Direction.DESC, "_id")).limit(RECENT_ACTIVITY_CAPACITY);
+        newest.fields().include("title").include("createdAt");
+        List<RecentActivityEntity> activities = new ArrayList<>();
+        for (NotificationEntity notification : mongoTemplate.find(newest, NotificationEntity.class)) {
+            RecentActivityEntity activity = new RecentActivityEntity();
+            activity.setTitle(notification.getTitle());
+            activity.setTime(notification.getCreatedAt());
+            activities.add(activity);
+        }
+        if (activities.isEmpty()) {
+            return;
+        }
+        Collections.reverse(activities);
+        mongoTemplate.insert(activities, RecentActivityEntity.class);
+        log.info("Seeded recent activity with {} notifications", activities.size());
+    }
+
+    private static ZonedDateTime startOf(ZonedDateTime time, String granularity) {
+        return switch (granularity) {
+            case MINUTE -> time.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+            default -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+}
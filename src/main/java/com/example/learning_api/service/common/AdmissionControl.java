@@ -0,0 +1,94 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.constant.ErrorConstant;
+import com.example.learning_api.model.CustomException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded admission for request bursts that would otherwise all hit Mongo at once, such as every student starting
+ * an exam on the bell.
+ * <p>
+ * A gate runs at most {@code permits} calls at a time; up to {@code queue} more wait for a permit for a short while.
+ * Anything beyond that, or waiting too long, is rejected right away with a {@link CustomException} whose error code
+ * is {@link #BUSY_CODE} and whose detail is a jittered retry delay in seconds, so retries spread out.
+ * <p>
+ * Metrics (tagged by gate): {@code admission.requests} with {@code outcome} admitted/rejected.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionControl {
+    public static final String BUSY_CODE = "429";
+
+    private static final long MAX_WAIT_MILLIS = 3000;
+    private static final int MIN_RETRY_SECONDS = 1;
+    private static final int MAX_RETRY_SECONDS = 5;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    private static final class Gate {
+        private final Semaphore permits;
+        private final int queue;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private Gate(int permits, int queue) {
+            this.permits = new Semaphore(permits, true);
+            this.queue = queue;
+        }
+    }
+
+    public <T> T admit(String name, int permits, int queue, Supplier<T> work) {
+        Gate gate = gates.computeIfAbsent(name, key -> new Gate(permits, queue));
+        if (!acquire(gate)) {
+            count(name, "rejected");
+            int retryAfter = ThreadLocalRandom.current().nextInt(MIN_RETRY_SECONDS, MAX_RETRY_SECONDS + 1);
+            throw new CustomException(ErrorConstant.SERVER_BUSY, String.valueOf(retryAfter), BUSY_CODE);
+        }
+        count(name, "admitted");
+        try {
+            return work.get();
+        } finally {
+            gate.permits.release();
+        }
+    }
+
+    private boolean acquire(Gate gate) {
+        if (gate.permits.tryAcquire()) {
+            return true;
+        }
+        if (gate.waiting.incrementAndGet() > gate.queue) {
+            gate.waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return gate.permits.tryAcquire(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            gate.waiting.decrementAndGet();
+        }
+    }
+
+    private void count(String gate, String outcome) {
+        Counter.builder("admission.requests")
+                .tag("gate", gate)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.CompiledAnswerKey;
+import com.example.learning_api.entity.sql.database.AnswerEntity;
+import com.example.learning_api.entity.sql.database.AnswerKeyVersionEntity;
+import com.example.learning_api.entity.sql.database.QuestionEntity;
+import com.example.learning_api.entity.sql.database.TestEntity;
+import com.example.learning_api.repository.database.AnswerRepository;
+import com.example.learning_api.repository.database.QuestionRepository;
+import com.example.learning_api.repository.database.TestRepository;
+import com.example.learning_api.utils.AnswerTextMatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Bounded in-process cache of {@link CompiledAnswerKey}s, one per test.
+ * <p>
+ * A key is compiled with one query per collection and tagged with the test's answer-key version. Writes on this
+ * instance drop the key right away; other instances notice the version moved within {@link #REVALIDATE_MILLIS},
+ * so a burst of submissions costs one version read per test and interval instead of one per submission.
+ * Writers must change the data first and call one of the {@code invalidate} methods afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerKeyCache {
+    private static final int MAX_KEYS = 512;
+    private static final long REVALIDATE_MILLIS = 5000;
+
+    private final MongoTemplate mongoTemplate;
+    private final TestRepository testRepository;
+    private final QuestionRepository questionRepository;
+    private final AnswerRepository answerRepository;
+
+    private static final class Entry {
+        private final CompiledAnswerKey key;
+        private volatile long checkedAt;
+
+        private Entry(CompiledAnswerKey key, long checkedAt) {
+            this.key = key;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    private final Map<String, Entry> keys = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_KEYS;
+                }
+            });
+
+    public CompiledAnswerKey get(String testId) {
+        long now = System.currentTimeMillis();
+        Entry cached = keys.get(testId);
+        if (cached != null && now - cached.checkedAt < REVALIDATE_MILLIS) {
+            return cached.key;
+        }
+        // The version is read before the data, so a key can only ever be tagged older than what it contains
+        long version = currentVersion(testId);
+        if (cached != null && cached.key.getVersion() == version) {
+            cached.checkedAt = now;
+            return cached.key;
+        }
+        CompiledAnswerKey key = compile(testId, version);
+        keys.merge(testId, new Entry(key, now),
+                (existing, built) -> existing.key.getVersion() > built.key.getVersion() ? existing : built);
+        return key;
+    }
+
+    public void invalidate(String testId) {
+        if (testId == null) {
+            return;
+        }
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(testId)),
+                new Update().inc("version", 1), AnswerKeyVersionEntity.class);
+        keys.remove(testId);
+    }
+
+    public void invalidateByQuestion(String questionId) {
+        if (questionId == null) {
+            return;
+        }
+        questionRepository.findById(questionId).ifPresent(question -> invalidate(question.getTestId()));
+    }
+
+    private long currentVersion(String testId) {
+        AnswerKeyVersionEntity version = mongoTemplate.findById(testId, AnswerKeyVersionEntity.class);
+        return version != null && version.getVersion() != null ? version.getVersion() : 0L;
+    }
+
+    private CompiledAnswerKey compile(String testId, long version) {
+        TestEntity test = testRepository.findById(testId)
+                .orElseThrow(() -> new IllegalArgumentException("Test not found"));
+        List<QuestionEntity> questions = questionRepository.findByTestId(testId, Sort.by(Sort.Direction.ASC, "index"));
+        List<String> questionIds = questions.stream().map(QuestionEntity::getId).toList();
+
+        Map<String, List<AnswerEntity>> answersByQuestion = new HashMap<>();
+        if (!questionIds.isEmpty()) {
+            for (AnswerEntity answer : answerRepository.findByQuestionIds(questionIds)) {
+                answersByQuestion.computeIfAbsent(answer.getQuestionId(), id -> new ArrayList<>()).add(answer);
+            }
+        }
+
+        List<CompiledAnswerKey.QuestionKey> questionKeys = new ArrayList<>(questions.size());
+        for (QuestionEntity question : questions) {
+            List<CompiledAnswerKey.AnswerKey> answerKeys = new ArrayList<>();
+            for (AnswerEntity answer : answersByQuestion.getOrDefault(question.getId(), List.of())) {
+                answerKeys.add(new CompiledAnswerKey.AnswerKey(
+                        answer.getId(),
+                        answer.getContent(),
+                        answer.getContent() != null ? AnswerTextMatcher.normalize(answer.getContent()) : null,
+                        Boolean.TRUE.equals(answer.getIsCorrect())));
+            }
+            questionKeys.add(new CompiledAnswerKey.QuestionKey(
+                    question.getId(),
+                    question.getContent(),
+                    question.getDescription(),
+                    question.getType() != null ? question.getType().name() : null,
+                    answerKeys));
+        }
+        log.debug("Compiled answer key of test {} at version {}", testId, version);
+        return new CompiledAnswerKey(testId, version, test.getPassingGrade(), test.getLessonId(), test.getClassroomId(), questionKeys);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.AnswerSheet;
+import com.example.learning_api.entity.sql.database.StudentAnswersEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists a whole {@link AnswerSheet} in one round trip: an ordered bulk that removes the result's previous
+ * answers and inserts the new ones, so the write cost no longer depends on how many questions the test has.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerSheetWriter {
+    private final MongoTemplate mongoTemplate;
+
+    public void replace(AnswerSheet sheet) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, StudentAnswersEntity.class);
+        bulk.remove(new Query(Criteria.where("testResultId").is(sheet.getTestResultId())));
+        if (!sheet.getAnswers().isEmpty()) {
+            bulk.insert(sheet.getAnswers());
+        }
+        bulk.execute();
+        log.debug("Wrote {} answers of test result {}", sheet.getAnswers().size(), sheet.getTestResultId());
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.ClassRoomFeedCursor;
+import com.example.learning_api.dto.common.ClassRoomSearchFilter;
+import com.example.learning_api.entity.sql.database.ClassRoomEntity;
+import com.example.learning_api.enums.ClassRoomStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keyset-paginated reads for the classroom discovery feed.
+ * <p>
+ * Every sort is a (key, _id) pair, so a page is always "the next N rows after the cursor" and costs the same
+ * at any depth. The random order walks the classrooms by their persisted {@code shuffleKey} starting at a
+ * per-feed seed and wraps around once, which gives a stable shuffle without {@code $sample}.
+ * Classrooms the student is already enrolled in are dropped after the read and the gap is refilled by
+ * reading further, instead of sending every enrolled id in a {@code $nin}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClassRoomFeedReader {
+    public static final String SORT_POPULAR = "popular";
+    public static final String SORT_NEW = "new";
+    public static final String SORT_PRICE_ASC = "price_asc";
+    public static final String SORT_PRICE_DESC = "price_desc";
+    public static final String SORT_RANDOM = "random";
+
+    private static final String SHUFFLE_KEY = "shuffleKey";
+    private static final int MAX_READ_ROUNDS = 5;
+    private static final int MAX_OVER_FETCH = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final ClassRoomSearchIndex classRoomSearchIndex;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Data
+    @AllArgsConstructor
+    public static class FeedPage {
+        private List<ClassRoomEntity> classRooms;
+        private ClassRoomFeedCursor next;   // null when the feed is exhausted
+    }
+
+    public ClassRoomFeedCursor firstCursor(String tag, String order, Double seed) {
+        ClassRoomFeedCursor cursor;
+        if (SORT_POPULAR.equalsIgnoreCase(tag)) {
+            cursor = new ClassRoomFeedCursor(SORT_POPULAR);
+        } else if (SORT_NEW.equalsIgnoreCase(tag)) {
+            cursor = new ClassRoomFeedCursor(SORT_NEW);
+        } else if ("price".equalsIgnoreCase(tag)) {
+            cursor = new ClassRoomFeedCursor("asc".equalsIgnoreCase(order) ? SORT_PRICE_ASC : SORT_PRICE_DESC);
+        } else {
+            cursor = new ClassRoomFeedCursor(SORT_RANDOM);
+            cursor.setSeed(seed != null ? Math.abs(seed) % 1.0 : ThreadLocalRandom.current().nextDouble());
+            cursor.setPhase(0);
+        }
+        return cursor;
+    }
+
+    public FeedPage read(ClassRoomFeedCursor cursor, String search, String category, int size, Set<String> excludedIds) {
+        List<ClassRoomEntity> result = new ArrayList<>();
+        ClassRoomFeedCursor position = cursor;
+        int batchSize = size + 1 + Math.min(excludedIds.size(), MAX_OVER_FETCH);
+        // Text matching is resolved once by the search index; the feed keeps its own order and paging over the matches
+        List<String> matchingIds = classRoomSearchIndex.canSearch(search)
+                ? classRoomSearchIndex.matchingIds(search, ClassRoomSearchFilter.builder()
+                        .status(ClassRoomStatus.COMPLETED.toString())
+                        .categoryId(category != null && !category.isEmpty() ? category : null)
+                        .build())
+                : null;
+        for (int round = 0; round < MAX_READ_ROUNDS; round++) {
+            Query query = buildQuery(position, search, matchingIds, category).limit(batchSize);
+            List<ClassRoomEntity> batch = mongoTemplate.find(query, ClassRoomEntity.class);
+            for (ClassRoomEntity classRoom : batch) {
+                if (excludedIds.contains(classRoom.getId())) {
+                    position = advance(position, classRoom);
+                    continue;
+                }
+                if (result.size() == size) {
+                    // At least one more eligible row exists after this page
+                    return new FeedPage(result, position);
+                }
+                result.add(classRoom);
+                position = advance(position, classRoom);
+            }
+            if (batch.size() < batchSize) {
+                if (SORT_RANDOM.equals(position.getSort()) && position.getPhase() == 0) {
+                    position = wrapAround(position);
+                    continue;
+                }
+                return new FeedPage(result, null);
+            }
+        }
+        // Mostly enrolled classrooms in this key range; hand back what we have and continue from here next time
+        return new FeedPage(result, position);
+    }
+
+    public String encode(ClassRoomFeedCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot encode cursor");
+        }
+    }
+
+    public ClassRoomFeedCursor decode(String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.UTF_8));
+            ClassRoomFeedCursor cursor = objectMapper.readValue(json, ClassRoomFeedCursor.class);
+            if (cursor.getSort() == null || (SORT_RANDOM.equals(cursor.getSort()) && (cursor.getSeed() == null || cursor.getPhase() == null))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Classrooms created before the random feed existed have no shuffle key yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void assignMissingShuffleKeys() {
+        try {
+            Query query = new Query(Criteria.where(SHUFFLE_KEY).exists(false));
+            query.fields().include("_id");
+            List<ClassRoomEntity> classRooms = mongoTemplate.find(query, ClassRoomEntity.class);
+            if (classRooms.isEmpty()) {
+                return;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClassRoomEntity.class);
+            for (ClassRoomEntity classRoom : classRooms) {
+                bulk.updateOne(new Query(Criteria.where("_id").is(classRoom.getId())),
+                        new Update().set(SHUFFLE_KEY, ThreadLocalRandom.current().nextDouble()));
+            }
+            bulk.execute();
+            log.info("Assigned shuffle keys to {} classrooms", classRooms.size());
+        } catch (Exception e) {
+            log.error("Error assigning classroom shuffle keys: ", e);
+        }
+    }
+
+    private Query buildQuery(ClassRoomFeedCursor position, String search, List<String> matchingIds, String category) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("status").is(ClassRoomStatus.COMPLETED.toString()));
+        if (matchingIds != null) {
+            criteria.add(Criteria.where("_id").in(matchingIds));
+        } else if (search != null && !search.isEmpty()) {
+            criteria.add(Criteria.where("name").regex(search, "i"));
+        }
+        if (category != null && !category.isEmpty()) {
+            criteria.add(Criteria.where("categoryId").is(category));
+        }
+
+        String field = sortField(position.getSort());
+        boolean ascending = isAscending(position.getSort());
+        if (SORT_RANDOM.equals(position.getSort())) {
+            criteria.add(position.getPhase() == 0
+                    ? Criteria.where(SHUFFLE_KEY).gte(position.getSeed())
+                    : Criteria.where(SHUFFLE_KEY).lt(position.getSeed()));
+        }
+        if (position.getId() != null) {
+            criteria.add(after(field, position.getValue(), toObjectId(position.getId()), ascending));
+        }
+
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Query query = new Query(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+        query.with(Sort.by(direction, field).and(Sort.by(direction, "_id")));
+        return query;
+    }
+
+    /**
+     * Rows strictly after (value, id) in the feed order. Missing sort keys sort lowest, as in Mongo.
+     */
+    private Criteria after(String field, Object value, Object id, boolean ascending) {
+        if (ascending) {
+            if (value == null) {
+                return new Criteria().orOperator(
+                        Criteria.where(field).is(null).and("_id").gt(id),
+                        Criteria.where(field).ne(null));
+            }
+            return new Criteria().orOperator(
+                    Criteria.where(field).gt(value),
+                    Criteria.where(field).is(value).and("_id").gt(id));
+        }
+        if (value == null) {
+            return Criteria.where(field).is(null).and("_id").lt(id);
+        }
+        return new Criteria().orOperator(
+                Criteria.where(field).lt(value),
+                Criteria.where(field).is(value).and("_id").lt(id),
+                Criteria.where(field).is(null));
+    }
+
+    private ClassRoomFeedCursor advance(ClassRoomFeedCursor position, ClassRoomEntity classRoom) {
+        ClassRoomFeedCursor next = copy(position);
+        next.setId(classRoom.getId());
+        switch (position.getSort()) {
+            case SORT_POPULAR -> next.setValue(classRoom.getCurrentEnrollment());
+            case SORT_NEW -> next.setValue(classRoom.getCreatedAt());
+            case SORT_PRICE_ASC, SORT_PRICE_DESC -> next.setValue(classRoom.getPrice());
+            default -> next.setValue(classRoom.getShuffleKey());
+        }
+        return next;
+    }
+
+    private ClassRoomFeedCursor wrapAround(ClassRoomFeedCursor position) {
+        ClassRoomFeedCursor next = new ClassRoomFeedCursor(SORT_RANDOM);
+        next.setSeed(position.getSeed());
+        next.setPhase(1);
+        return next;
+    }
+
+    private static ClassRoomFeedCursor copy(ClassRoomFeedCursor cursor) {
+        ClassRoomFeedCursor copy = new ClassRoomFeedCursor(cursor.getSort());
+        copy.setValue(cursor.getValue());
+        copy.setId(cursor.getId());
+        copy.setSeed(cursor.getSeed());
+        copy.setPhase(cursor.getPhase());
+        return copy;
+    }
+
+    private static String sortField(String sort) {
+        return switch (sort) {
+            case SORT_POPULAR -> "currentEnrollment";
+            case SORT_NEW -> "createdAt";
+            case SORT_PRICE_ASC, SORT_PRICE_DESC -> "price";
+            case SORT_RANDOM -> SHUFFLE_KEY;
+            default -> throw new IllegalArgumentException("Invalid cursor");
+        };
+    }
+
+    private static boolean isAscending(String sort) {
+        return SORT_PRICE_ASC.equals(sort) || SORT_RANDOM.equals(sort);
+    }
+
+    private static Object toObjectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.constant.ErrorConstant;
+import com.example.learning_api.dto.response.classroom.GetClassRoomsResponse;
+import com.example.learning_api.entity.sql.database.*;
+import com.example.learning_api.model.CustomException;
+import com.example.learning_api.repository.database.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds {@link GetClassRoomsResponse.ClassRoomResponse} rows for a whole page of classrooms at once.
+ * Every lookup is resolved with one {@code $in} query for the page, then the rows are stitched together
+ * in memory, so the number of round trips does not grow with the page size.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClassRoomHydrator {
+    private final ModelMapperService modelMapperService;
+    private final TeacherRepository teacherRepository;
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final SectionRepository sectionRepository;
+    private final LessonRepository lessonRepository;
+    private final ProgressRepository progressRepository;
+
+    /**
+     * @param studentId when not null, the number of lessons this student completed in each classroom
+     *                  is filled into {@code totalLessonComplete}
+     */
+    public List<GetClassRoomsResponse.ClassRoomResponse> hydrate(List<ClassRoomEntity> classRooms, String studentId) {
+        if (classRooms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> classRoomIds = classRooms.stream().map(ClassRoomEntity::getId).collect(Collectors.toList());
+
+        Map<String, CategoryEntity> categories = indexById(
+                categoryRepository.findAllById(distinct(classRooms, ClassRoomEntity::getCategoryId)), CategoryEntity::getId);
+        Map<String, TeacherEntity> teachers = indexById(
+                teacherRepository.findAllById(distinct(classRooms, ClassRoomEntity::getTeacherId)), TeacherEntity::getId);
+        Map<String, UserEntity> users = indexById(
+                userRepository.findAllById(distinct(teachers.values(), TeacherEntity::getUserId)), UserEntity::getId);
+        Map<String, Integer> completedLessons = studentId != null
+                ? countCompletedLessons(classRoomIds, studentId)
+                : Collections.emptyMap();
+
+        List<GetClassRoomsResponse.ClassRoomResponse> resData = new ArrayList<>();
+        for (ClassRoomEntity classRoom : classRooms) {
+            GetClassRoomsResponse.ClassRoomResponse classRoomResponse = modelMapperService.mapClass(classRoom, GetClassRoomsResponse.ClassRoomResponse.class);
+            classRoomResponse.setCategoryId(classRoom.getCategoryId());
+            if (classRoom.getCategoryId() != null) {
+                CategoryEntity category = categories.get(classRoom.getCategoryId());
+                classRoomResponse.setCategoryName(category != null ? category.getName() : null);
+            }
+
+            TeacherEntity teacher = teachers.get(classRoom.getTeacherId());
+            if (teacher == null) {
+                throw new CustomException(ErrorConstant.NOT_FOUND);
+            }
+            UserEntity user = users.get(teacher.getUserId());
+            if (user == null) {
+                throw new CustomException(ErrorConstant.NOT_FOUND);
+            }
+            teacher.setUser(null);
+            user.setTeacher(teacher);
+            classRoomResponse.setUser(user);
+
+            // Enrollment and rating aggregates are maintained on the classroom document by ClassRoomStatsService
+            classRoomResponse.setCurrentEnrollment(classRoom.getCurrentEnrollment() != null ? classRoom.getCurrentEnrollment() : 0);
+            classRoomResponse.setRating(ClassRoomStatsService.averageRating(classRoom));
+            classRoomResponse.setTotalRating(ClassRoomStatsService.ratingCount(classRoom));
+            if (studentId != null) {
+                classRoomResponse.setTotalLessonComplete(completedLessons.getOrDefault(classRoom.getId(), 0));
+            }
+            resData.add(classRoomResponse);
+        }
+        return resData;
+    }
+
+    private Map<String, Integer> countCompletedLessons(List<String> classRoomIds, String studentId) {
+        List<SectionEntity> sections = sectionRepository.findByClassRoomIdIn(classRoomIds);
+        Map<String, String> classRoomIdBySectionId = new HashMap<>();
+        for (SectionEntity section : sections) {
+            classRoomIdBySectionId.put(section.getId(), section.getClassRoomId());
+        }
+        List<LessonEntity> lessons = classRoomIdBySectionId.isEmpty()
+                ? Collections.emptyList()
+                : lessonRepository.findBySectionIdIn(new ArrayList<>(classRoomIdBySectionId.keySet()));
+        Map<String, String> classRoomIdByLessonId = new HashMap<>();
+        for (LessonEntity lesson : lessons) {
+            classRoomIdByLessonId.put(lesson.getId(), classRoomIdBySectionId.get(lesson.getSectionId()));
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        if (classRoomIdByLessonId.isEmpty()) {
+            return counts;
+        }
+        List<ProgressEntity> progresses = progressRepository.findByClassroomIdInAndLessonIdInAndCompletedAndStudentId(
+                classRoomIds, new ArrayList<>(classRoomIdByLessonId.keySet()), true, studentId);
+        for (ProgressEntity progress : progresses) {
+            // Only count a lesson against the classroom that actually owns it
+            if (progress.getClassroomId() != null && progress.getClassroomId().equals(classRoomIdByLessonId.get(progress.getLessonId()))) {
+                counts.merge(progress.getClassroomId(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static <T> List<String> distinct(Collection<T> source, Function<T, String> idGetter) {
+        return source.stream()
+                .map(idGetter)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static <T> Map<String, T> indexById(Iterable<T> entities, Function<T, String> idGetter) {
+        Map<String, T> index = new HashMap<>();
+        for (T entity : entities) {
+            index.put(idGetter.apply(entity), entity);
+        }
+        return index;
+    }
+}
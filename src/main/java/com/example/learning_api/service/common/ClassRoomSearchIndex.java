@@ -0,0 +1,496 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.ClassRoomSearchFilter;
+import com.example.learning_api.entity.sql.database.CategoryEntity;
+import com.example.learning_api.entity.sql.database.ClassRoomEntity;
+import com.example.learning_api.entity.sql.database.TeacherEntity;
+import com.example.learning_api.entity.sql.database.UserEntity;
+import com.example.learning_api.repository.database.CategoryRepository;
+import com.example.learning_api.repository.database.ClassRoomRepository;
+import com.example.learning_api.repository.database.TeacherRepository;
+import com.example.learning_api.repository.database.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-process inverted index over the classroom catalog (name, description, category name, teacher name).
+ * <p>
+ * Text is folded to lowercase ASCII, so "Lập trình" and "lap trinh" match the same terms. Every query token must
+ * match a document, either exactly, as a prefix of an indexed term, or as an infix through the trigram index;
+ * documents are ranked with BM25F over the boosted fields.
+ * <p>
+ * The index is rebuilt in full at startup and periodically (see ClassRoomSearchIndexSchedule), and kept current
+ * in between from the classroom save/delete events. Until the first build finishes {@link #canSearch} is false and
+ * callers keep their Mongo regex queries.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClassRoomSearchIndex extends AbstractMongoEventListener<ClassRoomEntity> {
+    private static final int NAME = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int CATEGORY = 2;
+    private static final int TEACHER = 3;
+    private static final double[] FIELD_BOOSTS = {3.0, 1.0, 1.5, 1.5};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final double INFIX_WEIGHT = 0.4;
+    private static final int MIN_INFIX_LENGTH = 3;
+    private static final int MAX_EXPANSIONS = 200;
+    // Bounds the $in list callers send to Mongo (about 30 bytes per id, far below the 16 MB document limit); catalogs
+    // stay well under it, so their own sort sees every match
+    private static final int MAX_MATCHES = 100_000;
+
+    private final ClassRoomRepository classRoomRepository;
+    private final CategoryRepository categoryRepository;
+    private final TeacherRepository teacherRepository;
+    private final UserRepository userRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexState state = new IndexState();
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+    // Classrooms saved while a rebuild was loading; re-read once the new state is swapped in
+    private final Set<String> dirtyIds = ConcurrentHashMap.newKeySet();
+
+    private static final class IndexedClassRoom {
+        private final String id;
+        private final String status;
+        private final String categoryId;
+        private final String teacherId;
+        private final int[] lengths;
+        private final Map<String, int[]> frequencies;
+
+        private IndexedClassRoom(String id, String status, String categoryId, String teacherId, int[] lengths, Map<String, int[]> frequencies) {
+            this.id = id;
+            this.status = status;
+            this.categoryId = categoryId;
+            this.teacherId = teacherId;
+            this.lengths = lengths;
+            this.frequencies = frequencies;
+        }
+    }
+
+    private static final class IndexState {
+        private final Map<String, IndexedClassRoom> documents = new HashMap<>();
+        // term -> classroom id -> frequency of the term in each field
+        private final TreeMap<String, Map<String, int[]>> postings = new TreeMap<>();
+        private final Map<String, Set<String>> trigrams = new HashMap<>();
+        private final long[] totalLengths = new long[FIELD_BOOSTS.length];
+
+        private void add(IndexedClassRoom document) {
+            remove(document.id);
+            documents.put(document.id, document);
+            for (int field = 0; field < totalLengths.length; field++) {
+                totalLengths[field] += document.lengths[field];
+            }
+            for (Map.Entry<String, int[]> entry : document.frequencies.entrySet()) {
+                Map<String, int[]> posting = postings.get(entry.getKey());
+                if (posting == null) {
+                    posting = new HashMap<>();
+                    postings.put(entry.getKey(), posting);
+                    for (String trigram : trigramsOf(entry.getKey())) {
+                        trigrams.computeIfAbsent(trigram, key -> new HashSet<>()).add(entry.getKey());
+                    }
+                }
+                posting.put(document.id, entry.getValue());
+            }
+        }
+
+        private void remove(String id) {
+            IndexedClassRoom document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+            for (int field = 0; field < totalLengths.length; field++) {
+                totalLengths[field] -= document.lengths[field];
+            }
+            for (String term : document.frequencies.keySet()) {
+                Map<String, int[]> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                    for (String trigram : trigramsOf(term)) {
+                        Set<String> terms = trigrams.get(trigram);
+                        if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                            trigrams.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean canSearch(String search) {
+        return ready && search != null && !tokenize(search).isEmpty();
+    }
+
+    /**
+     * Ranked page of the classrooms matching every token of the search and the filter.
+     */
+    public Page<ClassRoomEntity> search(String search, ClassRoomSearchFilter filter, Pageable pageable) {
+        List<String> ranked = rank(score(search, filter));
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        List<String> pageIds = ranked.subList(from, to);
+
+        Map<String, ClassRoomEntity> loaded = new HashMap<>();
+        for (ClassRoomEntity classRoom : classRoomRepository.findAllById(pageIds)) {
+            loaded.put(classRoom.getId(), classRoom);
+        }
+        List<ClassRoomEntity> content = pageIds.stream().map(loaded::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, ranked.size());
+    }
+
+    /**
+     * Ids of every matching classroom, unordered, for callers that sort and page in Mongo themselves: their sort, by
+     * price or enrollments say, applies over all matches. Only past {@link #MAX_MATCHES} are the least relevant left
+     * out.
+     */
+    public List<String> matchingIds(String search, ClassRoomSearchFilter filter) {
+        Map<String, Double> scores = score(search, filter);
+        if (scores.size() <= MAX_MATCHES) {
+            return new ArrayList<>(scores.keySet());
+        }
+        log.warn("Search \"{}\" matched {} classrooms, keeping the {} most relevant", search, scores.size(), MAX_MATCHES);
+        return new ArrayList<>(rank(scores).subList(0, MAX_MATCHES));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Error building classroom search index: ", e);
+        }
+    }
+
+    public synchronized void rebuild() {
+        rebuilding = true;
+        try {
+            List<ClassRoomEntity> classRooms = classRoomRepository.findAll();
+            Map<String, String> categoryNames = categoryRepository.findAll().stream()
+                    .filter(category -> category.getName() != null)
+                    .collect(Collectors.toMap(CategoryEntity::getId, CategoryEntity::getName, (a, b) -> a));
+            Map<String, String> teacherNames = teacherNames(teacherRepository.findAll());
+
+            IndexState rebuilt = new IndexState();
+            for (ClassRoomEntity classRoom : classRooms) {
+                rebuilt.add(analyze(classRoom, categoryNames.get(classRoom.getCategoryId()), teacherNames.get(classRoom.getTeacherId())));
+            }
+            lock.writeLock().lock();
+            try {
+                state = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            log.info("Indexed {} classrooms for search", classRooms.size());
+        } finally {
+            rebuilding = false;
+        }
+
+        if (!dirtyIds.isEmpty()) {
+            List<String> ids = new ArrayList<>(dirtyIds);
+            dirtyIds.removeAll(ids);
+            Set<String> found = new HashSet<>();
+            for (ClassRoomEntity classRoom : classRoomRepository.findAllById(ids)) {
+                found.add(classRoom.getId());
+                index(classRoom);
+            }
+            for (String id : ids) {
+                if (!found.contains(id)) {
+                    remove(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<ClassRoomEntity> event) {
+        ClassRoomEntity classRoom = event.getSource();
+        if (classRoom.getId() == null) {
+            return;
+        }
+        try {
+            if (rebuilding) {
+                dirtyIds.add(classRoom.getId());
+            }
+            index(classRoom);
+        } catch (Exception e) {
+            log.warn("Could not index classroom {}: {}", classRoom.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<ClassRoomEntity> event) {
+        // Only deletes by id can be applied here; bulk deletes are picked up by the next rebuild
+        Document filter = event.getSource();
+        Object id = filter.get("_id");
+        if (id == null || id instanceof Document) {
+            return;
+        }
+        if (rebuilding) {
+            dirtyIds.add(id.toString());
+        }
+        remove(id.toString());
+    }
+
+    private void index(ClassRoomEntity classRoom) {
+        String categoryName = null;
+        if (classRoom.getCategoryId() != null) {
+            categoryName = categoryRepository.findById(classRoom.getCategoryId()).map(CategoryEntity::getName).orElse(null);
+        }
+        String teacherName = null;
+        if (classRoom.getTeacherId() != null) {
+            teacherName = teacherRepository.findById(classRoom.getTeacherId())
+                    .map(teacher -> teacherNames(List.of(teacher)).get(teacher.getId()))
+                    .orElse(null);
+        }
+        IndexedClassRoom document = analyze(classRoom, categoryName, teacherName);
+        lock.writeLock().lock();
+        try {
+            state.add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            state.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<String, String> teacherNames(List<TeacherEntity> teachers) {
+        List<String> userIds = teachers.stream().map(TeacherEntity::getUserId).filter(Objects::nonNull).distinct().toList();
+        Map<String, String> fullnames = new HashMap<>();
+        for (UserEntity user : userRepository.findAllById(userIds)) {
+            if (user.getFullname() != null) {
+                fullnames.put(user.getId(), user.getFullname());
+            }
+        }
+        Map<String, String> names = new HashMap<>();
+        for (TeacherEntity teacher : teachers) {
+            String fullname = fullnames.get(teacher.getUserId());
+            if (fullname != null) {
+                names.put(teacher.getId(), fullname);
+            }
+        }
+        return names;
+    }
+
+    private static List<String> rank(Map<String, Double> scores) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * @return the BM25F score of every classroom matching every token of the search and the filter
+     */
+    private Map<String, Double> score(String search, ClassRoomSearchFilter filter) {
+        List<String> tokens = tokenize(search).stream().distinct().toList();
+        if (tokens.isEmpty()) {
+            return new HashMap<>();
+        }
+        Set<String> includeIds = filter.getIncludeIds() != null ? new HashSet<>(filter.getIncludeIds()) : null;
+        Set<String> excludeIds = filter.getExcludeIds() != null ? new HashSet<>(filter.getExcludeIds()) : Set.of();
+
+        lock.readLock().lock();
+        try {
+            IndexState current = state;
+            int documentCount = current.documents.size();
+            if (documentCount == 0) {
+                return new HashMap<>();
+            }
+            double[] averageLengths = new double[FIELD_BOOSTS.length];
+            for (int field = 0; field < averageLengths.length; field++) {
+                averageLengths[field] = Math.max(1.0, (double) current.totalLengths[field] / documentCount);
+            }
+
+            Map<String, Double> scores = null;
+            for (String token : tokens) {
+                // A document scores a token with its best matching expansion, so "java" does not also add "javascript"
+                Map<String, Double> tokenScores = new HashMap<>();
+                for (Map.Entry<String, Double> expansion : expand(current, token).entrySet()) {
+                    Map<String, int[]> posting = current.postings.get(expansion.getKey());
+                    double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                    for (Map.Entry<String, int[]> hit : posting.entrySet()) {
+                        if (scores != null && !scores.containsKey(hit.getKey())) {
+                            continue;
+                        }
+                        IndexedClassRoom document = current.documents.get(hit.getKey());
+                        if (!matches(document, filter, includeIds, excludeIds)) {
+                            continue;
+                        }
+                        double score = expansion.getValue() * idf * saturate(hit.getValue(), document.lengths, averageLengths);
+                        tokenScores.merge(hit.getKey(), score, Math::max);
+                    }
+                }
+                if (scores != null) {
+                    for (Map.Entry<String, Double> entry : tokenScores.entrySet()) {
+                        entry.setValue(entry.getValue() + scores.get(entry.getKey()));
+                    }
+                }
+                scores = tokenScores;
+                if (scores.isEmpty()) {
+                    return scores;
+                }
+            }
+            return scores;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, Double> expand(IndexState current, String token) {
+        Map<String, Double> expansions = new HashMap<>();
+        if (current.postings.containsKey(token)) {
+            expansions.put(token, 1.0);
+        }
+        for (String term : current.postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+            if (expansions.size() >= MAX_EXPANSIONS) {
+                return expansions;
+            }
+            expansions.put(term, PREFIX_WEIGHT);
+        }
+        if (token.length() < MIN_INFIX_LENGTH) {
+            return expansions;
+        }
+        // Candidate terms share every trigram of the token; intersect starting from the rarest one
+        List<Set<String>> candidates = new ArrayList<>();
+        for (String trigram : trigramsOf(token)) {
+            Set<String> terms = current.trigrams.get(trigram);
+            if (terms == null) {
+                return expansions;
+            }
+            candidates.add(terms);
+        }
+        candidates.sort(Comparator.comparingInt(Set::size));
+        for (String term : candidates.get(0)) {
+            if (expansions.size() >= MAX_EXPANSIONS) {
+                break;
+            }
+            if (!expansions.containsKey(term) && term.contains(token)
+                    && candidates.stream().allMatch(terms -> terms.contains(term))) {
+                expansions.put(term, INFIX_WEIGHT);
+            }
+        }
+        return expansions;
+    }
+
+    private static double saturate(int[] frequencies, int[] lengths, double[] averageLengths) {
+        double weighted = 0;
+        for (int field = 0; field < frequencies.length; field++) {
+            if (frequencies[field] > 0) {
+                weighted += FIELD_BOOSTS[field] * frequencies[field] / (1 - B + B * lengths[field] / averageLengths[field]);
+            }
+        }
+        return weighted * (K1 + 1) / (weighted + K1);
+    }
+
+    private static boolean matches(IndexedClassRoom document, ClassRoomSearchFilter filter, Set<String> includeIds, Set<String> excludeIds) {
+        if (includeIds != null && !includeIds.contains(document.id)) {
+            return false;
+        }
+        if (excludeIds.contains(document.id)) {
+            return false;
+        }
+        if (filter.getStatus() != null && !filter.getStatus().equals(document.status)) {
+            return false;
+        }
+        if (filter.getExcludedStatus() != null && filter.getExcludedStatus().equals(document.status)) {
+            return false;
+        }
+        if (filter.getCategoryId() != null && !filter.getCategoryId().equals(document.categoryId)) {
+            return false;
+        }
+        return filter.getTeacherId() == null || filter.getTeacherId().equals(document.teacherId);
+    }
+
+    private static IndexedClassRoom analyze(ClassRoomEntity classRoom, String categoryName, String teacherName) {
+        String[] texts = new String[FIELD_BOOSTS.length];
+        texts[NAME] = classRoom.getName();
+        texts[DESCRIPTION] = classRoom.getDescription();
+        texts[CATEGORY] = categoryName;
+        texts[TEACHER] = teacherName;
+
+        int[] lengths = new int[FIELD_BOOSTS.length];
+        Map<String, int[]> frequencies = new HashMap<>();
+        for (int field = 0; field < texts.length; field++) {
+            List<String> tokens = tokenize(texts[field]);
+            lengths[field] = tokens.size();
+            for (String token : tokens) {
+                frequencies.computeIfAbsent(token, key -> new int[FIELD_BOOSTS.length])[field]++;
+            }
+        }
+        return new IndexedClassRoom(classRoom.getId(),
+                classRoom.getStatus() != null ? classRoom.getStatus().toString() : null,
+                classRoom.getCategoryId(), classRoom.getTeacherId(), lengths, frequencies);
+    }
+
+    /**
+     * Lowercases, strips Vietnamese diacritics (đ → d) and splits on anything that is not a letter or digit.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == 'đ' || c == 'Đ') {
+                c = 'd';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static List<String> trigramsOf(String term) {
+        List<String> trigrams = new ArrayList<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            trigrams.add(term.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.ClassroomRatingBucket;
+import com.example.learning_api.dto.common.StudentSubmissionCountDto;
+import com.example.learning_api.entity.sql.database.ClassRoomEntity;
+import com.example.learning_api.repository.database.ReviewRepository;
+import com.example.learning_api.repository.database.StudentEnrollmentsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the rating and enrollment aggregates stored on {@link ClassRoomEntity} in step with the
+ * reviews and student_enrollments collections. Every write path updates them with an atomic
+ * {@code $inc}, and {@link #reconcileAll()} repairs any drift.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClassRoomStatsService {
+    private static final String RATING_SUM = "ratingSum";
+    private static final String RATING_COUNT = "ratingCount";
+    private static final String RATING_HISTOGRAM = "ratingHistogram";
+    private static final String CURRENT_ENROLLMENT = "currentEnrollment";
+
+    private final MongoTemplate mongoTemplate;
+    private final ReviewRepository reviewRepository;
+    private final StudentEnrollmentsRepository studentEnrollmentsRepository;
+
+    public void reviewAdded(String classroomId, Double rating) {
+        if (classroomId == null || rating == null) {
+            return;
+        }
+        Update update = new Update()
+                .inc(RATING_SUM, rating)
+                .inc(RATING_COUNT, 1)
+                .inc(RATING_HISTOGRAM + "." + starOf(rating), 1);
+        mongoTemplate.updateFirst(byId(classroomId), update, ClassRoomEntity.class);
+    }
+
+    public void reviewRemoved(String classroomId, Double rating) {
+        if (classroomId == null || rating == null) {
+            return;
+        }
+        Update update = new Update()
+                .inc(RATING_SUM, -rating)
+                .inc(RATING_COUNT, -1)
+                .inc(RATING_HISTOGRAM + "." + starOf(rating), -1);
+        mongoTemplate.updateFirst(byId(classroomId), update, ClassRoomEntity.class);
+    }
+
+    public void reviewRatingChanged(String classroomId, Double oldRating, Double newRating) {
+        if (Objects.equals(oldRating, newRating)) {
+            return;
+        }
+        if (oldRating == null) {
+            reviewAdded(classroomId, newRating);
+            return;
+        }
+        if (newRating == null) {
+            reviewRemoved(classroomId, oldRating);
+            return;
+        }
+        Update update = new Update().inc(RATING_SUM, newRating - oldRating);
+        String oldStar = starOf(oldRating);
+        String newStar = starOf(newRating);
+        if (!oldStar.equals(newStar)) {
+            update.inc(RATING_HISTOGRAM + "." + oldStar, -1).inc(RATING_HISTOGRAM + "." + newStar, 1);
+        }
+        mongoTemplate.updateFirst(byId(classroomId), update, ClassRoomEntity.class);
+    }
+
+    public void enrollmentAdded(String classroomId) {
+        if (classroomId == null) {
+            return;
+        }
+        mongoTemplate.updateFirst(byId(classroomId), new Update().inc(CURRENT_ENROLLMENT, 1), ClassRoomEntity.class);
+    }
+
+    public void enrollmentRemoved(String classroomId) {
+        if (classroomId == null) {
+            return;
+        }
+        Query query = new Query(Criteria.where("_id").is(classroomId).and(CURRENT_ENROLLMENT).gt(0));
+        mongoTemplate.updateFirst(query, new Update().inc(CURRENT_ENROLLMENT, -1), ClassRoomEntity.class);
+    }
+
+    public static double averageRating(ClassRoomEntity classRoom) {
+        if (classRoom.getRatingCount() == null || classRoom.getRatingCount() <= 0 || classRoom.getRatingSum() == null) {
+            return 0.0;
+        }
+        return classRoom.getRatingSum() / classRoom.getRatingCount();
+    }
+
+    public static int ratingCount(ClassRoomEntity classRoom) {
+        return classRoom.getRatingCount() != null ? Math.max(classRoom.getRatingCount(), 0) : 0;
+    }
+
+    /**
+     * Recomputes every classroom's aggregates from the source collections and rewrites the ones that drifted.
+     * The rewrite is conditional on the values read, so a concurrent {@code $inc} is never overwritten;
+     * the next run picks that classroom up again instead.
+     *
+     * @return number of classrooms that were repaired
+     */
+    public int reconcileAll() {
+        Map<String, Integer> enrollments = new HashMap<>();
+        for (StudentSubmissionCountDto count : studentEnrollmentsRepository.countEnrollmentsGroupByClassroom()) {
+            if (count.get_id() != null) {
+                enrollments.put(count.get_id(), count.getEnrollmentCount());
+            }
+        }
+        Map<String, RatingTotals> ratings = new HashMap<>();
+        for (ClassroomRatingBucket bucket : reviewRepository.aggregateRatingBuckets()) {
+            RatingTotals totals = ratings.computeIfAbsent(bucket.getClassroomId(), id -> new RatingTotals());
+            totals.sum += bucket.getRating() * bucket.getCount();
+            totals.count += bucket.getCount();
+            totals.histogram.merge(starOf(bucket.getRating()), bucket.getCount(), Integer::sum);
+        }
+
+        Query query = new Query();
+        query.fields().include("_id", CURRENT_ENROLLMENT, RATING_SUM, RATING_COUNT, RATING_HISTOGRAM);
+        List<ClassRoomEntity> classRooms = mongoTemplate.find(query, ClassRoomEntity.class);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClassRoomEntity.class);
+        int repaired = 0;
+        for (ClassRoomEntity classRoom : classRooms) {
+            int enrollment = enrollments.getOrDefault(classRoom.getId(), 0);
+            RatingTotals totals = ratings.getOrDefault(classRoom.getId(), new RatingTotals());
+            boolean drifted = !Objects.equals(classRoom.getCurrentEnrollment(), enrollment)
+                    || !Objects.equals(classRoom.getRatingCount(), totals.count)
+                    || classRoom.getRatingSum() == null
+                    || Math.abs(classRoom.getRatingSum() - totals.sum) > 1e-6
+                    || !totals.histogram.equals(nonZero(classRoom.getRatingHistogram()));
+            if (!drifted) {
+                continue;
+            }
+            Query expected = new Query(Criteria.where("_id").is(classRoom.getId())
+                    .and(CURRENT_ENROLLMENT).is(classRoom.getCurrentEnrollment())
+                    .and(RATING_COUNT).is(classRoom.getRatingCount())
+                    .and(RATING_SUM).is(classRoom.getRatingSum()));
+            Update update = new Update()
+                    .set(CURRENT_ENROLLMENT, enrollment)
+                    .set(RATING_COUNT, totals.count)
+                    .set(RATING_SUM, totals.sum)
+                    .set(RATING_HISTOGRAM, totals.histogram);
+            bulk.updateOne(expected, update);
+            repaired++;
+        }
+        if (repaired > 0) {
+            bulk.execute();
+            log.info("Reconciled rating/enrollment aggregates of {} classrooms", repaired);
+        }
+        return repaired;
+    }
+
+    private static Query byId(String classroomId) {
+        return new Query(Criteria.where("_id").is(classroomId));
+    }
+
+    private static String starOf(double rating) {
+        long star = Math.round(rating);
+        return String.valueOf(Math.max(1, Math.min(5, star)));
+    }
+
+    private static Map<String, Integer> nonZero(Map<String, Integer> histogram) {
+        Map<String, Integer> result = new HashMap<>();
+        if (histogram != null) {
+            histogram.forEach((star, count) -> {
+                if (count != null && count != 0) {
+                    result.put(star, count);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static class RatingTotals {
+        private double sum;
+        private int count;
+        private final Map<String, Integer> histogram = new HashMap<>();
+    }
+}
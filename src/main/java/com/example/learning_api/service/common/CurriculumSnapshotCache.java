@@ -0,0 +1,186 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.CurriculumSnapshot;
+import com.example.learning_api.dto.response.lesson.GetLessonDetailResponse;
+import com.example.learning_api.entity.sql.database.*;
+import com.example.learning_api.enums.FileOwnerType;
+import com.example.learning_api.enums.TestShowResultType;
+import com.example.learning_api.repository.database.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-process cache of {@link CurriculumSnapshot}s, one per classroom.
+ * <p>
+ * A snapshot is built with one bulk query per collection and tagged with the classroom's curriculum version.
+ * Every read checks the version first and rebuilds when it moved, so a write on any instance is seen by all of them.
+ * Writers must change the data first and call one of the {@code invalidate} methods afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CurriculumSnapshotCache {
+    private static final int MAX_SNAPSHOTS = 256;
+
+    private final MongoTemplate mongoTemplate;
+    private final SectionRepository sectionRepository;
+    private final LessonRepository lessonRepository;
+    private final ResourceRepository resourceRepository;
+    private final MediaRepository mediaRepository;
+    private final SubstanceRepository substanceRepository;
+    private final DeadlineRepository deadlineRepository;
+    private final TestRepository testRepository;
+    private final FileRepository fileRepository;
+
+    private final Map<String, CurriculumSnapshot> snapshots = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CurriculumSnapshot> eldest) {
+                    return size() > MAX_SNAPSHOTS;
+                }
+            });
+
+    public CurriculumSnapshot get(String classroomId) {
+        // The version is read before the data, so a snapshot can only ever be tagged older than what it contains
+        long version = currentVersion(classroomId);
+        CurriculumSnapshot cached = snapshots.get(classroomId);
+        if (cached != null && cached.getVersion() == version) {
+            return cached;
+        }
+        CurriculumSnapshot snapshot = build(classroomId, version);
+        snapshots.merge(classroomId, snapshot, (existing, built) -> existing.getVersion() > built.getVersion() ? existing : built);
+        return snapshot;
+    }
+
+    public void invalidate(String classroomId) {
+        if (classroomId == null) {
+            return;
+        }
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(classroomId)),
+                new Update().inc("version", 1), CurriculumVersionEntity.class);
+        snapshots.remove(classroomId);
+    }
+
+    public void invalidateBySection(String sectionId) {
+        if (sectionId == null) {
+            return;
+        }
+        sectionRepository.findById(sectionId).ifPresent(section -> invalidate(section.getClassRoomId()));
+    }
+
+    public void invalidateByLesson(String lessonId) {
+        if (lessonId == null) {
+            return;
+        }
+        lessonRepository.findById(lessonId).ifPresent(lesson -> invalidateBySection(lesson.getSectionId()));
+    }
+
+    public GetLessonDetailResponse toLessonDetail(CurriculumSnapshot.LessonNode node) {
+        LessonEntity lesson = node.getLesson();
+        GetLessonDetailResponse lessonDetail = new GetLessonDetailResponse();
+        lessonDetail.setId(lesson.getId());
+        lessonDetail.setSectionId(lesson.getSectionId());
+        lessonDetail.setName(lesson.getName());
+        lessonDetail.setDescription(lesson.getDescription());
+        lessonDetail.setIndex(node.getIndex());
+        lessonDetail.setStatus(lesson.getStatus() != null ? lesson.getStatus().toString() : null);
+        lessonDetail.setType(lesson.getType() != null ? lesson.getType().toString() : null);
+        lessonDetail.setResources(node.getResources());
+        lessonDetail.setMedia(node.getMedia());
+        lessonDetail.setSubstances(node.getSubstances());
+        lessonDetail.setDeadlines(node.getDeadlines());
+        lessonDetail.setQuizzes(node.getQuizzes());
+        lessonDetail.setExams(node.getExams());
+        lessonDetail.setCreatedAt(lesson.getCreatedAt());
+        lessonDetail.setUpdatedAt(lesson.getUpdatedAt());
+        return lessonDetail;
+    }
+
+    private long currentVersion(String classroomId) {
+        CurriculumVersionEntity version = mongoTemplate.findById(classroomId, CurriculumVersionEntity.class);
+        return version != null && version.getVersion() != null ? version.getVersion() : 0L;
+    }
+
+    private CurriculumSnapshot build(String classroomId, long version) {
+        List<SectionEntity> sections = new ArrayList<>(sectionRepository.findByClassRoomId(classroomId));
+        sections.sort(Comparator.comparingInt(section -> section.getIndex() != null ? section.getIndex() : 0));
+        List<String> sectionIds = sections.stream().map(SectionEntity::getId).collect(Collectors.toList());
+
+        List<LessonEntity> lessons = sectionIds.isEmpty() ? new ArrayList<>() : new ArrayList<>(lessonRepository.findBySectionIdIn(sectionIds));
+        lessons.sort(Comparator.comparingInt(lesson -> lesson.getIndex() != null ? lesson.getIndex() : 0));
+        List<String> lessonIds = lessons.stream().map(LessonEntity::getId).collect(Collectors.toList());
+
+        Map<String, List<ResourceEntity>> resources = new HashMap<>();
+        Map<String, List<MediaEntity>> media = new HashMap<>();
+        Map<String, List<SubstanceEntity>> substances = new HashMap<>();
+        Map<String, List<DeadlineEntity>> deadlines = new HashMap<>();
+        Map<String, List<TestEntity>> tests = new HashMap<>();
+        if (!lessonIds.isEmpty()) {
+            resources = groupBy(resourceRepository.findByLessonIdIn(lessonIds), ResourceEntity::getLessonId);
+            media = groupBy(mediaRepository.findByLessonIdIn(lessonIds), MediaEntity::getLessonId);
+            substances = groupBy(substanceRepository.findByLessonIdIn(lessonIds), SubstanceEntity::getLessonId);
+
+            List<DeadlineEntity> deadlineEntities = deadlineRepository.findByLessonIdIn(lessonIds);
+            Map<String, List<FileEntity>> deadlineFiles = filesOf(deadlineEntities.stream().map(DeadlineEntity::getId).toList(), FileOwnerType.DEADLINE);
+            for (DeadlineEntity deadline : deadlineEntities) {
+                deadline.setFiles(deadlineFiles.getOrDefault(deadline.getId(), new ArrayList<>()));
+            }
+            deadlines = groupBy(deadlineEntities, DeadlineEntity::getLessonId);
+
+            List<TestEntity> testEntities = testRepository.findByLessonIdIn(lessonIds);
+            Map<String, List<FileEntity>> testFiles = filesOf(testEntities.stream().map(TestEntity::getId).toList(), FileOwnerType.TEST);
+            for (TestEntity test : testEntities) {
+                test.setSources(testFiles.getOrDefault(test.getId(), new ArrayList<>()));
+            }
+            tests = groupBy(testEntities, TestEntity::getLessonId);
+        }
+
+        Map<String, List<CurriculumSnapshot.LessonNode>> lessonsBySection = new HashMap<>();
+        for (LessonEntity lesson : lessons) {
+            List<TestEntity> lessonTests = tests.getOrDefault(lesson.getId(), List.of());
+            CurriculumSnapshot.LessonNode node = new CurriculumSnapshot.LessonNode(
+                    lesson,
+                    resources.getOrDefault(lesson.getId(), List.of()),
+                    media.getOrDefault(lesson.getId(), List.of()),
+                    substances.getOrDefault(lesson.getId(), List.of()),
+                    deadlines.getOrDefault(lesson.getId(), List.of()),
+                    lessonTests.stream().filter(test -> test.getShowResultType() == TestShowResultType.SHOW_RESULT_IMMEDIATELY).toList(),
+                    lessonTests.stream().filter(test -> test.getShowResultType() == TestShowResultType.SHOW_RESULT_AFTER_TEST).toList());
+            lessonsBySection.computeIfAbsent(lesson.getSectionId(), id -> new ArrayList<>()).add(node);
+        }
+
+        List<CurriculumSnapshot.SectionNode> sectionNodes = new ArrayList<>();
+        for (SectionEntity section : sections) {
+            sectionNodes.add(new CurriculumSnapshot.SectionNode(section, lessonsBySection.getOrDefault(section.getId(), List.of())));
+        }
+        log.debug("Built curriculum snapshot of classroom {} at version {}", classroomId, version);
+        return new CurriculumSnapshot(classroomId, version, sectionNodes);
+    }
+
+    private Map<String, List<FileEntity>> filesOf(List<String> ownerIds, FileOwnerType ownerType) {
+        if (ownerIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return groupBy(fileRepository.findFilesByOwnerIdsAndType(ownerIds, ownerType.name()), FileEntity::getOwnerId);
+    }
+
+    private static <T> Map<String, List<T>> groupBy(List<T> entities, Function<T, String> keyGetter) {
+        Map<String, List<T>> grouped = new HashMap<>();
+        for (T entity : entities) {
+            String key = keyGetter.apply(entity);
+            if (key != null) {
+                grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(entity);
+            }
+        }
+        return grouped;
+    }
+}
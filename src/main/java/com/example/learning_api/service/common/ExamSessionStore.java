@@ -0,0 +1,457 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.AnswerSheet;
+import com.example.learning_api.dto.common.CompiledAnswerKey;
+import com.example.learning_api.dto.request.test.SaveProgressRequest;
+import com.example.learning_api.entity.sql.database.StudentAnswersEntity;
+import com.example.learning_api.entity.sql.database.TestResultEntity;
+import com.example.learning_api.enums.TestState;
+import com.example.learning_api.repository.database.StudentAnswersRepository;
+import com.example.learning_api.repository.database.TestResultRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory answer sheets of ongoing exams, keyed by test result.
+ * <p>
+ * Autosaves only replace the answers of the questions they carry. Changed sheets are checkpointed to Mongo every few
+ * seconds and on shutdown, and are closed without a write once the submitted test is saved, since submit writes the
+ * graded sheet itself. Every change is also appended to a local journal before it is acknowledged; the journal is
+ * rotated on each checkpoint and replayed on startup, so a crash loses at most what the OS had not written out yet.
+ * <p>
+ * Autosaves only lock their own session. Journal lines are serialized by the caller and committed in groups: whichever
+ * autosave finds the journal idle writes and flushes every line queued so far, while the others wait for that flush.
+ * <p>
+ * Assumes the autosaves of one test result reach the same instance.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExamSessionStore {
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final long IDLE_MILLIS = 3 * 60 * 60 * 1000L; // Clean sessions untouched this long are dropped
+
+    private final TestResultRepository testResultRepository;
+    private final StudentAnswersRepository studentAnswersRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final AnswerSheetWriter answerSheetWriter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exam-session.journal-dir:${java.io.tmpdir}/exam-sessions}")
+    private String journalDir;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Object journalLock = new Object(); // Guards the fields below; never held while writing
+    private BufferedWriter journal;
+    private Path journalPath;
+    private List<String> queuedLines = new ArrayList<>();
+    private long queuedUpTo; // Sequence of the last queued line
+    private long flushedUpTo; // Sequence of the last line written and flushed, or given up on
+    private boolean flushing;
+
+    private static final class Session {
+        private final String testResultId;
+        private final String studentId;
+        private final String testId;
+        private final Map<String, QuestionAnswers> questions = new LinkedHashMap<>();
+        private boolean dirty;
+        private boolean closed;
+        private volatile long touchedAt = System.currentTimeMillis();
+
+        private Session(String testResultId, String studentId, String testId) {
+            this.testResultId = testResultId;
+            this.studentId = studentId;
+            this.testId = testId;
+        }
+    }
+
+    private static final class QuestionAnswers {
+        private final boolean text;
+        private final List<String> values;
+
+        private QuestionAnswers(boolean text, List<String> values) {
+            this.text = text;
+            this.values = values;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class JournalEntry {
+        private String testResultId;
+        private String studentId;
+        private String testId;
+        private String questionId;
+        private boolean text;
+        private List<String> values;
+    }
+
+    public void saveProgress(SaveProgressRequest body) {
+        Session session = sessionOf(body.getTestResultId(), null);
+        CompiledAnswerKey answerKey = answerKeyCache.get(session.testId);
+        List<JournalEntry> entries = new ArrayList<>();
+        for (SaveProgressRequest.QuestionAndAnswer questionAndAnswer : body.getQuestionAndAnswers()) {
+            CompiledAnswerKey.QuestionKey question = answerKey.getQuestion(questionAndAnswer.getQuestionId());
+            if (question == null) {
+                throw new IllegalArgumentException("Question does not exist");
+            }
+            List<String> values = question.isTextType() ? questionAndAnswer.getTextAnswers() : questionAndAnswer.getAnswers();
+            if (values != null && values.contains(null)) {
+                throw new IllegalArgumentException("Answers must not contain null");
+            }
+            entries.add(new JournalEntry(session.testResultId, session.studentId, session.testId, question.getId(),
+                    question.isTextType(), values != null ? List.copyOf(values) : List.of()));
+        }
+        List<String> lines = journalLines(entries);
+        // Held until the lines are flushed, so a checkpoint after a rotation always sees what the old journal holds
+        synchronized (session) {
+            if (session.closed) {
+                throw new IllegalArgumentException("Test is already finished");
+            }
+            appendJournal(lines);
+            entries.forEach(entry -> apply(session, entry));
+        }
+    }
+
+    /**
+     * @return the current answers of an ongoing test result, from memory or, the first time, from Mongo
+     */
+    public List<StudentAnswersEntity> getAnswers(TestResultEntity testResult) {
+        Session session = sessionOf(testResult.getId(), testResult);
+        synchronized (session) {
+            return toSheet(session).getAnswers();
+        }
+    }
+
+    /**
+     * Saves a submitted test with {@code persist} and then ends its session. The session is held meanwhile, so
+     * checkpoints and autosaves of it wait and cannot overwrite the graded sheet. If saving fails the session stays
+     * open with its answers, which are checkpointed again, and the submit can be retried.
+     * The closed session stays in place until it goes idle, so late autosaves are refused instead of reopening it.
+     */
+    public void submit(TestResultEntity testResult, Runnable persist) {
+        Session session = sessionOf(testResult.getId(), testResult);
+        synchronized (session) {
+            if (session.closed) {
+                throw new IllegalArgumentException("Test is already finished");
+            }
+            try {
+                persist.run();
+            } catch (RuntimeException e) {
+                session.dirty = true; // The graded sheet may already have replaced the last checkpoint
+                throw e;
+            }
+            session.closed = true;
+            session.touchedAt = System.currentTimeMillis();
+        }
+    }
+
+    @Scheduled(initialDelay = 5000, fixedDelay = 5000) // Every 5 seconds
+    public void checkpoint() {
+        try {
+            Path rotated;
+            synchronized (journalLock) {
+                rotated = rotateJournal();
+            }
+            if (checkpointSessions() && rotated != null) {
+                Files.deleteIfExists(rotated);
+            }
+            evictIdle();
+        } catch (Exception e) {
+            log.error("Error checkpointing exam sessions: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        checkpoint();
+        synchronized (journalLock) {
+            awaitIdleJournal();
+            closeJournal();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        try {
+            Path dir = Paths.get(journalDir);
+            Files.createDirectories(dir);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(path -> path.getFileName().toString().startsWith(JOURNAL_PREFIX))
+                        .sorted()
+                        .toList();
+            }
+            if (files.isEmpty()) {
+                return;
+            }
+            Map<String, List<JournalEntry>> entries = new LinkedHashMap<>();
+            for (Path file : files) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    JournalEntry entry = readEntry(line);
+                    if (entry != null) {
+                        entries.computeIfAbsent(entry.getTestResultId(), id -> new ArrayList<>()).add(entry);
+                    }
+                }
+            }
+            int replayed = 0;
+            for (Map.Entry<String, List<JournalEntry>> changes : entries.entrySet()) {
+                try {
+                    // Starts from the last checkpoint; tests submitted meanwhile are refused here and skipped
+                    Session session = sessionOf(changes.getKey(), null);
+                    synchronized (session) {
+                        changes.getValue().forEach(entry -> apply(session, entry));
+                    }
+                    replayed += changes.getValue().size();
+                } catch (IllegalArgumentException e) {
+                    log.debug("Skipping journal of test result {}: {}", changes.getKey(), e.getMessage());
+                }
+            }
+            if (checkpointSessions()) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            log.info("Recovered {} exam session changes from {} journal files", replayed, files.size());
+        } catch (Exception e) {
+            log.error("Error recovering exam sessions: ", e);
+        }
+    }
+
+    private Session sessionOf(String testResultId, TestResultEntity known) {
+        Session session = sessions.get(testResultId);
+        if (session != null) {
+            session.touchedAt = System.currentTimeMillis();
+            return session;
+        }
+        TestResultEntity testResult = known != null ? known : testResultRepository.findById(testResultId)
+                .orElseThrow(() -> new IllegalArgumentException("Test result does not exist"));
+        if (testResult.getState() == TestState.FINISHED) {
+            throw new IllegalArgumentException("Test is already finished");
+        }
+        Session loaded = new Session(testResult.getId(), testResult.getStudentId(), testResult.getTestId());
+        for (StudentAnswersEntity answer : studentAnswersRepository.findByStudentIdAndTestResultId(testResult.getStudentId(), testResult.getId())) {
+            boolean text = answer.getAnswerId() == null;
+            loaded.questions.computeIfAbsent(answer.getQuestionId(), id -> new QuestionAnswers(text, new ArrayList<>()))
+                    .values.add(text ? answer.getTextAnswer() : answer.getAnswerId());
+        }
+        Session existing = sessions.putIfAbsent(testResultId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private static void apply(Session session, JournalEntry entry) {
+        session.questions.put(entry.getQuestionId(), new QuestionAnswers(entry.isText(), entry.getValues()));
+        session.dirty = true;
+        session.touchedAt = System.currentTimeMillis();
+    }
+
+    private JournalEntry readEntry(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(line, JournalEntry.class);
+        } catch (IOException e) {
+            // A torn last line after a crash; everything before it is intact
+            log.warn("Skipping unreadable exam session journal line: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static AnswerSheet toSheet(Session session) {
+        AnswerSheet sheet = new AnswerSheet(session.testResultId, session.studentId);
+        session.questions.forEach((questionId, answers) -> {
+            for (String value : answers.values) {
+                if (answers.text) {
+                    sheet.add(questionId, null, value, null);
+                } else {
+                    sheet.add(questionId, value, "", null);
+                }
+            }
+        });
+        return sheet;
+    }
+
+    /**
+     * @return whether every changed session was written
+     */
+    private boolean checkpointSessions() {
+        boolean complete = true;
+        for (Session session : sessions.values()) {
+            // Held during the write, so close() of a submitted test waits until this sheet is out of the way
+            synchronized (session) {
+                if (!session.dirty || session.closed) {
+                    continue;
+                }
+                try {
+                    answerSheetWriter.replace(toSheet(session));
+                    session.dirty = false;
+                } catch (Exception e) {
+                    complete = false;
+                    log.error("Error checkpointing exam session {}: ", session.testResultId, e);
+                }
+            }
+        }
+        return complete;
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> {
+            synchronized (session) {
+                return (session.closed || !session.dirty) && now - session.touchedAt > IDLE_MILLIS;
+            }
+        });
+    }
+
+    private List<String> journalLines(List<JournalEntry> entries) {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (JournalEntry entry : entries) {
+            try {
+                lines.add(objectMapper.writeValueAsString(entry));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize exam session change", e);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Queues lines and returns once they are flushed, writing them itself, together with whatever else is queued, if
+     * no other caller is writing.
+     */
+    private void appendJournal(List<String> lines) {
+        long sequence;
+        synchronized (journalLock) {
+            queuedLines.addAll(lines);
+            queuedUpTo += lines.size();
+            sequence = queuedUpTo;
+        }
+        while (true) {
+            List<String> group;
+            long groupUpTo;
+            BufferedWriter writer;
+            synchronized (journalLock) {
+                while (flushing && flushedUpTo < sequence) {
+                    waitForJournal();
+                }
+                if (flushedUpTo >= sequence) {
+                    return;
+                }
+                flushing = true;
+                group = queuedLines;
+                groupUpTo = queuedUpTo;
+                queuedLines = new ArrayList<>();
+                writer = openedJournal();
+            }
+            boolean written = writeGroup(writer, group);
+            synchronized (journalLock) {
+                if (!written && journal == writer) {
+                    closeJournal();
+                }
+                flushedUpTo = groupUpTo;
+                flushing = false;
+                journalLock.notifyAll();
+            }
+        }
+    }
+
+    private static boolean writeGroup(BufferedWriter writer, List<String> group) {
+        if (writer == null) {
+            return false;
+        }
+        try {
+            for (String line : group) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+            return true;
+        } catch (IOException e) {
+            // The checkpoint still bounds what a crash can lose; autosave keeps working without the journal
+            log.warn("Could not append to exam session journal: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private BufferedWriter openedJournal() {
+        if (journal == null) {
+            try {
+                openJournal();
+            } catch (IOException e) {
+                log.warn("Could not open exam session journal: {}", e.getMessage());
+                closeJournal();
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Waits out a group being written, so it lands entirely in the file being closed. Called holding journalLock.
+     */
+    private void awaitIdleJournal() {
+        while (flushing) {
+            waitForJournal();
+        }
+    }
+
+    private void waitForJournal() {
+        try {
+            journalLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while appending to the exam session journal");
+        }
+    }
+
+    /**
+     * Starts a new journal file; the previous one only holds changes a following checkpoint will include.
+     *
+     * @return the previous journal file, or null when there was none
+     */
+    private Path rotateJournal() {
+        awaitIdleJournal();
+        Path previous = journalPath;
+        closeJournal();
+        return previous;
+    }
+
+    private void openJournal() throws IOException {
+        Path dir = Paths.get(journalDir);
+        Files.createDirectories(dir);
+        journalPath = dir.resolve(JOURNAL_PREFIX + System.currentTimeMillis() + "-" + UUID.randomUUID() + JOURNAL_SUFFIX);
+        journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close exam session journal: {}", e.getMessage());
+            }
+        }
+        journal = null;
+        journalPath = null;
+    }
+}
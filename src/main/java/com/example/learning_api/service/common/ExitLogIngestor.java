@@ -0,0 +1,253 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.constant.ErrorConstant;
+import com.example.learning_api.dto.request.test.CreateExitLogRequest;
+import com.example.learning_api.entity.sql.database.StudentTestExitLogEntity;
+import com.example.learning_api.entity.sql.database.TestExitCountEntity;
+import com.example.learning_api.entity.sql.database.TestResultEntity;
+import com.example.learning_api.enums.TestState;
+import com.example.learning_api.model.CustomException;
+import com.example.learning_api.utils.BoundedRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Ingestion of the tab/window exits reported during exams, built for bursts such as a whole class losing focus at
+ * once.
+ * <p>
+ * Events come from the authenticated student and are only accepted for that student's ONGOING attempts. Accepting a
+ * batch validates all of it, then puts its events into a lock-free {@link BoundedRingBuffer} with one
+ * claim, so a batch is taken whole or not at all; a full buffer rejects it with a {@link CustomException} carrying
+ * {@link AdmissionControl#BUSY_CODE} and a retry adds nothing twice. Every second the buffer is drained into one bulk
+ * insert of exit logs and one unordered bulk of {@code $inc} upserts on the per-attempt {@link TestExitCountEntity},
+ * which is what teachers read. Events whose attempt has since disappeared are dropped at flush time.
+ * <p>
+ * A failed flush is parked and retried on its own at the next flushes, up to {@link #MAX_FLUSH_ATTEMPTS} times, after
+ * which it is logged and abandoned; new events keep flowing meanwhile, unless {@link #MAX_PARKED_FLUSHES} are parked,
+ * when they wait in the buffer. Both writes are idempotent: logs get their IDs when they are accepted, so inserting
+ * them again only hits duplicate keys, and a counter remembers the last flushes it counted, so an increment already
+ * applied is skipped.
+ * <p>
+ * Metrics: {@code exit.log.events} with {@code outcome} accepted/rejected/dropped/abandoned.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExitLogIngestor {
+    private static final int CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 5000;
+    private static final String RETRY_SECONDS = "1";
+    private static final String APPLIED_FLUSHES = "appliedFlushes";
+    private static final int APPLIED_FLUSHES_KEPT = 20;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+    private static final int MAX_PARKED_FLUSHES = 8;
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final BoundedRingBuffer<StudentTestExitLogEntity> buffer = new BoundedRingBuffer<>(CAPACITY);
+    // Flushes whose write failed, retried as they are; only touched under the flush lock
+    private final Deque<Flush> parked = new ArrayDeque<>();
+
+    private static final class Flush {
+        private final String id = new ObjectId().toHexString();
+        private final List<StudentTestExitLogEntity> logs;
+        private int attempts;
+
+        private Flush(List<StudentTestExitLogEntity> logs) {
+            this.logs = logs;
+        }
+    }
+
+    /**
+     * @param studentId the authenticated student reporting the events
+     * @return how many events were accepted: all of them, or none with a busy exception
+     */
+    public int accept(String studentId, List<CreateExitLogRequest> events) {
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+        if (events.size() > buffer.capacity()) {
+            throw new IllegalArgumentException("Too many exit events in one batch");
+        }
+        String now = String.valueOf(System.currentTimeMillis());
+        Set<String> testResultIds = new HashSet<>();
+        for (CreateExitLogRequest event : events) {
+            if (event == null || event.getTestResultId() == null) {
+                throw new IllegalArgumentException("Test result id is required");
+            }
+            testResultIds.add(event.getTestResultId());
+        }
+        long ongoing = mongoTemplate.count(new Query(Criteria.where("_id").in(testResultIds)
+                .and("studentId").is(studentId)
+                .and("state").is(TestState.ONGOING)), TestResultEntity.class);
+        if (ongoing < testResultIds.size()) {
+            throw new IllegalArgumentException("Exit events are only accepted for your ongoing tests");
+        }
+        List<StudentTestExitLogEntity> logs = new ArrayList<>(events.size());
+        for (CreateExitLogRequest event : events) {
+            StudentTestExitLogEntity exitLog = new StudentTestExitLogEntity();
+            exitLog.setId(new ObjectId().toHexString());
+            exitLog.setStudentId(studentId);
+            exitLog.setTestResultId(event.getTestResultId());
+            exitLog.setTime(event.getTime() != null ? event.getTime() : now);
+            logs.add(exitLog);
+        }
+        if (!buffer.offerAll(logs)) {
+            count("rejected", logs.size());
+            throw new CustomException(ErrorConstant.SERVER_BUSY, RETRY_SECONDS, AdmissionControl.BUSY_CODE);
+        }
+        count("accepted", logs.size());
+        return logs.size();
+    }
+
+    public List<TestExitCountEntity> getExitCounts(String testId) {
+        Query query = new Query(Criteria.where("testId").is(testId)).with(Sort.by(Sort.Direction.DESC, "count"));
+        query.fields().exclude(APPLIED_FLUSHES);
+        return mongoTemplate.find(query, TestExitCountEntity.class);
+    }
+
+    @Scheduled(initialDelay = 1000, fixedDelay = 1000) // Every second
+    public void flush() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("Error flushing exit logs: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private synchronized void drain() {
+        retryParked();
+        while (parked.size() < MAX_PARKED_FLUSHES) {
+            List<StudentTestExitLogEntity> logs = new ArrayList<>();
+            buffer.drainTo(logs, MAX_BATCH);
+            if (logs.isEmpty()) {
+                return;
+            }
+            Flush flush = new Flush(logs);
+            if (!attempt(flush)) {
+                // Most likely the database is down: leave the rest in the buffer until the next flush
+                return;
+            }
+            if (logs.size() < MAX_BATCH) {
+                return;
+            }
+        }
+    }
+
+    // Each parked flush gets one more try; one that keeps failing is given up on, so it cannot hold up the others
+    private void retryParked() {
+        for (int i = parked.size(); i > 0; i--) {
+            Flush flush = parked.poll();
+            attempt(flush);
+        }
+    }
+
+    /**
+     * @return whether the flush was written; if not it is parked, or abandoned after its last attempt
+     */
+    private boolean attempt(Flush flush) {
+        try {
+            write(flush);
+            return true;
+        } catch (RuntimeException e) {
+            flush.attempts++;
+            if (flush.attempts >= MAX_FLUSH_ATTEMPTS) {
+                log.error("Abandoning exit log flush {} of {} events after {} attempts: ", flush.id, flush.logs.size(), flush.attempts, e);
+                count("abandoned", flush.logs.size());
+            } else {
+                log.warn("Exit log flush {} failed (attempt {}), retrying at the next flush: {}", flush.id, flush.attempts, e.getMessage());
+                parked.add(flush);
+            }
+            return false;
+        }
+    }
+
+    private void write(Flush flush) {
+        Set<String> testResultIds = new HashSet<>();
+        flush.logs.forEach(exitLog -> testResultIds.add(exitLog.getTestResultId()));
+        Query results = new Query(Criteria.where("_id").in(testResultIds));
+        results.fields().include("studentId").include("testId");
+        Map<String, TestResultEntity> attempts = new HashMap<>();
+        for (TestResultEntity result : mongoTemplate.find(results, TestResultEntity.class)) {
+            attempts.put(result.getId(), result);
+        }
+
+        List<StudentTestExitLogEntity> logs = new ArrayList<>(flush.logs.size());
+        Map<String, Integer> exits = new LinkedHashMap<>();
+        Map<String, String> lastExitAt = new HashMap<>();
+        for (StudentTestExitLogEntity exitLog : flush.logs) {
+            TestResultEntity attempt = attempts.get(exitLog.getTestResultId());
+            if (attempt == null || !exitLog.getStudentId().equals(attempt.getStudentId())) {
+                continue;
+            }
+            logs.add(exitLog);
+            exits.merge(exitLog.getTestResultId(), 1, Integer::sum);
+            lastExitAt.merge(exitLog.getTestResultId(), exitLog.getTime(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        }
+        count("dropped", flush.logs.size() - logs.size());
+        if (logs.isEmpty()) {
+            return;
+        }
+
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StudentTestExitLogEntity.class);
+        inserts.insert(logs);
+        executeIgnoringDuplicates(inserts);
+
+        // A counter that already lists this flush does not match, and its upsert fails on the duplicate _id instead
+        BulkOperations counters = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TestExitCountEntity.class);
+        exits.forEach((testResultId, delta) -> {
+            TestResultEntity attempt = attempts.get(testResultId);
+            Update update = new Update()
+                    .inc("count", delta)
+                    .max("lastExitAt", lastExitAt.get(testResultId))
+                    .setOnInsert("testId", attempt.getTestId())
+                    .setOnInsert("studentId", attempt.getStudentId());
+            update.push(APPLIED_FLUSHES).slice(-APPLIED_FLUSHES_KEPT).each(flush.id);
+            counters.upsert(new Query(Criteria.where("_id").is(testResultId).and(APPLIED_FLUSHES).ne(flush.id)), update);
+        });
+        executeIgnoringDuplicates(counters);
+    }
+
+    private static void executeIgnoringDuplicates(BulkOperations bulk) {
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Written by an earlier try of the same flush
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    private void count(String outcome, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        Counter.builder("exit.log.events")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.MailJobEntity;
+import com.example.learning_api.entity.sql.database.UserEntity;
+import com.example.learning_api.enums.MailJobStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable outbox for every email the application sends. Request threads only insert {@link MailJobEntity}s.
+ * <p>
+ * Every two seconds due jobs are claimed in batches under a lease, so several instances never send the same job,
+ * and handed to a small bounded pool. A worker renders its batch through the Thymeleaf engine, whose compiled
+ * templates are cached, and sends it over one SMTP connection. Recipients that fail are retried on
+ * {@link #RETRY_DELAYS_MILLIS} and given up on after the last delay; sent jobs expire after {@link #KEEP_SENT_MILLIS},
+ * failed ones after {@link #KEEP_FAILED_MILLIS}.
+ * <p>
+ * Time-sensitive mail, such as a confirmation code, is enqueued with how long it stays valid: it is neither sent nor
+ * retried past that deadline, and the job, code included, expires at the deadline whatever its status.
+ * <p>
+ * Mail to one recipient is transactional and claimed ahead of any due fan-out from {@link #enqueueToUsers}, so a code
+ * never waits behind a class-wide notification; fan-out only fills batches once no transactional mail is due.
+ * <p>
+ * Only {@link JavaMailSender} is used, so pointing {@code spring.mail.host}/{@code port} at a local SMTP server
+ * exercises the whole path. Every template gets the recipient address as {@code toMail}.
+ * <p>
+ * Metrics: {@code mail.outbox.jobs} with {@code outcome} enqueued/sent/retried/failed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MailOutbox {
+    private static final int WORKERS = 2;
+    private static final int QUEUE = 4;
+    private static final int BATCH_SIZE = 25;
+    private static final long LEASE_MILLIS = 5 * 60 * 1000L;
+    private static final long KEEP_SENT_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    private static final long KEEP_FAILED_MILLIS = 3 * 24 * 60 * 60 * 1000L;
+    private static final long[] RETRY_DELAYS_MILLIS = {
+            60 * 1000L, 5 * 60 * 1000L, 30 * 60 * 1000L, 2 * 60 * 60 * 1000L, 6 * 60 * 60 * 1000L
+    };
+    private static final String RECIPIENT_VARIABLE = "toMail";
+    private static final int MAX_ERROR_LENGTH = 500;
+    static final int PRIORITY_TRANSACTIONAL = 0;
+    static final int PRIORITY_BULK = 1;
+
+    private final MongoTemplate mongoTemplate;
+    private final JavaMailSender javaMailSender;
+    private final SpringTemplateEngine templateEngine;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.mail.username}")
+    private String mailFrom;
+
+    private final ThreadPoolExecutor executor = createExecutor();
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        return new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mail-outbox-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void enqueue(String to, String subject, String template, Map<String, String> variables) {
+        enqueue(to, subject, template, variables, null);
+    }
+
+    /**
+     * @param validFor how long the content stays useful, e.g. the validity of a code; null if it does not expire
+     */
+    public void enqueue(String to, String subject, String template, Map<String, String> variables, Duration validFor) {
+        if (to == null || to.isBlank()) {
+            throw new IllegalArgumentException("Email recipient is required");
+        }
+        MailJobEntity job = newJob(subject, template, variables, PRIORITY_TRANSACTIONAL);
+        job.setTo(to);
+        if (validFor != null) {
+            long deadline = System.currentTimeMillis() + validFor.toMillis();
+            job.setDeadline(deadline);
+            job.setExpireAt(new Date(deadline));
+        }
+        mongoTemplate.insert(job);
+        count("enqueued", 1);
+    }
+
+    /**
+     * Queues the same email for many users with one bulk insert; their addresses are looked up when sending.
+     */
+    public void enqueueToUsers(Collection<String> userIds, String subject, String template, Map<String, String> variables) {
+        List<MailJobEntity> jobs = new ArrayList<>();
+        for (String userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            MailJobEntity job = newJob(subject, template, variables, PRIORITY_BULK);
+            job.setUserId(userId);
+            jobs.add(job);
+        }
+        if (jobs.isEmpty()) {
+            return;
+        }
+        mongoTemplate.insert(jobs, MailJobEntity.class);
+        count("enqueued", jobs.size());
+    }
+
+    @Scheduled(initialDelay = 2000, fixedDelay = 2000) // Every 2 seconds
+    public void dispatch() {
+        try {
+            int free = WORKERS + QUEUE - executor.getActiveCount() - executor.getQueue().size();
+            for (int i = 0; i < free; i++) {
+                List<MailJobEntity> batch = claim();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                try {
+                    executor.execute(() -> send(batch));
+                } catch (RejectedExecutionException e) {
+                    release(batch);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error dispatching mail outbox: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            // Batches still running after this keep their lease and are sent again once it expires
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MailJobEntity newJob(String subject, String template, Map<String, String> variables, int priority) {
+        MailJobEntity job = new MailJobEntity();
+        job.setSubject(subject);
+        job.setTemplate(template);
+        job.setVariables(variables != null ? new HashMap<>(variables) : new HashMap<>());
+        job.setStatus(MailJobStatus.PENDING);
+        job.setPriority(priority);
+        job.setAttempts(0);
+        job.setNextAttemptAt(System.currentTimeMillis());
+        job.setCreatedAt(String.valueOf(System.currentTimeMillis()));
+        return job;
+    }
+
+    private static Criteria due(long now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(MailJobStatus.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(MailJobStatus.SENDING).and("lockedUntil").lt(now));
+    }
+
+    /**
+     * Takes up to one batch of due jobs under a fresh lease, transactional ones first: candidates are read, then taken
+     * with one conditional update, so a job another instance took meanwhile is left out.
+     */
+    private List<MailJobEntity> claim() {
+        long now = System.currentTimeMillis();
+        Query candidates = new Query(due(now)).with(Sort.by("priority", "nextAttemptAt")).limit(BATCH_SIZE);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, MailJobEntity.class).stream().map(MailJobEntity::getId).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String claimToken = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(new Query(new Criteria().andOperator(Criteria.where("_id").in(ids), due(now))),
+                new Update()
+                        .set("status", MailJobStatus.SENDING)
+                        .set("lockedUntil", now + LEASE_MILLIS)
+                        .set("claimToken", claimToken),
+                MailJobEntity.class);
+        return mongoTemplate.find(new Query(Criteria.where("claimToken").is(claimToken)), MailJobEntity.class);
+    }
+
+    private void release(List<MailJobEntity> batch) {
+        List<String> ids = batch.stream().map(MailJobEntity::getId).toList();
+        mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(ids).and("status").is(MailJobStatus.SENDING)),
+                new Update().set("status", MailJobStatus.PENDING).unset("lockedUntil").unset("claimToken"),
+                MailJobEntity.class);
+    }
+
+    void send(List<MailJobEntity> batch) {
+        try {
+            long now = System.currentTimeMillis();
+            Map<String, String> emails = resolveEmails(batch);
+            Map<MimeMessage, MailJobEntity> messages = new IdentityHashMap<>();
+            Map<MailJobEntity, String> failures = new IdentityHashMap<>();
+            List<MailJobEntity> undeliverable = new ArrayList<>();
+            for (MailJobEntity job : batch) {
+                if (job.getDeadline() != null && job.getDeadline() <= now) {
+                    job.setLastError("Expired before it could be sent");
+                    undeliverable.add(job);
+                    continue;
+                }
+                String to = job.getTo() != null ? job.getTo() : emails.get(job.getUserId());
+                if (to == null || to.isBlank()) {
+                    job.setLastError("Recipient has no email address");
+                    undeliverable.add(job);
+                    continue;
+                }
+                try {
+                    messages.put(render(job, to), job);
+                } catch (Exception e) {
+                    // A broken template does not fix itself; retrying would only resend the error
+                    job.setLastError("Rendering failed: " + e.getMessage());
+                    undeliverable.add(job);
+                }
+            }
+            if (!messages.isEmpty()) {
+                try {
+                    // One connection for the whole batch
+                    javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+                } catch (MailSendException e) {
+                    Map<Object, Exception> failed = e.getFailedMessages();
+                    messages.forEach((message, job) -> {
+                        Exception cause = failed.isEmpty() ? e : failed.get(message);
+                        if (cause != null) {
+                            failures.put(job, cause.getMessage());
+                        }
+                    });
+                } catch (MailException e) {
+                    messages.values().forEach(job -> failures.put(job, e.getMessage()));
+                }
+            }
+            record(messages.values(), failures, undeliverable);
+        } catch (Exception e) {
+            // The lease expires and the batch is picked up again
+            log.error("Error sending mail outbox batch: ", e);
+        }
+    }
+
+    private Map<String, String> resolveEmails(List<MailJobEntity> batch) {
+        Set<String> userIds = new HashSet<>();
+        for (MailJobEntity job : batch) {
+            if (job.getTo() == null && job.getUserId() != null) {
+                userIds.add(job.getUserId());
+            }
+        }
+        Map<String, String> emails = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return emails;
+        }
+        Query query = new Query(Criteria.where("_id").in(userIds));
+        query.fields().include("email");
+        for (UserEntity user : mongoTemplate.find(query, UserEntity.class)) {
+            if (user.getEmail() != null) {
+                emails.put(user.getId(), user.getEmail());
+            }
+        }
+        return emails;
+    }
+
+    private MimeMessage render(MailJobEntity job, String to) throws MessagingException {
+        Context context = new Context();
+        if (job.getVariables() != null) {
+            job.getVariables().forEach(context::setVariable);
+        }
+        context.setVariable(RECIPIENT_VARIABLE, to);
+        String htmlContent = templateEngine.process(job.getTemplate(), context);
+
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, StandardCharsets.UTF_8.name());
+        mimeMessageHelper.setFrom(mailFrom);
+        mimeMessageHelper.setTo(to);
+        mimeMessageHelper.setText(htmlContent, true);
+        mimeMessageHelper.setSubject(job.getSubject());
+        return mimeMessage;
+    }
+
+    private void record(Collection<MailJobEntity> attempted, Map<MailJobEntity, String> failures, List<MailJobEntity> undeliverable) {
+        long now = System.currentTimeMillis();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MailJobEntity.class);
+        int sent = 0;
+        int retried = 0;
+        int failed = 0;
+        for (MailJobEntity job : attempted) {
+            String error = failures.get(job);
+            if (error == null) {
+                bulk.updateOne(owned(job), new Update()
+                        .set("status", MailJobStatus.SENT)
+                        .set("sentAt", String.valueOf(now))
+                        .set("expireAt", expireAt(job, now + KEEP_SENT_MILLIS))
+                        .inc("attempts", 1)
+                        .unset("lockedUntil")
+                        .unset("claimToken"));
+                sent++;
+                continue;
+            }
+            int attempts = job.getAttempts() == null ? 0 : job.getAttempts();
+            long nextAttemptAt = attempts < RETRY_DELAYS_MILLIS.length ? now + RETRY_DELAYS_MILLIS[attempts] : Long.MAX_VALUE;
+            boolean retry = nextAttemptAt != Long.MAX_VALUE && (job.getDeadline() == null || nextAttemptAt < job.getDeadline());
+            Update update = new Update()
+                    .set("status", retry ? MailJobStatus.PENDING : MailJobStatus.FAILED)
+                    .set("lastError", truncate(error))
+                    .inc("attempts", 1)
+                    .unset("lockedUntil")
+                    .unset("claimToken");
+            if (retry) {
+                update.set("nextAttemptAt", nextAttemptAt);
+                retried++;
+            } else {
+                update.set("expireAt", expireAt(job, now + KEEP_FAILED_MILLIS));
+                failed++;
+            }
+            bulk.updateOne(owned(job), update);
+        }
+        for (MailJobEntity job : undeliverable) {
+            bulk.updateOne(owned(job), new Update()
+                    .set("status", MailJobStatus.FAILED)
+                    .set("lastError", truncate(job.getLastError()))
+                    .set("expireAt", expireAt(job, now + KEEP_FAILED_MILLIS))
+                    .unset("lockedUntil")
+                    .unset("claimToken"));
+            failed++;
+        }
+        if (sent + retried + failed > 0) {
+            bulk.execute();
+        }
+        count("sent", sent);
+        count("retried", retried);
+        count("failed", failed);
+    }
+
+    /**
+     * Time-sensitive jobs keep expiring at their deadline, so a delivered or failed code is not kept any longer.
+     */
+    private static Date expireAt(MailJobEntity job, long keepUntil) {
+        return new Date(job.getDeadline() != null ? Math.min(job.getDeadline(), keepUntil) : keepUntil);
+    }
+
+    /**
+     * Matches a job only while this worker still holds its lease.
+     */
+    private static Query owned(MailJobEntity job) {
+        return new Query(Criteria.where("_id").is(job.getId()).and("claimToken").is(job.getClaimToken()));
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private void count(String outcome, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        Counter.builder("mail.outbox.jobs")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.enums.RoleEnum;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Real-time delivery of notifications over STOMP.
+ * <p>
+ * A payload is serialized to JSON once, by the application's {@link ObjectMapper}, and the same bytes are handed to
+ * the broker for every destination; the simple broker shares them across all subscribed sessions. Class-wide
+ * notifications go to one classroom topic, optionally scoped to a role, so a whole class costs one send;
+ * {@code /topic/notifications/{userId}} is kept for targeted messages.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationBroadcaster {
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    public static String userTopic(String userId) {
+        return "/topic/notifications/" + userId;
+    }
+
+    /**
+     * @param role null for everyone in the classroom
+     */
+    public static String classroomTopic(String classroomId, RoleEnum role) {
+        String topic = "/topic/classrooms/" + classroomId + "/notifications";
+        return role == null ? topic : topic + "/" + role.name().toLowerCase();
+    }
+
+    public void toUsers(Collection<String> userIds, Object payload) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        byte[] body = serialize(payload);
+        for (String userId : userIds) {
+            messagingTemplate.send(userTopic(userId), message(body));
+        }
+    }
+
+    /**
+     * Pushes a user's unread badge to {@code /topic/notifications/{userId}/unread}.
+     */
+    public void unreadCount(String userId, int unreadCount) {
+        messagingTemplate.send(userTopic(userId) + "/unread", message(serialize(Map.of("unreadCount", unreadCount))));
+    }
+
+    public void toClassroom(String classroomId, RoleEnum role, Object payload) {
+        messagingTemplate.send(classroomTopic(classroomId, role), message(serialize(payload)));
+    }
+
+    private byte[] serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    // Headers are per destination; the body is shared
+    private static Message<byte[]> message(byte[] body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body, accessor.getMessageHeaders());
+    }
+}
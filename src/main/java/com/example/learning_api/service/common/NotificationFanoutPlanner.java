@@ -0,0 +1,118 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.NotificationSettingsEntity;
+import com.example.learning_api.entity.sql.database.UserNotificationSettingsEntity;
+import com.example.learning_api.repository.database.NotificationSettingsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves who receives a notification and how, for any number of receivers.
+ * <p>
+ * Preferences are read with one {@code $in} query per {@link #CHUNK_SIZE} receivers, and each receiver's
+ * enabled flag and delivery method come out of the same pass. Receivers without a preference row get the defaults
+ * of the {@link NotificationSettingsEntity}, whose definitions are cached for {@link #SETTINGS_TTL_MILLIS} since
+ * they are only ever edited by hand.
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationFanoutPlanner {
+    private static final int CHUNK_SIZE = 500;
+    private static final long SETTINGS_TTL_MILLIS = 60 * 1000L;
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationSettingsRepository notificationSettingsRepository;
+
+    private static final class CachedSettings {
+        private final NotificationSettingsEntity settings;
+        private final long loadedAt;
+
+        private CachedSettings(NotificationSettingsEntity settings, long loadedAt) {
+            this.settings = settings;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Map<String, CachedSettings> settingsCache = new ConcurrentHashMap<>();
+
+    public NotificationSettingsEntity getSettings(String notificationSettingId) {
+        if (notificationSettingId == null) {
+            throw new RuntimeException("Notification settings not found");
+        }
+        long now = System.currentTimeMillis();
+        CachedSettings cached = settingsCache.get(notificationSettingId);
+        if (cached != null && now - cached.loadedAt < SETTINGS_TTL_MILLIS) {
+            return cached.settings;
+        }
+        NotificationSettingsEntity settings = notificationSettingsRepository.findById(notificationSettingId)
+                .orElseThrow(() -> new RuntimeException("Notification settings not found"));
+        settingsCache.put(notificationSettingId, new CachedSettings(settings, now));
+        return settings;
+    }
+
+    public void invalidate(String notificationSettingId) {
+        if (notificationSettingId != null) {
+            settingsCache.remove(notificationSettingId);
+        }
+    }
+
+    /**
+     * @return the receivers that have the notification enabled, in the given order and without duplicates,
+     * each with its delivery method
+     */
+    public LinkedHashMap<String, String> plan(List<String> receiverIds, NotificationSettingsEntity settings) {
+        return resolve(receiverIds, settings, true);
+    }
+
+    /**
+     * @return the delivery method of every receiver, whether or not they have the notification enabled
+     */
+    public LinkedHashMap<String, String> deliveryMethods(List<String> receiverIds, NotificationSettingsEntity settings) {
+        return resolve(receiverIds, settings, false);
+    }
+
+    private LinkedHashMap<String, String> resolve(List<String> receiverIds, NotificationSettingsEntity settings, boolean enabledOnly) {
+        LinkedHashMap<String, String> plan = new LinkedHashMap<>();
+        if (receiverIds == null || receiverIds.isEmpty()) {
+            return plan;
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(receiverIds));
+        distinct.remove(null);
+        boolean enabledByDefault = !Boolean.FALSE.equals(settings.getEnabledByDefault());
+        String defaultMethod = settings.getDeliveryMethods() == null || settings.getDeliveryMethods().isEmpty()
+                ? null
+                : settings.getDeliveryMethods().get(0); // First available method is the default
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            List<String> chunk = distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size()));
+            Map<String, UserNotificationSettingsEntity> preferences = loadPreferences(chunk, settings.getId());
+            for (String userId : chunk) {
+                UserNotificationSettingsEntity preference = preferences.get(userId);
+                boolean enabled = preference == null ? enabledByDefault : !Boolean.FALSE.equals(preference.getEnabled());
+                if (enabledOnly && !enabled) {
+                    continue;
+                }
+                String method = preference != null && preference.getDeliveryMethod() != null
+                        ? preference.getDeliveryMethod()
+                        : defaultMethod;
+                plan.put(userId, method);
+            }
+        }
+        return plan;
+    }
+
+    private Map<String, UserNotificationSettingsEntity> loadPreferences(List<String> userIds, String notificationSettingId) {
+        Query query = new Query(Criteria.where("notificationSettingId").is(notificationSettingId).and("userId").in(userIds));
+        query.fields().include("userId").include("enabled").include("deliveryMethod");
+        Map<String, UserNotificationSettingsEntity> preferences = new HashMap<>();
+        for (UserNotificationSettingsEntity preference : mongoTemplate.find(query, UserNotificationSettingsEntity.class)) {
+            preferences.putIfAbsent(preference.getUserId(), preference);
+        }
+        return preferences;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.NotificationInboxCursor;
+import com.example.learning_api.dto.response.notification.GetUserNotificationResponse;
+import com.example.learning_api.entity.sql.database.NotificationCounterEntity;
+import com.example.learning_api.entity.sql.database.NotificationEntity;
+import com.example.learning_api.entity.sql.database.NotificationReceiveEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Users' notification inboxes: the receives of a user, newest first, joined to their notifications.
+ * <p>
+ * Pages are keyset-paginated on (receivedAt, _id), so a page costs the same at any depth, and the notifications of a
+ * page are read with one {@code $in}. The unread badge is a per-user {@link NotificationCounterEntity} moved with
+ * {@code $inc} whenever receives are delivered, seen or deleted. A missing counter, e.g. for receives delivered
+ * before counters existed, is built the first time it is read: the counter is created first, so changes made while
+ * the receives are counted land on it and bump its version, and the count is only kept if the version did not move.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationInbox {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BUILD_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Data
+    @AllArgsConstructor
+    public static class InboxPage {
+        private List<GetUserNotificationResponse> notifications;
+        private NotificationInboxCursor next; // null when the inbox is exhausted
+    }
+
+    /**
+     * Stores new receives with one bulk insert and counts them on their users' badges.
+     */
+    public void deliver(List<NotificationReceiveEntity> receives) {
+        if (receives.isEmpty()) {
+            return;
+        }
+        mongoTemplate.insert(receives, NotificationReceiveEntity.class);
+        Map<String, Integer> unread = new HashMap<>();
+        for (NotificationReceiveEntity receive : receives) {
+            if (!Boolean.TRUE.equals(receive.getSeen())) {
+                unread.merge(receive.getUserId(), 1, Integer::sum);
+            }
+        }
+        adjustUnread(unread);
+    }
+
+    public InboxPage read(String userId, NotificationInboxCursor cursor, int size) {
+        validateSize(size);
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                    Criteria.where("receivedAt").lt(cursor.getReceivedAt()),
+                    Criteria.where("receivedAt").is(cursor.getReceivedAt()).and("_id").lt(toObjectId(cursor.getId()))));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "receivedAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(size + 1);
+        List<NotificationReceiveEntity> receives = mongoTemplate.find(query, NotificationReceiveEntity.class);
+        NotificationInboxCursor next = null;
+        if (receives.size() > size) {
+            receives = receives.subList(0, size);
+            NotificationReceiveEntity last = receives.get(size - 1);
+            next = new NotificationInboxCursor(last.getReceivedAt(), last.getId());
+        }
+        return new InboxPage(join(receives), next);
+    }
+
+    /**
+     * Offset page of an inbox, for clients of the old page/size API.
+     */
+    public List<GetUserNotificationResponse> readPage(String userId, int page, int size) {
+        validateSize(size);
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        Query query = new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "receivedAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .skip((long) page * size)
+                .limit(size);
+        return join(mongoTemplate.find(query, NotificationReceiveEntity.class));
+    }
+
+    public int unreadCount(String userId) {
+        return unread(userId, mongoTemplate.findById(userId, NotificationCounterEntity.class));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SeenResult {
+        private int marked;      // receives this call flipped from unseen to seen
+        private int unreadCount; // the user's badge afterwards
+    }
+
+    /**
+     * Marks the user's receives of the given notifications as seen.
+     */
+    public SeenResult markSeen(String userId, Collection<String> notificationIds) {
+        Set<String> distinct = new HashSet<>(notificationIds);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return new SeenResult(0, unreadCount(userId));
+        }
+        Criteria unseen = Criteria.where("userId").is(userId).and("notificationId").in(distinct).and("seen").is(false);
+        return markSeen(userId, unseen, distinct.size() == 1 ? distinct.iterator().next() : null);
+    }
+
+    public SeenResult markAllSeen(String userId) {
+        return markSeen(userId, Criteria.where("userId").is(userId).and("seen").is(false), null);
+    }
+
+    /**
+     * Flips every matching receive from unseen to seen with one conditional update, so concurrent marks never count a
+     * receive twice, then moves the notifications' seen counts and the badge by exactly what that update changed.
+     *
+     * @param notificationId the only notification the receives can belong to, which saves counting them per notification
+     */
+    private SeenResult markSeen(String userId, Criteria unseen, String notificationId) {
+        String seenBatch = UUID.randomUUID().toString();
+        int marked = (int) mongoTemplate.updateMulti(new Query(unseen),
+                new Update()
+                        .set("seen", true)
+                        .set("seenAt", String.valueOf(System.currentTimeMillis()))
+                        .set("seenBatch", seenBatch),
+                NotificationReceiveEntity.class).getModifiedCount();
+        if (marked == 0) {
+            return new SeenResult(0, unreadCount(userId));
+        }
+        Map<String, Integer> perNotification = new HashMap<>();
+        if (notificationId != null) {
+            perNotification.put(notificationId, marked);
+        } else {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("userId").is(userId).and("seenBatch").is(seenBatch)),
+                    Aggregation.group("notificationId").count().as("count"));
+            for (Document row : mongoTemplate.aggregate(aggregation, NotificationReceiveEntity.class, Document.class).getMappedResults()) {
+                if (row.get("_id") != null) {
+                    perNotification.put(row.get("_id").toString(), ((Number) row.get("count")).intValue());
+                }
+            }
+        }
+        if (!perNotification.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationEntity.class);
+            perNotification.forEach((id, count) -> bulk.updateOne(new Query(Criteria.where("_id").is(id)),
+                    new Update().inc("seenCount", count)));
+            bulk.execute();
+        }
+        return new SeenResult(marked, moveUnread(userId, -marked));
+    }
+
+    /**
+     * Deletes every receive of the given notifications, taking the unseen ones off their users' badges. The unseen
+     * receives are first flipped to seen with one conditional update, like {@link #markSeen}, so a receive marked
+     * seen meanwhile is taken off the badge by only one of the two.
+     */
+    public void deleteByNotificationIds(Collection<String> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return;
+        }
+        String deleteBatch = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(new Query(Criteria.where("notificationId").in(notificationIds).and("seen").is(false)),
+                new Update().set("seen", true).set("seenBatch", deleteBatch),
+                NotificationReceiveEntity.class);
+        Aggregation perUser = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("notificationId").in(notificationIds).and("seenBatch").is(deleteBatch)),
+                Aggregation.group("userId").count().as("count"));
+        Map<String, Integer> unread = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(perUser, NotificationReceiveEntity.class, Document.class).getMappedResults()) {
+            if (row.get("_id") != null) {
+                unread.put(row.get("_id").toString(), -((Number) row.get("count")).intValue());
+            }
+        }
+        mongoTemplate.remove(new Query(Criteria.where("notificationId").in(notificationIds)), NotificationReceiveEntity.class);
+        adjustUnread(unread);
+    }
+
+    public String encode(NotificationInboxCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot encode cursor");
+        }
+    }
+
+    public NotificationInboxCursor decode(String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.UTF_8));
+            NotificationInboxCursor cursor = objectMapper.readValue(json, NotificationInboxCursor.class);
+            if (cursor.getReceivedAt() == null || cursor.getId() == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Only existing counters are moved; a missing one is built from the receives, which already include the change.
+     * Every change bumps the version, including on a counter being built.
+     */
+    private void adjustUnread(Map<String, Integer> deltas) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationCounterEntity.class);
+        int operations = 0;
+        String now = String.valueOf(System.currentTimeMillis());
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            if (delta.getKey() == null || delta.getValue() == 0) {
+                continue;
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(delta.getKey())),
+                    new Update().inc("unread", delta.getValue()).inc("version", 1).set("updatedAt", now));
+            operations++;
+        }
+        if (operations > 0) {
+            bulk.execute();
+        }
+    }
+
+    /**
+     * Moves one user's badge and returns it in the same round trip.
+     */
+    private int moveUnread(String userId, int delta) {
+        NotificationCounterEntity counter = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(userId)),
+                new Update().inc("unread", delta).inc("version", 1).set("updatedAt", String.valueOf(System.currentTimeMillis())),
+                FindAndModifyOptions.options().returnNew(true),
+                NotificationCounterEntity.class);
+        return unread(userId, counter);
+    }
+
+    private int unread(String userId, NotificationCounterEntity counter) {
+        if (counter == null || counter.getBuilding() != null) {
+            // Missing, or a build that has not settled (possibly abandoned): count again
+            return buildCounter(userId);
+        }
+        return Math.max(0, counter.getUnread() == null ? 0 : counter.getUnread());
+    }
+
+    /**
+     * Marks the counter as building, creating it if needed, then counts the user's unseen receives and keeps the
+     * count only if no change bumped the version meanwhile; otherwise counts again. A change made before the marker
+     * already shows in the receives, and the count overwrites whatever it added to the counter.
+     */
+    private int buildCounter(String userId) {
+        String token = UUID.randomUUID().toString();
+        long unseen = 0;
+        for (int attempt = 0; attempt < MAX_BUILD_ATTEMPTS; attempt++) {
+            NotificationCounterEntity marker;
+            try {
+                marker = mongoTemplate.findAndModify(
+                        new Query(Criteria.where("_id").is(userId)),
+                        new Update().setOnInsert("unread", 0).setOnInsert("version", 0L).set("building", token),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        NotificationCounterEntity.class);
+            } catch (DuplicateKeyException e) {
+                // Created concurrently; mark that one on the next attempt
+                continue;
+            }
+            unseen = mongoTemplate.count(new Query(Criteria.where("userId").is(userId).and("seen").is(false)),
+                    NotificationReceiveEntity.class);
+            long settled = mongoTemplate.updateFirst(
+                    new Query(Criteria.where("_id").is(userId).and("building").is(token).and("version").is(marker.getVersion())),
+                    new Update().set("unread", (int) unseen).unset("building").set("updatedAt", String.valueOf(System.currentTimeMillis())),
+                    NotificationCounterEntity.class).getModifiedCount();
+            if (settled > 0) {
+                break;
+            }
+            // A change landed, or another build took over: the counter stays marked and is counted again when read
+        }
+        return (int) unseen;
+    }
+
+    private List<GetUserNotificationResponse> join(List<NotificationReceiveEntity> receives) {
+        if (receives.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> notificationIds = new HashSet<>();
+        receives.forEach(receive -> notificationIds.add(receive.getNotificationId()));
+        Map<String, NotificationEntity> notifications = new HashMap<>();
+        for (NotificationEntity notification : mongoTemplate.find(new Query(Criteria.where("_id").in(notificationIds)), NotificationEntity.class)) {
+            notifications.put(notification.getId(), notification);
+        }
+        List<GetUserNotificationResponse> response = new ArrayList<>(receives.size());
+        Set<String> added = new HashSet<>();
+        for (NotificationReceiveEntity receive : receives) {
+            NotificationEntity notification = notifications.get(receive.getNotificationId());
+            // Receives of deleted notifications are skipped, as are repeats delivered before receivers were de-duplicated
+            if (notification == null || !added.add(notification.getId())) {
+                continue;
+            }
+            GetUserNotificationResponse notificationResponse = new GetUserNotificationResponse();
+            notificationResponse.setId(notification.getId());
+            notificationResponse.setTitle(notification.getTitle());
+            notificationResponse.setMessage(notification.getMessage());
+            notificationResponse.setAuthorId(notification.getAuthorId());
+            notificationResponse.setAuthorRole(notification.getAuthorRole());
+            notificationResponse.setNotificationSettingId(notification.getNotificationSettingId());
+            notificationResponse.setStatus(notification.getStatus());
+            notificationResponse.setPriority(notification.getPriority());
+            notificationResponse.setExpiresAt(notification.getExpiresAt());
+            notificationResponse.setType(notification.getType());
+            notificationResponse.setTargetUrl(notification.getTargetUrl());
+            notificationResponse.setCreatedAt(notification.getCreatedAt());
+            notificationResponse.setUpdatedAt(notification.getUpdatedAt());
+            notificationResponse.setSeen(receive.getSeen());
+            notificationResponse.setReceivedAt(receive.getReceivedAt());
+            notificationResponse.setSeenAt(receive.getSeenAt());
+            response.add(notificationResponse);
+        }
+        return response;
+    }
+
+    private static void validateSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static Object toObjectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
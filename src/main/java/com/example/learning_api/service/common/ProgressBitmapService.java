@@ -0,0 +1,202 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.CurriculumSnapshot;
+import com.example.learning_api.entity.sql.database.ProgressBitmapEntity;
+import com.example.learning_api.entity.sql.database.ProgressEntity;
+import com.example.learning_api.repository.database.ProgressRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Per-student completion bitsets over a classroom's curriculum, so gating and completion counts
+ * are answered in memory from a single document read.
+ * <p>
+ * Bits are indexed by the ordinals of a {@link CurriculumSnapshot}; a bitmap tagged with another curriculum
+ * version is rebuilt from the progress collection, which stays the source of truth. Callers must write the
+ * progress row before marking the bitmap.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProgressBitmapService {
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final ProgressRepository progressRepository;
+
+    public static class StudentProgress {
+        private final CurriculumSnapshot curriculum;
+        private final BitSet lessons;
+        private final BitSet sections;
+
+        private StudentProgress(CurriculumSnapshot curriculum, BitSet lessons, BitSet sections) {
+            this.curriculum = curriculum;
+            this.lessons = lessons;
+            this.sections = sections;
+        }
+
+        public boolean isLessonComplete(String lessonId) {
+            int ordinal = curriculum.getLessonOrdinal(lessonId);
+            return ordinal >= 0 && lessons.get(ordinal);
+        }
+
+        public boolean isSectionComplete(String sectionId) {
+            int ordinal = curriculum.getSectionOrdinal(sectionId);
+            return ordinal >= 0 && sections.get(ordinal);
+        }
+
+        public int countCompletedLessons(CurriculumSnapshot.SectionNode section) {
+            int first = curriculum.getFirstLessonOrdinal(section.getSection().getId());
+            return first < 0 ? 0 : lessons.get(first, first + section.getLessons().size()).cardinality();
+        }
+
+        public int countCompletedLessons() {
+            return lessons.cardinality();
+        }
+
+        public boolean areAllLessonsComplete(CurriculumSnapshot.SectionNode section) {
+            int first = curriculum.getFirstLessonOrdinal(section.getSection().getId());
+            return first >= 0 && lessons.nextClearBit(first) >= first + section.getLessons().size();
+        }
+    }
+
+    public StudentProgress load(CurriculumSnapshot curriculum, String studentId) {
+        if (studentId == null) {
+            return new StudentProgress(curriculum, new BitSet(), new BitSet());
+        }
+        ProgressBitmapEntity bitmap = mongoTemplate.findById(bitmapId(studentId, curriculum.getClassroomId()), ProgressBitmapEntity.class);
+        if (isCurrent(bitmap, curriculum)) {
+            return toProgress(curriculum, bitmap);
+        }
+        return rebuild(curriculum, studentId, bitmap);
+    }
+
+    /**
+     * Loads the bitmaps of many students with one query; stale or missing ones are rebuilt individually.
+     */
+    public Map<String, StudentProgress> loadAll(CurriculumSnapshot curriculum, Collection<String> studentIds) {
+        Map<String, StudentProgress> result = new HashMap<>();
+        if (studentIds.isEmpty()) {
+            return result;
+        }
+        List<String> ids = studentIds.stream().map(studentId -> bitmapId(studentId, curriculum.getClassroomId())).toList();
+        Map<String, ProgressBitmapEntity> bitmaps = new HashMap<>();
+        for (ProgressBitmapEntity bitmap : mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), ProgressBitmapEntity.class)) {
+            bitmaps.put(bitmap.getStudentId(), bitmap);
+        }
+        for (String studentId : studentIds) {
+            ProgressBitmapEntity bitmap = bitmaps.get(studentId);
+            result.put(studentId, isCurrent(bitmap, curriculum)
+                    ? toProgress(curriculum, bitmap)
+                    : rebuild(curriculum, studentId, bitmap));
+        }
+        return result;
+    }
+
+    public StudentProgress markLessonCompleted(CurriculumSnapshot curriculum, String studentId, String lessonId) {
+        int ordinal = curriculum.getLessonOrdinal(lessonId);
+        return mark(curriculum, studentId, progress -> {
+            if (ordinal < 0 || progress.lessons.get(ordinal)) {
+                return false;
+            }
+            progress.lessons.set(ordinal);
+            return true;
+        });
+    }
+
+    public StudentProgress markSectionCompleted(CurriculumSnapshot curriculum, String studentId, String sectionId) {
+        int ordinal = curriculum.getSectionOrdinal(sectionId);
+        return mark(curriculum, studentId, progress -> {
+            if (ordinal < 0 || progress.sections.get(ordinal)) {
+                return false;
+            }
+            progress.sections.set(ordinal);
+            return true;
+        });
+    }
+
+    /**
+     * Applies a change with compare-and-set on the bitmap revision. When the bitmap is stale or keeps losing
+     * the race it is rebuilt from the progress rows, which already contain the change.
+     */
+    private StudentProgress mark(CurriculumSnapshot curriculum, String studentId, Predicate<StudentProgress> change) {
+        String id = bitmapId(studentId, curriculum.getClassroomId());
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            ProgressBitmapEntity bitmap = mongoTemplate.findById(id, ProgressBitmapEntity.class);
+            if (!isCurrent(bitmap, curriculum)) {
+                return rebuild(curriculum, studentId, bitmap);
+            }
+            StudentProgress progress = toProgress(curriculum, bitmap);
+            if (!change.test(progress)) {
+                return progress;
+            }
+            Query expected = new Query(Criteria.where("_id").is(id).and("revision").is(bitmap.getRevision()));
+            Update update = new Update()
+                    .set("lessons", progress.lessons.toByteArray())
+                    .set("sections", progress.sections.toByteArray())
+                    .inc("revision", 1);
+            if (mongoTemplate.updateFirst(expected, update, ProgressBitmapEntity.class).getModifiedCount() > 0) {
+                return progress;
+            }
+        }
+        return rebuild(curriculum, studentId, mongoTemplate.findById(id, ProgressBitmapEntity.class));
+    }
+
+    private StudentProgress rebuild(CurriculumSnapshot curriculum, String studentId, ProgressBitmapEntity existing) {
+        BitSet lessons = new BitSet(curriculum.getLessonCount());
+        BitSet sections = new BitSet(curriculum.getSections().size());
+        for (ProgressEntity progress : progressRepository.findByStudentIdAndClassroomIdAndCompleted(studentId, curriculum.getClassroomId(), true)) {
+            if (progress.getLessonId() != null && curriculum.getLessonOrdinal(progress.getLessonId()) >= 0) {
+                lessons.set(curriculum.getLessonOrdinal(progress.getLessonId()));
+            }
+            if (progress.getSectionId() != null && curriculum.getSectionOrdinal(progress.getSectionId()) >= 0) {
+                sections.set(curriculum.getSectionOrdinal(progress.getSectionId()));
+            }
+        }
+
+        // Only replace the revision we read; if someone else wrote in between, their bitmap wins
+        String id = bitmapId(studentId, curriculum.getClassroomId());
+        Criteria expected = Criteria.where("_id").is(id);
+        if (existing == null || existing.getRevision() == null) {
+            expected.and("revision").exists(false);
+        } else {
+            expected.and("revision").is(existing.getRevision());
+        }
+        Update update = new Update()
+                .set("studentId", studentId)
+                .set("classroomId", curriculum.getClassroomId())
+                .set("curriculumVersion", curriculum.getVersion())
+                .set("lessons", lessons.toByteArray())
+                .set("sections", sections.toByteArray())
+                .inc("revision", 1);
+        try {
+            mongoTemplate.upsert(new Query(expected), update, ProgressBitmapEntity.class);
+        } catch (DuplicateKeyException e) {
+            log.debug("Progress bitmap {} was rebuilt concurrently", id);
+        }
+        return new StudentProgress(curriculum, lessons, sections);
+    }
+
+    private static boolean isCurrent(ProgressBitmapEntity bitmap, CurriculumSnapshot curriculum) {
+        return bitmap != null && bitmap.getRevision() != null && Objects.equals(bitmap.getCurriculumVersion(), curriculum.getVersion());
+    }
+
+    private static StudentProgress toProgress(CurriculumSnapshot curriculum, ProgressBitmapEntity bitmap) {
+        return new StudentProgress(curriculum,
+                bitmap.getLessons() != null ? BitSet.valueOf(bitmap.getLessons()) : new BitSet(),
+                bitmap.getSections() != null ? BitSet.valueOf(bitmap.getSections()) : new BitSet());
+    }
+
+    private static String bitmapId(String studentId, String classroomId) {
+        return studentId + ":" + classroomId;
+    }
+}
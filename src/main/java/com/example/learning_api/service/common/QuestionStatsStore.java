@@ -0,0 +1,315 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.common.CompiledAnswerKey;
+import com.example.learning_api.entity.sql.database.QuestionStatsEntity;
+import com.example.learning_api.entity.sql.database.StudentAnswersEntity;
+import com.example.learning_api.entity.sql.database.TestResultEntity;
+import com.example.learning_api.entity.sql.database.TestStatsAttemptEntity;
+import com.example.learning_api.entity.sql.database.TestStatsEntity;
+import com.example.learning_api.enums.TestState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Per-question statistics of a test: correct/incorrect tallies and how often each answer was chosen, over the best
+ * finished attempt of every student.
+ * <p>
+ * A finished attempt is counted when it is submitted. Only the best attempt of a student counts; a better one
+ * takes the previous attempt's contribution back out and adds its own, swapped through a conditional update of the
+ * student's {@link TestStatsAttemptEntity} so every attempt is counted at most once.
+ * <p>
+ * Statistics are built from the stored results the first time they are read and rebuilt when the answer key
+ * changes, since correctness depends on it. A build writes into a fresh generation: the marker naming it is written
+ * before the results are scanned, so attempts finishing during the build are counted into it live as well as by the
+ * scan, and counted once; nothing is cleared under them. Older generations are removed once the build is done. The
+ * marker doubles as a lease, so only one instance builds a test at a time and the others wait for it. Failures to
+ * count only drop the marker, so the next read rebuilds.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionStatsStore {
+    private static final int MAX_SWAP_ATTEMPTS = 3;
+    private static final long LEASE_MILLIS = 5 * 60 * 1000L;
+    private static final long WAIT_MILLIS = 30 * 1000L;
+    private static final long POLL_MILLIS = 200L;
+
+    private final MongoTemplate mongoTemplate;
+    private final AnswerKeyCache answerKeyCache;
+
+    /**
+     * Counts a just-finished attempt if it is the student's best so far. Never throws.
+     */
+    public void record(TestResultEntity testResult, CompiledAnswerKey answerKey, List<StudentAnswersEntity> answers) {
+        try {
+            TestStatsEntity stats = mongoTemplate.findById(testResult.getTestId(), TestStatsEntity.class);
+            if (stats == null || stats.getGeneration() == null || !Objects.equals(stats.getKeyVersion(), answerKey.getVersion())) {
+                return; // Not built yet or stale: the next read builds it, this attempt included
+            }
+            // Also while building: the scan may have read the results before this one finished
+            count(testResult.getTestId(), stats.getGeneration(), testResult.getStudentId(), testResult.getId(),
+                    testResult.getGrade(), outcomesOf(answerKey, answers));
+        } catch (Exception e) {
+            log.error("Error counting question statistics of test result {}: ", testResult.getId(), e);
+            reset(testResult.getTestId());
+        }
+    }
+
+    /**
+     * @return the statistics of every question of a test that has any, by question ID
+     */
+    public Map<String, QuestionStatsEntity> getStats(String testId) {
+        CompiledAnswerKey answerKey = answerKeyCache.get(testId);
+        String generation = builtGeneration(answerKey);
+        Map<String, QuestionStatsEntity> stats = new HashMap<>();
+        Query query = new Query(Criteria.where("testId").is(testId).and("generation").is(generation));
+        for (QuestionStatsEntity question : mongoTemplate.find(query, QuestionStatsEntity.class)) {
+            stats.put(question.getQuestionId(), question);
+        }
+        return stats;
+    }
+
+    /**
+     * Builds the statistics if needed, or waits for the instance building them, and returns the generation to read.
+     */
+    private String builtGeneration(CompiledAnswerKey answerKey) {
+        long waitUntil = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            TestStatsEntity stats = mongoTemplate.findById(answerKey.getTestId(), TestStatsEntity.class);
+            if (isBuilt(stats, answerKey)) {
+                return stats.getGeneration();
+            }
+            TestStatsEntity lease = acquireBuild(answerKey);
+            if (lease != null) {
+                rebuild(answerKey, lease);
+                return lease.getGeneration();
+            }
+            if (System.currentTimeMillis() >= waitUntil) {
+                throw new IllegalStateException("Question statistics of this test are being built, try again shortly");
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for question statistics");
+            }
+        }
+    }
+
+    /**
+     * Starts a new generation under a lease, unless another instance holds an unexpired one.
+     *
+     * @return the marker of the new generation, or null if another build is running
+     */
+    private TestStatsEntity acquireBuild(CompiledAnswerKey answerKey) {
+        long now = System.currentTimeMillis();
+        TestStatsEntity lease = new TestStatsEntity();
+        lease.setId(answerKey.getTestId());
+        lease.setKeyVersion(answerKey.getVersion());
+        lease.setGeneration(new ObjectId().toHexString());
+        lease.setBuilding(true);
+        lease.setBuildStartedAt(String.valueOf(now));
+        lease.setLeaseUntil(now + LEASE_MILLIS);
+        Query free = new Query(Criteria.where("_id").is(answerKey.getTestId()).orOperator(
+                Criteria.where("leaseUntil").exists(false),
+                Criteria.where("leaseUntil").is(null),
+                Criteria.where("leaseUntil").lt(now)));
+        try {
+            mongoTemplate.upsert(free, new Update()
+                            .set("keyVersion", lease.getKeyVersion())
+                            .set("generation", lease.getGeneration())
+                            .set("building", true)
+                            .set("buildStartedAt", lease.getBuildStartedAt())
+                            .set("leaseUntil", lease.getLeaseUntil())
+                            .unset("builtAt"),
+                    TestStatsEntity.class);
+            return lease;
+        } catch (DuplicateKeyException e) {
+            return null; // The marker exists and its lease is held
+        }
+    }
+
+    public void delete(String testId) {
+        Query query = new Query(Criteria.where("testId").is(testId));
+        mongoTemplate.remove(query, QuestionStatsEntity.class);
+        mongoTemplate.remove(query, TestStatsAttemptEntity.class);
+        reset(testId);
+    }
+
+    private static boolean isBuilt(TestStatsEntity stats, CompiledAnswerKey answerKey) {
+        return stats != null && stats.getGeneration() != null
+                && Objects.equals(stats.getKeyVersion(), answerKey.getVersion()) && !Boolean.TRUE.equals(stats.getBuilding());
+    }
+
+    private void reset(String testId) {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(testId)), TestStatsEntity.class);
+        } catch (Exception e) {
+            log.error("Error resetting question statistics of test {}: ", testId, e);
+        }
+    }
+
+    private void rebuild(CompiledAnswerKey answerKey, TestStatsEntity lease) {
+        String testId = answerKey.getTestId();
+        String generation = lease.getGeneration();
+        // The new generation is empty and already named by the marker, so every attempt finishing from here on is
+        // counted into it by record(); the scan below counts the rest, and the attempt documents keep it to once each
+        Map<String, TestResultEntity> best = new HashMap<>();
+        Query finished = new Query(Criteria.where("testId").is(testId).and("state").is(TestState.FINISHED));
+        for (TestResultEntity result : mongoTemplate.find(finished, TestResultEntity.class)) {
+            best.merge(result.getStudentId(), result, (current, other) -> other.getGrade() > current.getGrade() ? other : current);
+        }
+        Map<String, List<StudentAnswersEntity>> answers = new HashMap<>();
+        if (!best.isEmpty()) {
+            List<String> resultIds = best.values().stream().map(TestResultEntity::getId).toList();
+            for (StudentAnswersEntity answer : mongoTemplate.find(new Query(Criteria.where("testResultId").in(resultIds)), StudentAnswersEntity.class)) {
+                answers.computeIfAbsent(answer.getTestResultId(), id -> new ArrayList<>()).add(answer);
+            }
+        }
+        for (TestResultEntity result : best.values()) {
+            count(testId, generation, result.getStudentId(), result.getId(), result.getGrade(),
+                    outcomesOf(answerKey, answers.getOrDefault(result.getId(), List.of())));
+        }
+
+        // Only if still ours: a failed record() may have dropped the marker meanwhile, and then the next read rebuilds
+        long finishedBuild = mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(testId).and("generation").is(generation)),
+                new Update().set("building", false).unset("leaseUntil").set("builtAt", String.valueOf(System.currentTimeMillis())),
+                TestStatsEntity.class).getModifiedCount();
+        if (finishedBuild == 0) {
+            log.warn("Question statistics build {} of test {} was superseded", generation, testId);
+            return;
+        }
+        Query older = new Query(Criteria.where("testId").is(testId).and("generation").ne(generation));
+        mongoTemplate.remove(older, QuestionStatsEntity.class);
+        mongoTemplate.remove(older, TestStatsAttemptEntity.class);
+        log.info("Rebuilt question statistics of test {} from {} attempts", testId, best.size());
+    }
+
+    private void count(String testId, String generation, String studentId, String testResultId, double grade,
+                       List<TestStatsAttemptEntity.QuestionOutcome> outcomes) {
+        String id = generation + ":" + studentId;
+        for (int i = 0; i < MAX_SWAP_ATTEMPTS; i++) {
+            TestStatsAttemptEntity counted = mongoTemplate.findById(id, TestStatsAttemptEntity.class);
+            if (counted == null) {
+                TestStatsAttemptEntity attempt = new TestStatsAttemptEntity();
+                attempt.setId(id);
+                attempt.setTestId(testId);
+                attempt.setGeneration(generation);
+                attempt.setStudentId(studentId);
+                attempt.setTestResultId(testResultId);
+                attempt.setGrade(grade);
+                attempt.setOutcomes(outcomes);
+                try {
+                    mongoTemplate.insert(attempt);
+                } catch (DuplicateKeyException e) {
+                    continue; // Counted concurrently; compare against that one
+                }
+                apply(testId, generation, List.of(), outcomes);
+                return;
+            }
+            if (counted.getTestResultId().equals(testResultId) || counted.getGrade() >= grade) {
+                return;
+            }
+            Query swap = new Query(Criteria.where("_id").is(id).and("testResultId").is(counted.getTestResultId()));
+            Update update = new Update()
+                    .set("testResultId", testResultId)
+                    .set("grade", grade)
+                    .set("outcomes", outcomes);
+            if (mongoTemplate.updateFirst(swap, update, TestStatsAttemptEntity.class).getModifiedCount() == 1) {
+                apply(testId, generation, counted.getOutcomes(), outcomes);
+                return;
+            }
+        }
+        throw new IllegalStateException("Could not count attempt " + testResultId + " after " + MAX_SWAP_ATTEMPTS + " tries");
+    }
+
+    /**
+     * Moves the counters from one contribution to another with one unordered bulk of upserts, one per question.
+     */
+    private void apply(String testId, String generation, List<TestStatsAttemptEntity.QuestionOutcome> removed,
+                       List<TestStatsAttemptEntity.QuestionOutcome> added) {
+        // Summed per field first: an Update holds one $inc per field
+        Map<String, Map<String, Integer>> deltas = new LinkedHashMap<>();
+        addDeltas(deltas, removed, -1);
+        addDeltas(deltas, added, 1);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QuestionStatsEntity.class);
+        int operations = 0;
+        for (Map.Entry<String, Map<String, Integer>> question : deltas.entrySet()) {
+            Update update = new Update();
+            question.getValue().forEach((field, delta) -> {
+                if (delta != 0) {
+                    update.inc(field, delta);
+                }
+            });
+            if (update.getUpdateObject().isEmpty()) {
+                continue;
+            }
+            update.setOnInsert("testId", testId)
+                    .setOnInsert("generation", generation)
+                    .setOnInsert("questionId", question.getKey());
+            bulk.upsert(new Query(Criteria.where("_id").is(generation + ":" + question.getKey())), update);
+            operations++;
+        }
+        if (operations > 0) {
+            bulk.execute();
+        }
+    }
+
+    private static void addDeltas(Map<String, Map<String, Integer>> deltas, List<TestStatsAttemptEntity.QuestionOutcome> outcomes, int sign) {
+        if (outcomes == null) {
+            return;
+        }
+        for (TestStatsAttemptEntity.QuestionOutcome outcome : outcomes) {
+            Map<String, Integer> fields = deltas.computeIfAbsent(outcome.getQuestionId(), id -> new LinkedHashMap<>());
+            fields.merge(Boolean.TRUE.equals(outcome.getCorrect()) ? "totalCorrect" : "totalIncorrect", sign, Integer::sum);
+            for (String answerId : outcome.getAnswerIds()) {
+                fields.merge("selections." + answerId, sign, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Grades every question of the key against an answer sheet the way submitting does: a choice question is correct
+     * when every correct answer was chosen, a text question when every blank matched.
+     */
+    private static List<TestStatsAttemptEntity.QuestionOutcome> outcomesOf(CompiledAnswerKey answerKey, List<StudentAnswersEntity> answers) {
+        Map<String, List<StudentAnswersEntity>> byQuestion = new HashMap<>();
+        for (StudentAnswersEntity answer : answers) {
+            byQuestion.computeIfAbsent(answer.getQuestionId(), id -> new ArrayList<>()).add(answer);
+        }
+        List<TestStatsAttemptEntity.QuestionOutcome> outcomes = new ArrayList<>(answerKey.getTotalQuestions());
+        for (CompiledAnswerKey.QuestionKey question : answerKey.getQuestions()) {
+            List<StudentAnswersEntity> rows = byQuestion.getOrDefault(question.getId(), List.of());
+            boolean correct;
+            List<String> answerIds = new ArrayList<>();
+            if (question.isTextType()) {
+                correct = !rows.isEmpty() && rows.stream().allMatch(row -> Boolean.TRUE.equals(row.getIsCorrect()));
+            } else {
+                Set<String> chosen = new LinkedHashSet<>();
+                for (StudentAnswersEntity row : rows) {
+                    if (row.getAnswerId() != null) {
+                        chosen.add(row.getAnswerId());
+                    }
+                }
+                for (CompiledAnswerKey.AnswerKey answer : question.getAnswers()) {
+                    if (chosen.contains(answer.getId())) {
+                        answerIds.add(answer.getId());
+                    }
+                }
+                correct = chosen.containsAll(question.getCorrectAnswerIds());
+            }
+            outcomes.add(new TestStatsAttemptEntity.QuestionOutcome(question.getId(), correct, answerIds));
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.ClassRoomEntity;
+import com.example.learning_api.entity.sql.database.RecentClassEntity;
+import com.example.learning_api.repository.database.ClassRoomRepository;
+import com.example.learning_api.repository.database.StudentEnrollmentsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for the "recently opened classroom" timestamps.
+ * <p>
+ * Opening a classroom only records the access time in memory; the latest time per (user, classroom) is persisted
+ * every few seconds as one unordered bulk upsert. The checks the request path used to run (classroom exists,
+ * student enrolled, teacher owns the classroom) are done here in bulk at flush time.
+ * <p>
+ * Entries stay buffered until they are written and are then removed only if not touched again meanwhile. Flushes need
+ * no lock: overlapping ones at most write an entry twice, which the {@code $max} upsert makes harmless, and a read
+ * flushing its user's entries still sees those a concurrent scheduled flush has not written yet.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecentClassBuffer {
+    public static final String ROLE_USER = "USER";
+    public static final String ROLE_TEACHER = "TEACHER";
+
+    private final MongoTemplate mongoTemplate;
+    private final ClassRoomRepository classRoomRepository;
+    private final StudentEnrollmentsRepository studentEnrollmentsRepository;
+
+    // User ID -> their buffered accesses, so one user's entries are flushed without scanning everyone's
+    private final Map<String, Map<AccessKey, Long>> pending = new ConcurrentHashMap<>();
+
+    @EqualsAndHashCode
+    private static final class AccessKey {
+        private final String role;
+        private final String userId;
+        private final String classroomId;
+
+        private AccessKey(String role, String userId, String classroomId) {
+            this.role = role;
+            this.userId = userId;
+            this.classroomId = classroomId;
+        }
+    }
+
+    public void record(String userId, String role, String classroomId) {
+        long now = System.currentTimeMillis();
+        // Under the user's bin, so a flush dropping their emptied map cannot drop this access with it
+        pending.compute(userId, (id, accesses) -> {
+            Map<AccessKey, Long> buffered = accesses != null ? accesses : new ConcurrentHashMap<>();
+            buffered.merge(new AccessKey(role, userId, classroomId), now, Math::max);
+            return buffered;
+        });
+    }
+
+    @Scheduled(initialDelay = 5000, fixedDelay = 5000) // Every 5 seconds
+    public void flush() {
+        try {
+            Map<AccessKey, Long> batch = new HashMap<>();
+            pending.values().forEach(batch::putAll);
+            flush(batch);
+        } catch (Exception e) {
+            log.error("Error flushing recent classes: ", e);
+        }
+    }
+
+    /**
+     * Persists what is buffered for one user, so a read of their recent classes sees every access so far.
+     */
+    public void flushUser(String userId) {
+        Map<AccessKey, Long> accesses = pending.get(userId);
+        if (accesses != null) {
+            flush(new HashMap<>(accesses));
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+
+    /**
+     * Writes a snapshot, then drops the written entries; entries touched again meanwhile stay buffered with their newer
+     * time, and a failed write leaves the whole snapshot buffered.
+     */
+    private void flush(Map<AccessKey, Long> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        write(batch);
+        batch.forEach((key, accessedAt) -> {
+            Map<AccessKey, Long> accesses = pending.get(key.userId);
+            if (accesses != null && accesses.remove(key, accessedAt)) {
+                pending.computeIfPresent(key.userId, (id, remaining) -> remaining.isEmpty() ? null : remaining);
+            }
+        });
+    }
+
+    private void write(Map<AccessKey, Long> batch) {
+        List<String> classroomIds = batch.keySet().stream().map(key -> key.classroomId).distinct().toList();
+        Map<String, String> teacherByClassroom = new HashMap<>();
+        for (ClassRoomEntity classRoom : classRoomRepository.findAllById(classroomIds)) {
+            teacherByClassroom.put(classRoom.getId(), classRoom.getTeacherId() != null ? classRoom.getTeacherId() : "");
+        }
+
+        List<String> studentIds = batch.keySet().stream()
+                .filter(key -> ROLE_USER.equals(key.role))
+                .map(key -> key.userId)
+                .distinct()
+                .toList();
+        Set<String> enrolled = studentIds.isEmpty() ? Set.of() : studentEnrollmentsRepository
+                .findByStudentIdInAndClassroomIdIn(studentIds, classroomIds).stream()
+                .map(enrollment -> enrollment.getStudentId() + ":" + enrollment.getClassroomId())
+                .collect(Collectors.toSet());
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RecentClassEntity.class);
+        int operations = 0;
+        for (Map.Entry<AccessKey, Long> entry : batch.entrySet()) {
+            AccessKey key = entry.getKey();
+            String teacherId = teacherByClassroom.get(key.classroomId);
+            if (teacherId == null) {
+                continue; // Classroom no longer exists
+            }
+            Update update = new Update().max("lastAccessedAt", String.valueOf(entry.getValue()));
+            if (ROLE_TEACHER.equals(key.role)) {
+                if (!teacherId.equals(key.userId)) {
+                    continue;
+                }
+                bulk.upsert(new Query(Criteria.where("teacherId").is(key.userId).and("classroomId").is(key.classroomId)), update);
+            } else {
+                Query query = new Query(Criteria.where("studentId").is(key.userId).and("classroomId").is(key.classroomId));
+                // Only enrolled students get a new entry; an existing one is bumped either way
+                if (enrolled.contains(key.userId + ":" + key.classroomId)) {
+                    bulk.upsert(query, update);
+                } else {
+                    bulk.updateOne(query, update);
+                }
+            }
+            operations++;
+        }
+        if (operations > 0) {
+            bulk.execute();
+        }
+    }
+}
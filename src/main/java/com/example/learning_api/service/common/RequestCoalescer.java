@@ -0,0 +1,150 @@
+package com.example.learning_api.service.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight loader for hot, identical reads: concurrent callers with the same key share one computation,
+ * and its result is served from memory until the TTL runs out.
+ * <p>
+ * Values are handed to every caller as-is, so they must be treated as read-only. Failures are not cached;
+ * callers that joined a failing computation get the same exception.
+ * <p>
+ * Metrics (tagged by namespace): {@code coalescer.requests} with {@code outcome} computed/joined/cached,
+ * and {@code coalescer.callers.per.computation} recorded when an entry expires.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RequestCoalescer {
+    private static final int MAX_ENTRIES = 10000;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private static final class Flight {
+        private final String namespace;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicInteger callers = new AtomicInteger(1);
+        private volatile long expiresAt = Long.MAX_VALUE; // Never expires while in flight
+
+        private Flight(String namespace) {
+            this.namespace = namespace;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T load(String namespace, String key, Duration ttl, Supplier<T> loader) {
+        String flightKey = namespace + "|" + key;
+        long now = System.currentTimeMillis();
+        Flight flight = flights.get(flightKey);
+        if (flight != null && !flight.isExpired(now)) {
+            flight.callers.incrementAndGet();
+            count(namespace, flight.result.isDone() ? "cached" : "joined");
+            return (T) await(flight);
+        }
+
+        Flight created = new Flight(namespace);
+        Flight[] replaced = new Flight[1];
+        Flight existing = flights.compute(flightKey, (k, current) -> {
+            if (current != null && !current.isExpired(System.currentTimeMillis())) {
+                return current;
+            }
+            replaced[0] = current;
+            return created;
+        });
+        if (existing != created) {
+            // Another caller started the computation between our read and the compute
+            existing.callers.incrementAndGet();
+            count(namespace, existing.result.isDone() ? "cached" : "joined");
+            return (T) await(existing);
+        }
+        if (replaced[0] != null) {
+            recordCallers(replaced[0]);
+        }
+        if (flights.size() > MAX_ENTRIES) {
+            evictExpired();
+        }
+
+        count(namespace, "computed");
+        try {
+            T value = loader.get();
+            created.expiresAt = System.currentTimeMillis() + ttl.toMillis();
+            created.result.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too: a flight that is never completed would hang every caller that joins it
+            flights.remove(flightKey, created);
+            recordCallers(created);
+            created.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(String namespace, String key) {
+        Flight flight = flights.get(namespace + "|" + key);
+        // In-flight computations are left alone; their callers are already waiting on them
+        if (flight != null && flight.result.isDone() && flights.remove(namespace + "|" + key, flight)) {
+            recordCallers(flight);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000) // Every minute
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        flights.entrySet().removeIf(entry -> {
+            if (entry.getValue().isExpired(now)) {
+                recordCallers(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private Object await(Flight flight) {
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void count(String namespace, String outcome) {
+        Counter.builder("coalescer.requests")
+                .tag("namespace", namespace)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void recordCallers(Flight flight) {
+        DistributionSummary.builder("coalescer.callers.per.computation")
+                .tag("namespace", flight.namespace)
+                .register(meterRegistry)
+                .record(flight.callers.get());
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.*;
+import com.example.learning_api.repository.database.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains {@link TeacherRollupEntity}: revenue per day and month, enrollments and ratings per classroom, and
+ * the latest sales and reviews of each teacher.
+ * <p>
+ * Write paths apply atomic {@code $inc}/{@code $push} updates to an existing rollup only; a teacher without one
+ * gets it built from the source collections on the first dashboard read. {@link #rebuild(String)} also repairs
+ * drift, e.g. renamed classrooms in the recent lists.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TeacherRollupService {
+    public static final int RECENT_LIMIT = 5;
+    private static final String SUCCESS = "SUCCESS";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final MongoTemplate mongoTemplate;
+    private final ClassRoomRepository classRoomRepository;
+    private final TeacherRepository teacherRepository;
+    private final UserRepository userRepository;
+    private final StudentEnrollmentsRepository studentEnrollmentsRepository;
+    private final TransactionRepository transactionRepository;
+    private final ReviewRepository reviewRepository;
+
+    public TeacherRollupEntity get(String teacherId) {
+        TeacherRollupEntity rollup = mongoTemplate.findById(teacherId, TeacherRollupEntity.class);
+        return rollup != null ? rollup : rebuild(teacherId);
+    }
+
+    public void saleCompleted(TransactionEntity transaction) {
+        ClassRoomEntity classRoom = classRoomRepository.findById(transaction.getClassroomId()).orElse(null);
+        if (classRoom == null || classRoom.getTeacherId() == null) {
+            return;
+        }
+        UserEntity user = transaction.getUserId() != null ? userRepository.findById(transaction.getUserId()).orElse(null) : null;
+        long amount = transaction.getAmount() != null ? transaction.getAmount() : 0L;
+        String createdAt = transaction.getCreatedAt() != null ? transaction.getCreatedAt() : String.valueOf(System.currentTimeMillis());
+        Update update = new Update()
+                .inc("totalRevenue", amount)
+                .inc("revenueByDay." + bucket(createdAt, DAY), amount)
+                .inc("revenueByMonth." + bucket(createdAt, MONTH), amount);
+        update.push("recentSales")
+                .sort(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .slice(RECENT_LIMIT)
+                .each(toSale(transaction, user, classRoom));
+        apply(classRoom.getTeacherId(), update);
+    }
+
+    public void enrollmentAdded(String classroomId) {
+        changeEnrollment(classroomId, 1);
+    }
+
+    public void enrollmentRemoved(String classroomId) {
+        changeEnrollment(classroomId, -1);
+    }
+
+    public void reviewAdded(ReviewEntity review) {
+        ClassRoomEntity classRoom = classRoomRepository.findById(review.getClassroomId()).orElse(null);
+        if (classRoom == null || classRoom.getTeacherId() == null || review.getRating() == null) {
+            return;
+        }
+        UserEntity user = review.getUserId() != null ? userRepository.findById(review.getUserId()).orElse(null) : null;
+        Update update = new Update()
+                .inc("ratingSum", review.getRating())
+                .inc("ratingCount", 1)
+                .inc("ratingSumByClass." + classRoom.getId(), review.getRating())
+                .inc("ratingCountByClass." + classRoom.getId(), 1);
+        update.push("recentReviews")
+                .sort(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .slice(RECENT_LIMIT)
+                .each(toReview(review, user, classRoom));
+        apply(classRoom.getTeacherId(), update);
+    }
+
+    public void reviewChanged(ReviewEntity review, Double oldRating) {
+        String teacherId = teacherOf(review.getClassroomId());
+        if (teacherId == null) {
+            return;
+        }
+        double delta = (review.getRating() != null ? review.getRating() : 0) - (oldRating != null ? oldRating : 0);
+        Update update = new Update()
+                .inc("ratingSum", delta)
+                .inc("ratingSumByClass." + review.getClassroomId(), delta);
+        apply(teacherId, update);
+
+        Query listed = new Query(Criteria.where("_id").is(teacherId).and("recentReviews.reviewId").is(review.getId()));
+        mongoTemplate.updateFirst(listed, new Update()
+                .set("recentReviews.$.rating", review.getRating())
+                .set("recentReviews.$.comment", review.getContent()), TeacherRollupEntity.class);
+    }
+
+    public void reviewRemoved(ReviewEntity review) {
+        String teacherId = teacherOf(review.getClassroomId());
+        if (teacherId == null || review.getRating() == null) {
+            return;
+        }
+        Update update = new Update()
+                .inc("ratingSum", -review.getRating())
+                .inc("ratingCount", -1)
+                .inc("ratingSumByClass." + review.getClassroomId(), -review.getRating())
+                .inc("ratingCountByClass." + review.getClassroomId(), -1)
+                .pull("recentReviews", new Document("reviewId", review.getId()));
+        apply(teacherId, update);
+    }
+
+    /**
+     * Recomputes a teacher's rollup from classrooms, enrollments, successful transactions and reviews,
+     * loading each collection once.
+     */
+    public TeacherRollupEntity rebuild(String teacherId) {
+        List<ClassRoomEntity> classRooms = classRoomRepository.findByTeacherId(teacherId);
+        Map<String, ClassRoomEntity> classRoomsById = classRooms.stream()
+                .collect(Collectors.toMap(ClassRoomEntity::getId, Function.identity(), (a, b) -> a));
+        List<String> classroomIds = new ArrayList<>(classRoomsById.keySet());
+
+        TeacherRollupEntity rollup = new TeacherRollupEntity();
+        rollup.setId(teacherId);
+        rollup.setTotalRevenue(0L);
+        rollup.setTotalStudents(0);
+        rollup.setRatingSum(0.0);
+        rollup.setRatingCount(0);
+        rollup.setRevenueByDay(new HashMap<>());
+        rollup.setRevenueByMonth(new HashMap<>());
+        rollup.setEnrollmentsByClass(new HashMap<>());
+        rollup.setRatingSumByClass(new HashMap<>());
+        rollup.setRatingCountByClass(new HashMap<>());
+        rollup.setRecentSales(new ArrayList<>());
+        rollup.setRecentReviews(new ArrayList<>());
+
+        if (!classroomIds.isEmpty()) {
+            List<StudentEnrollmentsEntity> enrollments = studentEnrollmentsRepository.findByClassroomIdIn(classroomIds);
+            rollup.setTotalStudents(enrollments.size());
+            for (StudentEnrollmentsEntity enrollment : enrollments) {
+                rollup.getEnrollmentsByClass().merge(enrollment.getClassroomId(), 1, Integer::sum);
+            }
+
+            List<TransactionEntity> transactions = transactionRepository.findByClassroomIdIn(classroomIds).stream()
+                    .filter(transaction -> SUCCESS.equals(transaction.getStatus()))
+                    .toList();
+            List<ReviewEntity> reviews = reviewRepository.findByClassroomIdIn(classroomIds).stream()
+                    .filter(review -> review.getRating() != null)
+                    .toList();
+
+            List<TransactionEntity> latestTransactions = latest(transactions, TransactionEntity::getCreatedAt);
+            List<ReviewEntity> latestReviews = latest(reviews, ReviewEntity::getCreatedAt);
+            Set<String> userIds = new HashSet<>();
+            latestTransactions.forEach(transaction -> userIds.add(transaction.getUserId()));
+            latestReviews.forEach(review -> userIds.add(review.getUserId()));
+            userIds.remove(null);
+            Map<String, UserEntity> users = new HashMap<>();
+            for (UserEntity user : userRepository.findAllById(userIds)) {
+                users.put(user.getId(), user);
+            }
+
+            long totalRevenue = 0;
+            for (TransactionEntity transaction : transactions) {
+                long amount = transaction.getAmount() != null ? transaction.getAmount() : 0L;
+                String createdAt = transaction.getCreatedAt() != null ? transaction.getCreatedAt() : "0";
+                totalRevenue += amount;
+                rollup.getRevenueByDay().merge(bucket(createdAt, DAY), amount, Long::sum);
+                rollup.getRevenueByMonth().merge(bucket(createdAt, MONTH), amount, Long::sum);
+            }
+            rollup.setTotalRevenue(totalRevenue);
+
+            double ratingSum = 0;
+            for (ReviewEntity review : reviews) {
+                ratingSum += review.getRating();
+                rollup.getRatingSumByClass().merge(review.getClassroomId(), review.getRating(), Double::sum);
+                rollup.getRatingCountByClass().merge(review.getClassroomId(), 1, Integer::sum);
+            }
+            rollup.setRatingSum(ratingSum);
+            rollup.setRatingCount(reviews.size());
+
+            for (TransactionEntity transaction : latestTransactions) {
+                rollup.getRecentSales().add(toSale(transaction, users.get(transaction.getUserId()), classRoomsById.get(transaction.getClassroomId())));
+            }
+            for (ReviewEntity review : latestReviews) {
+                rollup.getRecentReviews().add(toReview(review, users.get(review.getUserId()), classRoomsById.get(review.getClassroomId())));
+            }
+        }
+        rollup.setRebuiltAt(String.valueOf(System.currentTimeMillis()));
+        mongoTemplate.save(rollup);
+        return rollup;
+    }
+
+    public void rebuildAll() {
+        int rebuilt = 0;
+        for (TeacherEntity teacher : teacherRepository.findAll()) {
+            try {
+                rebuild(teacher.getId());
+                rebuilt++;
+            } catch (Exception e) {
+                log.error("Error rebuilding dashboard rollup of teacher {}: ", teacher.getId(), e);
+            }
+        }
+        log.info("Rebuilt dashboard rollups of {} teachers", rebuilt);
+    }
+
+    private void changeEnrollment(String classroomId, int delta) {
+        String teacherId = teacherOf(classroomId);
+        if (teacherId == null) {
+            return;
+        }
+        apply(teacherId, new Update()
+                .inc("totalStudents", delta)
+                .inc("enrollmentsByClass." + classroomId, delta));
+    }
+
+    private void apply(String teacherId, Update update) {
+        // No upsert: a missing rollup is built in full on the next read instead of starting from this one event
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(teacherId)), update, TeacherRollupEntity.class);
+    }
+
+    private String teacherOf(String classroomId) {
+        if (classroomId == null) {
+            return null;
+        }
+        return classRoomRepository.findById(classroomId).map(ClassRoomEntity::getTeacherId).orElse(null);
+    }
+
+    private static <T> List<T> latest(List<T> entities, Function<T, String> createdAt) {
+        return entities.stream()
+                .sorted(Comparator.comparing((T entity) -> createdAt.apply(entity) != null ? createdAt.apply(entity) : "").reversed())
+                .limit(RECENT_LIMIT)
+                .toList();
+    }
+
+    private static TeacherRollupEntity.RecentSale toSale(TransactionEntity transaction, UserEntity user, ClassRoomEntity classRoom) {
+        TeacherRollupEntity.RecentSale sale = new TeacherRollupEntity.RecentSale();
+        sale.setTransactionId(transaction.getId());
+        sale.setStudentName(user != null ? user.getFullname() : null);
+        sale.setStudentAvatar(user != null ? user.getAvatar() : null);
+        sale.setClassName(classRoom != null ? classRoom.getName() : null);
+        sale.setClassroomId(transaction.getClassroomId());
+        sale.setAmount(transaction.getAmount());
+        sale.setCreatedAt(transaction.getCreatedAt());
+        return sale;
+    }
+
+    private static TeacherRollupEntity.RecentReview toReview(ReviewEntity review, UserEntity user, ClassRoomEntity classRoom) {
+        TeacherRollupEntity.RecentReview recentReview = new TeacherRollupEntity.RecentReview();
+        recentReview.setReviewId(review.getId());
+        recentReview.setStudentName(user != null ? user.getFullname() : null);
+        recentReview.setStudentAvatar(user != null ? user.getAvatar() : null);
+        recentReview.setClassName(classRoom != null ? classRoom.getName() : null);
+        recentReview.setClassroomId(review.getClassroomId());
+        recentReview.setRating(review.getRating());
+        recentReview.setComment(review.getContent());
+        recentReview.setCreatedAt(review.getCreatedAt());
+        return recentReview;
+    }
+
+    private static String bucket(String createdAt, DateTimeFormatter format) {
+        long millis;
+        try {
+            millis = Long.parseLong(createdAt);
+        } catch (NumberFormatException e) {
+            millis = System.currentTimeMillis();
+        }
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).format(format);
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.constant.ErrorConstant;
+import com.example.learning_api.entity.sql.database.AnswerEntity;
+import com.example.learning_api.entity.sql.database.QuestionEntity;
+import com.example.learning_api.entity.sql.database.TestImportJobEntity;
+import com.example.learning_api.enums.ImportJobStatus;
+import com.example.learning_api.enums.QuestionType;
+import com.example.learning_api.model.CustomException;
+import com.example.learning_api.repository.database.QuestionRepository;
+import com.example.learning_api.utils.TestImportParser;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs test imports in the background on a small bounded pool, so a large question bank never holds an HTTP request.
+ * <p>
+ * A file is read page by page (PDF) or paragraph by paragraph (DOCX) into a {@link TestImportParser}. Every parsed
+ * question is validated; invalid ones are reported on the job with their number and skipped, valid ones are written
+ * in batches with one bulk insert for the questions and one for their answers, appended after the test's existing
+ * questions. Progress is written to the job after every batch and at most every second while reading.
+ * <p>
+ * When the pool and its queue are full, submitting is rejected with a {@link CustomException} carrying
+ * {@link AdmissionControl#BUSY_CODE}.
+ * <p>
+ * Every minute the instance touches {@code heartbeatAt} on the jobs it holds, queued or running, and fails unfinished
+ * jobs whose heartbeat stopped: their instance died or restarted, and nothing will ever finish them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TestImportPipeline {
+    private static final int WORKERS = 2;
+    private static final int QUEUE = 8;
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_REPORTED_ERRORS = 200;
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    private static final long HEARTBEAT_MILLIS = 60 * 1000L;
+    private static final long STALE_MILLIS = 3 * HEARTBEAT_MILLIS; // Unfinished jobs without a heartbeat this long died with their instance
+    private static final String RETRY_SECONDS = "30";
+
+    private final MongoTemplate mongoTemplate;
+    private final QuestionRepository questionRepository;
+    private final AnswerKeyCache answerKeyCache;
+
+    private final ThreadPoolExecutor executor = createExecutor();
+    private final Set<String> heldJobs = ConcurrentHashMap.newKeySet(); // Queued or running on this instance
+
+    public enum Format {
+        PDF,
+        DOCX,
+        TEXT
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        return new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "test-import-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues an import of {@code content} into a test.
+     *
+     * @return the pending job, whose id the client polls with {@link #getJob(String)}
+     */
+    public TestImportJobEntity submit(String testId, Format format, byte[] content) {
+        String now = String.valueOf(System.currentTimeMillis());
+        TestImportJobEntity job = new TestImportJobEntity();
+        job.setTestId(testId);
+        job.setStatus(ImportJobStatus.PENDING);
+        job.setProcessedUnits(0);
+        job.setParsedQuestions(0);
+        job.setImportedQuestions(0);
+        job.setFailedQuestions(0);
+        job.setErrors(new ArrayList<>());
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job.setHeartbeatAt(now);
+        mongoTemplate.insert(job);
+        heldJobs.add(job.getId());
+        try {
+            executor.execute(() -> run(new ImportRun(job.getId(), testId), format, content));
+        } catch (RejectedExecutionException e) {
+            heldJobs.remove(job.getId());
+            mongoTemplate.remove(job);
+            throw new CustomException(ErrorConstant.SERVER_BUSY, RETRY_SECONDS, AdmissionControl.BUSY_CODE);
+        }
+        return job;
+    }
+
+    public TestImportJobEntity getJob(String jobId) {
+        TestImportJobEntity job = mongoTemplate.findById(jobId, TestImportJobEntity.class);
+        if (job == null) {
+            throw new IllegalArgumentException("Import job does not exist");
+        }
+        return job;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void failAbandonedJobsOnStartup() {
+        failAbandonedJobs();
+    }
+
+    @Scheduled(initialDelay = HEARTBEAT_MILLIS, fixedDelay = HEARTBEAT_MILLIS) // Every minute
+    public void failAbandonedJobs() {
+        try {
+            List<ImportJobStatus> unfinished = List.of(ImportJobStatus.PENDING, ImportJobStatus.RUNNING);
+            if (!heldJobs.isEmpty()) {
+                mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(heldJobs).and("status").in(unfinished)),
+                        new Update().set("heartbeatAt", String.valueOf(System.currentTimeMillis())), TestImportJobEntity.class);
+            }
+            for (TestImportJobEntity job : mongoTemplate.find(new Query(Criteria.where("status").in(unfinished)), TestImportJobEntity.class)) {
+                // Jobs from before heartbeats only have their last progress update
+                String lastSeen = job.getHeartbeatAt() != null ? job.getHeartbeatAt() : job.getUpdatedAt();
+                if (heldJobs.contains(job.getId())
+                        || lastSeen != null && System.currentTimeMillis() - Long.parseLong(lastSeen) <= STALE_MILLIS) {
+                    continue;
+                }
+                String now = String.valueOf(System.currentTimeMillis());
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId()).and("status").in(unfinished)), new Update()
+                        .set("status", ImportJobStatus.FAILED)
+                        .set("message", "Import was interrupted by a server restart")
+                        .set("updatedAt", now)
+                        .set("finishedAt", now), TestImportJobEntity.class);
+            }
+        } catch (Exception e) {
+            log.error("Error failing abandoned import jobs: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ImportRun run, Format format, byte[] content) {
+        try {
+            Integer maxIndex = questionRepository.findMaxIndexByTestId(run.testId);
+            run.nextIndex = maxIndex == null ? 0 : maxIndex + 1;
+            mongoTemplate.updateFirst(run.query(), new Update()
+                    .set("status", ImportJobStatus.RUNNING)
+                    .set("updatedAt", String.valueOf(System.currentTimeMillis())), TestImportJobEntity.class);
+
+            TestImportParser parser = new TestImportParser(run::add);
+            switch (format) {
+                case PDF -> readPdf(content, parser, run);
+                case DOCX -> readDocx(content, parser, run);
+                default -> {
+                    run.start(1);
+                    parser.accept(new String(content, StandardCharsets.UTF_8));
+                    run.unitDone();
+                }
+            }
+            parser.finish();
+            run.flush();
+            run.finish(ImportJobStatus.COMPLETED, "Imported " + run.imported + " of " + run.parsed + " questions");
+        } catch (Exception e) {
+            log.error("Error importing test {}: ", run.testId, e);
+            String message = e instanceof IOException ? ErrorConstant.FILE_PROCESSING_ERROR : ErrorConstant.IMPORT_TEST_ERROR;
+            run.finish(ImportJobStatus.FAILED, message + ": " + e.getMessage());
+        } finally {
+            heldJobs.remove(run.jobId);
+            if (run.imported > 0) {
+                answerKeyCache.invalidate(run.testId);
+            }
+        }
+    }
+
+    private static void readPdf(byte[] content, TestImportParser parser, ImportRun run) throws IOException {
+        try (PDDocument document = PDDocument.load(content)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            int pages = document.getNumberOfPages();
+            run.start(pages);
+            for (int page = 1; page <= pages; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                parser.accept(stripper.getText(document));
+                run.unitDone();
+            }
+        }
+    }
+
+    private static void readDocx(byte[] content, TestImportParser parser, ImportRun run) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(content))) {
+            List<XWPFParagraph> paragraphs = document.getParagraphs();
+            run.start(paragraphs.size());
+            for (XWPFParagraph paragraph : paragraphs) {
+                parser.accept(paragraph.getText());
+                run.unitDone();
+            }
+        }
+    }
+
+    /**
+     * State of one running import; only touched by its worker thread.
+     */
+    private final class ImportRun {
+        private final String jobId;
+        private final String testId;
+        private final List<TestImportParser.ParsedQuestion> batch = new ArrayList<>();
+        private final List<TestImportJobEntity.QuestionError> newErrors = new ArrayList<>();
+        private int nextIndex;
+        private int processedUnits;
+        private int parsed;
+        private int imported;
+        private int failed;
+        private long reportedAt = System.currentTimeMillis();
+
+        private ImportRun(String jobId, String testId) {
+            this.jobId = jobId;
+            this.testId = testId;
+        }
+
+        private Query query() {
+            return new Query(Criteria.where("_id").is(jobId));
+        }
+
+        private void start(int totalUnits) {
+            mongoTemplate.updateFirst(query(), new Update().set("totalUnits", totalUnits), TestImportJobEntity.class);
+        }
+
+        private void add(TestImportParser.ParsedQuestion question) {
+            parsed++;
+            String error = question.validate();
+            if (error != null) {
+                if (failed < MAX_REPORTED_ERRORS) {
+                    newErrors.add(new TestImportJobEntity.QuestionError(question.getNumber(), error));
+                }
+                failed++;
+                return;
+            }
+            batch.add(question);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void unitDone() {
+            processedUnits++;
+            if (System.currentTimeMillis() - reportedAt >= PROGRESS_INTERVAL_MILLIS) {
+                report(new Update());
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            String now = String.valueOf(System.currentTimeMillis());
+            List<QuestionEntity> questions = new ArrayList<>(batch.size());
+            List<AnswerEntity> answers = new ArrayList<>();
+            for (TestImportParser.ParsedQuestion parsedQuestion : batch) {
+                QuestionEntity question = new QuestionEntity();
+                // Assigned here so the answers can reference their question within the same batch
+                question.setId(new ObjectId().toHexString());
+                question.setTestId(testId);
+                question.setContent(parsedQuestion.getContent());
+                question.setType(parsedQuestion.getCorrectCount() == 1 ? QuestionType.SINGLE_CHOICE : QuestionType.MULTIPLE_CHOICE);
+                question.setIndex(nextIndex++);
+                question.setCreatedAt(now);
+                question.setUpdatedAt(now);
+                questions.add(question);
+                int answerIndex = 0;
+                for (TestImportParser.ParsedAnswer parsedAnswer : parsedQuestion.getAnswers()) {
+                    AnswerEntity answer = new AnswerEntity();
+                    answer.setQuestionId(question.getId());
+                    answer.setContent(parsedAnswer.getContent());
+                    answer.setIsCorrect(parsedAnswer.isCorrect());
+                    answer.setIndex(answerIndex++);
+                    answer.setCreatedAt(now);
+                    answer.setUpdatedAt(now);
+                    answers.add(answer);
+                }
+            }
+            mongoTemplate.insert(questions, QuestionEntity.class);
+            mongoTemplate.insert(answers, AnswerEntity.class);
+            imported += questions.size();
+            batch.clear();
+            report(new Update());
+        }
+
+        private void finish(ImportJobStatus status, String message) {
+            String now = String.valueOf(System.currentTimeMillis());
+            try {
+                report(new Update()
+                        .set("status", status)
+                        .set("message", message)
+                        .set("finishedAt", now));
+            } catch (Exception e) {
+                log.error("Error finishing import job {}: ", jobId, e);
+            }
+        }
+
+        private void report(Update update) {
+            update.set("processedUnits", processedUnits)
+                    .set("parsedQuestions", parsed)
+                    .set("importedQuestions", imported)
+                    .set("failedQuestions", failed)
+                    .set("updatedAt", String.valueOf(System.currentTimeMillis()));
+            if (!newErrors.isEmpty()) {
+                update.push("errors").each(newErrors.toArray());
+            }
+            mongoTemplate.updateFirst(query(), update, TestImportJobEntity.class);
+            newErrors.clear();
+            reportedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -17,6 +17,7 @@ public interface IClassRoomService {
     GetClassRoomsResponse getClassRooms(int page, int size, String search, String studentId, String role, String status, String category);
 
     GetClassRoomsResponse getUnregisteredClassRooms(int page, int size, String search, String studentId, String status, String category,String tag,String order);
+    GetClassRoomFeedResponse getClassRoomFeed(String studentId, String search, String category, String tag, String order, String cursor, Double seed, int size);
     GetClassRoomsResponse getClassRoomsByTeacherId(int page, int size, String teacherId);
     GetSectionsResponse getSectionsByClassroomId(int page, int size, String search,String role);
     GetClassRoomDetailResponse getClassRoomByInvitationCode(String invitationCode);
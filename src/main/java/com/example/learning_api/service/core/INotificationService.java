@@ -2,12 +2,15 @@ package com.example.learning_api.service.core;
 
 import com.example.learning_api.dto.request.notification.SendNotificationRequest;
 import com.example.learning_api.dto.request.notification.UpdateUserNotificationSettingRequest;
+import com.example.learning_api.dto.response.notification.GetNotificationInboxResponse;
 import com.example.learning_api.dto.response.notification.GetUserNotificationResponse;
+import com.example.learning_api.dto.response.notification.MarkNotificationsSeenResponse;
 import com.example.learning_api.dto.response.notification.NotificationResponse;
 import com.example.learning_api.entity.sql.database.NotificationEntity;
 import com.example.learning_api.entity.sql.database.NotificationReceiveEntity;
 import com.example.learning_api.entity.sql.database.NotificationSettingsEntity;
 import com.example.learning_api.entity.sql.database.UserNotificationSettingsEntity;
+import com.example.learning_api.enums.RoleEnum;
 import jakarta.transaction.Transactional;
 
 import java.util.List;
@@ -19,6 +22,11 @@ public interface INotificationService {
     @Transactional
     NotificationResponse createNotification(NotificationEntity notification, List<String> receiverIds);
 
+    // 1b. Tạo notification cho cả lớp, role null là mọi thành viên
+    @Transactional
+    NotificationResponse createClassroomNotification(NotificationEntity notification, List<String> receiverIds,
+                                                     String classroomId, RoleEnum role);
+
     // 2. Filter receivers dựa trên preferences của họ
     List<String> filterReceiversByPreferences(List<String> receiverIds, String notificationSettingId);
 
@@ -38,9 +46,19 @@ public interface INotificationService {
     @Transactional
     void markNotificationAsSeen(String userId, String notificationId);
 
+    // 2b. Đánh dấu nhiều notification đã đọc
+    MarkNotificationsSeenResponse markNotificationsAsSeen(String userId, List<String> notificationIds);
+
     // 3. Lấy danh sách notification của user
     List<GetUserNotificationResponse> getUserNotifications(String userId, int page, int size);
 
+    // 3b. Hộp thư thông báo phân trang theo cursor
+    GetNotificationInboxResponse getNotificationInbox(String userId, String cursor, int size);
+
+    int getUnreadNotificationCount(String userId);
+
+    MarkNotificationsSeenResponse markAllNotificationsAsSeen(String userId);
+
     // 4. Cập nhật user notification settings
     @Transactional
     void updateUserNotificationSettings(UpdateUserNotificationSettingRequest request);
@@ -21,6 +21,7 @@ public interface ITeacherService {
     void addSubjectSpecialization(String teacherId, String majorId);
     TeacherEntity getTeacherByUserId(String teacherId);
     TeacherDashboardResponse getTeacherDashboard(String teacherId);
+    void rebuildTeacherDashboard(String teacherId);
     GetPaymentForTeacher getPaymentForTeacher(String teacherId, int page, int size, String sort, String order, String status, String search, String searchBy, String createdAtRange);
     List<GetTeacherPopularResponse> getTeacherPopular(int page, int size);
 }
@@ -1,11 +1,13 @@
 package com.example.learning_api.service.core;
 
+import com.example.learning_api.dto.request.test.CreateExitLogsRequest;
 import com.example.learning_api.dto.request.test.CreateTestResultRequest;
 import com.example.learning_api.dto.request.test.SaveProgressRequest;
 import com.example.learning_api.dto.request.test.UpdateTestResultRequest;
 import com.example.learning_api.dto.response.question.GetQuestionsResponse;
 import com.example.learning_api.dto.response.test.*;
 import com.example.learning_api.entity.sql.database.StudentEntity;
+import com.example.learning_api.entity.sql.database.TestExitCountEntity;
 
 import java.util.List;
 
@@ -14,6 +16,8 @@ public interface ITestResultService {
     void updateTestResult(UpdateTestResultRequest body);
     void deleteTestResult(String studentId, String courseId);
     void saveProgress(SaveProgressRequest body);
+    int addExitLogs(String userId, CreateExitLogsRequest body);
+    List<TestExitCountEntity> getExitCounts(String testId);
     List<TestResultsForClassroomResponse> getTestResultsForClassroom(String classroomId);
     List<TestResultForStudentResponse> getTestResultsByStudentIdAndClassroomId(String studentId, String classroomId);
     OverviewResultResponse getOverviewOfTestResults(String testId);
@@ -7,6 +7,7 @@ import com.example.learning_api.dto.request.test.UpdateTestRequest;
 import com.example.learning_api.dto.response.question.GetQuestionsResponse;
 import com.example.learning_api.dto.response.test.*;
 import com.example.learning_api.entity.sql.database.TestEntity;
+import com.example.learning_api.entity.sql.database.TestImportJobEntity;
 
 import java.util.List;
 
@@ -15,7 +16,8 @@ public interface ITestService {
     void updateTest(UpdateTestRequest body);
     void deleteTest(String id);
     GetTestsResponse getTests(int page, int size,String search);
-    void importTest(ImportTestRequest body);
+    TestImportJobEntity importTest(ImportTestRequest body);
+    TestImportJobEntity getImportJob(String jobId);
     GetTestDetailResponse getTestDetail(String id);
     GetTestDetailResponse getTestDetailForTeacher(String id,String teacherId);
     GetTestsResponse getTestsByClassroomId(int page, int size,String classroomId,String role);
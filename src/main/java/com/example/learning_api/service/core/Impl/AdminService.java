@@ -1,6 +1,6 @@
 package com.example.learning_api.service.core.Impl;
 
-import com.example.learning_api.dto.common.StudentSubmissionCountDto;
+import com.example.learning_api.dto.common.ClassRoomSearchFilter;
 import com.example.learning_api.dto.request.admin.ChangeRoleRequest;
 import com.example.learning_api.dto.response.admin.*;
 import com.example.learning_api.dto.response.cart.GetPaymentForTeacher;
@@ -8,6 +8,8 @@ import com.example.learning_api.dto.response.classroom.GetApprovalClassroomRespo
 import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.*;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.AdminAnalyticsService;
+import com.example.learning_api.service.common.ClassRoomSearchIndex;
 import com.example.learning_api.service.common.CloudinaryService;
 import com.example.learning_api.service.core.IAdminService;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +25,7 @@ import java.time.*;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,6 +46,10 @@ public class AdminService implements IAdminService {
     private final CategoryRepository categoryRepository;
     private final TransactionRepository transactionRepository;
     private final ApprovalClassroomRepository approvalClassroomRequestRepository;
+    private final ClassRoomSearchIndex classRoomSearchIndex;
+    private final AdminAnalyticsService adminAnalyticsService;
+
+    private static final int ENROLLMENT_TREND_MONTHS = 24;
     @Override
     public void changeRole(ChangeRoleRequest body) {
         try {
@@ -128,53 +135,60 @@ public class AdminService implements IAdminService {
 
     }
 
+    private static int total(Map<String, Long> totals, String counter) {
+        return totals.getOrDefault(counter, 0L).intValue();
+    }
+
     @Override
     public GetAdminDashboardResponse getAdminDashboard() {
         try{
-            int totalTeacher = (int) userRepository.countByRole(RoleEnum.TEACHER.name());
-            int totalStudent = (int) userRepository.countByRole(RoleEnum.USER.name());
-            int totalClassroom = (int) classRoomRepository.count();
-            List<StudentSubmissionCountDto> studentSubmissionCountDto = studentEnrollmentsRepository.getMonthlyEnrollmentStats();
-            List<StudentSubmissionCountDto> classroomPerformance = studentEnrollmentsRepository.getTopEnrolledClassrooms();
+            // Rendered from pre-aggregated buckets; see AdminAnalyticsService
+            Map<String, Long> totals = adminAnalyticsService.getTotals();
+            int totalTeacher = total(totals, AdminAnalyticsService.userRole(RoleEnum.TEACHER.name()));
+            int totalStudent = total(totals, AdminAnalyticsService.userRole(RoleEnum.USER.name()));
+            int totalClassroom = total(totals, AdminAnalyticsService.CLASSROOMS);
             List<GetAdminDashboardResponse.EnrollmentTrend> enrollmentTrends = new ArrayList<>();
             List<GetAdminDashboardResponse.ClassroomPerformance> classroomPerformances = new ArrayList<>();
-            for (StudentSubmissionCountDto studentSubmissionCount : studentSubmissionCountDto) {
+            for (AnalyticsBucketEntity month : adminAnalyticsService.getBuckets(AdminAnalyticsService.MONTH, ENROLLMENT_TREND_MONTHS)) {
                 GetAdminDashboardResponse.EnrollmentTrend enrollmentTrend = new GetAdminDashboardResponse.EnrollmentTrend();
-                enrollmentTrend.setDate(studentSubmissionCount.get_id());
-                enrollmentTrend.setTotal(studentSubmissionCount.getEnrollmentCount());
+                enrollmentTrend.setDate(month.getBucket());
+                enrollmentTrend.setTotal(month.getCounters() != null ? month.getCounters().getOrDefault(AdminAnalyticsService.ENROLLMENTS, 0L).intValue() : 0);
                 enrollmentTrends.add(enrollmentTrend);
             }
-            for (StudentSubmissionCountDto studentSubmissionCount : classroomPerformance) {
+            // currentEnrollment is kept in step by ClassRoomStatsService
+            for (ClassRoomEntity classRoomEntity : classRoomRepository.findTop5ByOrderByCurrentEnrollmentDesc()) {
                 GetAdminDashboardResponse.ClassroomPerformance classroomPerformance1 = new GetAdminDashboardResponse.ClassroomPerformance();
-                classroomPerformance1.setId(studentSubmissionCount.get_id());
-                classroomPerformance1.setTotalStudent(studentSubmissionCount.getEnrollmentCount());
-                ClassRoomEntity classRoomEntity = classRoomRepository.findById(studentSubmissionCount.get_id()).orElse(null);
-                if (classRoomEntity != null) {
-                    classroomPerformance1.setName(classRoomEntity.getName());
-                }
+                classroomPerformance1.setId(classRoomEntity.getId());
+                classroomPerformance1.setName(classRoomEntity.getName());
+                classroomPerformance1.setTotalStudent(classRoomEntity.getCurrentEnrollment() != null ? classRoomEntity.getCurrentEnrollment() : 0);
                 classroomPerformances.add(classroomPerformance1);
             }
             GetAdminDashboardResponse resData = new GetAdminDashboardResponse();
             GetAdminDashboardResponse.UserEngagement userEngagement = new GetAdminDashboardResponse.UserEngagement();
-            userEngagement.setTotalActiveUser((int) userRepository.countByStatus(UserStatus.ACTIVE.name()));
-            userEngagement.setTotalBlockUser((int) userRepository.countByStatus(UserStatus.BLOCKED.name()));
-            userEngagement.setTotalInactiveUser((int) userRepository.countByStatus(UserStatus.INACTIVE.name()));
+            userEngagement.setTotalActiveUser(total(totals, AdminAnalyticsService.userStatus(UserStatus.ACTIVE.name())));
+            userEngagement.setTotalBlockUser(total(totals, AdminAnalyticsService.userStatus(UserStatus.BLOCKED.name())));
+            userEngagement.setTotalInactiveUser(total(totals, AdminAnalyticsService.userStatus(UserStatus.INACTIVE.name())));
             resData.setTotalTeacher(totalTeacher);
             resData.setTotalStudent(totalStudent);
             resData.setTotalClassroom(totalClassroom);
             resData.setEnrollmentTrend(enrollmentTrends);
             resData.setClassroomPerfomance(classroomPerformances);
-            resData.setTotalEnrollmentInMonth(studentSubmissionCountDto.get(studentSubmissionCountDto.size()-1).getEnrollmentCount());
-            Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "createdAt"));
-            List<NotificationEntity> notificationEntities = notificationRepository.findAll();
+            resData.setTotalEnrollmentInMonth((int) adminAnalyticsService.getCurrent(AdminAnalyticsService.MONTH, AdminAnalyticsService.ENROLLMENTS));
             List<GetRecentActivity> recentActivities = new ArrayList<>();
-            int size  = Math.min(notificationEntities.size(), 5);
-            for (int i = 0; i < size; i++) {
+            for (RecentActivityEntity activity : adminAnalyticsService.getRecentActivity(5)) {
                 GetRecentActivity getRecentActivity = new GetRecentActivity();
-                getRecentActivity.setTitle(notificationEntities.get(i).getTitle());
-                getRecentActivity.setTime(notificationEntities.get(i).getCreatedAt());
+                getRecentActivity.setTitle(activity.getTitle());
+                getRecentActivity.setTime(activity.getTime());
                 recentActivities.add(getRecentActivity);
             }
+            List<GetAdminDashboardResponse.ActivityBucket> hourlyActivity = new ArrayList<>();
+            for (AnalyticsBucketEntity hour : adminAnalyticsService.getBuckets(AdminAnalyticsService.HOUR, 24)) {
+                GetAdminDashboardResponse.ActivityBucket activityBucket = new GetAdminDashboardResponse.ActivityBucket();
+                activityBucket.setBucket(hour.getBucket());
+                activityBucket.setCounters(hour.getCounters());
+                hourlyActivity.add(activityBucket);
+            }
+            resData.setHourlyActivity(hourlyActivity);
             resData.setRecentActivity(recentActivities);
             resData.setUserEngagement(userEngagement);
             return resData;
@@ -256,14 +270,16 @@ public class AdminService implements IAdminService {
             }
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(upperOrder), sort));
             Page<ClassRoomEntity> classRoomEntities;
-            if (status.isEmpty()) {
+            if (classRoomSearchIndex.canSearch(search)) {
+                List<String> matchingIds = classRoomSearchIndex.matchingIds(search, ClassRoomSearchFilter.builder()
+                        .status(status.isEmpty() ? null : status)
+                        .build());
+                classRoomEntities = classRoomRepository.findByIdIn(matchingIds, pageable);
+            } else if (status.isEmpty()) {
                 classRoomEntities = classRoomRepository.findByNameContainingForAdmin(search, pageable);
             } else {
                 classRoomEntities = classRoomRepository.findByNameContainingAndStatusForAdmin(search, status, pageable);
             }
-            for (ClassRoomEntity classRoomEntity : classRoomEntities) {
-                classRoomEntity.setCurrentEnrollment(studentEnrollmentsRepository.countByClassroomId(classRoomEntity.getId()));
-            }
             GetClassRoomsAdminResponse resData = new GetClassRoomsAdminResponse();
             resData.setData(classRoomEntities.getContent());
             resData.setTotalElements(classRoomEntities.getTotalElements());
@@ -431,8 +447,15 @@ public class AdminService implements IAdminService {
     public GetApprovalClassroomResponse getApprovalClassrooms(int page, int size, String search, String sort, String order, String status) {
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(order), sort));
-            List<ClassRoomEntity> classrooms = classRoomRepository.findByNameContaining(search);
-            List<String> classroomIds = classrooms.stream().map(ClassRoomEntity::getId).collect(Collectors.toList());
+            List<String> classroomIds;
+            if (classRoomSearchIndex.canSearch(search)) {
+                classroomIds = classRoomSearchIndex.matchingIds(search, ClassRoomSearchFilter.builder()
+                        .excludedStatus(ClassRoomStatus.BLOCKED.toString())
+                        .build());
+            } else {
+                List<ClassRoomEntity> classrooms = classRoomRepository.findByNameContaining(search);
+                classroomIds = classrooms.stream().map(ClassRoomEntity::getId).collect(Collectors.toList());
+            }
 
             Page<ApprovalClassroomRequestEntity> approvalRequests;
             if (status.isEmpty()) {
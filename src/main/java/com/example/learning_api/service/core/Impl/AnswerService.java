@@ -15,6 +15,7 @@ import com.example.learning_api.model.CustomException;
 import com.example.learning_api.repository.database.AnswerRepository;
 import com.example.learning_api.repository.database.FileRepository;
 import com.example.learning_api.repository.database.QuestionRepository;
+import com.example.learning_api.service.common.AnswerKeyCache;
 import com.example.learning_api.service.common.CloudinaryService;
 import com.example.learning_api.service.common.ModelMapperService;
 import com.example.learning_api.service.core.IAnswerService;
@@ -35,6 +36,7 @@ public class AnswerService implements IAnswerService {
     private final AnswerRepository answerRepository;
     private final CloudinaryService cloudinaryService;
     private final FileRepository fileRepository;
+    private final AnswerKeyCache answerKeyCache;
 
     @Override
     public CreateAnswerResponse createAnswer(CreateAnswerRequest body) {
@@ -80,6 +82,7 @@ public class AnswerService implements IAnswerService {
             answerRepository.save(answerEntity);
             fileEntity.setOwnerId(answerEntity.getId());
             fileRepository.save(fileEntity);
+            answerKeyCache.invalidate(questionEntity1.getTestId());
             resData.setQuestionId(body.getQuestionId());
             resData.setCreatedAt(answerEntity.getCreatedAt().toString());
             resData.setContent(body.getContent());
@@ -143,6 +146,7 @@ public class AnswerService implements IAnswerService {
                       answerRepository.save(answerEntity);
                   }
               }
+              answerKeyCache.invalidate(questionEntity.getTestId());
          }
          catch (Exception e){
               throw new IllegalArgumentException(e.getMessage());
@@ -153,7 +157,9 @@ public class AnswerService implements IAnswerService {
     @Override
     public void deleteAnswer(String id) {
         try{
+            String questionId = answerRepository.findById(id).map(AnswerEntity::getQuestionId).orElse(null);
             answerRepository.deleteById(id);
+            answerKeyCache.invalidateByQuestion(questionId);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -2,6 +2,9 @@ package com.example.learning_api.service.core.Impl;
 
 import com.example.learning_api.constant.CloudinaryConstant;
 import com.example.learning_api.constant.ErrorConstant;
+import com.example.learning_api.dto.common.ClassRoomFeedCursor;
+import com.example.learning_api.dto.common.ClassRoomSearchFilter;
+import com.example.learning_api.dto.common.CurriculumSnapshot;
 import com.example.learning_api.dto.common.LessonCompleteDto;
 import com.example.learning_api.dto.request.classroom.*;
 import com.example.learning_api.dto.response.classroom.*;
@@ -13,19 +16,32 @@ import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.*;
 import com.example.learning_api.model.CustomException;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.ClassRoomFeedReader;
+import com.example.learning_api.service.common.ClassRoomHydrator;
+import com.example.learning_api.service.common.ClassRoomSearchIndex;
+import com.example.learning_api.service.common.ClassRoomStatsService;
 import com.example.learning_api.service.common.CloudinaryService;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.ExcelReader;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.ProgressBitmapService;
+import com.example.learning_api.service.common.RecentClassBuffer;
+import com.example.learning_api.service.common.RequestCoalescer;
+import com.example.learning_api.service.common.TeacherRollupService;
 import com.example.learning_api.service.core.*;
 import com.example.learning_api.utils.ImageUtils;
 import com.example.learning_api.utils.StringUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
@@ -54,6 +70,30 @@ public class ClassRoomService implements IClassRoomService {
     private final CategoryRepository categoryRepository;
     private final SectionService sectionService;
     private final ApprovalClassroomRepository approvalClassroomRepository;
+    private final ClassRoomHydrator classRoomHydrator;
+    private final ClassRoomStatsService classRoomStatsService;
+    private final ClassRoomFeedReader classRoomFeedReader;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
+    private final ProgressBitmapService progressBitmapService;
+    private final ClassRoomSearchIndex classRoomSearchIndex;
+    private final RequestCoalescer requestCoalescer;
+    private final RecentClassBuffer recentClassBuffer;
+    private final TeacherRollupService teacherRollupService;
+
+    // Invite links are opened by a whole class within seconds; identical reads share one lookup for this long
+    private static final Duration HOT_READ_TTL = Duration.ofSeconds(5);
+    private static final String INVITE_DETAIL = "classroom-invite-detail";
+    private static final String CLASSROOM_HEADER = "classroom-header";
+
+    /**
+     * Non-personal part of the classroom detail, shared between callers through {@link RequestCoalescer}.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class ClassRoomHeader {
+        private final ClassRoomEntity classRoom;
+        private final String categoryName;
+    }
     @Override
     public CreateClassRoomResponse createClassRoom(CreateClassRoomRequest body) {
         try{
@@ -71,6 +111,9 @@ public class ClassRoomService implements IClassRoomService {
 
             ClassRoomEntity classRoomEntity = modelMapperService.mapClass(body, ClassRoomEntity.class);
             classRoomEntity.setCurrentEnrollment(0);
+            classRoomEntity.setRatingSum(0.0);
+            classRoomEntity.setRatingCount(0);
+            classRoomEntity.setShuffleKey(ThreadLocalRandom.current().nextDouble());
             classRoomEntity.setCategoryId(body.getCategoryId());
             classRoomEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             classRoomEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
@@ -191,6 +234,7 @@ public class ClassRoomService implements IClassRoomService {
             }
             classroom.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             classRoomRepository.save(classroom);
+            evictHotReads(classroom);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -205,6 +249,7 @@ public class ClassRoomService implements IClassRoomService {
              ClassRoomEntity classroom = classRoomRepository.findById(classroomId)
                     .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
             classRoomRepository.delete(classroom);
+            evictHotReads(classroom);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -236,45 +281,7 @@ public class ClassRoomService implements IClassRoomService {
             }
 
             // Map dữ liệu sang DTO
-            List<GetClassRoomsResponse.ClassRoomResponse> resData = classRooms.stream().map(classRoom -> {
-                GetClassRoomsResponse.ClassRoomResponse classRoomResponse = modelMapperService.mapClass(classRoom, GetClassRoomsResponse.ClassRoomResponse.class);
-                if (classRoom.getCategoryId() != null) {
-                    classRoomResponse.setCategoryName(categoryRepository.findById(classRoom.getCategoryId())
-                            .orElse(null).getName());
-                }
-
-                TeacherEntity teacher = teacherRepository.findById(classRoom.getTeacherId())
-                        .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-                UserEntity user = userRepository.findById(teacher.getUserId())
-                        .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-                teacher.setUser(null);
-                user.setTeacher(teacher);
-                classRoomResponse.setUser(user);
-                int count = studentEnrollmentsRepository.countByClassroomId(classRoom.getId());
-                classRoomResponse.setCurrentEnrollment(count);
-                classRoomResponse.setCategoryId(classRoom.getCategoryId());
-                List<ReviewEntity> allReviews = reviewRepository.findByClassroomId(classRoomResponse.getId());
-                double averageRating = allReviews.stream()
-                        .mapToDouble(ReviewEntity::getRating)
-                        .average()
-                        .orElse(0.0);
-                classRoomResponse.setRating(averageRating);
-                classRoomResponse.setTotalRating(allReviews.size());
-                List<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classRoomResponse.getId());
-
-                List<String> lessonIds = new ArrayList<>();
-                for (SectionEntity sectionEntity : sectionEntities) {
-                    List<LessonEntity> lessonEntities = lessonRepository.findBySectionId(sectionEntity.getId());
-                    for (LessonEntity lessonEntity : lessonEntities) {
-                        lessonIds.add(lessonEntity.getId());
-                    }
-                }
-                List<ProgressEntity> countComplete = progressRepository.findByClassroomIdAndLessonIdInAndCompletedAndStudentId(
-                        classRoomResponse.getId(), lessonIds, true, studentId
-                );
-                classRoomResponse.setTotalLessonComplete(countComplete.size());
-                return classRoomResponse;
-            }).collect(Collectors.toList());
+            List<GetClassRoomsResponse.ClassRoomResponse> resData = classRoomHydrator.hydrate(classRooms.getContent(), studentId);
 
             // Đóng gói kết quả
             return new GetClassRoomsResponse(resData, classRooms.getTotalPages(), classRooms.getTotalElements());
@@ -285,6 +292,13 @@ public class ClassRoomService implements IClassRoomService {
 
     private Page<ClassRoomEntity> fetchClassRoomsForUser(List<String> classRoomIds, String search, String status, String category, Pageable pageable) {
         status = ClassRoomStatus.COMPLETED.toString();
+        if (classRoomSearchIndex.canSearch(search)) {
+            return classRoomSearchIndex.search(search, ClassRoomSearchFilter.builder()
+                    .status(status)
+                    .categoryId(category != null && !category.isEmpty() ? category : null)
+                    .includeIds(classRoomIds)
+                    .build(), pageable);
+        }
         if (status != null) {
             if (category != null && !category.isEmpty()) {
                 return classRoomRepository.findByCategoryAndNameContainingAndStatus(classRoomIds, category, search, status, pageable);
@@ -301,6 +315,14 @@ public class ClassRoomService implements IClassRoomService {
     }
 
     private Page<ClassRoomEntity> fetchClassRoomsForTeacher(String teacherId, String search, String status, String category, Pageable pageable) {
+        if (classRoomSearchIndex.canSearch(search)) {
+            return classRoomSearchIndex.search(search, ClassRoomSearchFilter.builder()
+                    .teacherId(teacherId)
+                    .status(status)
+                    .excludedStatus(status == null ? ClassRoomStatus.BLOCKED.toString() : null)
+                    .categoryId(category != null && !category.isEmpty() ? category : null)
+                    .build(), pageable);
+        }
         if (status != null) {
             if (category != null && !category.isEmpty()) {
                 return classRoomRepository.findByTeacherIDCategoryAndNameContainingAndStatus(teacherId, category, search, status, pageable);
@@ -325,15 +347,7 @@ public class ClassRoomService implements IClassRoomService {
             if (search != null && search.startsWith(",")) {
                 search = search.substring(1);
             }
-            Sort sort = Sort.unsorted();
-            if (tag.equals("price") && order!=null){
-                if ("asc".equalsIgnoreCase(order)) {
-                    sort = Sort.by(Sort.Order.asc("price"));
-                } else {
-                    sort = Sort.by(Sort.Order.desc("price"));
-                }
-            }
-            Pageable pageable = PageRequest.of(page, size,sort);
+            Pageable pageable = PageRequest.of(page, size);
 
             // Lấy danh sách lớp học mà sinh viên đã đăng ký
             List<String> registeredClassRoomIds = studentEnrollmentsRepository.findByStudentId(studentId).stream()
@@ -346,31 +360,7 @@ public class ClassRoomService implements IClassRoomService {
             );
 
             // Map dữ liệu sang DTO
-            List<GetClassRoomsResponse.ClassRoomResponse> resData = unregisteredClassRooms.stream().map(classRoom -> {
-                GetClassRoomsResponse.ClassRoomResponse classRoomResponse = modelMapperService.mapClass(classRoom, GetClassRoomsResponse.ClassRoomResponse.class);
-                if (classRoom.getCategoryId() != null) {
-                    classRoomResponse.setCategoryName(categoryRepository.findById(classRoom.getCategoryId())
-                            .orElse(null).getName());
-                }
-                int count = studentEnrollmentsRepository.countByClassroomId(classRoom.getId());
-                classRoomResponse.setCurrentEnrollment(count);
-                TeacherEntity teacher = teacherRepository.findById(classRoom.getTeacherId())
-                        .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-                UserEntity user = userRepository.findById(teacher.getUserId())
-                        .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-                teacher.setUser(null);
-                user.setTeacher(teacher);
-                classRoomResponse.setUser(user);
-                classRoomResponse.setCategoryId(classRoom.getCategoryId());
-                List<ReviewEntity> allReviews = reviewRepository.findByClassroomId(classRoomResponse.getId());
-                double averageRating = allReviews.stream()
-                        .mapToDouble(ReviewEntity::getRating)
-                        .average()
-                        .orElse(0.0);
-                classRoomResponse.setRating(averageRating);
-                classRoomResponse.setTotalRating(allReviews.size());
-                return classRoomResponse;
-            }).collect(Collectors.toList());
+            List<GetClassRoomsResponse.ClassRoomResponse> resData = classRoomHydrator.hydrate(unregisteredClassRooms.getContent(), null);
 
             // Đóng gói kết quả
             return new GetClassRoomsResponse(resData, unregisteredClassRooms.getTotalPages(), unregisteredClassRooms.getTotalElements());
@@ -390,48 +380,55 @@ public class ClassRoomService implements IClassRoomService {
         // Set status to COMPLETED
         status = ClassRoomStatus.COMPLETED.toString();
 
+        boolean indexed = classRoomSearchIndex.canSearch(search);
+        ClassRoomSearchFilter filter = ClassRoomSearchFilter.builder()
+                .status(status)
+                .categoryId(category != null && !category.isEmpty() ? category : null)
+                .excludeIds(registeredClassRoomIds)
+                .build();
+
         // Xử lý tag
         if (tag != null && !tag.isEmpty()) {
-            if (category != null && !category.isEmpty()) {
-                if ("popular".equalsIgnoreCase(tag)) {
-                    List<ClassRoomEntity> popularClassrooms = classRoomRepository.findPopularClassroomsByCategory(
-                            registeredClassRoomIds, category, search, status);
-                    return createPageFromList(popularClassrooms, pageable);
-                } else if ("new".equalsIgnoreCase(tag)) {
-                    List<ClassRoomEntity> newClassrooms = classRoomRepository.findNewClassroomsByCategory(
-                            registeredClassRoomIds, category, search, pageable,status);
-                    return createPageFromList(newClassrooms, pageable);
-                } else if ("price".equalsIgnoreCase(tag)) {
-                    boolean ascending = "asc".equalsIgnoreCase(order);
-                    List<ClassRoomEntity> priceSortedClassrooms = classRoomRepository.findByCategoryAndSortByPrice(
-                            category, registeredClassRoomIds, search, pageable, ascending
-                    );
-                    return createPageFromList(priceSortedClassrooms, pageable);
-                } else {
-                    int sampleSize = pageable.getPageSize() * (pageable.getPageNumber() + 1);
-                    List<ClassRoomEntity> randomClassrooms = classRoomRepository.findRandomClassroomsByCategory(
-                            registeredClassRoomIds, category, search, sampleSize);
-                    return createPageFromList(randomClassrooms, pageable);
-                }
-            }
+            boolean hasCategory = category != null && !category.isEmpty();
+            Sort sort = null;
             if ("popular".equalsIgnoreCase(tag)) {
-                List<ClassRoomEntity> popularClassrooms = classRoomRepository.findPopularClassrooms(registeredClassRoomIds, search, status);
-                return createPageFromList(popularClassrooms, pageable);
+                sort = Sort.by(Sort.Order.desc("currentEnrollment"), Sort.Order.desc("_id"));
             } else if ("new".equalsIgnoreCase(tag)) {
-                List<ClassRoomEntity> newClassrooms = classRoomRepository.findNewClassrooms(registeredClassRoomIds, search, pageable);
-                return createPageFromList(newClassrooms, pageable);
+                sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("_id"));
             } else if ("price".equalsIgnoreCase(tag)) {
-                // Fetch classrooms sorted by price
-                List<ClassRoomEntity> priceSortedClassrooms = classRoomRepository.findByAndSortByPrice(
-                        registeredClassRoomIds, search, pageable
-                );
-                return createPageFromList(priceSortedClassrooms, pageable);
-            } else {
-                int sampleSize = pageable.getPageSize() * (pageable.getPageNumber() + 1);
-                List<ClassRoomEntity> randomClassrooms = classRoomRepository.findRandomClassrooms(
-                        registeredClassRoomIds, search, sampleSize);
-                return createPageFromList(randomClassrooms, pageable);
+                sort = "asc".equalsIgnoreCase(order)
+                        ? Sort.by(Sort.Order.asc("price"), Sort.Order.asc("_id"))
+                        : Sort.by(Sort.Order.desc("price"), Sort.Order.desc("_id"));
+            }
+            if (sort != null) {
+                // Sort, skip and limit run in Mongo; only the requested page is loaded
+                Pageable sortedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+                if (indexed) {
+                    return classRoomRepository.findByIdIn(classRoomSearchIndex.matchingIds(search, filter), sortedPageable);
+                }
+                return hasCategory
+                        ? classRoomRepository.findByCategoryAndNameContainingAndStatusNotIn(registeredClassRoomIds, category, search, status, sortedPageable)
+                        : classRoomRepository.findByIdNotInAndNameContainingAndStatus(registeredClassRoomIds, search, status, sortedPageable);
             }
+            // Random order has no stable pages here; sample a single page so deep pages cost the same as the first.
+            // Clients that need stable random paging should use the cursor-based feed.
+            if (indexed) {
+                List<String> matchingIds = new ArrayList<>(classRoomSearchIndex.matchingIds(search, filter));
+                Collections.shuffle(matchingIds);
+                List<String> sampledIds = matchingIds.subList(0, Math.min(pageable.getPageSize(), matchingIds.size()));
+                return new PageImpl<>(classRoomRepository.findAllById(sampledIds), pageable, matchingIds.size());
+            }
+            List<ClassRoomEntity> randomClassrooms = hasCategory
+                    ? classRoomRepository.findRandomClassroomsByCategory(registeredClassRoomIds, category, search, pageable.getPageSize())
+                    : classRoomRepository.findRandomClassrooms(registeredClassRoomIds, search, pageable.getPageSize());
+            long total = hasCategory
+                    ? classRoomRepository.countByCategoryAndNameContainingAndStatusNotIn(registeredClassRoomIds, category, search, status)
+                    : classRoomRepository.countByIdNotInAndNameContainingAndStatus(registeredClassRoomIds, search, status);
+            return new PageImpl<>(randomClassrooms, pageable, total);
+        }
+
+        if (indexed) {
+            return classRoomSearchIndex.search(search, filter, pageable);
         }
 
         // Xử lý kết hợp tag với category
@@ -458,11 +455,36 @@ public class ClassRoomService implements IClassRoomService {
         }
     }
 
-    private Page<ClassRoomEntity> createPageFromList(List<ClassRoomEntity> data, Pageable pageable) {
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), data.size());
-        List<ClassRoomEntity> subList = data.subList(start, end);
-        return new PageImpl<>(subList, pageable, data.size());
+    @Override
+    public GetClassRoomFeedResponse getClassRoomFeed(String studentId, String search, String category, String tag, String order, String cursor, Double seed, int size) {
+        try {
+            // Remove leading comma if present
+            if (search != null && search.startsWith(",")) {
+                search = search.substring(1);
+            }
+            if (size <= 0 || size > 100) {
+                throw new IllegalArgumentException("Size must be between 1 and 100");
+            }
+            ClassRoomFeedCursor position = cursor == null || cursor.isEmpty()
+                    ? classRoomFeedReader.firstCursor(tag, order, seed)
+                    : classRoomFeedReader.decode(cursor);
+
+            Set<String> registeredClassRoomIds = studentId == null || studentId.isEmpty()
+                    ? Collections.emptySet()
+                    : studentEnrollmentsRepository.findByStudentId(studentId).stream()
+                            .map(StudentEnrollmentsEntity::getClassroomId)
+                            .collect(Collectors.toSet());
+
+            ClassRoomFeedReader.FeedPage feedPage = classRoomFeedReader.read(position, search, category, size, registeredClassRoomIds);
+
+            GetClassRoomFeedResponse resData = new GetClassRoomFeedResponse();
+            resData.setClassRooms(classRoomHydrator.hydrate(feedPage.getClassRooms(), null));
+            resData.setNextCursor(classRoomFeedReader.encode(feedPage.getNext()));
+            resData.setHasMore(feedPage.getNext() != null);
+            return resData;
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
     }
 
     @Override
@@ -520,44 +542,53 @@ public class ClassRoomService implements IClassRoomService {
     @Override
     public GetClassRoomDetailResponse getClassRoomByInvitationCode(String invitationCode) {
         try{
-            ClassRoomEntity classRoomEntity = classRoomRepository.findClassRoomEntityByInviteCode(invitationCode);
-            if (classRoomEntity==null){
-                throw new IllegalArgumentException("ClassRoom is not found");
-            }
-            List<String> status =new ArrayList<>();
-            status.add("PUBLIC");
-            GetClassRoomDetailResponse resData = new GetClassRoomDetailResponse();
-            Pageable pageAble = PageRequest.of(0, 15);
-            resData.setId(classRoomEntity.getId());
-            resData.setName(classRoomEntity.getName());
-            resData.setDescription(classRoomEntity.getDescription());
-            resData.setImage(classRoomEntity.getImage());
-            resData.setCurrentEnrollment(classRoomEntity.getCurrentEnrollment());
-            resData.setInviteCode(classRoomEntity.getInviteCode());
-            resData.setCategoryId(classRoomEntity.getCategoryId());
-            if (classRoomEntity.getCategoryId() != null) {
-                resData.setCategoryName(categoryRepository.findById(classRoomEntity.getCategoryId())
-                        .orElse(null).getName());
-            }
-            resData.setStatus(classRoomEntity.getStatus());
-            resData.setTeacherId(classRoomEntity.getTeacherId());
-            resData.setCreatedAt(classRoomEntity.getCreatedAt());
-            resData.setUpdatedAt(classRoomEntity.getUpdatedAt());
-            TeacherEntity teacher = teacherRepository.findById(resData.getTeacherId())
-                    .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-            UserEntity user = userRepository.findById(teacher.getUserId())
-                    .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-            teacher.setUser(null);
-            user.setTeacher(teacher);
-            Page<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classRoomEntity.getId(),pageAble,status);
-            List<GetClassRoomDetailResponse.Section> sections = new ArrayList<>();
-            for (SectionEntity sectionEntity : sectionEntities){
-                GetClassRoomDetailResponse.Section section = new GetClassRoomDetailResponse.Section();
-                section.setId(sectionEntity.getId());
-                section.setName(sectionEntity.getName());
-                section.setStatus(sectionEntity.getStatus()!=null?sectionEntity.getStatus().toString():null);
-                section.setDescription(sectionEntity.getDescription());
-                section.setIndex(sectionEntity.getIndex()!=null?sectionEntity.getIndex():0);
+            return requestCoalescer.load(INVITE_DETAIL, invitationCode, HOT_READ_TTL,
+                    () -> loadClassRoomByInvitationCode(invitationCode));
+        }
+        catch (Exception e){
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    private GetClassRoomDetailResponse loadClassRoomByInvitationCode(String invitationCode) {
+        ClassRoomEntity classRoomEntity = classRoomRepository.findClassRoomEntityByInviteCode(invitationCode);
+        if (classRoomEntity==null){
+            throw new IllegalArgumentException("ClassRoom is not found");
+        }
+        List<String> status =new ArrayList<>();
+        status.add("PUBLIC");
+        GetClassRoomDetailResponse resData = new GetClassRoomDetailResponse();
+        Pageable pageAble = PageRequest.of(0, 15);
+        resData.setId(classRoomEntity.getId());
+        resData.setName(classRoomEntity.getName());
+        resData.setDescription(classRoomEntity.getDescription());
+        resData.setImage(classRoomEntity.getImage());
+        resData.setCurrentEnrollment(classRoomEntity.getCurrentEnrollment());
+        resData.setInviteCode(classRoomEntity.getInviteCode());
+        resData.setCategoryId(classRoomEntity.getCategoryId());
+        if (classRoomEntity.getCategoryId() != null) {
+            resData.setCategoryName(categoryRepository.findById(classRoomEntity.getCategoryId())
+                    .orElse(null).getName());
+        }
+        resData.setStatus(classRoomEntity.getStatus());
+        resData.setTeacherId(classRoomEntity.getTeacherId());
+        resData.setCreatedAt(classRoomEntity.getCreatedAt());
+        resData.setUpdatedAt(classRoomEntity.getUpdatedAt());
+        TeacherEntity teacher = teacherRepository.findById(resData.getTeacherId())
+                .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
+        UserEntity user = userRepository.findById(teacher.getUserId())
+                .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
+        teacher.setUser(null);
+        user.setTeacher(teacher);
+        Page<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classRoomEntity.getId(),pageAble,status);
+        List<GetClassRoomDetailResponse.Section> sections = new ArrayList<>();
+        for (SectionEntity sectionEntity : sectionEntities){
+            GetClassRoomDetailResponse.Section section = new GetClassRoomDetailResponse.Section();
+            section.setId(sectionEntity.getId());
+            section.setName(sectionEntity.getName());
+            section.setStatus(sectionEntity.getStatus()!=null?sectionEntity.getStatus().toString():null);
+            section.setDescription(sectionEntity.getDescription());
+            section.setIndex(sectionEntity.getIndex()!=null?sectionEntity.getIndex():0);
 //                List<LessonEntity> lessons = lessonRepository.findBySectionId(sectionEntity.getId());
 //                List<GetLessonDetailResponse> lessonDetails = new ArrayList<>();
 //                for (LessonEntity lesson : lessons){
@@ -565,22 +596,18 @@ public class ClassRoomService implements IClassRoomService {
 //                    lessonDetails.add(lessonDetail);
 //                }
 //                section.setLessons(lessonDetails);
-                sections.add(section);
+            sections.add(section);
 
-            }
-            resData.setSections(sections);
-            return resData;
-        }
-        catch (Exception e){
-            throw new IllegalArgumentException(e.getMessage());
         }
+        resData.setSections(sections);
+        return resData;
     }
 
     @Override
     public GetClassRoomDetailResponse getClassRoomDetail(String classroomId,String role,String userId) {
        try{
-              ClassRoomEntity classRoomEntity = classRoomRepository.findById(classroomId)
-                      .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
+              ClassRoomHeader header = requestCoalescer.load(CLASSROOM_HEADER, classroomId, HOT_READ_TTL,
+                      () -> loadClassRoomHeader(classroomId));
               List<String> status =new ArrayList<>();
               status.add("PUBLIC");
               if (role.equals("TEACHER")){
@@ -589,66 +616,44 @@ public class ClassRoomService implements IClassRoomService {
 
                 GetClassRoomDetailResponse resData = new GetClassRoomDetailResponse();
                 Pageable pageAble = PageRequest.of(0, 15);
-                resData = modelMapperService.mapClass(classRoomEntity, GetClassRoomDetailResponse.class);
-                resData.setCategoryId(classRoomEntity.getCategoryId());
-                if (classRoomEntity.getCategoryId() != null) {
-                    resData.setCategoryName(categoryRepository.findById(classRoomEntity.getCategoryId())
-                            .orElse(null).getName());
-                }
-
-                //                resData.setId(classRoomEntity.getId());
-//                resData.setName(classRoomEntity.getName());
-//                resData.setDescription(classRoomEntity.getDescription());
-//                resData.setImage(classRoomEntity.getImage());
-//                resData.setEnrollmentCapacity(classRoomEntity.getEnrollmentCapacity());
-//                resData.setCurrentEnrollment(classRoomEntity.getCurrentEnrollment());
-//                resData.setInviteCode(classRoomEntity.getInviteCode());
-//                resData.setStatus(classRoomEntity.getStatus());
-//                resData.setTeacherId(classRoomEntity.getTeacherId());
-//                resData.setCreatedAt(classRoomEntity.getCreatedAt());
-//                resData.setUpdatedAt(classRoomEntity.getUpdatedAt());
-           TeacherEntity teacher = teacherRepository.findById(resData.getTeacherId())
-                   .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-           UserEntity user = userRepository.findById(teacher.getUserId())
-                   .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
-           teacher.setUser(null);
-           user.setTeacher(teacher);
+                resData = modelMapperService.mapClass(header.getClassRoom(), GetClassRoomDetailResponse.class);
+                resData.setCategoryId(header.getClassRoom().getCategoryId());
+                resData.setCategoryName(header.getCategoryName());
                 StudentEnrollmentsEntity studentEnrollmentsEntity = studentEnrollmentsRepository.findByStudentIdAndClassroomId(userId, classroomId);
                 resData.setEnrolled(studentEnrollmentsEntity != null);
-                Page<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classroomId,pageAble,status);
+                CurriculumSnapshot curriculum = curriculumSnapshotCache.get(classroomId);
+                ProgressBitmapService.StudentProgress progress = progressBitmapService.load(curriculum, userId);
+                List<CurriculumSnapshot.SectionNode> sectionNodes = curriculum.getSections(status).stream()
+                        .limit(pageAble.getPageSize())
+                        .toList();
                 List<GetClassRoomDetailResponse.Section> sections = new ArrayList<>();
-                for (SectionEntity sectionEntity : sectionEntities){
+                for (CurriculumSnapshot.SectionNode sectionNode : sectionNodes){
+                    SectionEntity sectionEntity = sectionNode.getSection();
                     GetClassRoomDetailResponse.Section section = new GetClassRoomDetailResponse.Section();
                     section.setId(sectionEntity.getId());
                     section.setName(sectionEntity.getName());
                     section.setStatus(sectionEntity.getStatus() != null ? sectionEntity.getStatus().toString() : null);
                     section.setDescription(sectionEntity.getDescription());
-                    section.setIndex(sectionEntity.getIndex()!=null?sectionEntity.getIndex():0);
-                    SectionEntity previousSection = sectionRepository.findByClassRoomIdAndIndex(classroomId, section.getIndex() - 1);
+                    section.setIndex(sectionNode.getIndex());
+                    CurriculumSnapshot.SectionNode previousSection = curriculum.getSectionAt(section.getIndex() - 1);
                     if (section.getIndex()==0||role.equals("TEACHER")){
                         section.setCanAccess(true);
                     }else if (previousSection == null) {
                         section.setCanAccess(false);
                     }else{
-                        section.setCanAccess(progressRepository.existsByStudentIdAndClassroomIdAndSectionIdAndCompleted(userId, classroomId, previousSection.getId(), true));
+                        section.setCanAccess(progress.isSectionComplete(previousSection.getSection().getId()));
                     }
-                    section.setIsComplete(progressRepository.existsByStudentIdAndClassroomIdAndSectionIdAndCompleted(userId, classroomId, sectionEntity.getId(), true));
+                    section.setIsComplete(progress.isSectionComplete(sectionEntity.getId()));
                     sections.add(section);
 
                 }
                 resData.setSections(sections);
 
-           List<String> lessonIds = new ArrayList<>();
-           for (SectionEntity sectionEntity : sectionEntities) {
-               List<LessonEntity> lessonEntities = lessonRepository.findBySectionId(sectionEntity.getId());
-               for (LessonEntity lessonEntity : lessonEntities) {
-                   lessonIds.add(lessonEntity.getId());
-               }
+           int countComplete = 0;
+           for (CurriculumSnapshot.SectionNode sectionNode : sectionNodes) {
+               countComplete += progress.countCompletedLessons(sectionNode);
            }
-           List<ProgressEntity> countComplete = progressRepository.findByClassroomIdAndLessonIdInAndCompletedAndStudentId(
-                   resData.getId(), lessonIds, true, userId
-           );
-           resData.setTotalLessonComplete(countComplete.size());
+           resData.setTotalLessonComplete(countComplete);
                 return resData;
 
        }
@@ -657,6 +662,28 @@ public class ClassRoomService implements IClassRoomService {
          }
     }
 
+    private ClassRoomHeader loadClassRoomHeader(String classroomId) {
+        ClassRoomEntity classRoomEntity = classRoomRepository.findById(classroomId)
+                .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
+        String categoryName = null;
+        if (classRoomEntity.getCategoryId() != null) {
+            categoryName = categoryRepository.findById(classRoomEntity.getCategoryId())
+                    .orElse(null).getName();
+        }
+        TeacherEntity teacher = teacherRepository.findById(classRoomEntity.getTeacherId())
+                .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
+        userRepository.findById(teacher.getUserId())
+                .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
+        return new ClassRoomHeader(classRoomEntity, categoryName);
+    }
+
+    private void evictHotReads(ClassRoomEntity classRoom) {
+        requestCoalescer.invalidate(CLASSROOM_HEADER, classRoom.getId());
+        if (classRoom.getInviteCode() != null) {
+            requestCoalescer.invalidate(INVITE_DETAIL, classRoom.getInviteCode());
+        }
+    }
+
     @Override
     public void importClassRoom(ImportClassRoomRequest body) {
         try{
@@ -672,6 +699,7 @@ public class ClassRoomService implements IClassRoomService {
                 classRoomEntity.setDescription(row.get(1));
 
                 classRoomEntity.setTeacherId(row.get(4));
+                classRoomEntity.setShuffleKey(ThreadLocalRandom.current().nextDouble());
 
                 classRoomEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
                 classRoomEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
@@ -690,6 +718,7 @@ public class ClassRoomService implements IClassRoomService {
             int skip = page * size;
             List<RecentClassDTO> classRooms = new ArrayList<>();
             long totalElements = 0;
+            recentClassBuffer.flushUser(userId);
             if (role.equals("USER")){
                 classRooms = recentClassRepository.findRecentClassesByStudentId(userId, skip, size);
                 totalElements = recentClassRepository.countRecentClassesByStudentId(userId);
@@ -711,8 +740,6 @@ public class ClassRoomService implements IClassRoomService {
                 resClassRoom.setClassRoom(classRoomRepository.findById(classRoom.getClassId())
                         .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND)));
                 resClassRoom.setLastAccessedAt(classRoom.getLastAccessedAt());
-                int count = studentEnrollmentsRepository.countByClassroomId(classRoom.getClassId());
-                resClassRoom.getClassRoom().setCurrentEnrollment(count);
                 data.add(resClassRoom);
             }
             resData.setData(data);
@@ -838,9 +865,8 @@ public class ClassRoomService implements IClassRoomService {
                 throw new IllegalArgumentException("Student is not enrolled in this class");
             }
             studentEnrollmentsRepository.delete(studentEnrollmentsEntity);
-            if (classRoom.getCurrentEnrollment() - 1>=0)
-                classRoom.setCurrentEnrollment(classRoom.getCurrentEnrollment() - 1);
-            classRoomRepository.save(classRoom);
+            classRoomStatsService.enrollmentRemoved(classroomId);
+            teacherRollupService.enrollmentRemoved(classroomId);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -1059,20 +1085,19 @@ public class ClassRoomService implements IClassRoomService {
             GetClassRoomForAdminResponse resData = new GetClassRoomForAdminResponse();
             Pageable pageAble = PageRequest.of(0, 15);
             resData.setClassRoom(classRoomEntity);
-            Page<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classroomId,pageAble,status);
+            CurriculumSnapshot curriculum = curriculumSnapshotCache.get(classroomId);
             List<GetClassRoomForAdminResponse.Section> sections = new ArrayList<>();
-            for (SectionEntity sectionEntity : sectionEntities){
+            for (CurriculumSnapshot.SectionNode sectionNode : curriculum.getSections(status).stream().limit(pageAble.getPageSize()).toList()){
+                SectionEntity sectionEntity = sectionNode.getSection();
                 GetClassRoomForAdminResponse.Section section =new  GetClassRoomForAdminResponse.Section();
                 section.setId(sectionEntity.getId());
                 section.setName(sectionEntity.getName());
                 section.setStatus(sectionEntity.getStatus() != null ? sectionEntity.getStatus().toString() : null);
                 section.setDescription(sectionEntity.getDescription());
-                section.setIndex(sectionEntity.getIndex()!=null?sectionEntity.getIndex():0);
-                    List<LessonEntity> lessons = lessonRepository.findBySectionId(sectionEntity.getId(),Sort.by(Sort.Direction.ASC,"index"),status);
+                section.setIndex(sectionNode.getIndex());
                     List<GetLessonDetailResponse> lessonDetails = new ArrayList<>();
-                    for (LessonEntity lesson : lessons){
-                        GetLessonDetailResponse lessonDetail = lessonRepository.getLessonWithResourcesAndMediaAndSubstances(lesson.getId());
-                        lessonDetails.add(lessonDetail);
+                    for (CurriculumSnapshot.LessonNode lessonNode : sectionNode.getLessons(status)){
+                        lessonDetails.add(curriculumSnapshotCache.toLessonDetail(lessonNode));
                     }
                     section.setLessons(lessonDetails);
                 sections.add(section);
@@ -1122,9 +1147,10 @@ public class ClassRoomService implements IClassRoomService {
             }
             TeacherEntity teacherEntity = teacherRepository.findById(classRoomEntity.getTeacherId()).get();
             ids.add(teacherEntity.getUserId());
-            notificationService.createNotification(notificationEntity,ids);
+            notificationService.createClassroomNotification(notificationEntity, ids, classroomId, null);
 
             classRoomRepository.save(classRoomEntity);
+            evictHotReads(classRoomEntity);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -1149,15 +1175,13 @@ public class ClassRoomService implements IClassRoomService {
                     .collect(Collectors.toList());
 
             long totalReviews = reviewPage.getTotalElements();
-            List<ReviewEntity> allReviews = reviewRepository.findByClassroomId(classroomId);
-            double averageRating = allReviews.stream()
-                    .mapToDouble(ReviewEntity::getRating)
-                    .average()
-                    .orElse(0.0);
+            ClassRoomEntity classRoom = classRoomRepository.findById(classroomId)
+                    .orElseThrow(() -> new CustomException(ErrorConstant.NOT_FOUND));
             GetClassRoomRankinResponse response = new GetClassRoomRankinResponse();
             response.setTotalElement(totalReviews);
             response.setTotalPage(reviewPage.getTotalPages());
-            response.setAverageRating(averageRating);
+            response.setAverageRating(ClassRoomStatsService.averageRating(classRoom));
+            response.setRatingHistogram(classRoom.getRatingHistogram());
             response.setTotalReview((int) totalReviews);
             response.setData(reviews);
 
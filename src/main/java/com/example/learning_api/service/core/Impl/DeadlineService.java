@@ -13,7 +13,9 @@ import com.example.learning_api.enums.*;
 import com.example.learning_api.quartz.Schedules.DeadlineSchedulerService;
 import com.example.learning_api.repository.database.*;
 import com.example.learning_api.service.common.CloudinaryService;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.NotificationInbox;
 import com.example.learning_api.service.core.IDeadlineService;
 import com.example.learning_api.service.core.INotificationService;
 import com.example.learning_api.utils.ImageUtils;
@@ -50,9 +52,10 @@ public class DeadlineService implements IDeadlineService {
     private final ScoringCriteriaRepository scoringCriteriaRepository;
     private final DeadlineSubmissionsRepository deadlineSubmissionsRepository;
     private final NotificationRepository notificationRepository;
-    private final NotificationReceiveRepository notificationReceiveRepository;
+    private final NotificationInbox notificationInbox;
     private final INotificationService notificationService;
     private final DeadlineSchedulerService deadlineSch;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
     public void processFiles (List<MultipartFile> files,String title, DeadlineEntity deadlineEntity){
             if (files == null) {
             return;
@@ -141,6 +144,7 @@ public class DeadlineService implements IDeadlineService {
             notificationEntity.setPriority(NotificationPriority.NORMAL);
             notificationEntity.setTargetUrl(deadlineEntity.getId());
             processFiles(body.getFiles(),body.getTitle(),deadlineEntity);
+            curriculumSnapshotCache.invalidate(classRoomEntity.getId());
 
             List<String> studentId = studentEnrollmentsRepository.findStudentsNotTakenDeadline(classRoomEntity.getId(), deadlineEntity.getId());
             List<String> userIds = new ArrayList<>();
@@ -184,6 +188,7 @@ public class DeadlineService implements IDeadlineService {
             processFiles(body.getFiles(),body.getTitle(),deadlineEntity);
             deadlineEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             deadlineRepository.save(deadlineEntity);
+            curriculumSnapshotCache.invalidateByLesson(deadlineEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in updateDeadline: ", e);
@@ -199,11 +204,11 @@ public class DeadlineService implements IDeadlineService {
                 throw new IllegalArgumentException("DeadlineId is not found");
             }
             List<NotificationEntity> notificationEntity = notificationRepository.findByAuthorId(deadlineId);
-            for (NotificationEntity notification : notificationEntity){
-                notificationReceiveRepository.deleteByNotificationId(notification.getId());
-            }
-            notificationRepository.deleteAllById(notificationEntity.stream().map(NotificationEntity::getId).collect(Collectors.toList()));
+            List<String> notificationIds = notificationEntity.stream().map(NotificationEntity::getId).collect(Collectors.toList());
+            notificationInbox.deleteByNotificationIds(notificationIds);
+            notificationRepository.deleteAllById(notificationIds);
             deadlineRepository.deleteById(deadlineId);
+            curriculumSnapshotCache.invalidateByLesson(deadlineEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in deleteDeadline: ", e);
@@ -224,6 +229,7 @@ public class DeadlineService implements IDeadlineService {
             scoringCriteriaRepository.save(scoringCriteriaEntity);
             deadlineEntity.setUseScoringCriteria(true);
             deadlineRepository.save(deadlineEntity);
+            curriculumSnapshotCache.invalidateByLesson(deadlineEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in createScoringCriteria: ", e);
@@ -270,6 +276,7 @@ public class DeadlineService implements IDeadlineService {
                 if (deadlineEntity != null){
                     deadlineEntity.setUseScoringCriteria(false);
                     deadlineRepository.save(deadlineEntity);
+                    curriculumSnapshotCache.invalidateByLesson(deadlineEntity.getLessonId());
                 }
             }
         }
@@ -1,12 +1,15 @@
 package com.example.learning_api.service.core.Impl;
 
+import com.example.learning_api.dto.common.CurriculumSnapshot;
 import com.example.learning_api.dto.request.lesson.CreateLessonRequest;
 import com.example.learning_api.dto.request.lesson.UpdateLessonRequest;
 import com.example.learning_api.dto.response.lesson.GetLessonDetailResponse;
 import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.*;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.ProgressBitmapService;
 import com.example.learning_api.service.core.ILessonService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,11 +35,12 @@ public class LessonService implements ILessonService {
     private final SubstanceRepository substanceRepository;
     private final ResourceRepository resourceRepository;
     private final DeadlineRepository deadlineRepository;
-    private final FileRepository fileRepository;
     private final TestService testService;
     private final StudentEnrollmentsRepository studentEnrollmentsRepository;
     private final StudentRepository studentRepository;
     private final NotificationService notificationService;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
+    private final ProgressBitmapService progressBitmapService;
 
     @Override
     public void createLesson(CreateLessonRequest createLessonRequest) {
@@ -146,6 +150,7 @@ public class LessonService implements ILessonService {
                 deadlineRepository.save(deadlineEntity);
             }
             classRoomRepository.save(classRoomEntity);
+            curriculumSnapshotCache.invalidate(classRoomEntity.getId());
             NotificationEntity notificationEntity = new NotificationEntity();
             notificationEntity.setNotificationSettingId("674473d53e126c2148ce1ac8");
             notificationEntity.setTitle("New Content Created in " + classRoomEntity.getName());
@@ -160,7 +165,7 @@ public class LessonService implements ILessonService {
                 if (studentEntity!=null)
                     userIds.add(studentEntity.getUserId());
             }
-            notificationService.createNotification(notificationEntity, userIds);
+            notificationService.createClassroomNotification(notificationEntity, userIds, classRoomEntity.getId(), RoleEnum.USER);
         }
 
         catch (Exception e){
@@ -302,6 +307,7 @@ public class LessonService implements ILessonService {
             lessonEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             lessonRepository.save(lessonEntity);
             classRoomRepository.save(classRoomEntity);
+            curriculumSnapshotCache.invalidate(classRoomEntity.getId());
         }
         catch (Exception e){
             log.error(e.getMessage());
@@ -347,6 +353,7 @@ public class LessonService implements ILessonService {
             }
             classRoomRepository.save(classRoomEntity);
             lessonRepository.deleteById(id);
+            curriculumSnapshotCache.invalidate(classRoomEntity.getId());
         }
         catch (Exception e){
             log.error(e.getMessage());
@@ -357,18 +364,13 @@ public class LessonService implements ILessonService {
     @Override
     public GetLessonDetailResponse getLessonWithResourcesAndMediaAndSubstances(String id) {
         try {
-            GetLessonDetailResponse getLessonDetailResponse = lessonRepository.getLessonWithResourcesAndMediaAndSubstances(id);
-            List<TestEntity> quiz = testRepository.findByLessonIdAndShowResultType(id, TestShowResultType.SHOW_RESULT_IMMEDIATELY.toString());
-            List<TestEntity> exam = testRepository.findByLessonIdAndShowResultType(id, TestShowResultType.SHOW_RESULT_AFTER_TEST.toString());
-            if (getLessonDetailResponse==null){
+            LessonEntity lessonEntity = lessonRepository.findById(id).orElseThrow(()->new IllegalArgumentException("Lesson not found"));
+            SectionEntity sectionEntity = sectionRepository.findById(lessonEntity.getSectionId()).orElseThrow(()->new IllegalArgumentException("Section not found"));
+            CurriculumSnapshot.LessonNode lessonNode = curriculumSnapshotCache.get(sectionEntity.getClassRoomId()).getLesson(id);
+            if (lessonNode==null){
                 throw new IllegalArgumentException("Lesson not found");
             }
-            for (DeadlineEntity deadline : getLessonDetailResponse.getDeadlines()){
-                deadline.setFiles(fileRepository.findByOwnerIdAndOwnerType(deadline.getId(), FileOwnerType.DEADLINE.name()));
-            }
-            getLessonDetailResponse.setQuizzes(quiz);
-            getLessonDetailResponse.setExams(exam);
-            return getLessonDetailResponse;
+            return curriculumSnapshotCache.toLessonDetail(lessonNode);
         }
         catch (Exception e){
             log.error(e.getMessage());
@@ -387,37 +389,32 @@ public class LessonService implements ILessonService {
             else {
                 statuses.add(SectionStatus.PUBLIC.toString());
             }
-            List<LessonEntity> lessonEntities = lessonRepository.findBySectionId(sectionId, Sort.by(Sort.Direction.ASC, "index"),statuses);
+            Optional<SectionEntity> sectionEntity = sectionRepository.findById(sectionId);
+            if (sectionEntity.isEmpty()){
+                return new ArrayList<>();
+            }
+            String classroomId = sectionEntity.get().getClassRoomId();
+            CurriculumSnapshot curriculum = curriculumSnapshotCache.get(classroomId);
+            CurriculumSnapshot.SectionNode sectionNode = curriculum.getSection(sectionId);
+            if (sectionNode==null){
+                return new ArrayList<>();
+            }
+            ProgressBitmapService.StudentProgress progress = progressBitmapService.load(curriculum, userId);
             List<GetLessonDetailResponse> getLessonDetailResponses = new ArrayList<>();
-            for (LessonEntity lessonEntity: lessonEntities){
-                GetLessonDetailResponse getLessonDetailResponse = lessonRepository.getLessonWithResourcesAndMediaAndSubstances(lessonEntity.getId());
-                for (DeadlineEntity deadline : getLessonDetailResponse.getDeadlines()){
-                    deadline.setFiles(fileRepository.findByOwnerIdAndOwnerType(deadline.getId(), FileOwnerType.DEADLINE.name()));
-                }
-                List<TestEntity> quiz = testRepository.findByLessonIdAndShowResultType(lessonEntity.getId(), TestShowResultType.SHOW_RESULT_IMMEDIATELY.toString());
-                List<TestEntity> exam = testRepository.findByLessonIdAndShowResultType(lessonEntity.getId(), TestShowResultType.SHOW_RESULT_AFTER_TEST.toString());
-                for (TestEntity testEntity : quiz){
-                    testEntity.setSources(fileRepository.findByOwnerIdAndOwnerType(testEntity.getId(),FileOwnerType.TEST.name()));
-                }
-                for (TestEntity testEntity : exam){
-                    testEntity.setSources(fileRepository.findByOwnerIdAndOwnerType(testEntity.getId(),FileOwnerType.TEST.name()));
-                }
-                getLessonDetailResponse.setQuizzes(quiz);
-                getLessonDetailResponse.setExams(exam);
+            for (CurriculumSnapshot.LessonNode lessonNode: sectionNode.getLessons(statuses)){
+                GetLessonDetailResponse getLessonDetailResponse = curriculumSnapshotCache.toLessonDetail(lessonNode);
 
-                LessonEntity previousLesson = lessonRepository.findBySectionIdAndIndex(sectionId,lessonEntity.getIndex()-1);
-                Optional<SectionEntity> sectionEntity = sectionRepository.findById(sectionId);
-                if (lessonEntity.getIndex()==0||role.equals("TEACHER")){
+                CurriculumSnapshot.LessonNode previousLesson = sectionNode.getLessonAt(lessonNode.getIndex()-1);
+                if (lessonNode.getIndex()==0||role.equals("TEACHER")){
                     getLessonDetailResponse.setCanAccess(true);
                 } else if (previousLesson==null) {
                     getLessonDetailResponse.setCanAccess(false);
 
                 }else{
-                    getLessonDetailResponse.setCanAccess(progressRepository.existsByStudentIdAndClassroomIdAndLessonIdAndCompleted(userId,sectionEntity.get().getClassRoomId(),previousLesson.getId(),true));
+                    getLessonDetailResponse.setCanAccess(progress.isLessonComplete(previousLesson.getLesson().getId()));
                 }
-                getLessonDetailResponse.setType(lessonEntity.getType().toString());
 
-                getLessonDetailResponse.setIsComplete(progressRepository.existsByStudentIdAndClassroomIdAndLessonIdAndCompleted(userId,sectionEntity.get().getClassRoomId(),lessonEntity.getId(),true));
+                getLessonDetailResponse.setIsComplete(progress.isLessonComplete(lessonNode.getLesson().getId()));
 
                 getLessonDetailResponses.add(getLessonDetailResponse);
             }
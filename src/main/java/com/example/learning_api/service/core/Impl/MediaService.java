@@ -11,6 +11,7 @@ import com.example.learning_api.dto.response.media.GetMediaResponse;
 import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.RoleEnum;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.CloudinaryService;
 import com.example.learning_api.service.common.ModelMapperService;
 import com.example.learning_api.service.core.IMediaService;
@@ -48,6 +49,7 @@ public class MediaService implements IMediaService {
     private final ClassRoomRepository classroomRepository;
     private final TeacherRepository teacherRepository;
     private final StudentRepository studentRepository;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
     @Override
     public void createMedia(CreateMediaRequest body) {
         try {
@@ -109,6 +111,7 @@ public class MediaService implements IMediaService {
             mediaEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             mediaEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             mediaRepository.save(mediaEntity);
+            curriculumSnapshotCache.invalidate(sectionEntity.getClassRoomId());
         } catch (Exception e) {
             log.error("Error in createMedia: ", e);
             throw new IllegalArgumentException(e.getMessage());
@@ -117,10 +120,9 @@ public class MediaService implements IMediaService {
     @Override
     public void deleteMedia(String mediaId) {
         try{
-            if (mediaRepository.findById(mediaId ).isEmpty()){
-                throw new IllegalArgumentException("MediaId is not found");
-            }
+            MediaEntity mediaEntity = mediaRepository.findById(mediaId).orElseThrow(()->new IllegalArgumentException("MediaId is not found"));
             mediaRepository.deleteById(mediaId);
+            curriculumSnapshotCache.invalidateByLesson(mediaEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in deleteMedia: ", e);
@@ -161,6 +163,7 @@ public class MediaService implements IMediaService {
             }
             mediaEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             mediaRepository.save(mediaEntity);
+            curriculumSnapshotCache.invalidateByLesson(mediaEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in updateMedia: ", e);
@@ -2,33 +2,30 @@ package com.example.learning_api.service.core.Impl;
 
 import com.example.learning_api.dto.request.notification.SendNotificationRequest;
 import com.example.learning_api.dto.request.notification.UpdateUserNotificationSettingRequest;
+import com.example.learning_api.dto.common.NotificationInboxCursor;
+import com.example.learning_api.dto.response.notification.GetNotificationInboxResponse;
 import com.example.learning_api.dto.response.notification.GetUserNotificationResponse;
+import com.example.learning_api.dto.response.notification.MarkNotificationsSeenResponse;
 import com.example.learning_api.dto.response.notification.NotificationResponse;
 import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.NotificationFormType;
 import com.example.learning_api.enums.RoleEnum;
 import com.example.learning_api.model.CustomException;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.MailOutbox;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.NotificationBroadcaster;
+import com.example.learning_api.service.common.NotificationFanoutPlanner;
+import com.example.learning_api.service.common.NotificationInbox;
 import com.example.learning_api.service.core.INotificationService;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,10 +33,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService implements INotificationService {
-    @Value("${spring.mail.username}")
-    private String mailFrom;
-    @Autowired
-    private SpringTemplateEngine templateEngine;
+    private static final int MAX_MARK_SEEN = 500;
     @Autowired
     @Lazy
     private PasswordEncoder passwordEncoder;
@@ -47,20 +41,35 @@ public class NotificationService implements INotificationService {
     private final NotificationReceiveRepository notificationReceiveRepository;
     private final NotificationSettingsRepository notificationSettingsRepository;
     private final UserNotificationSettingsRepository userNotificationSettingsRepository;
-    private final SimpMessagingTemplate messagingTemplate;
-    private final JavaMailSender javaMailSender;
-    private final UserRepository userRepository;
     private final StudentEnrollmentsRepository studentEnrollmentsRepository;
     private final StudentRepository studentRepository;
     private final ModelMapperService modelMapperService;
+    private final NotificationFanoutPlanner notificationFanoutPlanner;
+    private final MailOutbox mailOutbox;
+    private final NotificationBroadcaster notificationBroadcaster;
+    private final NotificationInbox notificationInbox;
     // 1. Tạo notification mới
     @Transactional
     @Override
     public NotificationResponse createNotification(NotificationEntity notification, List<String> receiverIds) {
+        return createNotification(notification, receiverIds, null, null);
+    }
+
+    // 1b. Tạo notification cho cả lớp (hoặc một role trong lớp): realtime gửi một lần qua topic của lớp
+    @Transactional
+    @Override
+    public NotificationResponse createClassroomNotification(NotificationEntity notification, List<String> receiverIds,
+                                                            String classroomId, RoleEnum role) {
+        if (classroomId == null) {
+            throw new IllegalArgumentException("Classroom id is required");
+        }
+        return createNotification(notification, receiverIds, classroomId, role);
+    }
+
+    private NotificationResponse createNotification(NotificationEntity notification, List<String> receiverIds,
+                                                    String classroomId, RoleEnum role) {
         // Validate notification settings
-        NotificationSettingsEntity settings = notificationSettingsRepository
-                .findById(notification.getNotificationSettingId())
-                .orElseThrow(() -> new RuntimeException("Notification settings not found"));
+        NotificationSettingsEntity settings = notificationFanoutPlanner.getSettings(notification.getNotificationSettingId());
 
         // Validate receivers against allowed roles (if specified)
         if (settings.getAllowedRoles() != null && !settings.getAllowedRoles().isEmpty()) {
@@ -71,17 +80,17 @@ public class NotificationService implements INotificationService {
         // Kiểm tra frequency limit
         Boolean check = validateNotificationFrequency(notification.getAuthorId(), settings);
         if (check) {
-            // Filter receivers based on their notification preferences
-            List<String> filteredReceivers = filterReceiversByPreferences(receiverIds, notification.getNotificationSettingId());
+            // Filter receivers and pick their delivery method from their preferences in one pass
+            Map<String, String> plan = notificationFanoutPlanner.plan(receiverIds, settings);
 
             // Lưu notification
-            notification.setTotalReceivers(filteredReceivers.size());
+            notification.setTotalReceivers(plan.size());
             notification.setType(NotificationFormType.valueOf(settings.getNotificationType()));
             NotificationEntity savedNotification = notificationRepository.save(notification);
 
             // Tạo notification receive cho từng user với delivery method từ preferences
-            List<NotificationReceiveEntity> receives = createNotificationReceives(filteredReceivers, savedNotification, settings);
-            notificationReceiveRepository.saveAll(receives);
+            List<NotificationReceiveEntity> receives = createNotificationReceives(plan, savedNotification);
+            notificationInbox.deliver(receives);
             NotificationResponse notificationResponse = NotificationResponse.builder()
                     .id(savedNotification.getId())
                     .title(savedNotification.getTitle())
@@ -99,13 +108,14 @@ public class NotificationService implements INotificationService {
                     .totalReceivers(savedNotification.getTotalReceivers())
                     .receiversId(receives.stream().map(NotificationReceiveEntity::getUserId).collect(Collectors.toList()))
                     .build();
-            // Send real-time WebSocket notification to each receiver
-            notificationResponse.getReceiversId().forEach(userId -> {
-                messagingTemplate.convertAndSend(
-                        "/topic/notifications/" + userId,
-                        notification
-                );
-            });
+            // Send real-time WebSocket notification, serialized once
+            if (classroomId != null) {
+                if (!plan.isEmpty()) {
+                    notificationBroadcaster.toClassroom(classroomId, role, notification);
+                }
+            } else {
+                notificationBroadcaster.toUsers(notificationResponse.getReceiversId(), notification);
+            }
             return notificationResponse;
         }
         return null;
@@ -114,23 +124,8 @@ public class NotificationService implements INotificationService {
     // 2. Filter receivers dựa trên preferences của họ
     @Override
     public List<String> filterReceiversByPreferences(List<String> receiverIds, String notificationSettingId) {
-        return receiverIds.stream()
-                .filter(userId -> {
-                    UserNotificationSettingsEntity userSettings = userNotificationSettingsRepository
-                            .findByUserIdAndNotificationSettingId(userId, notificationSettingId)
-                            .orElse(null);
-
-                    // Nếu user chưa có settings, dùng default từ notification settings
-                    if (userSettings == null) {
-                        NotificationSettingsEntity settings = notificationSettingsRepository
-                                .findById(notificationSettingId)
-                                .orElseThrow(() -> new RuntimeException("Notification settings not found"));
-                        return settings.getEnabledByDefault();
-                    }
-
-                    return userSettings.getEnabled();
-                })
-                .collect(Collectors.toList());
+        NotificationSettingsEntity settings = notificationFanoutPlanner.getSettings(notificationSettingId);
+        return new ArrayList<>(notificationFanoutPlanner.plan(receiverIds, settings).keySet());
     }
 
     // 3. Tạo notification receives với delivery method phù hợp
@@ -139,27 +134,30 @@ public class NotificationService implements INotificationService {
             List<String> receiverIds,
             NotificationEntity notification,
             NotificationSettingsEntity settings) {
-        List<NotificationReceiveEntity> receives = new ArrayList<>();
-        for (String userId : receiverIds) {
-            String deliveryMethod = determineDeliveryMethod(userId, settings);
-            if (deliveryMethod.equals("email")) {
-                sendNotificationByEmail(notification, userId);
+        return createNotificationReceives(notificationFanoutPlanner.deliveryMethods(receiverIds, settings), notification);
+    }
+
+    private List<NotificationReceiveEntity> createNotificationReceives(Map<String, String> deliveryMethods, NotificationEntity notification) {
+        List<NotificationReceiveEntity> receives = new ArrayList<>(deliveryMethods.size());
+        List<String> emailReceivers = new ArrayList<>();
+        deliveryMethods.forEach((userId, deliveryMethod) -> {
+            if ("email".equals(deliveryMethod)) {
+                emailReceivers.add(userId);
             } else {
                 receives.add(NotificationReceiveEntity.builder()
                         .notificationId(notification.getId())
                         .userId(userId)
                         .build());
             }
-        }
+        });
+        sendNotificationByEmail(notification, emailReceivers);
         return receives;
     }
+
     // 4. Xác định delivery method cho user
     @Override
     public String determineDeliveryMethod(String userId, NotificationSettingsEntity settings) {
-        return userNotificationSettingsRepository
-                .findByUserIdAndNotificationSettingId(userId, settings.getId())
-                .map(UserNotificationSettingsEntity::getDeliveryMethod)
-                .orElse(settings.getDeliveryMethods().get(0)); // Use first available method as default
+        return notificationFanoutPlanner.deliveryMethods(List.of(userId), settings).get(userId);
     }
 
     // 5. Lấy thống kê notification theo settings
@@ -177,62 +175,58 @@ public class NotificationService implements INotificationService {
         return stats;
     }
     // 2. Đánh dấu notification đã đọc
-    @Transactional
     @Override
     public void markNotificationAsSeen(String userId, String notificationId) {
-        NotificationReceiveEntity receive = notificationReceiveRepository
-                .findByUserIdAndNotificationId(userId, notificationId)
-                .orElseThrow(() -> new RuntimeException("Notification receive not found"));
-
-        if (!receive.getSeen()) {
-            receive.setSeen(true);
-            receive.setSeenAt(String.valueOf(System.currentTimeMillis()));
-            notificationReceiveRepository.save(receive);
-
-            // Update seen count trong notification
-            NotificationEntity notification = notificationRepository.findById(notificationId)
-                    .orElseThrow(() -> new RuntimeException("Notification not found"));
-            notification.setSeenCount(notification.getSeenCount() + 1);
-            notificationRepository.save(notification);
+        NotificationInbox.SeenResult result = notificationInbox.markSeen(userId, List.of(notificationId));
+        if (result.getMarked() == 0 && notificationReceiveRepository.findByUserIdAndNotificationId(userId, notificationId).isEmpty()) {
+            throw new RuntimeException("Notification receive not found");
+        }
+        notificationBroadcaster.unreadCount(userId, result.getUnreadCount());
+    }
+
+    // 2b. Đánh dấu nhiều notification đã đọc trong một lần ghi
+    @Override
+    public MarkNotificationsSeenResponse markNotificationsAsSeen(String userId, List<String> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            throw new IllegalArgumentException("Notification ids are required");
         }
+        if (notificationIds.size() > MAX_MARK_SEEN) {
+            throw new IllegalArgumentException("At most " + MAX_MARK_SEEN + " notifications can be marked at once");
+        }
+        NotificationInbox.SeenResult result = notificationInbox.markSeen(userId, notificationIds);
+        notificationBroadcaster.unreadCount(userId, result.getUnreadCount());
+        return new MarkNotificationsSeenResponse(notificationIds, result.getMarked(), result.getUnreadCount());
     }
 
     // 3. Lấy danh sách notification của user
     @Override
     public List<GetUserNotificationResponse> getUserNotifications(String userId, int page, int size) {
-        List<NotificationReceiveEntity> receives = notificationReceiveRepository
-                .findByUserIdOrderByReceivedAtDesc(userId);
-        List<GetUserNotificationResponse> response = new ArrayList<>();
-        Set<String> uniqueNotificationIds = new HashSet<>();
-
-        for (NotificationReceiveEntity receive : receives) {
-            if (uniqueNotificationIds.contains(receive.getNotificationId())) {
-                continue; // Skip if the notification ID is already processed
-            }
+        return notificationInbox.readPage(userId, page, size);
+    }
 
-            NotificationEntity notification = notificationRepository.findById(receive.getNotificationId())
-                    .orElseThrow(() -> new RuntimeException("Notification not found"));
-
-            GetUserNotificationResponse notificationResponse = new GetUserNotificationResponse();
-            notificationResponse.setId(notification.getId());
-            notificationResponse.setTitle(notification.getTitle());
-            notificationResponse.setMessage(notification.getMessage());
-            notificationResponse.setAuthorId(notification.getAuthorId());
-            notificationResponse.setAuthorRole(notification.getAuthorRole());
-            notificationResponse.setNotificationSettingId(notification.getNotificationSettingId());
-            notificationResponse.setStatus(notification.getStatus());
-            notificationResponse.setPriority(notification.getPriority());
-            notificationResponse.setExpiresAt(notification.getExpiresAt());
-            notificationResponse.setType(notification.getType());
-            notificationResponse.setTargetUrl(notification.getTargetUrl());
-            notificationResponse.setCreatedAt(notification.getCreatedAt());
-            notificationResponse.setUpdatedAt(notification.getUpdatedAt());
-            notificationResponse.setSeen(receive.getSeen());
-
-            response.add(notificationResponse);
-            uniqueNotificationIds.add(receive.getNotificationId());
-        }
-        return response;
+    // 3b. Hộp thư thông báo phân trang theo cursor, kèm số chưa đọc
+    @Override
+    public GetNotificationInboxResponse getNotificationInbox(String userId, String cursor, int size) {
+        NotificationInboxCursor position = cursor == null || cursor.isEmpty() ? null : notificationInbox.decode(cursor);
+        NotificationInbox.InboxPage inboxPage = notificationInbox.read(userId, position, size);
+        GetNotificationInboxResponse resData = new GetNotificationInboxResponse();
+        resData.setNotifications(inboxPage.getNotifications());
+        resData.setNextCursor(notificationInbox.encode(inboxPage.getNext()));
+        resData.setHasMore(inboxPage.getNext() != null);
+        resData.setUnreadCount(notificationInbox.unreadCount(userId));
+        return resData;
+    }
+
+    @Override
+    public int getUnreadNotificationCount(String userId) {
+        return notificationInbox.unreadCount(userId);
+    }
+
+    @Override
+    public MarkNotificationsSeenResponse markAllNotificationsAsSeen(String userId) {
+        NotificationInbox.SeenResult result = notificationInbox.markAllSeen(userId);
+        notificationBroadcaster.unreadCount(userId, result.getUnreadCount());
+        return new MarkNotificationsSeenResponse(null, result.getMarked(), result.getUnreadCount());
     }
 
     // 4. Cập nhật user notification settings
@@ -245,8 +239,7 @@ public class NotificationService implements INotificationService {
                         .userId(request.getUserId())
                         .notificationSettingId(request.getNotificationSettingId())
                         .build());
-        NotificationSettingsEntity notificationSettings = notificationSettingsRepository
-                .findById(request.getNotificationSettingId()).orElseThrow();
+        NotificationSettingsEntity notificationSettings = notificationFanoutPlanner.getSettings(request.getNotificationSettingId());
         settings.setNotificationSettingName(notificationSettings.getNotificationType());
         settings.setEnabled(request.getEnabled());
         settings.setDeliveryMethod(request.getDeliveryMethod());
@@ -293,18 +286,17 @@ public class NotificationService implements INotificationService {
     }
 
     @Override
-    @Async
     public void sendNotificationByEmailForClassroom(NotificationEntity request, String classroomId) {
         try {
             request.setNotificationSettingId("674473d53e126c2148ce1ada");
-            List<StudentEnrollmentsEntity> userIds = studentEnrollmentsRepository.findByClassroomId(classroomId);
-            for (StudentEnrollmentsEntity userId : userIds) {
-                StudentEntity student = studentRepository.findById(userId.getStudentId()).orElse(null);
-                if (student == null) {
-                    continue;
-                }
-                sendNotificationByEmail(request, student.getUserId());
+            List<String> studentIds = studentEnrollmentsRepository.findByClassroomId(classroomId).stream()
+                    .map(StudentEnrollmentsEntity::getStudentId)
+                    .toList();
+            List<String> userIds = new ArrayList<>();
+            for (StudentEntity student : studentRepository.findAllById(studentIds)) {
+                userIds.add(student.getUserId());
             }
+            sendNotificationByEmail(request, userIds);
         }
         catch (Exception e) {
             throw new CustomException( "Error while sending email");
@@ -342,30 +334,14 @@ public class NotificationService implements INotificationService {
         // Ví dụ: check role của mỗi receiver có trong allowedRoles không
     }
 
-    private void sendNotificationByEmail(NotificationEntity notification, String userId) {
-        try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-            UserEntity user = userRepository.findById(userId).orElse(null);
-            if (user == null) {
-                return;
-            }
-            MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, StandardCharsets.UTF_8.name());
-
-            Context context = new Context();
-            context.setVariable("title", notification.getTitle());
-            context.setVariable("body", notification.getMessage());
-            context.setVariable("toMail", user.getEmail());
-            String htmlContent = templateEngine.process("notification-email-template", context);
-
-            mimeMessageHelper.setFrom(mailFrom);
-            mimeMessageHelper.setTo(user.getEmail());
-            mimeMessageHelper.setText(htmlContent, true);
-            mimeMessageHelper.setSubject(notification.getTitle());
-
-            javaMailSender.send(mimeMessage);
-        } catch (MessagingException e) {
-            throw new CustomException("Error while sending email");
+    // Only queued here; the mail outbox renders and sends it
+    private void sendNotificationByEmail(NotificationEntity notification, List<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
         }
+        Map<String, String> variables = new HashMap<>();
+        variables.put("title", notification.getTitle());
+        variables.put("body", notification.getMessage());
+        mailOutbox.enqueueToUsers(userIds, notification.getTitle(), "notification-email-template", variables);
     }
-
 }
\ No newline at end of file
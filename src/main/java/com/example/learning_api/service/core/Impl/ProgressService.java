@@ -1,23 +1,23 @@
 package com.example.learning_api.service.core.Impl;
 
+import com.example.learning_api.dto.common.CurriculumSnapshot;
 import com.example.learning_api.dto.request.progress.ProgressCompleteRequest;
-import com.example.learning_api.entity.sql.database.LessonEntity;
 import com.example.learning_api.entity.sql.database.ProgressEntity;
-import com.example.learning_api.repository.database.LessonRepository;
 import com.example.learning_api.repository.database.ProgressRepository;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
+import com.example.learning_api.service.common.ProgressBitmapService;
 import com.example.learning_api.service.core.IProgressService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProgressService implements IProgressService {
     private final ProgressRepository progressRepository;
-    private final LessonRepository lessonRepository;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
+    private final ProgressBitmapService progressBitmapService;
     @Override
     public void markLessonAsCompleted(ProgressCompleteRequest body) {
         ProgressEntity progress = progressRepository.findByStudentIdAndClassroomIdAndLessonId(body.getStudentId(), body.getClassroomId(), body.getLessonId())
@@ -30,36 +30,33 @@ public class ProgressService implements IProgressService {
         progress.setCompletedAt(String.valueOf(System.currentTimeMillis()));
 
         progressRepository.save(progress);
-        LessonEntity lesson = lessonRepository.findById(body.getLessonId()).orElse(null);
+        CurriculumSnapshot curriculum = curriculumSnapshotCache.get(body.getClassroomId());
+        ProgressBitmapService.StudentProgress completion = progressBitmapService.markLessonCompleted(curriculum, body.getStudentId(), body.getLessonId());
+        CurriculumSnapshot.LessonNode lesson = curriculum.getLesson(body.getLessonId());
         if (lesson != null) {
-            String sectionId = lesson.getSectionId();
-            checkAndCompleteSection(body.getStudentId(), body.getClassroomId(), sectionId);
+            checkAndCompleteSection(curriculum, completion, body.getStudentId(), lesson.getLesson().getSectionId());
         }
     }
-    private void checkAndCompleteSection(String studentId, String classroomId, String sectionId) {
-        // Lấy tất cả các bài học thuộc section
-        List<LessonEntity> lessons = lessonRepository.findBySectionIdOrderByIndex(sectionId);
-
-        // Kiểm tra nếu tất cả các bài học đã được hoàn thành
-        boolean allLessonsCompleted = lessons.stream().allMatch(lesson ->
-                progressRepository.existsByStudentIdAndClassroomIdAndLessonIdAndCompleted(studentId, classroomId, lesson.getId(), true)
-        );
-
-        if (allLessonsCompleted) {
-            // Đánh dấu section là hoàn thành
-            ProgressEntity sectionProgress = progressRepository.findByStudentIdAndClassroomIdAndSectionId(studentId, classroomId, sectionId);
-            if (sectionProgress == null) {
-                sectionProgress = new ProgressEntity();
-            }
+    private void checkAndCompleteSection(CurriculumSnapshot curriculum, ProgressBitmapService.StudentProgress completion, String studentId, String sectionId) {
+        CurriculumSnapshot.SectionNode section = curriculum.getSection(sectionId);
+        // Các bài học của section nằm liền nhau trong bitmap nên chỉ cần một lần kiểm tra
+        if (section == null || completion.isSectionComplete(sectionId) || !completion.areAllLessonsComplete(section)) {
+            return;
+        }
+        // Đánh dấu section là hoàn thành
+        ProgressEntity sectionProgress = progressRepository.findByStudentIdAndClassroomIdAndSectionId(studentId, curriculum.getClassroomId(), sectionId);
+        if (sectionProgress == null) {
+            sectionProgress = new ProgressEntity();
+        }
 
-            sectionProgress.setStudentId(studentId);
-            sectionProgress.setClassroomId(classroomId);
-            sectionProgress.setSectionId(sectionId);
-            sectionProgress.setCompleted(true);
-            sectionProgress.setCompletedAt(String.valueOf(System.currentTimeMillis()));
+        sectionProgress.setStudentId(studentId);
+        sectionProgress.setClassroomId(curriculum.getClassroomId());
+        sectionProgress.setSectionId(sectionId);
+        sectionProgress.setCompleted(true);
+        sectionProgress.setCompletedAt(String.valueOf(System.currentTimeMillis()));
 
-            progressRepository.save(sectionProgress);
-        }
+        progressRepository.save(sectionProgress);
+        progressBitmapService.markSectionCompleted(curriculum, studentId, sectionId);
     }
 
     @Override
@@ -75,5 +72,6 @@ public class ProgressService implements IProgressService {
         progress.setCompletedAt(String.valueOf(System.currentTimeMillis()));
 
         progressRepository.save(progress);
+        progressBitmapService.markSectionCompleted(curriculumSnapshotCache.get(body.getClassroomId()), body.getStudentId(), body.getSectionId());
     }
 }
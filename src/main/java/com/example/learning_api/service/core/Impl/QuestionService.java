@@ -16,6 +16,7 @@ import com.example.learning_api.repository.database.AnswerRepository;
 import com.example.learning_api.repository.database.FileRepository;
 import com.example.learning_api.repository.database.QuestionRepository;
 import com.example.learning_api.repository.database.TestRepository;
+import com.example.learning_api.service.common.AnswerKeyCache;
 import com.example.learning_api.service.common.CloudinaryService;
 import com.example.learning_api.service.common.ModelMapperService;
 import com.example.learning_api.service.core.IQuestionService;
@@ -33,7 +34,9 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -47,6 +50,7 @@ public class QuestionService implements IQuestionService {
     private final AnswerRepository answerRepository;
     private final FileRepository fileRepository;
     private final TestService testService;
+    private final AnswerKeyCache answerKeyCache;
     public void progressSources(List<MultipartFile> sources, String content, FileEntity fileEntity, QuestionEntity questionEntity){
         if (sources == null) {
             return;
@@ -119,6 +123,7 @@ public class QuestionService implements IQuestionService {
         Integer maxIndex = questionRepository.findMaxIndexByTestId(body.getTestId());
         questionEntity.setIndex(maxIndex == null ? 0 : maxIndex + 1);
         questionRepository.save(questionEntity);
+        answerKeyCache.invalidate(questionEntity.getTestId());
 
         return questionEntity;
     }
@@ -166,6 +171,7 @@ public class QuestionService implements IQuestionService {
                 questionEntity.setIndex(body.getIndex());
             questionEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             questionRepository.save(questionEntity);
+            answerKeyCache.invalidate(questionEntity.getTestId());
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -176,7 +182,9 @@ public class QuestionService implements IQuestionService {
     @Override
     public void deleteQuestion(String id) {
         try{
+            String testId = questionRepository.findById(id).map(QuestionEntity::getTestId).orElse(null);
             questionRepository.deleteById(id);
+            answerKeyCache.invalidate(testId);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -187,10 +195,13 @@ public class QuestionService implements IQuestionService {
     @Override
     public void deleteQuestions(String[] ids) {
         try{
+            Set<String> testIds = new HashSet<>();
             for (String id : ids){
+                questionRepository.findById(id).ifPresent(question -> testIds.add(question.getTestId()));
                 questionRepository.deleteById(id);
                 answerRepository.deleteByQuestionId(id);
             }
+            testIds.forEach(answerKeyCache::invalidate);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -1,9 +1,8 @@
 package com.example.learning_api.service.core.Impl;
 
-import com.example.learning_api.entity.sql.database.ClassRoomEntity;
 import com.example.learning_api.entity.sql.database.RecentClassEntity;
-import com.example.learning_api.entity.sql.database.StudentEnrollmentsEntity;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.RecentClassBuffer;
 import com.example.learning_api.service.core.IRecentClassService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,17 +10,13 @@ import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
 import java.util.Date;
-import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RecentClassService implements IRecentClassService {
     private final RecentClassRepository recentClassRepository;
-    private final ClassRoomRepository classRoomRepository;
-    private final StudentRepository studentRepository;
-    private final TeacherRepository teacherRepository;
-    private final StudentEnrollmentsRepository studentEnrollmentsService;
+    private final RecentClassBuffer recentClassBuffer;
     @Override
     public void createRecentClass(String userId , String role,String classroomId) {
         try{
@@ -29,62 +24,15 @@ public class RecentClassService implements IRecentClassService {
            if (classroomId== null) {
                 throw new IllegalArgumentException("ClassroomId is required");
             }
-            if (classRoomRepository.findById(classroomId).isEmpty()) {
-                throw new IllegalArgumentException("Classroom not found");
-            }
-            if(role.equals("USER")){
-                RecentClassEntity recentClassEntity = recentClassRepository.findByStudentIdAndClassroomId(userId, classroomId);
-                if (recentClassEntity == null)
-                {
-                    RecentClassEntity newData = new RecentClassEntity();
-                    newData.setStudentId(userId);
-                    newData.setClassroomId(classroomId);
-                    newData.setLastAccessedAt(String.valueOf(System.currentTimeMillis()));
-                    StudentEnrollmentsEntity studentEnrollmentsEntity = studentEnrollmentsService.findByStudentIdAndClassroomId(userId,classroomId);
-                    if (studentEnrollmentsEntity == null)
-                    {
-                        return;
-                    }else{
-                        recentClassRepository.save(newData);
-
-                    }
-                }
-                else{
-                    recentClassEntity.setLastAccessedAt(String.valueOf(System.currentTimeMillis()));
-                    recentClassRepository.save(recentClassEntity);
-                }
-            }
-            else if(role.equals("TEACHER")){
-                RecentClassEntity recentClassEntity = recentClassRepository.findByTeacherIdAndClassroomId(userId,classroomId);
-                ClassRoomEntity classRoomEntity = classRoomRepository.findById(classroomId).get();
-                if (!Objects.equals(classRoomEntity.getTeacherId(), userId)) {
-                   return;
-                }
-                if (recentClassEntity == null)
-                {
-                    RecentClassEntity newData = new RecentClassEntity();
-                    newData.setLastAccessedAt(String.valueOf(System.currentTimeMillis()));
-                    newData.setTeacherId(userId);
-                    newData.setClassroomId(classroomId);
-
-                    recentClassRepository.save(newData);
-                }
-                else{
-                    recentClassEntity.setLastAccessedAt(String.valueOf(System.currentTimeMillis()));
-                    recentClassRepository.save(recentClassEntity);
-                }
-            }
-            else{
+            if (!RecentClassBuffer.ROLE_USER.equals(role) && !RecentClassBuffer.ROLE_TEACHER.equals(role)) {
                 throw new IllegalArgumentException("StudentId or TeacherId is required");
             }
-
+            // Persisted in bulk by RecentClassBuffer, which also checks the classroom, enrollment and ownership
+            recentClassBuffer.record(userId, role, classroomId);
         }
         catch (Exception e) {
             throw new IllegalArgumentException(e.getMessage());
         }
-
-
-
     }
 
     @Override
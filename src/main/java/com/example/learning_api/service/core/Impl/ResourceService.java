@@ -18,6 +18,7 @@ import com.example.learning_api.repository.database.ClassRoomRepository;
 import com.example.learning_api.repository.database.LessonRepository;
 import com.example.learning_api.repository.database.ResourceRepository;
 import com.example.learning_api.repository.database.SectionRepository;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.CloudinaryService;
 import com.example.learning_api.service.common.ModelMapperService;
 import com.example.learning_api.service.core.IResourceService;
@@ -46,6 +47,7 @@ public class ResourceService implements IResourceService {
     private final SectionRepository sectionRepository;
     private final ClassRoomRepository classRoomRepository;
     private final Cloudinary cloudinary;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
     @Override
    public void createResource(CreateResourceRequest body) {
     try{
@@ -79,6 +81,7 @@ public class ResourceService implements IResourceService {
         ClassRoomEntity classRoomEntity = classRoomRepository.findById(sectionEntity.getClassRoomId()).get();
         classRoomEntity.setTotalResource(classRoomEntity.getTotalResource()+1);
         classRoomRepository.save(classRoomEntity);
+        curriculumSnapshotCache.invalidate(classRoomEntity.getId());
 
     }
     catch (Exception e){
@@ -90,10 +93,9 @@ public class ResourceService implements IResourceService {
     @Override
     public void deleteResource(String resourceId) {
         try{
-            if (resourceRepository.findById(resourceId).isEmpty()){
-                throw new IllegalArgumentException("ResourceId is not found");
-            }
+            ResourceEntity resourceEntity = resourceRepository.findById(resourceId).orElseThrow(()->new IllegalArgumentException("ResourceId is not found"));
             resourceRepository.deleteById(resourceId);
+            curriculumSnapshotCache.invalidateByLesson(resourceEntity.getLessonId());
             LessonEntity lessonEntity = lessonRepository.findById(resourceId).get();
             SectionEntity sectionEntity = sectionRepository.findById(lessonEntity.getSectionId()).get();
             ClassRoomEntity classRoomEntity = classRoomRepository.findById(sectionEntity.getClassRoomId()).get();
@@ -132,6 +134,7 @@ public class ResourceService implements IResourceService {
             }
             resourceEntity.setUpdatedAt(new Date());
             resourceRepository.save(resourceEntity);
+            curriculumSnapshotCache.invalidateByLesson(resourceEntity.getLessonId());
         }
         catch (Exception e){
             log.error(e.getMessage());
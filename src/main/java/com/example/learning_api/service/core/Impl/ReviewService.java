@@ -8,6 +8,8 @@ import com.example.learning_api.enums.NotificationPriority;
 import com.example.learning_api.repository.database.ClassRoomRepository;
 import com.example.learning_api.repository.database.ReviewRepository;
 import com.example.learning_api.repository.database.TeacherRepository;
+import com.example.learning_api.service.common.ClassRoomStatsService;
+import com.example.learning_api.service.common.TeacherRollupService;
 import com.example.learning_api.service.core.IReviewService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,8 @@ public class ReviewService implements IReviewService {
     private final ClassRoomRepository classRoomRepository;
     private final TeacherRepository teacherRepository;
     private final NotificationService notificationService;
+    private final ClassRoomStatsService classRoomStatsService;
+    private final TeacherRollupService teacherRollupService;
     @Override
     public void createReview(ReviewEntity review) {
         try{
@@ -40,6 +44,8 @@ public class ReviewService implements IReviewService {
             reviewEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             reviewEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             reviewRepository.save(reviewEntity);
+            classRoomStatsService.reviewAdded(reviewEntity.getClassroomId(), reviewEntity.getRating());
+            teacherRollupService.reviewAdded(reviewEntity);
             NotificationEntity notificationEntity = new NotificationEntity();
             notificationEntity.setNotificationSettingId("674473d53e126c2148ce1ad8");
             notificationEntity.setTitle("New Review Created");
@@ -65,12 +71,15 @@ public class ReviewService implements IReviewService {
             if (reviewEntity == null){
                 throw new IllegalArgumentException("Review not found");
             }
+            Double oldRating = reviewEntity.getRating();
             if (review.getRating() != null)
                 reviewEntity.setRating(review.getRating());
             if (review.getContent() != null)
                 reviewEntity.setContent(review.getContent());
             reviewEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             reviewRepository.save(reviewEntity);
+            classRoomStatsService.reviewRatingChanged(reviewEntity.getClassroomId(), oldRating, reviewEntity.getRating());
+            teacherRollupService.reviewChanged(reviewEntity, oldRating);
         }
         catch (Exception e){
             log.error("Error in updating review: ", e);
@@ -86,6 +95,8 @@ public class ReviewService implements IReviewService {
                 throw new IllegalArgumentException("Review not found");
             }
             reviewRepository.deleteById(id);
+            classRoomStatsService.reviewRemoved(reviewEntity.getClassroomId(), reviewEntity.getRating());
+            teacherRollupService.reviewRemoved(reviewEntity);
         }
         catch (Exception e){
             log.error("Error in deleting review: ", e);
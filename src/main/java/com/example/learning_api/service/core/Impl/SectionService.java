@@ -1,5 +1,6 @@
 package com.example.learning_api.service.core.Impl;
 
+import com.example.learning_api.dto.common.CurriculumSnapshot;
 import com.example.learning_api.dto.request.section.CreateSectionRequest;
 import com.example.learning_api.dto.request.section.DeleteSectionRequest;
 import com.example.learning_api.dto.request.section.UpdateSectionRequest;
@@ -13,11 +14,14 @@ import com.example.learning_api.repository.database.ClassRoomRepository;
 import com.example.learning_api.repository.database.LessonRepository;
 import com.example.learning_api.repository.database.ProgressRepository;
 import com.example.learning_api.repository.database.SectionRepository;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.ProgressBitmapService;
 import com.example.learning_api.service.core.ISectionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -37,6 +41,8 @@ public class SectionService implements ISectionService {
     private final ClassRoomRepository classRoomRepository;
     private final LessonRepository lessonRepository;
     private final ProgressRepository progressRepository;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
+    private final ProgressBitmapService progressBitmapService;
     @Override
     public CreateSectionResponse createSection(CreateSectionRequest body) {
         try {
@@ -62,6 +68,7 @@ public class SectionService implements ISectionService {
             sectionEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             sectionEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             sectionRepository.save(sectionEntity);
+            curriculumSnapshotCache.invalidate(sectionEntity.getClassRoomId());
             resData.setName(sectionEntity.getName());
             resData.setDescription(sectionEntity.getDescription());
             resData.setClassRoomId(sectionEntity.getClassRoomId());
@@ -93,6 +100,7 @@ public class SectionService implements ISectionService {
             }
             sectionEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             sectionRepository.save(sectionEntity);
+            curriculumSnapshotCache.invalidate(sectionEntity.getClassRoomId());
 
         }
         catch (Exception e){
@@ -104,7 +112,9 @@ public class SectionService implements ISectionService {
     @Override
     public void deleteSection(DeleteSectionRequest id) {
         try{
+            Optional<SectionEntity> sectionEntity = sectionRepository.findById(id.getId());
             sectionRepository.deleteById(id.getId());
+            sectionEntity.ifPresent(section -> curriculumSnapshotCache.invalidate(section.getClassRoomId()));
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -142,45 +152,51 @@ public class SectionService implements ISectionService {
         else {
             statuses.add(SectionStatus.PUBLIC.toString());
         }
-        Pageable pageAble = PageRequest.of(page, size);
-        Page<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classRoomId, pageAble,statuses);
-        List<GetSectionsResponse.SectionResponse> sectionResponses = modelMapperService.mapList(sectionEntities.getContent(), GetSectionsResponse.SectionResponse.class);
-        for (GetSectionsResponse.SectionResponse sectionResponse : sectionResponses){
-            SectionEntity previousSection = sectionRepository.findByClassRoomIdAndIndex(sectionResponse.getClassRoomId(), sectionResponse.getIndex() - 1);
+        CurriculumSnapshot curriculum = curriculumSnapshotCache.get(classRoomId);
+        ProgressBitmapService.StudentProgress progress = progressBitmapService.load(curriculum, userId);
+        List<CurriculumSnapshot.SectionNode> visibleSections = curriculum.getSections(statuses);
+        Page<CurriculumSnapshot.SectionNode> sectionNodes = new PageImpl<>(
+                visibleSections.stream().skip((long) page * size).limit(size).toList(),
+                PageRequest.of(page, size),
+                visibleSections.size());
+        List<GetSectionsResponse.SectionResponse> sectionResponses = new ArrayList<>();
+        for (CurriculumSnapshot.SectionNode sectionNode : sectionNodes){
+            GetSectionsResponse.SectionResponse sectionResponse = modelMapperService.mapClass(sectionNode.getSection(), GetSectionsResponse.SectionResponse.class);
+            CurriculumSnapshot.SectionNode previousSection = curriculum.getSectionAt(sectionResponse.getIndex() - 1);
             if (sectionResponse.getIndex()==0||role.equals("TEACHER")){
                 sectionResponse.setCanAccess(true);
             }else if (previousSection == null) {
                 sectionResponse.setCanAccess(false);
             }else{
-                sectionResponse.setCanAccess(progressRepository.existsByStudentIdAndClassroomIdAndSectionIdAndCompleted(userId, sectionResponse.getClassRoomId(), previousSection.getId(), true));
+                sectionResponse.setCanAccess(progress.isSectionComplete(previousSection.getSection().getId()));
             }
-            sectionResponse.setComplete(progressRepository.existsByStudentIdAndClassroomIdAndSectionIdAndCompleted(userId, sectionResponse.getClassRoomId(), sectionResponse.getId(), true));
+            sectionResponse.setComplete(progress.isSectionComplete(sectionResponse.getId()));
 
-            List<LessonEntity> lessonEntities = lessonRepository.findBySectionId(sectionResponse.getId(), Sort.by(Sort.Direction.ASC, "index"),statuses);
             List<GetSectionsResponse.LessonResponse> lessonResponses = new ArrayList<>();
-            for (LessonEntity lessonEntity : lessonEntities){
+            for (CurriculumSnapshot.LessonNode lessonNode : sectionNode.getLessons(statuses)){
+                LessonEntity lessonEntity = lessonNode.getLesson();
                 GetSectionsResponse.LessonResponse getLessonDetailResponse = modelMapperService.mapClass(lessonEntity, GetSectionsResponse.LessonResponse.class);
-                LessonEntity previousLesson = lessonRepository.findBySectionIdAndIndex(sectionResponse.getId(),lessonEntity.getIndex()-1);
-                Optional<SectionEntity> sectionEntity = sectionRepository.findById(sectionResponse.getId());
-                if (lessonEntity.getIndex()==0||role.equals("TEACHER")){
+                CurriculumSnapshot.LessonNode previousLesson = sectionNode.getLessonAt(lessonNode.getIndex() - 1);
+                if (lessonNode.getIndex()==0||role.equals("TEACHER")){
                     getLessonDetailResponse.setCanAccess(true);
                 } else if (previousLesson==null) {
                     getLessonDetailResponse.setCanAccess(true);
 
                 }else{
-                    getLessonDetailResponse.setCanAccess(progressRepository.existsByStudentIdAndClassroomIdAndLessonIdAndCompleted(userId,sectionEntity.get().getClassRoomId(),previousLesson.getId(),true));
+                    getLessonDetailResponse.setCanAccess(progress.isLessonComplete(previousLesson.getLesson().getId()));
                 }
                 getLessonDetailResponse.setType(lessonEntity.getType().toString());
 
-                getLessonDetailResponse.setIsComplete(progressRepository.existsByStudentIdAndClassroomIdAndLessonIdAndCompleted(userId,sectionEntity.get().getClassRoomId(),lessonEntity.getId(),true));
+                getLessonDetailResponse.setIsComplete(progress.isLessonComplete(lessonEntity.getId()));
 
                 lessonResponses.add(getLessonDetailResponse);
             }
             sectionResponse.setLessons(lessonResponses);
+            sectionResponses.add(sectionResponse);
         }
         GetSectionsResponse resData = new GetSectionsResponse();
-        resData.setTotalPage(sectionEntities.getTotalPages());
-        resData.setTotalElements(sectionEntities.getTotalElements());
+        resData.setTotalPage(sectionNodes.getTotalPages());
+        resData.setTotalElements(sectionNodes.getTotalElements());
         resData.setSections(sectionResponses);
         return resData;
     }
@@ -1,11 +1,16 @@
 package com.example.learning_api.service.core.Impl;
 
+import com.example.learning_api.dto.common.CurriculumSnapshot;
 import com.example.learning_api.dto.request.student_enrollments.EnrollStudentRequest;
 import com.example.learning_api.dto.response.classroom.GetStudentInClassResponse;
 import com.example.learning_api.dto.response.student.StudentsResponse;
 import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.StudentEnrollmentStatus;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.ClassRoomStatsService;
+import com.example.learning_api.service.common.TeacherRollupService;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
+import com.example.learning_api.service.common.ProgressBitmapService;
 import com.example.learning_api.service.core.IStudentEnrollmentsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,9 +35,10 @@ public class StudentEnrollmentsService implements IStudentEnrollmentsService {
     private final StudentRepository studentRepository;
     private final ClassRoomRepository classroomRepository;
     private final UserRepository userRepository;
-    private final SectionRepository sectionRepository;
-    private final LessonRepository lessonRepository;
-    private final ProgressRepository progressRepository;
+    private final ClassRoomStatsService classRoomStatsService;
+    private final TeacherRollupService teacherRollupService;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
+    private final ProgressBitmapService progressBitmapService;
     @Autowired
     private MongoTemplate mongoTemplate;
     @Override
@@ -57,9 +63,9 @@ public class StudentEnrollmentsService implements IStudentEnrollmentsService {
             studentEnrollmentsEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             studentEnrollmentsEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             studentEnrollmentsEntity.setStatus(StudentEnrollmentStatus.IN_PROGRESS);
-            classRoomEntity.setCurrentEnrollment(classRoomEntity.getCurrentEnrollment() + 1);
-            classroomRepository.save(classRoomEntity);
             studentEnrollmentsRepository.save(studentEnrollmentsEntity);
+            classRoomStatsService.enrollmentAdded(classRoomEntity.getId());
+            teacherRollupService.enrollmentAdded(classRoomEntity.getId());
 
         } catch (Exception e) {
 
@@ -163,16 +169,11 @@ public class StudentEnrollmentsService implements IStudentEnrollmentsService {
             // Fetch students with filtering
             List<StudentEntity> allStudents = studentRepository.findByIdInAndSearch(studentIds, search);
 
-            // Fetch sections and lessons for progress calculation
-            List<SectionEntity> sectionEntities = sectionRepository.findByClassRoomId(classroomId);
-
-            List<String> lessonIds = new ArrayList<>();
-            for (SectionEntity sectionEntity : sectionEntities) {
-                List<LessonEntity> lessonEntities = lessonRepository.findBySectionId(sectionEntity.getId());
-                for (LessonEntity lessonEntity : lessonEntities) {
-                    lessonIds.add(lessonEntity.getId());
-                }
-            }
+            // Progress of every listed student from the curriculum snapshot and one bitmap query
+            CurriculumSnapshot curriculum = curriculumSnapshotCache.get(classroomId);
+            Map<String, ProgressBitmapService.StudentProgress> progresses = progressBitmapService.loadAll(
+                    curriculum, allStudents.stream().map(StudentEntity::getId).toList());
+            int countLesson = curriculum.getLessonCount();
 
             // Compute progress for each student
             List<GetStudentInClassResponse.StudentResponse> studentResponses = allStudents.stream()
@@ -180,11 +181,8 @@ public class StudentEnrollmentsService implements IStudentEnrollmentsService {
                         GetStudentInClassResponse.StudentResponse response = GetStudentInClassResponse.StudentResponse.formStudentEntity(student);
 
                         // Calculate progress
-                        List<ProgressEntity> countComplete = progressRepository.findByClassroomIdAndLessonIdInAndCompletedAndStudentId(
-                                classroomId, lessonIds, true, student.getId()
-                        );
-                        int countLesson = lessonIds.size();
-                        response.setProgress(countLesson > 0 ? (int) Math.ceil((double) countComplete.size() / countLesson * 100) : 0);
+                        int countComplete = progresses.get(student.getId()).countCompletedLessons();
+                        response.setProgress(countLesson > 0 ? (int) Math.ceil((double) countComplete / countLesson * 100) : 0);
 
                         return response;
                     })
@@ -7,6 +7,7 @@ import com.example.learning_api.entity.sql.database.SubstanceEntity;
 import com.example.learning_api.enums.SubstanceStatus;
 import com.example.learning_api.repository.database.LessonRepository;
 import com.example.learning_api.repository.database.SubstanceRepository;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
 import com.example.learning_api.service.common.ModelMapperService;
 import com.example.learning_api.service.core.ISubstanceService;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,7 @@ public class SubstanceService implements ISubstanceService {
     private final LessonRepository lessonRepository;
     private final SubstanceRepository substanceRepository;
     private final ModelMapperService modelMapperService;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
 
     @Override
     public void createSubstance(CreateSubstanceRequest body) {
@@ -44,6 +46,7 @@ public class SubstanceService implements ISubstanceService {
             substanceEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
             substanceEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             substanceRepository.save(substanceEntity);
+            curriculumSnapshotCache.invalidateByLesson(substanceEntity.getLessonId());
 
         }
         catch (Exception e) {
@@ -56,10 +59,9 @@ public class SubstanceService implements ISubstanceService {
     @Override
     public void deleteSubstance(String substanceId) {
         try{
-            if (substanceRepository.findById(substanceId ).isEmpty()){
-                throw new IllegalArgumentException("SubstanceId is not found");
-            }
+            SubstanceEntity substanceEntity = substanceRepository.findById(substanceId).orElseThrow(()->new IllegalArgumentException("SubstanceId is not found"));
             substanceRepository.deleteById(substanceId);
+            curriculumSnapshotCache.invalidateByLesson(substanceEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in deleteSubstance: ", e);
@@ -89,6 +91,7 @@ public class SubstanceService implements ISubstanceService {
             }
             substanceEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
             substanceRepository.save(substanceEntity);
+            curriculumSnapshotCache.invalidateByLesson(substanceEntity.getLessonId());
         }
         catch (Exception e) {
             log.error("Error in updateSubstance: ", e);
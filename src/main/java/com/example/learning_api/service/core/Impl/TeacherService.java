@@ -14,6 +14,7 @@ import com.example.learning_api.entity.sql.database.*;
 import com.example.learning_api.enums.TeacherStatus;
 import com.example.learning_api.repository.database.*;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.TeacherRollupService;
 import com.example.learning_api.service.core.ITeacherService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,7 +29,9 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -42,10 +45,10 @@ public class TeacherService implements ITeacherService {
     private final TestRepository testRepository;
     private final StudentEnrollmentsRepository studentEnrollmentsRepository;
     private final ClassRoomRepository classroomRepository;
-    private final ReviewRepository reviewRepository;
     private final TransactionRepository transactionRepository;
     private final StudentRepository studentRepository;
     private final ClassRoomRepository classRoomRepository;
+    private final TeacherRollupService teacherRollupService;
     @Override
     public CreateTeacherResponse createTeacher(CreateTeacherRequest body) {
         try{
@@ -172,61 +175,66 @@ public class TeacherService implements ITeacherService {
             throw new IllegalArgumentException(e.getMessage());
         }
     }
+    @Override
+    public void rebuildTeacherDashboard(String teacherId) {
+        try {
+            teacherRollupService.rebuild(teacherId);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
     @Override
     public TeacherDashboardResponse getTeacherDashboard(String teacherId) {
         try {
             TeacherDashboardResponse resData = new TeacherDashboardResponse();
-            List<ClassRoomEntity> classRoomEntities = classroomRepository.findByTeacherId(teacherId);
-            resData.setTotalClasses(classRoomEntities.size());
-            List<String> classroomIds = new ArrayList<>();
-            for (ClassRoomEntity classRoomEntity : classRoomEntities) {
-                classroomIds.add(classRoomEntity.getId());
-            }
-            List<StudentEnrollmentsEntity> studentEnrollmentsEntities = studentEnrollmentsRepository.findByClassroomIdIn(classroomIds);
-            resData.setTotalStudents(studentEnrollmentsEntities.size());
-            List<TransactionEntity> transactionEntities = transactionRepository.findByClassroomIdIn(classroomIds);
-            int totalRevenue = 0;
-            for (TransactionEntity transactionEntity : transactionEntities) {
-                totalRevenue += transactionEntity.getAmount();
-            }
-            resData.setTotalRevenue(totalRevenue);
-            List<ReviewEntity> reviewEntities = reviewRepository.findByClassroomIdIn(classroomIds);
-            int totalRating = 0;
-            for (ReviewEntity reviewEntity : reviewEntities) {
-                totalRating += reviewEntity.getRating();
+            TeacherRollupEntity rollup = teacherRollupService.get(teacherId);
+            resData.setTotalClasses((int) classroomRepository.countByTeacherId(teacherId));
+            resData.setTotalStudents(rollup.getTotalStudents() != null ? rollup.getTotalStudents() : 0);
+            resData.setTotalRevenue(rollup.getTotalRevenue() != null ? rollup.getTotalRevenue() : 0);
+            int ratingCount = rollup.getRatingCount() != null ? rollup.getRatingCount() : 0;
+            double ratingSum = rollup.getRatingSum() != null ? rollup.getRatingSum() : 0;
+            resData.setAverageRating(ratingCount > 0 ? ratingSum / ratingCount : 0.0);
+            resData.setRevenueByDay(rollup.getRevenueByDay());
+            resData.setRevenueByMonth(rollup.getRevenueByMonth());
+            resData.setEnrollmentsByClass(rollup.getEnrollmentsByClass());
+            Map<String, Double> averageRatingByClass = new HashMap<>();
+            if (rollup.getRatingCountByClass() != null && rollup.getRatingSumByClass() != null) {
+                rollup.getRatingCountByClass().forEach((classroomId, count) -> {
+                    if (count != null && count > 0) {
+                        averageRatingByClass.put(classroomId, rollup.getRatingSumByClass().getOrDefault(classroomId, 0.0) / count);
+                    }
+                });
             }
-            resData.setAverageRating((double) totalRating / reviewEntities.size());
+            resData.setAverageRatingByClass(averageRatingByClass);
+
             List<TeacherDashboardResponse.RecentSales> recentSales = new ArrayList<>();
             List<TeacherDashboardResponse.Review> reviews = new ArrayList<>();
-            for (TransactionEntity transactionEntity : transactionEntities) {
-                TeacherDashboardResponse.RecentSales recentSale = new TeacherDashboardResponse.RecentSales();
-                UserEntity userEntity = userRepository.findById(transactionEntity.getUserId())
-                        .orElseThrow(() -> new IllegalArgumentException("User not found"));
-                ClassRoomEntity classRoomEntity = classroomRepository.findById(transactionEntity.getClassroomId())
-                        .orElseThrow(() -> new IllegalArgumentException("Classroom not found"));
-                recentSale.setStudentName(userEntity.getFullname());
-                recentSale.setStudentAvatar(userEntity.getAvatar());
-                recentSale.setClassName(classRoomEntity.getName());
-                recentSale.setClassroomId(transactionEntity.getClassroomId());
-                recentSale.setPrice(Math.toIntExact(transactionEntity.getAmount()));
-                recentSales.add(recentSale);
+            if (rollup.getRecentSales() != null) {
+                for (TeacherRollupEntity.RecentSale sale : rollup.getRecentSales()) {
+                    TeacherDashboardResponse.RecentSales recentSale = new TeacherDashboardResponse.RecentSales();
+                    recentSale.setStudentName(sale.getStudentName());
+                    recentSale.setStudentAvatar(sale.getStudentAvatar());
+                    recentSale.setClassName(sale.getClassName());
+                    recentSale.setClassroomId(sale.getClassroomId());
+                    recentSale.setPrice(sale.getAmount() != null ? sale.getAmount() : 0);
+                    recentSales.add(recentSale);
+                }
             }
-            for (ReviewEntity reviewEntity : reviewEntities) {
-                UserEntity userEntity = userRepository.findById(reviewEntity.getUserId())
-                        .orElseThrow(() -> new IllegalArgumentException("User not found"));
-                ClassRoomEntity classRoomEntity = classroomRepository.findById(reviewEntity.getClassroomId())
-                        .orElseThrow(() -> new IllegalArgumentException("Classroom not found"));
-                TeacherDashboardResponse.Review review = new TeacherDashboardResponse.Review();
-                review.setStudentName(userEntity.getFullname());
-                review.setStudentAvatar(userEntity.getAvatar());
-                review.setClassName(classRoomEntity.getName());
-                review.setClassroomId(reviewEntity.getClassroomId());
-                review.setRating(reviewEntity.getRating());
-                review.setComment(reviewEntity.getContent());
-                reviews.add(review);
+            if (rollup.getRecentReviews() != null) {
+                for (TeacherRollupEntity.RecentReview recentReview : rollup.getRecentReviews()) {
+                    TeacherDashboardResponse.Review review = new TeacherDashboardResponse.Review();
+                    review.setStudentName(recentReview.getStudentName());
+                    review.setStudentAvatar(recentReview.getStudentAvatar());
+                    review.setClassName(recentReview.getClassName());
+                    review.setClassroomId(recentReview.getClassroomId());
+                    review.setRating(recentReview.getRating());
+                    review.setComment(recentReview.getComment());
+                    reviews.add(review);
+                }
             }
-            resData.setRecentSales(recentSales.size() > 5 ? recentSales.subList(0, 5) : recentSales);
-            resData.setReviews(reviews.size() > 5 ? reviews.subList(0, 5) : reviews);
+            resData.setRecentSales(recentSales);
+            resData.setReviews(reviews);
             return resData;
         } catch (Exception e) {
             throw new IllegalArgumentException(e.getMessage());
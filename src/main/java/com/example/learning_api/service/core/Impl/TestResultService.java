@@ -1,5 +1,7 @@
 package com.example.learning_api.service.core.Impl;
 
+import com.example.learning_api.dto.common.CompiledAnswerKey;
+import com.example.learning_api.dto.request.test.CreateExitLogsRequest;
 import com.example.learning_api.dto.request.test.CreateTestResultRequest;
 import com.example.learning_api.dto.request.test.SaveProgressRequest;
 import com.example.learning_api.dto.request.test.UpdateTestResultRequest;
@@ -10,24 +12,42 @@ import com.example.learning_api.enums.FileOwnerType;
 import com.example.learning_api.enums.QuestionType;
 import com.example.learning_api.enums.TestState;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.AdmissionControl;
+import com.example.learning_api.service.common.AnswerKeyCache;
+import com.example.learning_api.service.common.ExamSessionStore;
+import com.example.learning_api.service.common.ExitLogIngestor;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.QuestionStatsStore;
 import com.example.learning_api.service.core.ITestResultService;
 import com.example.learning_api.service.core.ITestService;
+import com.example.learning_api.utils.AnswerTextMatcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TestResultService implements ITestResultService {
+    private static final String START_TEST_GATE = "start-test";
+    private static final int START_TEST_PERMITS = 16;
+    private static final int START_TEST_QUEUE = 256;
+    private static final double MAX_GRADE = 10.0;
+    private static final int HISTOGRAM_BUCKETS = 10;
+    private static final Map<String, Double> PERCENTILES = Map.of("p25", 0.25, "p50", 0.5, "p75", 0.75, "p90", 0.9);
+
     private final TestResultRepository testResultRepository;
     private final StudentRepository studentRepository;
     private final ModelMapperService modelMapperService;
@@ -39,22 +59,30 @@ public class TestResultService implements ITestResultService {
     private final ClassRoomRepository classRoomRepository;
     private final ITestService testService;
     private final FileRepository fileRepository;
+    private final ExamSessionStore examSessionStore;
+    private final AdmissionControl admissionControl;
+    private final AnswerKeyCache answerKeyCache;
+    private final QuestionStatsStore questionStatsStore;
+    private final MongoTemplate mongoTemplate;
+    private final ExitLogIngestor exitLogIngestor;
+
     @Override
     public StartTestResponse addTestResult(CreateTestResultRequest body) {
+        // Every student starts at the bell; excess starts wait briefly or are told when to retry
+        return admissionControl.admit(START_TEST_GATE, START_TEST_PERMITS, START_TEST_QUEUE, () -> startTest(body));
+    }
+
+    private StartTestResponse startTest(CreateTestResultRequest body) {
         try{
             if (body.getTestId()==null || body.getStudentId()==null ) {
                 throw new IllegalArgumentException("Test id, student id  must be provided");
             }
-            if (testRepository.existsById(body.getTestId()) == false) {
-                throw new IllegalArgumentException("Test does not exist");
-            }
+            TestEntity testEntity = testRepository.findById(body.getTestId()).orElseThrow(() -> new IllegalArgumentException("Test does not exist"));
             if (studentRepository.existsById(body.getStudentId()) == false) {
                 throw new IllegalArgumentException("Student does not exist");
             }
 
             TestResultEntity testResultEntity = modelMapperService.mapClass(body, TestResultEntity.class);
-            TestEntity testEntity = testRepository.findById(body.getTestId()).orElseThrow(() -> new IllegalArgumentException("Test does not exist"));
-            int count = testResultRepository.countByStudentIdAndTestId(body.getStudentId(), body.getTestId());
 
 
             TestResultEntity ongoingTest = testResultRepository.findFirstByStudentIdAndTestIdAndStateOrderByAttendedAtDesc(body.getStudentId(),body.getTestId(), TestState.ONGOING.name());
@@ -123,47 +151,28 @@ public class TestResultService implements ITestResultService {
     @Override
     public void saveProgress(SaveProgressRequest body) {
         try {
-            TestResultEntity testResultEntity = testResultRepository.findById(body.getTestResultId())
-                    .orElseThrow(() -> new IllegalArgumentException("Test result does not exist"));
-            if (testResultEntity.getState() == TestState.FINISHED) {
-                throw new IllegalArgumentException("Test is already finished");
-            }
-            studentAnswerRepository.deleteByTestResultId(body.getTestResultId());
-            for (SaveProgressRequest.QuestionAndAnswer questionAndAnswer : body.getQuestionAndAnswers()) {
-                QuestionEntity questionEntity = questionRepository.findById(questionAndAnswer.getQuestionId())
-                        .orElseThrow(() -> new IllegalArgumentException("Question does not exist"));
-                List<StudentAnswersEntity> studentAnswersEntities = studentAnswerRepository.findByStudentIdAndTestResultIdAndQuestionId(testResultEntity.getStudentId(), testResultEntity.getId(), questionAndAnswer.getQuestionId());
-                for (StudentAnswersEntity answerId : studentAnswersEntities) {
-                    studentAnswerRepository.delete(answerId);
-                }
-                if (questionEntity.getType().equals(QuestionType.TEXT_ANSWER) || questionEntity.getType().equals(QuestionType.FILL_IN_THE_BLANK)) {
-                    for (String text : questionAndAnswer.getTextAnswers()) {
-                       StudentAnswersEntity studentAnswersEntity = new StudentAnswersEntity();
-                        studentAnswersEntity.setTextAnswer(text);
-                        studentAnswersEntity.setContent(text);
-                        studentAnswersEntity.setQuestionId(questionAndAnswer.getQuestionId());
-                        studentAnswersEntity.setTestResultId(body.getTestResultId());
-                        studentAnswersEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-                        studentAnswersEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-                        studentAnswersEntity.setStudentId(testResultEntity.getStudentId());
-                        studentAnswerRepository.save(studentAnswersEntity);
-
-                    }
-                } else {
-                    for (String answerId : questionAndAnswer.getAnswers()) {
-                        StudentAnswersEntity  studentAnswersEntity = new StudentAnswersEntity();
-                        studentAnswersEntity.setAnswerId(answerId);
-                        studentAnswersEntity.setQuestionId(questionAndAnswer.getQuestionId());
-                        studentAnswersEntity.setTestResultId(body.getTestResultId());
-                        studentAnswersEntity.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-                        studentAnswersEntity.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-                        studentAnswersEntity.setStudentId(testResultEntity.getStudentId());
-                        studentAnswersEntity.setTextAnswer("");
-                        studentAnswersEntity.setContent("");
-                        studentAnswerRepository.save(studentAnswersEntity);
-                    }
-                }
-            }
+            // Only touches memory; ExamSessionStore journals the change and checkpoints it to Mongo
+            examSessionStore.saveProgress(body);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    @Override
+    public int addExitLogs(String userId, CreateExitLogsRequest body) {
+        StudentEntity student = studentRepository.findByUserId(userId);
+        if (student == null) {
+            throw new IllegalArgumentException("Student does not exist");
+        }
+        // Buffered; written in bulk by ExitLogIngestor. A full buffer surfaces as a busy CustomException
+        return exitLogIngestor.accept(student.getId(), body.getEvents());
+    }
+
+    @Override
+    public List<TestExitCountEntity> getExitCounts(String testId) {
+        try {
+            validateTestId(testId);
+            return exitLogIngestor.getExitCounts(testId);
         } catch (Exception e) {
             throw new IllegalArgumentException(e.getMessage());
         }
@@ -280,10 +289,9 @@ public class TestResultService implements ITestResultService {
 
         GetTestDetailResponse testDetail = testService.getTestDetail(testId);
         OverviewResultResponse overviewResult = getOverviewOfTestResults(testId);
-        List<TestResultOfTestResponse> results = testResultRepository.findHighestGradesByTestIdAndFinishedStateSortedAscending(testId);
 
         StatisticsResultResponse response = new StatisticsResultResponse();
-        List<StatisticsResultResponse.Question> processedQuestions = processQuestions(testDetail.getQuestions(), results,testDetail.getId(),testDetail.getClassroomId());
+        List<StatisticsResultResponse.Question> processedQuestions = processQuestions(testDetail.getQuestions(), testDetail.getId());
         response.setQuestionSortByIncorrectRate(sortQuestionsByIncorrectRate(processedQuestions));
         setOverviewStatistics(response, overviewResult);
 
@@ -305,65 +313,156 @@ public class TestResultService implements ITestResultService {
     @Override
     public ScoreDistributionResponse getScoreDistributionOfTest(String testId, String fullname, Integer minGrade, Integer maxGrade, Boolean passed, int page, int size, String sortBy, String sortOrder) {
         validateTestId(testId);
+        int totalQuestions = answerKeyCache.get(testId).getTotalQuestions();
+        page = Math.max(page, 0);
+
+        // One aggregation: best attempt per student with its attempt count and student info, then the summary,
+        // the histogram, the total and the requested page (with its correct answer counts) as facets
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(stage("$match", new Document("testId", testId)));
+        operations.add(stage("$addFields", new Document("finished", new Document("$eq", List.of("$state", TestState.FINISHED.name())))));
+        operations.add(stage("$sort", new Document("finished", -1).append("grade", -1)));
+        operations.add(stage("$group", new Document("_id", "$studentId")
+                .append("attempts", new Document("$sum", 1))
+                .append("finished", new Document("$first", "$finished"))
+                .append("grade", new Document("$first", "$grade"))
+                .append("resultId", new Document("$first", "$_id"))
+                .append("isPassed", new Document("$first", "$isPassed"))));
+        operations.add(stage("$match", new Document("finished", true)));
+        operations.add(stage("$addFields", new Document("studentObjectId", new Document("$convert",
+                new Document("input", "$_id").append("to", "objectId").append("onError", null).append("onNull", null)))));
+        operations.add(stage("$lookup", new Document("from", "students")
+                .append("localField", "studentObjectId")
+                .append("foreignField", "_id")
+                .append("as", "student")));
+        operations.add(stage("$unwind", new Document("path", "$student").append("preserveNullAndEmptyArrays", true)));
+        operations.add(stage("$project", new Document("_id", 0)
+                .append("studentId", "$_id")
+                .append("resultId", new Document("$toString", "$resultId"))
+                .append("grade", 1)
+                .append("isPassed", 1)
+                .append("attempts", 1)
+                .append("fullname", new Document("$ifNull", List.of("$student.user.fullname", "")))
+                .append("email", new Document("$ifNull", List.of("$student.user.email", "")))
+                .append("phone", new Document("$ifNull", List.of("$student.phone", "")))));
+        Document filters = new Document();
+        if (fullname != null && !fullname.isEmpty()) {
+            filters.append("fullname", new Document("$regex", Pattern.quote(fullname)).append("$options", "i"));
+        }
+        if (minGrade != null || maxGrade != null) {
+            Document range = new Document();
+            if (minGrade != null) {
+                range.append("$gte", minGrade);
+            }
+            if (maxGrade != null) {
+                range.append("$lte", maxGrade);
+            }
+            filters.append("grade", range);
+        }
+        if (passed != null) {
+            filters.append("isPassed", passed);
+        }
+        if (!filters.isEmpty()) {
+            operations.add(stage("$match", filters));
+        }
+        operations.add(stage("$facet", new Document("summary", summaryStages())
+                .append("histogram", histogramStages())
+                .append("total", List.of(new Document("$count", "count")))
+                .append("rows", rowStages(sortBy, sortOrder, page, size))));
 
-        List<TestResultOfTestResponse> allResults = testResultRepository.findHighestGradesByTestIdAndFilters(
-                testId, fullname, minGrade, maxGrade, passed);
-
-        List<ScoreDistributionResponse.ScoreDistribution> data = allResults.stream()
-                .map(this::mapToScoreDistributionResponse)
-                .collect(Collectors.toList());
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(operations), "test_results", Document.class)
+                .getUniqueMappedResult();
 
-        // Apply sorting
-        data.sort((d1, d2) -> {
-            switch (sortBy.toLowerCase()) {
-                case "fullname":
-                    return sortOrder.equalsIgnoreCase("desc") ?
-                            d2.getFullname().compareTo(d1.getFullname()) :
-                            d1.getFullname().compareTo(d2.getFullname());
-                case "grade":
-                    return sortOrder.equalsIgnoreCase("desc") ?
-                            Double.compare(d2.getGrade(), d1.getGrade()) :
-                            Double.compare(d1.getGrade(), d2.getGrade());
-                case "totalcorrect":
-                    return sortOrder.equalsIgnoreCase("desc") ?
-                            Integer.compare(d2.getTotalCorrect(), d1.getTotalCorrect()) :
-                            Integer.compare(d1.getTotalCorrect(), d2.getTotalCorrect());
-                case "totalincorrect":
-                    return sortOrder.equalsIgnoreCase("desc") ?
-                            Integer.compare(d2.getTotalIncorrect(), d1.getTotalIncorrect()) :
-                            Integer.compare(d1.getTotalIncorrect(), d2.getTotalIncorrect());
-                case "totalattempted":
-                    return sortOrder.equalsIgnoreCase("desc") ?
-                            Integer.compare(d2.getTotalAttempted(), d1.getTotalAttempted()) :
-                            Integer.compare(d1.getTotalAttempted(), d2.getTotalAttempted());
-                default:
-                    return 0;
+        ScoreDistributionResponse response = new ScoreDistributionResponse();
+        List<Document> totals = result != null ? result.getList("total", Document.class) : List.of();
+        long total = totals.isEmpty() ? 0 : ((Number) totals.get(0).get("count")).longValue();
+        List<ScoreDistributionResponse.ScoreDistribution> rows = new ArrayList<>();
+        if (result != null) {
+            for (Document row : result.getList("rows", Document.class)) {
+                rows.add(mapToScoreDistributionResponse(row, totalQuestions));
             }
-        });
-
-        // Apply pagination
-        int start = page * size;
-        int end = Math.min(start + size, data.size());
-        List<ScoreDistributionResponse.ScoreDistribution> pageContent;
-        if (start >= data.size()) {
-            pageContent = Collections.emptyList();
-        } else {
-            pageContent = data.subList(start, end);
         }
-        ScoreDistributionResponse response = new ScoreDistributionResponse();
-        response.setScoreDistributions(pageContent);
-        response.setTotalPage((int) Math.ceil((double) data.size() / size));
-        response.setTotalElements((long) data.size());
+        response.setScoreDistributions(rows);
+        response.setSummary(mapToSummary(result != null ? result.getList("summary", Document.class) : List.of()));
+        response.setHistogram(mapToHistogram(result != null ? result.getList("histogram", Document.class) : List.of()));
+        response.setTotalPage((int) Math.ceil((double) total / size));
+        response.setTotalElements(total);
         return response;
     }
+
+    private static AggregationOperation stage(String name, Document body) {
+        return context -> new Document(name, body);
+    }
+
+    private static List<Document> summaryStages() {
+        Document percentiles = new Document("_id", 0)
+                .append("count", 1)
+                .append("totalPassed", 1)
+                .append("mean", 1)
+                .append("stdDev", 1)
+                .append("min", 1)
+                .append("max", 1);
+        for (Map.Entry<String, Double> percentile : PERCENTILES.entrySet()) {
+            // Nearest rank on the sorted grades: index ceil(p * n) - 1
+            Document rank = new Document("$toInt", new Document("$subtract", List.of(
+                    new Document("$max", List.of(new Document("$ceil", new Document("$multiply", List.of(percentile.getValue(), "$count"))), 1)),
+                    1)));
+            percentiles.append(percentile.getKey(), new Document("$arrayElemAt", List.of("$grades", rank)));
+        }
+        return List.of(
+                new Document("$sort", new Document("grade", 1)),
+                new Document("$group", new Document("_id", null)
+                        .append("count", new Document("$sum", 1))
+                        .append("totalPassed", new Document("$sum", new Document("$cond", List.of(new Document("$eq", List.of("$isPassed", true)), 1, 0))))
+                        .append("mean", new Document("$avg", "$grade"))
+                        .append("stdDev", new Document("$stdDevPop", "$grade"))
+                        .append("min", new Document("$min", "$grade"))
+                        .append("max", new Document("$max", "$grade"))
+                        .append("grades", new Document("$push", "$grade"))),
+                new Document("$project", percentiles));
+    }
+
+    private static List<Document> histogramStages() {
+        // Bucket i holds [i, i + 1) in grade points; the top grade goes into the last bucket
+        Document bucket = new Document("$min", List.of(
+                new Document("$floor", new Document("$divide", List.of("$grade", MAX_GRADE / HISTOGRAM_BUCKETS))),
+                HISTOGRAM_BUCKETS - 1));
+        return List.of(new Document("$group", new Document("_id", bucket).append("count", new Document("$sum", 1))));
+    }
+
+    private static List<Document> rowStages(String sortBy, String sortOrder, int page, int size) {
+        int direction = "asc".equalsIgnoreCase(sortOrder) ? 1 : -1;
+        // Correct counts are only joined for the page; for one answer key they follow the grade, so it sorts for them
+        Document sort = switch (sortBy == null ? "" : sortBy.toLowerCase()) {
+            case "fullname" -> new Document("fullname", direction);
+            case "totalincorrect" -> new Document("grade", -direction);
+            case "totalattempted" -> new Document("attempts", direction);
+            default -> new Document("grade", direction);
+        };
+        sort.append("studentId", 1);
+        return List.of(
+                new Document("$sort", sort),
+                new Document("$skip", (long) page * size),
+                new Document("$limit", size),
+                new Document("$lookup", new Document("from", "student_answers")
+                        .append("let", new Document("resultId", "$resultId"))
+                        .append("pipeline", List.of(
+                                new Document("$match", new Document("$expr", new Document("$and", List.of(
+                                        new Document("$eq", List.of("$testResultId", "$$resultId")),
+                                        new Document("$eq", List.of("$isCorrect", true)))))),
+                                new Document("$count", "count")))
+                        .append("as", "correct")),
+                new Document("$addFields", new Document("totalCorrect",
+                        new Document("$ifNull", List.of(new Document("$arrayElemAt", List.of("$correct.count", 0)), 0)))));
+    }
+
     @Override
     public GetQuestionChoiceRateResponse getQuestionChoiceRate(String testId, String questionContent, Integer minCorrectCount, Integer maxCorrectCount, int page, int size, String sortBy, String sortOrder) {
         validateTestId(testId);
 
         GetTestDetailResponse testDetail = testService.getTestDetail(testId);
-        List<TestResultOfTestResponse> results = testResultRepository.findHighestGradesByTestIdAndFinishedStateSortedAscending(testId);
 
-        List<StatisticsResultResponse.Question> processedQuestions = processQuestions(testDetail.getQuestions(), results,testDetail.getId(),testDetail.getClassroomId());
+        List<StatisticsResultResponse.Question> processedQuestions = processQuestions(testDetail.getQuestions(), testDetail.getId());
 
         List<StatisticsResultResponse.Question> filteredQuestions = filterQuestions(processedQuestions, questionContent, minCorrectCount, maxCorrectCount);
 
@@ -416,25 +515,65 @@ public class TestResultService implements ITestResultService {
         return questions.subList(fromIndex, Math.min(fromIndex + size, questions.size()));
     }
 
-    private ScoreDistributionResponse.ScoreDistribution mapToScoreDistributionResponse(TestResultOfTestResponse result) {
-        int totalCorrect = studentAnswerRepository.countCorrectAnswersByTestResultId(result.getResultId());
-        int totalQuestion = questionRepository.countByTestId(result.getTestId());
-        int totalAttempted = testResultRepository.countByStudentIdAndTestId(result.getStudentId(), result.getTestId());
-        TestEntity test = testRepository.findById(result.getTestId()).orElseThrow(() -> new IllegalArgumentException("Test does not exist"));
+    private ScoreDistributionResponse.ScoreDistribution mapToScoreDistributionResponse(Document row, int totalQuestions) {
+        int totalCorrect = ((Number) row.get("totalCorrect")).intValue();
         ScoreDistributionResponse.ScoreDistribution response = new ScoreDistributionResponse.ScoreDistribution();
-        StudentEntity student = studentRepository.findById(result.getStudentId()).orElseThrow(() -> new IllegalArgumentException("Student does not exist"));
-        response.setStudentId(student.getId());
-        response.setFullname(student.getUser().getFullname());
-        response.setEmail(student.getUser().getEmail());
-        response.setPhone(student.getPhone());
+        response.setStudentId(row.getString("studentId"));
+        response.setFullname(row.getString("fullname"));
+        response.setEmail(row.getString("email"));
+        response.setPhone(row.getString("phone"));
         response.setTotalCorrect(totalCorrect);
-        response.setTotalIncorrect(totalQuestion - totalCorrect);
-        response.setTotalAttempted(totalAttempted);
-        response.setIsPassed(result.getIsPassed());
-        response.setGrade(result.getGrade());
+        response.setTotalIncorrect(totalQuestions - totalCorrect);
+        response.setTotalAttempted(((Number) row.get("attempts")).intValue());
+        response.setIsPassed(row.getBoolean("isPassed"));
+        response.setGrade(row.get("grade") != null ? ((Number) row.get("grade")).intValue() : 0);
         return response;
     }
 
+    private ScoreDistributionResponse.Summary mapToSummary(List<Document> summaries) {
+        ScoreDistributionResponse.Summary summary = new ScoreDistributionResponse.Summary();
+        if (summaries.isEmpty()) {
+            summary.setCount(0);
+            summary.setTotalPassed(0);
+            return summary;
+        }
+        Document document = summaries.get(0);
+        summary.setCount(((Number) document.get("count")).intValue());
+        summary.setTotalPassed(((Number) document.get("totalPassed")).intValue());
+        summary.setMean(toDouble(document.get("mean")));
+        summary.setStdDev(toDouble(document.get("stdDev")));
+        summary.setMin(toDouble(document.get("min")));
+        summary.setMax(toDouble(document.get("max")));
+        summary.setP25(toDouble(document.get("p25")));
+        summary.setP50(toDouble(document.get("p50")));
+        summary.setP75(toDouble(document.get("p75")));
+        summary.setP90(toDouble(document.get("p90")));
+        return summary;
+    }
+
+    private List<ScoreDistributionResponse.Bucket> mapToHistogram(List<Document> groups) {
+        int[] counts = new int[HISTOGRAM_BUCKETS];
+        for (Document group : groups) {
+            if (group.get("_id") instanceof Number index) {
+                counts[Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, index.intValue()))] += ((Number) group.get("count")).intValue();
+            }
+        }
+        double width = MAX_GRADE / HISTOGRAM_BUCKETS;
+        List<ScoreDistributionResponse.Bucket> histogram = new ArrayList<>(HISTOGRAM_BUCKETS);
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            ScoreDistributionResponse.Bucket bucket = new ScoreDistributionResponse.Bucket();
+            bucket.setFrom(i * width);
+            bucket.setTo((i + 1) * width);
+            bucket.setCount(counts[i]);
+            histogram.add(bucket);
+        }
+        return histogram;
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
     private void validateTestId(String testId) {
         if (testId == null) {
             throw new IllegalArgumentException("Test id must be provided");
@@ -444,72 +583,46 @@ public class TestResultService implements ITestResultService {
         }
     }
 
-    private List<StatisticsResultResponse.Question> processQuestions(List<GetQuestionsResponse.QuestionResponse> questions, List<TestResultOfTestResponse> results,String testId,String classroomId) {
+    private List<StatisticsResultResponse.Question> processQuestions(List<GetQuestionsResponse.QuestionResponse> questions, String testId) {
+        // Tallies come from the counters kept by QuestionStatsStore, correctness from the answer key
+        // and the sources of every question from one query
+        Map<String, QuestionStatsEntity> stats = questionStatsStore.getStats(testId);
+        CompiledAnswerKey answerKey = answerKeyCache.get(testId);
+        List<String> questionIds = questions.stream().map(GetQuestionsResponse.QuestionResponse::getId).collect(Collectors.toList());
+        Map<String, List<FileEntity>> sources = fileRepository.findFilesByOwnerIdsAndType(questionIds, FileOwnerType.QUESTION.name())
+                .stream()
+                .collect(Collectors.groupingBy(FileEntity::getOwnerId));
         return questions.stream()
-                .map(question -> processQuestion(question, results,testId,classroomId))
+                .map(question -> processQuestion(question, stats.get(question.getId()), answerKey.getQuestion(question.getId()),
+                        sources.getOrDefault(question.getId(), new ArrayList<>())))
                 .collect(Collectors.toList());
     }
 
-    private StatisticsResultResponse.Question processQuestion(GetQuestionsResponse.QuestionResponse question, List<TestResultOfTestResponse> results, String testId, String classroomId) {
+    private StatisticsResultResponse.Question processQuestion(GetQuestionsResponse.QuestionResponse question, QuestionStatsEntity stats,
+                                                              CompiledAnswerKey.QuestionKey questionKey, List<FileEntity> sources) {
         StatisticsResultResponse.Question questionRes = modelMapperService.mapClass(question, StatisticsResultResponse.Question.class);
-        questionRes.setAnswers(processAnswers(question.getAnswers(), results));
-        questionRes.setSources(fileRepository.findByOwnerIdAndOwnerType(question.getId(), FileOwnerType.QUESTION.name()));
-        List<String> studentIds = studentEnrollmentsRepository.findStudentsTakenTest(classroomId, testId);
-        questionRes.setTotalCorrect(0);
-        questionRes.setTotalIncorrect(0);
-
-        for (String studentId : studentIds) {
-            TestResultEntity testResultEntity = testResultRepository.findHighestGradeByStudentIdAndTestId(studentId, testId);
-            if (testResultEntity == null) {
-                continue;
-            }
-            List<StudentAnswersEntity> studentAnswersEntities = studentAnswerRepository.findByStudentIdAndTestResultIdAndQuestionId(studentId, testResultEntity.getId(), question.getId());
-
-            boolean isCorrect;
-            if (questionRes.getType().equals(QuestionType.TEXT_ANSWER.name()) || questionRes.getType().equals(QuestionType.FILL_IN_THE_BLANK.name())) {
-                isCorrect = questionRes.getAnswers().stream()
-                        .allMatch(answer -> studentAnswersEntities.stream()
-                                .anyMatch(studentAnswer -> Objects.requireNonNullElse(normalizeAnswer(studentAnswer.getContent()), "").equals(normalizeAnswer(answer.getContent()))));
-            } else {
-                long correctAnswersCount = questionRes.getAnswers().stream().filter(StatisticsResultResponse.Answers::getIsCorrect).count();
-                long studentCorrectAnswersCount = studentAnswersEntities.stream().filter(studentAnswer -> {
-                    AnswerEntity answer = answerRepository.findById(studentAnswer.getAnswerId()).orElse(null);
-                    return answer != null && answer.getIsCorrect();
-                }).count();
-                isCorrect = correctAnswersCount == studentCorrectAnswersCount;
-            }
-
-            if (isCorrect) {
-                questionRes.setTotalCorrect(questionRes.getTotalCorrect() + 1);
-            } else {
-                questionRes.setTotalIncorrect(questionRes.getTotalIncorrect() + 1);
-            }
-        }
-
+        questionRes.setAnswers(processAnswers(question.getAnswers(), stats, questionKey));
+        questionRes.setSources(sources);
+        questionRes.setTotalCorrect(stats != null && stats.getTotalCorrect() != null ? stats.getTotalCorrect() : 0);
+        questionRes.setTotalIncorrect(stats != null && stats.getTotalIncorrect() != null ? stats.getTotalIncorrect() : 0);
         return questionRes;
     }
 
-    private List<StatisticsResultResponse.Answers> processAnswers(List<GetQuestionsResponse.AnswerResponse> answers, List<TestResultOfTestResponse> results) {
+    private List<StatisticsResultResponse.Answers> processAnswers(List<GetQuestionsResponse.AnswerResponse> answers, QuestionStatsEntity stats,
+                                                                  CompiledAnswerKey.QuestionKey questionKey) {
         return answers.stream()
-                .map(answer -> processAnswer(answer, results))
+                .map(answer -> processAnswer(answer, stats, questionKey))
                 .collect(Collectors.toList());
     }
 
-    private StatisticsResultResponse.Answers processAnswer(GetQuestionsResponse.AnswerResponse answer, List<TestResultOfTestResponse> results) {
+    private StatisticsResultResponse.Answers processAnswer(GetQuestionsResponse.AnswerResponse answer, QuestionStatsEntity stats,
+                                                           CompiledAnswerKey.QuestionKey questionKey) {
         StatisticsResultResponse.Answers answerRes = modelMapperService.mapClass(answer, StatisticsResultResponse.Answers.class);
-        int count = countStudentAnswers(answer.getId(), results);
-        AnswerEntity answerEntity = answerRepository.findById(answer.getId()).orElse(null);
-        answerRes.setIsCorrect(answerEntity!=null?answerEntity.getIsCorrect():null);
-        answerRes.setTotalSelected(count);
+        answerRes.setIsCorrect(questionKey != null ? questionKey.getCorrectAnswerIds().contains(answer.getId()) : null);
+        answerRes.setTotalSelected(stats != null && stats.getSelections() != null ? stats.getSelections().getOrDefault(answer.getId(), 0) : 0);
         return answerRes;
     }
 
-    private int countStudentAnswers(String answerId, List<TestResultOfTestResponse> results) {
-        return (int) results.stream()
-                .filter(result -> studentAnswerRepository.countByStudentIdAndTestResultIdAndAnswerId(result.getStudentId(), result.getResultId(), answerId) > 0)
-                .count();
-    }
-
     private int[] calculateTotals(List<StatisticsResultResponse.Answers> answers) {
         int totalCorrect = 0;
         int totalIncorrect = 0;
@@ -551,21 +664,5 @@ public class TestResultService implements ITestResultService {
         int total = question.getTotalCorrect() + question.getTotalIncorrect();
         return total == 0 ? 0 : (double) question.getTotalIncorrect() / total;
     }
-    private String normalizeAnswer(String answer) {
-        if (answer == null) {
-            return "";
-        }
-        return answer.trim()
-                .toLowerCase()
-                .replaceAll("[àáạảãâầấậẩẫăằắặẳẵ]", "a")
-                .replaceAll("[èéẹẻẽêềếệểễ]", "e")
-                .replaceAll("[ìíịỉĩ]", "i")
-                .replaceAll("[òóọỏõôồốộổỗơờớợởỡ]", "o")
-                .replaceAll("[ùúụủũưừứựửữ]", "u")
-                .replaceAll("[ỳýỵỷỹ]", "y")
-                .replaceAll("[đ]", "d")
-                .replaceAll("\\p{Punct}", "") // Remove punctuation
-                .replaceAll("\\s+", " "); // Replace multiple spaces with single space
-    }
 
 }
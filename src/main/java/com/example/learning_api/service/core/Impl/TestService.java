@@ -2,6 +2,8 @@ package com.example.learning_api.service.core.Impl;
 
 import com.example.learning_api.constant.CloudinaryConstant;
 import com.example.learning_api.constant.ErrorConstant;
+import com.example.learning_api.dto.common.AnswerSheet;
+import com.example.learning_api.dto.common.CompiledAnswerKey;
 import com.example.learning_api.dto.common.QuestionAnswersDTO;
 import com.example.learning_api.dto.request.progress.ProgressCompleteRequest;
 import com.example.learning_api.dto.request.test.CreateTestRequest;
@@ -16,36 +18,49 @@ import com.example.learning_api.enums.*;
 import com.example.learning_api.model.CustomException;
 import com.example.learning_api.quartz.Schedules.TestSchedulerService;
 import com.example.learning_api.repository.database.*;
+import com.example.learning_api.service.common.AnswerKeyCache;
+import com.example.learning_api.service.common.AnswerSheetWriter;
 import com.example.learning_api.service.common.CloudinaryService;
+import com.example.learning_api.service.common.CurriculumSnapshotCache;
+import com.example.learning_api.service.common.ExamSessionStore;
 import com.example.learning_api.service.common.ModelMapperService;
+import com.example.learning_api.service.common.NotificationInbox;
+import com.example.learning_api.service.common.QuestionStatsStore;
+import com.example.learning_api.service.common.RequestCoalescer;
+import com.example.learning_api.service.common.TestImportPipeline;
 import com.example.learning_api.service.core.INotificationService;
 import com.example.learning_api.service.core.ITestService;
+import com.example.learning_api.utils.AnswerTextMatcher;
 import com.example.learning_api.utils.ImageUtils;
 import com.example.learning_api.utils.StringUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.errors.ResourceNotFoundException;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.quartz.SchedulerException;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TestService implements ITestService {
+    private static final String TEST_DETAIL = "test-detail";
+    private static final Duration TEST_DETAIL_TTL = Duration.ofMinutes(10);
+    private static final long PREWARM_LEAD_MILLIS = 2 * 60 * 1000L;
+
     private final ModelMapperService modelMapperService;
     private final TestRepository testRepository;
     private final TestResultRepository testResultRepository;
@@ -62,8 +77,15 @@ public class TestService implements ITestService {
     private final StudentEnrollmentsRepository studentEnrollmentsRepository;
     private final StudentRepository studentRepository;
     private final NotificationRepository notificationRepository;
-    private final NotificationReceiveRepository notificationReceiveRepository;
+    private final NotificationInbox notificationInbox;
     private final ProgressService progressService;
+    private final CurriculumSnapshotCache curriculumSnapshotCache;
+    private final AnswerKeyCache answerKeyCache;
+    private final AnswerSheetWriter answerSheetWriter;
+    private final ExamSessionStore examSessionStore;
+    private final RequestCoalescer requestCoalescer;
+    private final TestImportPipeline testImportPipeline;
+    private final QuestionStatsStore questionStatsStore;
     @Override
     public CreateTestResponse createTest(CreateTestRequest request) {
         try {
@@ -80,6 +102,8 @@ public class TestService implements ITestService {
             if (fileEntity != null) {
                 fileRepository.save(fileEntity);
             }
+            curriculumSnapshotCache.invalidate(testEntity.getClassroomId());
+            schedulePrewarm(testEntity);
 
 
             NotificationEntity notificationEntity = new NotificationEntity();
@@ -132,6 +156,38 @@ public class TestService implements ITestService {
         return testEntity;
     }
 
+    private void schedulePrewarm(TestEntity testEntity) {
+        Long startAt = parseTime(testEntity.getStartAt());
+        if (startAt == null || startAt <= System.currentTimeMillis()) {
+            return;
+        }
+        try {
+            testSchedulerService.scheduleTestPrewarm(testEntity, Math.max(System.currentTimeMillis(), startAt - PREWARM_LEAD_MILLIS));
+        } catch (SchedulerException e) {
+            log.warn("Could not schedule prewarm of test {}: {}", testEntity.getId(), e.getMessage());
+        }
+    }
+
+    // Start times arrive either as epoch millis, like the other timestamps, or as ISO date-times
+    private Long parseTime(String time) {
+        if (time == null || time.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(time);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            return Instant.parse(time).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return LocalDateTime.parse(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     private FileEntity createFileEntity(CreateTestRequest request, TestEntity testEntity) {
         if (request.getSource()==null){
             return null;
@@ -258,8 +314,17 @@ public class TestService implements ITestService {
             if (body.getPassingGrade()!=null){
                 testEntity.setPassingGrade(body.getPassingGrade());
             }
+            if (body.getStartTime()!=null){
+                testEntity.setStartAt(body.getStartTime());
+            }
+            if (body.getEndTime()!=null){
+                testEntity.setEndAt(body.getEndTime());
+            }
 
             testRepository.save(testEntity);
+            curriculumSnapshotCache.invalidate(testEntity.getClassroomId());
+            answerKeyCache.invalidate(testEntity.getId());
+            schedulePrewarm(testEntity);
         }
         catch (Exception e){
             throw new IllegalArgumentException(e.getMessage());
@@ -287,12 +352,15 @@ public class TestService implements ITestService {
             }
             questionRepository.deleteByTestId(id);
             List<NotificationEntity> notificationEntity = notificationRepository.findByAuthorId(id);
-            for (NotificationEntity notification : notificationEntity) {
-                notificationReceiveRepository.deleteByNotificationId(notification.getId());
-            }
-            notificationRepository.deleteAllById(notificationEntity.stream().map(NotificationEntity::getId).collect(Collectors.toList()));
+            List<String> notificationIds = notificationEntity.stream().map(NotificationEntity::getId).collect(Collectors.toList());
+            notificationInbox.deleteByNotificationIds(notificationIds);
+            notificationRepository.deleteAllById(notificationIds);
             testRepository.deleteById(id);
             testResultRepository.deleteByTestId(id);
+            curriculumSnapshotCache.invalidate(testEntity.getClassroomId());
+            answerKeyCache.invalidate(id);
+            testSchedulerService.cancelTestPrewarm(id);
+            questionStatsStore.delete(id);
         } catch (Exception e) {
             throw new IllegalArgumentException(e.getMessage());
         }
@@ -324,35 +392,40 @@ public class TestService implements ITestService {
         }
     }
     @Override
-    public void importTest(ImportTestRequest body) {
+    public TestImportJobEntity importTest(ImportTestRequest body) {
         try {
-            String fileContent = extractFileContent(body);
-            List<QuestionEntity> questions = parseQuestions(fileContent, body.getTestId());
-            saveQuestions(questions);
+            if (!testRepository.existsById(body.getTestId())) {
+                throw new IllegalArgumentException("Test does not exist");
+            }
+            // Read before handing off: the uploaded file is gone once this request completes
+            if (body.getType() == ImportType.FILE) {
+                if (body.getFile() == null || body.getFile().isEmpty()) {
+                    throw new CustomException(ErrorConstant.FILE_INVALID);
+                }
+                TestImportPipeline.Format format = getImportFormat(body.getFile().getOriginalFilename());
+                return testImportPipeline.submit(body.getTestId(), format, body.getFile().getBytes());
+            }
+            if (body.getText() == null || body.getText().isBlank()) {
+                throw new IllegalArgumentException("Text is required");
+            }
+            return testImportPipeline.submit(body.getTestId(), TestImportPipeline.Format.TEXT,
+                    body.getText().getBytes(StandardCharsets.UTF_8));
         } catch (IOException e) {
             throw new CustomException(ErrorConstant.FILE_PROCESSING_ERROR, e.toString());
-        } catch (Exception e) {
-            throw new CustomException(ErrorConstant.IMPORT_TEST_ERROR, e.getMessage());
         }
     }
 
-    private String extractFileContent(ImportTestRequest body) throws IOException {
-        if (body.getType() == ImportType.FILE) {
-            return extractContentFromFile(body.getFile());
-        } else {
-            return body.getText();
-        }
+    @Override
+    public TestImportJobEntity getImportJob(String jobId) {
+        return testImportPipeline.getJob(jobId);
     }
 
-    private String extractContentFromFile(MultipartFile file) throws IOException {
-        String fileName = file.getOriginalFilename();
-        String fileExtension = getFileExtension(fileName);
-
-        switch (fileExtension) {
+    private TestImportPipeline.Format getImportFormat(String fileName) {
+        switch (getFileExtension(fileName)) {
             case "pdf":
-                return extractContentFromPdf(file);
+                return TestImportPipeline.Format.PDF;
             case "docx":
-                return extractContentFromDocx(file);
+                return TestImportPipeline.Format.DOCX;
             default:
                 throw new CustomException(ErrorConstant.FILE_INVALID);
         }
@@ -365,108 +438,14 @@ public class TestService implements ITestService {
                 .orElseThrow(() -> new CustomException(ErrorConstant.FILE_INVALID));
     }
 
-    private String extractContentFromPdf(MultipartFile file) throws IOException {
-        try (PDDocument document = PDDocument.load(file.getInputStream())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
-        }
-    }
-
-    private String extractContentFromDocx(MultipartFile file) throws IOException {
-        try (XWPFDocument document = new XWPFDocument(file.getInputStream())) {
-            return document.getParagraphs().stream()
-                    .map(XWPFParagraph::getText)
-                    .collect(Collectors.joining("\n"));
-        }
-    }
-
-    private List<QuestionEntity> parseQuestions(String fileContent, String testId) {
-        Pattern questionPattern = Pattern.compile("Câu\\s+(\\d+)\\s*:\\s*([^\\n]+)\\n([\\s\\S]+?)(?=\\nCâu\\s+\\d+\\s*:|$)");
-        Matcher questionMatcher = questionPattern.matcher(fileContent);
-        List<QuestionEntity> questions = new ArrayList<>();
-
-        while (questionMatcher.find()) {
-            String questionText = questionMatcher.group(2).trim();
-            String answerGroup = questionMatcher.group(3);
-
-            QuestionEntity question = createQuestion(questionText, testId);
-            List<AnswerEntity> answers = parseAnswers(answerGroup, question.getId());
-            int count=0;
-            for (AnswerEntity answer : answers) {
-                if (answer.getIsCorrect()){
-                    count++;
-                }
-            }
-            if(count==1){
-                question.setType(QuestionType.SINGLE_CHOICE);
-            }
-            else{
-                question.setType(QuestionType.MULTIPLE_CHOICE);
-            }
-            question.setAnswers(answers);
-            questions.add(question);
-        }
-
-        return questions;
-    }
-
-    private QuestionEntity createQuestion(String questionText, String testId) {
-        QuestionEntity question = new QuestionEntity();
-        question.setContent(questionText);
-        question.setTestId(testId);
-        question.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-        question.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        return question;
-    }
-
-    private List<AnswerEntity> parseAnswers(String answerGroup, String questionId) {
-        Pattern answerPattern = Pattern.compile("\\b([A-D])\\.\\s*(.+?)(\\*?)(?=(?:\\n[A-D]\\.|$))", Pattern.DOTALL);
-        Matcher answerMatcher = answerPattern.matcher(answerGroup);
-        List<AnswerEntity> answers = new ArrayList<>();
-
-        while (answerMatcher.find()) {
-            String answerText = answerMatcher.group(2).trim();
-            boolean isCorrect = !answerMatcher.group(3).isEmpty();
-
-            AnswerEntity answer = createAnswer(answerText, questionId, isCorrect);
-            answers.add(answer);
-        }
-
-        return answers;
-    }
-
-    private AnswerEntity createAnswer(String answerText, String questionId, boolean isCorrect) {
-        AnswerEntity answer = new AnswerEntity();
-        answer.setContent(answerText);
-        answer.setQuestionId(questionId);
-        answer.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-        answer.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        answer.setIsCorrect(isCorrect);
-        return answer;
-    }
-
-    private void saveQuestions(List<QuestionEntity> questions) {
-        int index = 0;
-        for (QuestionEntity question : questions) {
-            QuestionEntity savedQuestion = new QuestionEntity();
-            savedQuestion.setId(question.getId());
-            savedQuestion.setTestId(question.getTestId());
-            savedQuestion.setContent(question.getContent());
-            savedQuestion.setType(question.getType());
-            savedQuestion.setStatus(question.getStatus());
-            savedQuestion.setIndex(index++);
-            savedQuestion.setCreatedAt(question.getCreatedAt());
-            savedQuestion.setUpdatedAt(question.getUpdatedAt());
-            questionRepository.save(question);
-            for (AnswerEntity answer : question.getAnswers()) {
-                answer.setQuestionId(question.getId());
-                answerRepository.save(answer);
-            }
-        }
-    }
-
     @Override
     public GetTestDetailResponse getTestDetail(String id) {
+        // Shared by every student opening the test; keyed by the answer-key version so edits are served right away
+        long version = answerKeyCache.get(id).getVersion();
+        return requestCoalescer.load(TEST_DETAIL, id + ":" + version, TEST_DETAIL_TTL, () -> loadTestDetail(id));
+    }
+
+    private GetTestDetailResponse loadTestDetail(String id) {
         TestEntity testEntity = getTestEntityById(id);
         GetTestDetailResponse response = mapTestEntityToResponse(testEntity);
         response.setStatus(testEntity.getStatus().name());
@@ -551,32 +530,48 @@ public class TestService implements ITestService {
 
     public List<GetQuestionsResponse.QuestionResponse> getQuestionResponses(String testId) {
         List<QuestionEntity> questionEntities = questionRepository.findByTestId(testId, Sort.by(Sort.Direction.ASC, "index"));
-        return questionEntities.parallelStream()
-                .map(this::mapQuestionEntityToResponse)
+        if (questionEntities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Answers and sources of the whole test are loaded with one query each
+        List<String> questionIds = questionEntities.stream().map(QuestionEntity::getId).collect(Collectors.toList());
+        Map<String, List<AnswerEntity>> answersByQuestion = answerRepository.findByQuestionIds(questionIds).stream()
+                .collect(Collectors.groupingBy(AnswerEntity::getQuestionId));
+        List<String> answerIds = answersByQuestion.values().stream()
+                .flatMap(List::stream)
+                .map(AnswerEntity::getId)
+                .collect(Collectors.toList());
+        Map<String, List<FileEntity>> questionSources = fileRepository.findFilesByOwnerIdsAndType(questionIds, FileOwnerType.QUESTION.name())
+                .stream()
+                .collect(Collectors.groupingBy(FileEntity::getOwnerId));
+        Map<String, List<FileEntity>> answerSources = answerIds.isEmpty() ? Map.of()
+                : fileRepository.findFilesByOwnerIdsAndType(answerIds, FileOwnerType.ANSWER.name())
+                .stream()
+                .collect(Collectors.groupingBy(FileEntity::getOwnerId));
+        return questionEntities.stream()
+                .map(questionEntity -> mapQuestionEntityToResponse(questionEntity,
+                        answersByQuestion.getOrDefault(questionEntity.getId(), List.of()), questionSources, answerSources))
                 .collect(Collectors.toList());
     }
 
-    private GetQuestionsResponse.QuestionResponse mapQuestionEntityToResponse(QuestionEntity questionEntity) {
+    private GetQuestionsResponse.QuestionResponse mapQuestionEntityToResponse(QuestionEntity questionEntity, List<AnswerEntity> answerEntities,
+                                                                              Map<String, List<FileEntity>> questionSources,
+                                                                              Map<String, List<FileEntity>> answerSources) {
         GetQuestionsResponse.QuestionResponse questionResponse = modelMapperService.mapClass(questionEntity, GetQuestionsResponse.QuestionResponse.class);
-        questionResponse.setSources(fileRepository.findByOwnerIdAndOwnerType(questionEntity.getId(), FileOwnerType.QUESTION.name()));
+        questionResponse.setSources(new ArrayList<>(questionSources.getOrDefault(questionEntity.getId(), List.of())));
 
-        List<GetQuestionsResponse.AnswerResponse> answerResponses = getAnswerResponses(questionEntity);
+        List<GetQuestionsResponse.AnswerResponse> answerResponses = answerEntities.stream()
+                .map(answerEntity -> mapAnswerEntityToResponse(answerEntity, answerSources))
+                .collect(Collectors.toList());
         questionResponse.setAnswers(answerResponses);
         return questionResponse;
     }
 
-    private List<GetQuestionsResponse.AnswerResponse> getAnswerResponses(QuestionEntity question) {
-        List<AnswerEntity> answerEntities = answerRepository.findByQuestionId(question.getId());
-        return answerEntities.parallelStream()
-                .map(this::mapAnswerEntityToResponse)
-                .collect(Collectors.toList());
-    }
-
-    private GetQuestionsResponse.AnswerResponse mapAnswerEntityToResponse(AnswerEntity answerEntity) {
+    private GetQuestionsResponse.AnswerResponse mapAnswerEntityToResponse(AnswerEntity answerEntity, Map<String, List<FileEntity>> answerSources) {
         GetQuestionsResponse.AnswerResponse answerResponse = modelMapperService.mapClass(answerEntity, GetQuestionsResponse.AnswerResponse.class);
         answerResponse.setIsCorrect(answerEntity.getIsCorrect());
         if (answerEntity.getId() != null)
-            answerResponse.setSource(fileRepository.findByOwnerIdAndOwnerType(answerEntity.getId(), FileOwnerType.ANSWER.name()).stream().findFirst().orElse(null));
+            answerResponse.setSource(answerSources.getOrDefault(answerEntity.getId(), List.of()).stream().findFirst().orElse(null));
         return answerResponse;
     }
 
@@ -624,52 +619,119 @@ public class TestService implements ITestService {
             if (testId ==null){
                 return new ArrayList<>();
             }
-            TestEntity testEntity = testRepository.findById(testId)
-                    .orElseThrow(() -> new IllegalArgumentException("Test not found"));
+            if (!testRepository.existsById(testId)) {
+                throw new IllegalArgumentException("Test not found");
+            }
 
+            // The question tree and the key are loaded once, the answers of every attempt with one query,
+            // and each attempt is rendered in one pass over its indexed answers
             List<GetQuestionsResponse.QuestionResponse> questionResponses = getQuestionResponses(testId);
+            CompiledAnswerKey answerKey = answerKeyCache.get(testId);
+            List<String> testResultIds = testResultEntities.stream().map(TestResultEntity::getId).collect(Collectors.toList());
+            Map<String, ReviewSheet> sheets = new HashMap<>();
+            for (StudentAnswersEntity studentAnswer : studentAnswersRepository.findByStudentIdAndTestResultIdIn(studentId, testResultIds)) {
+                sheets.computeIfAbsent(studentAnswer.getTestResultId(), id -> new ReviewSheet()).add(studentAnswer);
+            }
 
-            return testResultEntities.stream().map(testResultEntity -> {
-                List<StudentAnswersEntity> studentAnswersEntities = studentAnswersRepository.findByStudentIdAndTestResultId(studentId, testResultEntity.getId());
+            return testResultEntities.stream()
+                    .map(testResultEntity -> renderReview(testResultEntity, questionResponses, answerKey,
+                            sheets.getOrDefault(testResultEntity.getId(), new ReviewSheet())))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
 
-                List<GetQuestionsResponse.QuestionResponse> clonedQuestionResponses = cloneQuestionResponses(questionResponses);
+    /**
+     * Answers of one attempt, indexed by question: chosen answer IDs, and submitted texts in order.
+     */
+    private static final class ReviewSheet {
+        private final Map<String, Set<String>> choices = new HashMap<>();
+        private final Map<String, List<String>> texts = new HashMap<>();
+
+        private void add(StudentAnswersEntity studentAnswer) {
+            if (studentAnswer.getAnswerId() != null) {
+                choices.computeIfAbsent(studentAnswer.getQuestionId(), id -> new HashSet<>()).add(studentAnswer.getAnswerId());
+            } else {
+                texts.computeIfAbsent(studentAnswer.getQuestionId(), id -> new ArrayList<>()).add(studentAnswer.getTextAnswer());
+            }
+        }
+    }
 
-                for (GetQuestionsResponse.QuestionResponse questionResponse : clonedQuestionResponses) {
-                    List<GetQuestionsResponse.AnswerResponse> answerResponses = questionResponse.getAnswers();
-                    for (GetQuestionsResponse.AnswerResponse answerResponse : answerResponses) {
-                        StudentAnswersEntity studentAnswer = studentAnswersEntities.stream()
-                                .filter(studentAnswersEntity -> studentAnswersEntity.getQuestionId().equals(questionResponse.getId()))
-                                .filter(studentAnswersEntity -> studentAnswersEntity.getAnswerId() != null && studentAnswersEntity.getAnswerId().equals(answerResponse.getId()))
-                                .findFirst()
-                                .orElse(null);
-                        if (studentAnswer != null) {
-                            answerResponse.setSelected(true);
-                        }
+    private TestResultResponse renderReview(TestResultEntity testResultEntity,
+                                            List<GetQuestionsResponse.QuestionResponse> questionResponses,
+                                            CompiledAnswerKey answerKey,
+                                            ReviewSheet sheet) {
+        List<GetQuestionsResponse.QuestionResponse> reviewedQuestions = new ArrayList<>(questionResponses.size());
+        for (GetQuestionsResponse.QuestionResponse questionResponse : questionResponses) {
+            reviewedQuestions.add(renderReviewQuestion(questionResponse, answerKey.getQuestion(questionResponse.getId()), sheet));
+        }
 
-                    }
+        TestResultResponse resData = new TestResultResponse();
+        int totalQuestion = questionResponses.size();
+        resData.setTestId(testResultEntity.getTestId());
+        resData.setGrade(testResultEntity.getGrade());
+        resData.setPassed(testResultEntity.getGrade() >= 5);
+        resData.setAttendedAt(testResultEntity.getAttendedAt());
+        resData.setCreatedAt(testResultEntity.getCreatedAt());
+        resData.setFinishedAt(testResultEntity.getFinishedAt());
+        resData.setTestType("test");
+        resData.setQuestions(reviewedQuestions);
+        resData.setTotalCorrect((int) ((resData.getGrade()*totalQuestion)/10));
+        resData.setTotalIncorrect(totalQuestion - resData.getTotalCorrect());
+        resData.setTotalQuestions(totalQuestion);
+        return resData;
+    }
+
+    private GetQuestionsResponse.QuestionResponse renderReviewQuestion(GetQuestionsResponse.QuestionResponse questionResponse,
+                                                                       CompiledAnswerKey.QuestionKey questionKey,
+                                                                       ReviewSheet sheet) {
+        GetQuestionsResponse.QuestionResponse reviewed = new GetQuestionsResponse.QuestionResponse();
+        BeanUtils.copyProperties(questionResponse, reviewed);
+        boolean textType = QuestionType.TEXT_ANSWER.name().equals(questionResponse.getType())
+                || QuestionType.FILL_IN_THE_BLANK.name().equals(questionResponse.getType());
+        List<String> textAnswers = sheet.texts.getOrDefault(questionResponse.getId(), List.of());
+        Set<String> chosen = sheet.choices.getOrDefault(questionResponse.getId(), Set.of());
+
+        List<GetQuestionsResponse.AnswerResponse> answers = new ArrayList<>(questionResponse.getAnswers().size());
+        int count = 0;
+        for (GetQuestionsResponse.AnswerResponse answerResponse : questionResponse.getAnswers()) {
+            GetQuestionsResponse.AnswerResponse answer = new GetQuestionsResponse.AnswerResponse();
+            BeanUtils.copyProperties(answerResponse, answer);
+            if (textType) {
+                // Blanks are matched in order; the expected text moves to answerText and the submitted one to content
+                if (count < textAnswers.size()) {
+                    String submitted = textAnswers.get(count++);
+                    answer.setIsCorrect(isReviewTextCorrect(submitted, answerResponse, questionKey));
+                    answer.setAnswerText(answerResponse.getContent());
+                    answer.setSelected(true);
+                    answer.setContent(submitted);
+                } else {
+                    answer.setContent("");
                 }
+                answer.setId(null);
+            } else {
+                answer.setSelected(chosen.contains(answerResponse.getId()));
+            }
+            answers.add(answer);
+        }
+        reviewed.setAnswers(answers);
+        return reviewed;
+    }
 
-                TestResultResponse resData = new TestResultResponse();
-
-                int totalQuestion = questionRepository.countByTestId(testResultEntity.getTestId());
-                resData.setTestId(testResultEntity.getTestId());
-                resData.setGrade(testResultEntity.getGrade());
-                resData.setPassed(testResultEntity.getGrade() >= 5);
-                resData.setAttendedAt(testResultEntity.getAttendedAt().toString());
-                resData.setCreatedAt(testResultEntity.getCreatedAt().toString());
-                resData.setFinishedAt(testResultEntity.getFinishedAt().toString());
-                resData.setTestType("test");
-            updateSelectedAnswers(clonedQuestionResponses, studentAnswersEntities, testResultEntity.getId(),"GET_RESULT");
-
-                resData.setQuestions(clonedQuestionResponses);
-                resData.setTotalCorrect((int) ((resData.getGrade()*totalQuestion)/10));
-                resData.setTotalIncorrect(totalQuestion - resData.getTotalCorrect());
-                resData.setTotalQuestions(totalQuestion);
-                return resData;
-            }).collect(Collectors.toList());
-        } catch (Exception e) {
-            throw new IllegalArgumentException(e.getMessage());
+    private boolean isReviewTextCorrect(String submitted, GetQuestionsResponse.AnswerResponse expected, CompiledAnswerKey.QuestionKey questionKey) {
+        if (submitted == null || expected.getContent() == null) {
+            return false;
+        }
+        if (questionKey != null) {
+            // Reuses the expected text normalized once in the key
+            for (CompiledAnswerKey.AnswerKey answerKey : questionKey.getAnswers()) {
+                if (answerKey.getId().equals(expected.getId()) && expected.getContent().equals(answerKey.getContent())) {
+                    return AnswerTextMatcher.isNormalizedMatch(AnswerTextMatcher.normalize(submitted), answerKey.getNormalizedContent());
+                }
+            }
         }
+        return AnswerTextMatcher.isCorrect(submitted, expected.getContent());
     }
 
     @Override
@@ -696,7 +758,7 @@ public class TestService implements ITestService {
                 resData.setQuestions(new ArrayList<>());
                 return resData;
             }
-            List<StudentAnswersEntity> studentAnswersEntities = studentAnswersRepository.findByStudentIdAndTestResultId(studentId, testResultEntity.getId());
+            List<StudentAnswersEntity> studentAnswersEntities = examSessionStore.getAnswers(testResultEntity);
             List<GetQuestionsResponse.QuestionResponse> questionResponses = getQuestionResponses(testId);
             updateSelectedAnswers(questionResponses, studentAnswersEntities, testResultEntity.getId(),"");
             GetTestProgressResponse resData = new GetTestProgressResponse();
@@ -712,7 +774,7 @@ public class TestService implements ITestService {
 
 
     private TestSubmitRequest convertToTestSubmitRequest(TestResultEntity testResult,String studentId) {
-        List<StudentAnswersEntity> studentAnswersEntities = studentAnswersRepository.findByStudentIdAndTestResultId(studentId, testResult.getId());
+        List<StudentAnswersEntity> studentAnswersEntities = examSessionStore.getAnswers(testResult);
         List<TestSubmitRequest.QuestionAndAnswer> questionAndAnswers = new ArrayList<>();
         for (StudentAnswersEntity studentAnswer : studentAnswersEntities) {
             TestSubmitRequest.QuestionAndAnswer questionAndAnswer = questionAndAnswers.stream()
@@ -744,29 +806,6 @@ public class TestService implements ITestService {
         return request;
 
     }
-    private List<GetQuestionsResponse.QuestionResponse> cloneQuestionResponses(List<GetQuestionsResponse.QuestionResponse> originalResponses) {
-        return originalResponses.stream()
-                .map(question -> {
-                    GetQuestionsResponse.QuestionResponse clonedQuestion = new GetQuestionsResponse.QuestionResponse();
-                    BeanUtils.copyProperties(question, clonedQuestion);
-
-                    List<GetQuestionsResponse.AnswerResponse> clonedAnswers = question.getAnswers().stream()
-                            .map(answer -> {
-                                GetQuestionsResponse.AnswerResponse clonedAnswer = new GetQuestionsResponse.AnswerResponse();
-                                AnswerEntity answerEntity = answerRepository.findById(answer.getId())
-                                        .orElseThrow(() -> new IllegalArgumentException("Answer not found"));
-                                BeanUtils.copyProperties(answer, clonedAnswer);
-                                clonedAnswer.setIsCorrect(answerEntity.getIsCorrect());
-                                return clonedAnswer;
-                            })
-                            .collect(Collectors.toList());
-
-                    clonedQuestion.setAnswers(clonedAnswers);
-                    return clonedQuestion;
-                })
-                .collect(Collectors.toList());
-    }
-
     private void updateSelectedAnswers(List<GetQuestionsResponse.QuestionResponse> questionResponses,
                                        List<StudentAnswersEntity> studentAnswersEntities,
                                        String testResultId,String type) {
@@ -795,7 +834,7 @@ public class TestService implements ITestService {
                         questionResponse.getType().equals(QuestionType.FILL_IN_THE_BLANK.name())){
                     if (count<textAnswers.size()){
                         if (testEntity.getShowResultType().equals(TestShowResultType.SHOW_RESULT_IMMEDIATELY)||testEntity.getShowResultType().equals(TestShowResultType.SHOW_RESULT_AFTER_TEST_END)||type.equals("GET_RESULT")){
-                            answerResponse.setIsCorrect(isTextAnswerCorrect(textAnswers.get(count), answerResponse.getContent()));
+                            answerResponse.setIsCorrect(AnswerTextMatcher.isCorrect(textAnswers.get(count), answerResponse.getContent()));
                             answerResponse.setAnswerText(answerResponse.getContent());
                             answerResponse.setSelected(true);
                         }else{
@@ -830,18 +869,23 @@ public class TestService implements ITestService {
     @Override
     public TestSubmitResponse submitTest(TestSubmitRequest body) {
         TestResultEntity testResult = getTestResult(body.getTestResultId());
-        TestEntity testEntity = testRepository.findById(testResult.getTestId())
-                .orElseThrow(() -> new IllegalArgumentException("Test not found"));
-        GetTestDetailResponse testDetail = getTestDetailForTeacher(testResult.getTestId(), testEntity.getTeacherId());
-        List<GetQuestionsResponse.QuestionResponse> questions = testDetail.getQuestions();
-        List<TestSubmitResponse.QuestionResponse> questionResponses = processQuestions(questions, body, testResult);
-        int totalCorrectAnswers = calculateTotalCorrectAnswers(questionResponses);
         if (testResult.getState() == TestState.FINISHED) {
             throw  new IllegalArgumentException("Test is already finished");
         }
-        updateTestResult(testResult, totalCorrectAnswers, questions.size());
-
-        return createTestSubmitResponse(testResult, questionResponses, totalCorrectAnswers, questions.size());
+        // Grading only reads the compiled key; the result is the single document loaded per submission
+        // and the answers are written with one bulk
+        CompiledAnswerKey answerKey = answerKeyCache.get(testResult.getTestId());
+        AnswerSheet answerSheet = new AnswerSheet(testResult.getId(), testResult.getStudentId());
+        List<TestSubmitResponse.QuestionResponse> questionResponses = processQuestions(answerKey, body, answerSheet);
+        int totalCorrectAnswers = calculateTotalCorrectAnswers(questionResponses);
+        // The graded sheet replaces anything saved while the test was in progress; the session closes once both are saved
+        examSessionStore.submit(testResult, () -> {
+            answerSheetWriter.replace(answerSheet);
+            updateTestResult(testResult, answerKey, totalCorrectAnswers);
+        });
+        questionStatsStore.record(testResult, answerKey, answerSheet.getAnswers());
+
+        return createTestSubmitResponse(testResult, answerKey, totalCorrectAnswers);
     }
 
     private TestResultEntity getTestResult(String testResultId) {
@@ -850,130 +894,95 @@ public class TestService implements ITestService {
     }
 
     private List<TestSubmitResponse.QuestionResponse> processQuestions(
-            List<GetQuestionsResponse.QuestionResponse> questions,
+            CompiledAnswerKey answerKey,
             TestSubmitRequest body,
-            TestResultEntity testResult) {
-        return questions.stream()
-                .map(question -> processQuestion(question, body, questions.indexOf(question), testResult))
-                .collect(Collectors.toList());
+            AnswerSheet answerSheet) {
+        List<CompiledAnswerKey.QuestionKey> questions = answerKey.getQuestions();
+        // Sources are not part of the key; they are loaded with one query for the whole test
+        List<String> questionIds = questions.stream().map(CompiledAnswerKey.QuestionKey::getId).collect(Collectors.toList());
+        Map<String, List<FileEntity>> questionSources = questionIds.isEmpty() ? Map.of()
+                : fileRepository.findFilesByOwnerIdsAndType(questionIds, FileOwnerType.QUESTION.name())
+                .stream()
+                .collect(Collectors.groupingBy(FileEntity::getOwnerId));
+        List<TestSubmitResponse.QuestionResponse> questionResponses = new ArrayList<>(questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            CompiledAnswerKey.QuestionKey question = questions.get(i);
+            questionResponses.add(processQuestion(question, questionSources.getOrDefault(question.getId(), new ArrayList<>()),
+                    body, i, answerSheet));
+        }
+        return questionResponses;
     }
 
     private TestSubmitResponse.QuestionResponse processQuestion(
-            GetQuestionsResponse.QuestionResponse question,
+            CompiledAnswerKey.QuestionKey question,
+            List<FileEntity> sources,
             TestSubmitRequest body,
             int questionIndex,
-            TestResultEntity testResult) {
-        TestSubmitResponse.QuestionResponse questionResponse = mapQuestionResponse(question);
-        List<TestSubmitResponse.AnswerResponse> answerResponses = new ArrayList<>();
-        if (questionResponse.getType().equals(QuestionType.TEXT_ANSWER.name())||questionResponse.getType().equals(QuestionType.FILL_IN_THE_BLANK.name())){
-            answerResponses = processTextOrFillInBlankAnswers(question, body, questionIndex, testResult);
+            AnswerSheet answerSheet) {
+        TestSubmitResponse.QuestionResponse questionResponse = mapQuestionResponse(question, sources);
+        List<TestSubmitResponse.AnswerResponse> answerResponses;
+        if (question.isTextType()){
+            answerResponses = processTextOrFillInBlankAnswers(question, body, questionIndex, answerSheet);
         }else{
-            answerResponses = processAnswers(question, body, questionIndex, testResult);
+            answerResponses = processAnswers(question, body, questionIndex, answerSheet);
 
         }
         questionResponse.setAnswers(answerResponses);
         return questionResponse;
     }
     private List<TestSubmitResponse.AnswerResponse> processTextOrFillInBlankAnswers(
-            GetQuestionsResponse.QuestionResponse question,
+            CompiledAnswerKey.QuestionKey question,
             TestSubmitRequest body,
             int questionIndex,
-            TestResultEntity testResult) {
+            AnswerSheet answerSheet) {
         List<TestSubmitResponse.AnswerResponse> answerResponses = new ArrayList<>();
 
         if (body.getQuestionAndAnswers() == null || body.getQuestionAndAnswers().size() <= questionIndex) {
-            TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
-            answerResponse.setContent("");
-            answerResponse.setSelected(false);
-            answerResponse.setIsCorrect(false);
-            saveStudentAnswer(testResult, question.getId(), null, null);
-            answerResponses.add(answerResponse);
+            answerResponses.add(emptyTextAnswer());
+            answerSheet.add(question.getId(), null, null, false);
             return answerResponses; // Skip processing
         }
 
         TestSubmitRequest.QuestionAndAnswer questionAndAnswer = body.getQuestionAndAnswers().get(questionIndex);
+        List<String> textAnswers = questionAndAnswer.getTextAnswers();
+        List<String> expectedAnswers = question.getNormalizedTextAnswers();
 
-        if (questionAndAnswer.getTextAnswers() == null || questionAndAnswer.getTextAnswers().isEmpty()) {
-            TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
-            answerResponse.setContent("");
-            answerResponse.setSelected(false);
-            answerResponse.setIsCorrect(false);
-            GetQuestionsResponse.AnswerResponse answer = new GetQuestionsResponse.AnswerResponse();
-            saveStudentAnswer(testResult, question.getId(), answer, false);
-            answerResponses.add(answerResponse);
+        if (textAnswers == null || textAnswers.isEmpty() || expectedAnswers.isEmpty()) {
+            answerResponses.add(emptyTextAnswer());
+            answerSheet.add(question.getId(), null, null, false);
             return answerResponses; // Skip processing
         }
 
         if (question.getType().equals(QuestionType.TEXT_ANSWER.name())) {
-            if (question.getAnswers() == null || question.getAnswers().isEmpty()) {
-                TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
-                answerResponse.setContent("");
-                answerResponse.setSelected(false);
-                answerResponse.setIsCorrect(false);
-                GetQuestionsResponse.AnswerResponse answer = new GetQuestionsResponse.AnswerResponse();
-
-                saveStudentAnswer(testResult, question.getId(), answer, false);
-                answerResponses.add(answerResponse);
-                return answerResponses; // Skip processing
-            }
-
-            boolean check = normalizeAnswer(questionAndAnswer.getTextAnswers().get(0)).equals(normalizeAnswer(question.getAnswers().get(0).getContent()));
+            boolean check = AnswerTextMatcher.normalize(textAnswers.get(0)).equals(expectedAnswers.get(0));
             TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
 
-            answerResponse.setContent(questionAndAnswer.getTextAnswers().get(0));
+            answerResponse.setContent(textAnswers.get(0));
             answerResponse.setSelected(check);
             answerResponse.setIsCorrect(check);
 
-            GetQuestionsResponse.AnswerResponse answer = new GetQuestionsResponse.AnswerResponse();
-            answer.setContent(questionAndAnswer.getTextAnswers().get(0));
-            answer.setQuestionId(question.getId());
-
             // Save student answer with the submitted text
-            saveStudentAnswer(testResult, question.getId(), answer, check);
+            answerSheet.add(question.getId(), null, textAnswers.get(0), check);
 
             answerResponses.add(answerResponse);
         } else {
-            if (question.getAnswers() == null || question.getAnswers().isEmpty()) {
-                TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
-                answerResponse.setContent("");
-                answerResponse.setSelected(false);
-                answerResponse.setIsCorrect(false);
-                GetQuestionsResponse.AnswerResponse answer = new GetQuestionsResponse.AnswerResponse();
-
-                saveStudentAnswer(testResult, question.getId(), answer, false);
-                answerResponses.add(answerResponse);
-                return answerResponses; // Skip processing
-            }
-
-            for (int i = 0; i < question.getAnswers().size(); i++) {
-                GetQuestionsResponse.AnswerResponse answer = question.getAnswers().get(i);
-
-                if (questionAndAnswer.getTextAnswers().size() <= i) {
-                    TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
-                    answerResponse.setContent("");
-                    answerResponse.setSelected(false);
-                    answerResponse.setIsCorrect(false);
-                    GetQuestionsResponse.AnswerResponse answer1 = new GetQuestionsResponse.AnswerResponse();
-
-                    saveStudentAnswer(testResult, question.getId(), answer1, false);
-                    answerResponses.add(answerResponse);
+            for (int i = 0; i < expectedAnswers.size(); i++) {
+                if (textAnswers.size() <= i) {
+                    answerResponses.add(emptyTextAnswer());
+                    answerSheet.add(question.getId(), null, null, false);
                     continue; // Skip this answer
                 }
 
-                boolean check = normalizeAnswer(questionAndAnswer.getTextAnswers().get(i)).equals(normalizeAnswer(answer.getContent()));
+                boolean check = AnswerTextMatcher.normalize(textAnswers.get(i)).equals(expectedAnswers.get(i));
                 TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
 
-                answerResponse.setContent(questionAndAnswer.getTextAnswers().get(i));
-                answerResponse.setAnswerText(questionAndAnswer.getTextAnswers().get(i));
+                answerResponse.setContent(textAnswers.get(i));
+                answerResponse.setAnswerText(textAnswers.get(i));
                 answerResponse.setSelected(check);
                 answerResponse.setIsCorrect(check);
 
-                GetQuestionsResponse.AnswerResponse answer1 = new GetQuestionsResponse.AnswerResponse();
-                answer1.setContent(questionAndAnswer.getTextAnswers().get(i));
-                answer1.setQuestionId(question.getId());
-
-                // Save student answer1 with the submitted text
-                saveStudentAnswer(testResult, question.getId(), answer1, check);
+                // Save student answer with the submitted text
+                answerSheet.add(question.getId(), null, textAnswers.get(i), check);
 
                 answerResponses.add(answerResponse);
             }
@@ -981,147 +990,67 @@ public class TestService implements ITestService {
 
         return answerResponses;
     }
-    private boolean isTextAnswerCorrect(String submittedAnswer, String correctAnswer) {
-        if (submittedAnswer == null || correctAnswer == null) {
-            return false;
-        }
-
-        // Normalize both answers
-        String normalizedSubmitted = normalizeAnswer(submittedAnswer);
-        String normalizedCorrect = normalizeAnswer(correctAnswer);
-
-        // Exact match after normalization
-        if (normalizedSubmitted.equals(normalizedCorrect)) {
-            return true;
-        }
-
-        // Allow for minor variations
-        return calculateSimilarity(normalizedSubmitted, normalizedCorrect) >= 0.8;
-    }
-
-    private String normalizeAnswer(String answer) {
-        return answer.trim()
-                .toLowerCase()
-                .replaceAll("[àáạảãâầấậẩẫăằắặẳẵ]", "a")
-                .replaceAll("[èéẹẻẽêềếệểễ]", "e")
-                .replaceAll("[ìíịỉĩ]", "i")
-                .replaceAll("[òóọỏõôồốộổỗơờớợởỡ]", "o")
-                .replaceAll("[ùúụủũưừứựửữ]", "u")
-                .replaceAll("[ỳýỵỷỹ]", "y")
-                .replaceAll("[đ]", "d")
-                .replaceAll("–", "-") // Replace en dash with hyphen
-                .replaceAll("\\p{Punct}", "") // Remove punctuation
-                .replaceAll("\\s+", " "); // Replace multiple spaces with single space
-    }
-
-    private double calculateSimilarity(String s1, String s2) {
-        // Levenshtein distance similarity calculation
-        int maxLength = Math.max(s1.length(), s2.length());
-        int distance = levenshteinDistance(s1, s2);
-        return 1.0 - ((double) distance / maxLength);
-    }
 
-    private int levenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-
-        for (int i = 0; i <= s1.length(); i++) {
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else {
-                    dp[i][j] = Math.min(
-                            Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                            dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1)
-                    );
-                }
-            }
-        }
-
-        return dp[s1.length()][s2.length()];
+    private TestSubmitResponse.AnswerResponse emptyTextAnswer() {
+        TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
+        answerResponse.setContent("");
+        answerResponse.setSelected(false);
+        answerResponse.setIsCorrect(false);
+        return answerResponse;
     }
-    private TestSubmitResponse.QuestionResponse mapQuestionResponse(GetQuestionsResponse.QuestionResponse question) {
+    private TestSubmitResponse.QuestionResponse mapQuestionResponse(CompiledAnswerKey.QuestionKey question, List<FileEntity> sources) {
         TestSubmitResponse.QuestionResponse questionResponse = new TestSubmitResponse.QuestionResponse();
         questionResponse.setId(question.getId());
         questionResponse.setContent(question.getContent());
         questionResponse.setDescription(question.getDescription());
-        questionResponse.setSource(fileRepository.findByOwnerIdAndOwnerType(question.getId(), FileOwnerType.QUESTION.name()));
+        questionResponse.setSource(sources);
         questionResponse.setType(question.getType());
         return questionResponse;
     }
 
     private List<TestSubmitResponse.AnswerResponse> processAnswers(
-            GetQuestionsResponse.QuestionResponse question,
+            CompiledAnswerKey.QuestionKey question,
             TestSubmitRequest body,
             int questionIndex,
-            TestResultEntity testResult) {
-        List<String> selectedAnswers = getSelectedAnswers(body, questionIndex);
+            AnswerSheet answerSheet) {
+        Set<String> selectedAnswers = getSelectedAnswers(body, questionIndex);
         return question.getAnswers().stream()
-                .map(answer -> processAnswer(answer, selectedAnswers, testResult, question.getId()))
+                .map(answer -> processAnswer(answer, selectedAnswers, answerSheet, question.getId()))
                 .collect(Collectors.toList());
     }
 
-    private List<String> getSelectedAnswers(TestSubmitRequest body, int questionIndex) {
-        return body.getQuestionAndAnswers().size() > questionIndex
-                ? body.getQuestionAndAnswers().get(questionIndex).getAnswers()
-                : Collections.emptyList();
+    private Set<String> getSelectedAnswers(TestSubmitRequest body, int questionIndex) {
+        if (body.getQuestionAndAnswers() == null || body.getQuestionAndAnswers().size() <= questionIndex
+                || body.getQuestionAndAnswers().get(questionIndex).getAnswers() == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(body.getQuestionAndAnswers().get(questionIndex).getAnswers());
     }
 
     private TestSubmitResponse.AnswerResponse processAnswer(
-            GetQuestionsResponse.AnswerResponse answer,
-            List<String> selectedAnswers,
-            TestResultEntity testResult,
+            CompiledAnswerKey.AnswerKey answer,
+            Set<String> selectedAnswers,
+            AnswerSheet answerSheet,
             String questionId) {
-        TestSubmitResponse.AnswerResponse answerResponse = mapAnswerResponse(answer);
+        TestSubmitResponse.AnswerResponse answerResponse = mapAnswerResponse(answer, questionId);
         answerResponse.setSelected(selectedAnswers.contains(answer.getId()));
 
         if (answerResponse.isSelected()) {
-            saveStudentAnswer(testResult, questionId, answer, answer.getIsCorrect());
+            answerSheet.add(questionId, answer.getId(), null, answer.isCorrect());
         }
 
         return answerResponse;
     }
 
-    private TestSubmitResponse.AnswerResponse mapAnswerResponse(GetQuestionsResponse.AnswerResponse answer) {
+    private TestSubmitResponse.AnswerResponse mapAnswerResponse(CompiledAnswerKey.AnswerKey answer, String questionId) {
         TestSubmitResponse.AnswerResponse answerResponse = new TestSubmitResponse.AnswerResponse();
         answerResponse.setId(answer.getId());
         answerResponse.setContent(answer.getContent());
-        answerResponse.setIsCorrect(answer.getIsCorrect()!=null?answer.getIsCorrect():false);
-        answerResponse.setQuestionId(answer.getQuestionId());
+        answerResponse.setIsCorrect(answer.isCorrect());
+        answerResponse.setQuestionId(questionId);
         return answerResponse;
     }
 
-    private void saveStudentAnswer(TestResultEntity testResult, String questionId, GetQuestionsResponse.AnswerResponse answer,Boolean isCorrect) {
-        // For text-based question types, we'll use a different approach to find/create the student answer
-        StudentAnswersEntity studentAnswer = studentAnswersRepository
-                .findByStudentIdAndTestResultIdAndQuestionIdAndAnswerId(
-                        testResult.getStudentId(),
-                        testResult.getTestId(),
-                        questionId,
-                        answer.getId() // This might be null for text answers
-                );
-
-        if (studentAnswer == null) {
-            studentAnswer = new StudentAnswersEntity();
-        }
-
-        // Set common fields
-        studentAnswer.setQuestionId(questionId);
-        studentAnswer.setStudentId(testResult.getStudentId());
-        studentAnswer.setTestResultId(testResult.getId());
-        studentAnswer.setCreatedAt(String.valueOf(System.currentTimeMillis()));
-        studentAnswer.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
-        studentAnswer.setIsCorrect(isCorrect);
-
-        // Only set answerId if it's not null
-        if (answer.getId() != null) {
-            studentAnswer.setAnswerId(answer.getId());
-        }
-        studentAnswer.setTextAnswer(answer.getAnswerText());
-        studentAnswer.setContent(answer.getAnswerText());
-        studentAnswersRepository.save(studentAnswer);
-    }
     private int calculateTotalCorrectAnswers(List<TestSubmitResponse.QuestionResponse> questionResponses) {
         return (int) questionResponses.stream()
                 .filter(this::isQuestionCorrect)
@@ -1150,15 +1079,13 @@ public class TestService implements ITestService {
         }
     }
 
-    private void updateTestResult(TestResultEntity testResult, int totalCorrectAnswers, int totalQuestions) {
-        TestEntity testEntity = testRepository.findById(testResult.getTestId())
-                .orElseThrow(() -> new IllegalArgumentException("Test not found"));
+    private void updateTestResult(TestResultEntity testResult, CompiledAnswerKey answerKey, int totalCorrectAnswers) {
         testResult.setUpdatedAt(String.valueOf(System.currentTimeMillis()));
         testResult.setFinishedAt(String.valueOf(System.currentTimeMillis()));
-        double grade = calculateGrade(totalCorrectAnswers, totalQuestions);
+        double grade = calculateGrade(totalCorrectAnswers, answerKey.getTotalQuestions());
         testResult.setState(TestState.FINISHED);
         testResult.setGrade(grade);
-        Double passingGrade = testEntity.getPassingGrade();
+        Double passingGrade = answerKey.getPassingGrade();
         if (passingGrade ==null)
             passingGrade = 5.0;
         testResult.setIsPassed(grade >= passingGrade);
@@ -1172,31 +1099,28 @@ public class TestService implements ITestService {
 
     private TestSubmitResponse createTestSubmitResponse(
             TestResultEntity testResult,
-            List<TestSubmitResponse.QuestionResponse> questionResponses,
-            int totalCorrectAnswers,
-            int totalQuestions) {
-        TestEntity testEntity = testRepository.findById(testResult.getTestId())
-                .orElseThrow(() -> new IllegalArgumentException("Test not found"));
+            CompiledAnswerKey answerKey,
+            int totalCorrectAnswers) {
         TestSubmitResponse response = new TestSubmitResponse();
         response.setTestType("test");
         response.setStudentId(testResult.getStudentId());
         response.setTestId(testResult.getTestId());
         response.setAttendedAt(testResult.getAttendedAt());
         response.setTotalCorrectAnswers(totalCorrectAnswers);
-        response.setTotalQuestions(totalQuestions);
+        response.setTotalQuestions(answerKey.getTotalQuestions());
         response.setFinishedAt(testResult.getFinishedAt());
         response.setAttendedAt(testResult.getAttendedAt());
         response.setGrade(testResult.getGrade());
-        Double passingGrade = testEntity.getPassingGrade();
+        Double passingGrade = answerKey.getPassingGrade();
         if (passingGrade ==null)
             passingGrade = 5.0;
         response.setPassed(testResult.getGrade() >= passingGrade);
         response.setId(testResult.getId());
-        if (response.isPassed()&&testEntity.getLessonId()!=null){
+        if (response.isPassed()&&answerKey.getLessonId()!=null){
             ProgressCompleteRequest progressCompleteRequest = new ProgressCompleteRequest();
-            progressCompleteRequest.setLessonId(testEntity.getLessonId());
+            progressCompleteRequest.setLessonId(answerKey.getLessonId());
             progressCompleteRequest.setStudentId(testResult.getStudentId());
-            progressCompleteRequest.setClassroomId(testEntity.getClassroomId());
+            progressCompleteRequest.setClassroomId(answerKey.getClassroomId());
             progressService.markLessonAsCompleted(progressCompleteRequest);
         }
         return response;
@@ -17,23 +17,20 @@ import com.example.learning_api.enums.UserStatus;
 import com.example.learning_api.model.CustomException;
 import com.example.learning_api.repository.database.*;
 import com.example.learning_api.service.common.JwtService;
+import com.example.learning_api.service.common.MailOutbox;
 import com.example.learning_api.service.common.ModelMapperService;
 import com.example.learning_api.service.core.IUserAuthService;
 //import com.example.learning_api.service.redis.Impl.BaseRedisServiceImpl;
 //import com.example.learning_api.service.redis.UserTokenRedisService;
 import com.example.learning_api.utils.GeneratorUtils;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -41,29 +38,22 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static com.example.learning_api.constant.ErrorConstant.EXISTED_DATA;
 import static com.example.learning_api.constant.ErrorConstant.UNAUTHORIZED;
 
 
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
-
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserAuthService  implements IUserAuthService {
     Logger logger = LoggerFactory.getLogger(this.getClass());
-    @Value("${spring.mail.username}")
-    private String mailFrom;
     private final ModelMapperService modelMapperService;
     private final UserRepository userRepository;
     private final JwtService jwtService;
@@ -74,11 +64,8 @@ public class UserAuthService  implements IUserAuthService {
     private final TeacherRepository teacherRepository;
     private final StudentRepository studentRepository;
 //    private final MailerKafkaPublisher mailerKafkaPublisher;
-    @Autowired
-    private final JavaMailSender javaMailSender;
-    
-    @Autowired
-    private SpringTemplateEngine templateEngine;
+    private final MailOutbox mailOutbox;
+    private static final Duration CODE_VALIDITY = Duration.of(3, ChronoUnit.MINUTES);
     @Autowired
     @Lazy
     private PasswordEncoder passwordEncoder;
@@ -274,7 +261,7 @@ public class UserAuthService  implements IUserAuthService {
         ConfirmationEntity oldConfirmation = confirmationRepository.findByEmail(email).orElse(null);
         Date currentDate = new Date();
         Instant instant = currentDate.toInstant();
-        Instant newInstant = instant.plus(Duration.of(3, ChronoUnit.MINUTES));
+        Instant newInstant = instant.plus(CODE_VALIDITY);
         Date newDate = Date.from(newInstant);
         if (oldConfirmation == null) {
             ConfirmationEntity confirmation = ConfirmationEntity.builder()
@@ -322,29 +309,9 @@ public class UserAuthService  implements IUserAuthService {
                                    String body,
                                    String subject
                                    ) {
-        try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-
-            MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, StandardCharsets.UTF_8.name());
-
-            Context context = new Context();
-            context.setVariable("body", body);
-            context.setVariable("toMail", toMail);
-            String htmlContent = templateEngine.process("email-template", context);
-
-
-            mimeMessageHelper.setFrom(mailFrom);
-            mimeMessageHelper.setTo(toMail);
-            mimeMessageHelper.setText(htmlContent, true);
-            mimeMessageHelper.setSubject(subject);
-
-
-
-            javaMailSender.send(mimeMessage);
-            logger.info("Send email to " + toMail + " successfully");
-        } catch (MessagingException e) {
-            throw new CustomException( "Error while sending email");
-        }
+        // Not worth sending once the code has expired
+        mailOutbox.enqueue(toMail, subject, "email-template", Map.of("body", body), CODE_VALIDITY);
+        logger.info("Queued email to " + toMail);
     }
     @Override
     public void verifyCodeByEmail(String code, String email) {
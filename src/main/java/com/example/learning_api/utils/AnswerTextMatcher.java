@@ -0,0 +1,174 @@
+package com.example.learning_api.utils;
+
+/**
+ * Grading of free-text answers (TEXT_ANSWER and FILL_IN_THE_BLANK).
+ * <p>
+ * {@link #normalize(String)} trims, lower-cases, folds Vietnamese diacritics, drops ASCII punctuation and collapses
+ * whitespace in a single pass over a per-thread buffer, with the same result as the former chain of
+ * {@code replaceAll} calls. {@link #isCorrect(String, String)} accepts an exact match after normalization, or a
+ * Levenshtein similarity of at least {@link #SIMILARITY_THRESHOLD}; the distance is computed on a band of two rows
+ * and gives up as soon as the threshold can no longer be reached.
+ */
+public final class AnswerTextMatcher {
+    public static final double SIMILARITY_THRESHOLD = 0.8;
+
+    private static final int MAX_BUFFER = 4096;
+    private static final char FOLD_END = 0x1F00;
+    private static final char[] FOLD = new char[FOLD_END];
+    private static final boolean[] PUNCT = new boolean[128];
+
+    // Buffers are kept per thread; unusually long answers get their own and do not pin memory
+    private static final ThreadLocal<char[]> TEXT_BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+    private static final ThreadLocal<int[][]> ROWS = ThreadLocal.withInitial(() -> new int[][]{new int[64], new int[64]});
+
+    static {
+        for (char c = 0; c < FOLD_END; c++) {
+            FOLD[c] = c;
+        }
+        fold("àáạảãâầấậẩẫăằắặẳẵ", 'a');
+        fold("èéẹẻẽêềếệểễ", 'e');
+        fold("ìíịỉĩ", 'i');
+        fold("òóọỏõôồốộổỗơờớợởỡ", 'o');
+        fold("ùúụủũưừứựửữ", 'u');
+        fold("ỳýỵỷỹ", 'y');
+        fold("đ", 'd');
+        for (char c : "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray()) {
+            PUNCT[c] = true;
+        }
+    }
+
+    private AnswerTextMatcher() {
+    }
+
+    private static void fold(String accented, char base) {
+        for (char c : accented.toCharArray()) {
+            FOLD[c] = base;
+        }
+    }
+
+    public static String normalize(String answer) {
+        if (answer == null) {
+            return "";
+        }
+        int start = 0;
+        int end = answer.length();
+        while (start < end && answer.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && answer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        char[] buffer = end - start <= MAX_BUFFER ? TEXT_BUFFER.get() : new char[end - start];
+        if (buffer.length < end - start) {
+            buffer = new char[Math.min(MAX_BUFFER, Math.max(end - start, buffer.length * 2))];
+            TEXT_BUFFER.set(buffer);
+        }
+        int length = 0;
+        boolean inWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char c = Character.toLowerCase(answer.charAt(i));
+            if (c < FOLD_END) {
+                c = FOLD[c];
+            }
+            if (c == '–' || (c < 128 && PUNCT[c])) {
+                // The en dash used to become a hyphen before punctuation was removed; dropping it does not end a whitespace run
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                if (!inWhitespace) {
+                    buffer[length++] = ' ';
+                    inWhitespace = true;
+                }
+                continue;
+            }
+            buffer[length++] = c;
+            inWhitespace = false;
+        }
+        return new String(buffer, 0, length);
+    }
+
+    public static boolean isCorrect(String submittedAnswer, String correctAnswer) {
+        if (submittedAnswer == null || correctAnswer == null) {
+            return false;
+        }
+        return isNormalizedMatch(normalize(submittedAnswer), normalize(correctAnswer));
+    }
+
+    /**
+     * Same as {@link #isCorrect(String, String)} for answers that are already normalized.
+     */
+    public static boolean isNormalizedMatch(String submitted, String correct) {
+        if (submitted.equals(correct)) {
+            return true;
+        }
+        int maxLength = Math.max(submitted.length(), correct.length());
+        int maxDistance = maxDistance(maxLength);
+        return maxDistance > 0 && boundedDistance(submitted, correct, maxDistance) <= maxDistance;
+    }
+
+    /**
+     * @return the largest edit distance whose similarity {@code 1 - distance / maxLength} still reaches the threshold
+     */
+    static int maxDistance(int maxLength) {
+        if (maxLength == 0) {
+            return 0;
+        }
+        int distance = (int) (maxLength * (1 - SIMILARITY_THRESHOLD)) + 1;
+        while (distance > 0 && 1.0 - ((double) distance / maxLength) < SIMILARITY_THRESHOLD) {
+            distance--;
+        }
+        return distance;
+    }
+
+    /**
+     * Levenshtein distance limited to {@code limit}: only cells within {@code limit} of the diagonal are computed,
+     * and {@code limit + 1} is returned once every cell of a row exceeds the limit.
+     */
+    static int boundedDistance(String s1, String s2, int limit) {
+        int n = s1.length();
+        int m = s2.length();
+        if (Math.abs(n - m) > limit) {
+            return limit + 1;
+        }
+        int[][] rows = ROWS.get();
+        if (rows[0].length < m + 1) {
+            rows = new int[][]{new int[m + 1], new int[m + 1]};
+            if (m + 1 <= MAX_BUFFER) {
+                ROWS.set(rows);
+            }
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        int outside = limit + 1;
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= limit ? j : outside;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - limit);
+            int to = Math.min(m, i + limit);
+            current[0] = i <= limit ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = current[0];
+            char c1 = s1.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = c1 == s2.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > limit) {
+                return outside;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[m], outside);
+    }
+}
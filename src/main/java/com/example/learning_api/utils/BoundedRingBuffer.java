@@ -0,0 +1,118 @@
+package com.example.learning_api.utils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bounded ring buffer for many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number telling whose turn it is: producers claim a position with one CAS on the
+ * tail and publish by advancing the slot's sequence, the consumer frees a slot by moving its sequence one lap ahead.
+ * A full buffer rejects instead of blocking; {@link #offerAll(List)} takes a batch whole or not at all.
+ * {@link #drainTo(List, int)} must only be called by one thread at a time.
+ */
+public final class BoundedRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Only touched by the consumer
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public BoundedRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false when the buffer is full
+     */
+    public boolean offer(T value) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long turn = sequences.get(index) - position;
+            if (turn == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, value);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (turn < 0) {
+                return false; // The consumer has not freed this slot yet
+            } else {
+                position = tail.get(); // Another producer took it
+            }
+        }
+    }
+
+    /**
+     * Offers all values or none: their positions are claimed together with one CAS on the tail, so a full buffer
+     * never keeps part of them. Values are published in order.
+     *
+     * @return false when the buffer has no room for all of them
+     */
+    public boolean offerAll(List<T> values) {
+        int count = values.size();
+        if (count == 0) {
+            return true;
+        }
+        if (count > capacity()) {
+            return false;
+        }
+        long position = tail.get();
+        while (true) {
+            // The consumer frees slots in order, so the last position being free means all of them are
+            long last = position + count - 1;
+            long turn = sequences.get((int) (last & mask)) - last;
+            if (turn == 0 && sequences.get((int) (position & mask)) == position) {
+                if (tail.compareAndSet(position, position + count)) {
+                    for (int i = 0; i < count; i++) {
+                        int index = (int) ((position + i) & mask);
+                        slots.set(index, values.get(i));
+                        sequences.set(index, position + i + 1);
+                    }
+                    return true;
+                }
+            } else if (turn < 0) {
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Moves up to {@code max} published values into {@code target}, oldest first.
+     *
+     * @return how many were moved
+     */
+    public int drainTo(List<T> target, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break; // Empty, or claimed but not yet published
+            }
+            target.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.learning_api.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental parser for imported question banks in the form
+ * <pre>
+ * Câu 1: question text
+ * A. answer
+ * B. correct answer*
+ * </pre>
+ * Text is fed chunk by chunk (a page, a paragraph) and every question is handed to the consumer as soon as the next
+ * one starts, so a large file never has to be held as one string. A chunk always ends a line. Question and answer
+ * text may continue on the following lines; an answer is correct when its text ends with {@code *}.
+ */
+public final class TestImportParser {
+    private static final Pattern QUESTION = Pattern.compile("^\\s*Câu\\s+(\\d{1,9})\\s*:\\s*(.*)$");
+    private static final Pattern ANSWER = Pattern.compile("^\\s*([A-D])\\.\\s*(.*)$");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
+
+    private final Consumer<ParsedQuestion> consumer;
+    private ParsedQuestion current;
+
+    public TestImportParser(Consumer<ParsedQuestion> consumer) {
+        this.consumer = consumer;
+    }
+
+    public static final class ParsedQuestion {
+        private final int number;
+        private final StringBuilder content = new StringBuilder();
+        private final List<ParsedAnswer> answers = new ArrayList<>();
+
+        private ParsedQuestion(int number) {
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getContent() {
+            return content.toString().trim();
+        }
+
+        public List<ParsedAnswer> getAnswers() {
+            return answers;
+        }
+
+        public int getCorrectCount() {
+            int count = 0;
+            for (ParsedAnswer answer : answers) {
+                if (answer.isCorrect()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return why the question cannot be imported, or null when it can
+         */
+        public String validate() {
+            if (getContent().isEmpty()) {
+                return "Question content is empty";
+            }
+            if (answers.size() < 2) {
+                return "Question needs at least 2 answers";
+            }
+            for (int i = 0; i < answers.size(); i++) {
+                if (answers.get(i).getContent().isEmpty()) {
+                    return "Answer " + answers.get(i).getLabel() + " is empty";
+                }
+                for (int j = 0; j < i; j++) {
+                    if (answers.get(j).getLabel() == answers.get(i).getLabel()) {
+                        return "Answer " + answers.get(i).getLabel() + " appears more than once";
+                    }
+                }
+            }
+            if (getCorrectCount() == 0) {
+                return "No answer is marked correct with *";
+            }
+            return null;
+        }
+    }
+
+    public static final class ParsedAnswer {
+        private final char label;
+        private final StringBuilder text = new StringBuilder();
+
+        private ParsedAnswer(char label) {
+            this.label = label;
+        }
+
+        public char getLabel() {
+            return label;
+        }
+
+        public String getContent() {
+            String value = text.toString().trim();
+            return value.endsWith("*") ? value.substring(0, value.length() - 1).trim() : value;
+        }
+
+        public boolean isCorrect() {
+            return text.toString().trim().endsWith("*");
+        }
+    }
+
+    public void accept(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        for (String line : LINE_BREAK.split(chunk)) {
+            acceptLine(line);
+        }
+    }
+
+    /**
+     * Hands over the last question; call once the whole input has been fed.
+     */
+    public void finish() {
+        if (current != null) {
+            consumer.accept(current);
+            current = null;
+        }
+    }
+
+    private void acceptLine(String line) {
+        Matcher question = QUESTION.matcher(line);
+        if (question.matches()) {
+            finish();
+            current = new ParsedQuestion(Integer.parseInt(question.group(1)));
+            current.content.append(question.group(2));
+            return;
+        }
+        if (current == null) {
+            // Title or instructions before the first question
+            return;
+        }
+        Matcher answer = ANSWER.matcher(line);
+        if (answer.matches()) {
+            ParsedAnswer parsed = new ParsedAnswer(answer.group(1).charAt(0));
+            parsed.text.append(answer.group(2));
+            current.answers.add(parsed);
+        } else if (!line.isBlank()) {
+            StringBuilder target = current.answers.isEmpty()
+                    ? current.content
+                    : current.answers.get(current.answers.size() - 1).text;
+            target.append('\n').append(line);
+        }
+    }
+}
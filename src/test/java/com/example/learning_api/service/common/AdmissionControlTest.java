@@ -0,0 +1,199 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.controller.TestController;
+import com.example.learning_api.dto.request.test.CreateTestResultRequest;
+import com.example.learning_api.dto.response.test.StartTestResponse;
+import com.example.learning_api.model.CustomException;
+import com.example.learning_api.model.ResponseAPI;
+import com.example.learning_api.service.core.ITestResultService;
+import com.example.learning_api.service.core.ITestService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Start-test burst against {@link AdmissionControl}, through {@link TestController} so the 429 and Retry-After
+ * mapping is covered too. Uses the gate sizes of TestResultService: 16 permits and 256 waiting.
+ */
+class AdmissionControlTest {
+    private static final String GATE = "start-test";
+    private static final int PERMITS = 16;
+    private static final int QUEUE = 256;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionControl admissionControl;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        admissionControl = new AdmissionControl(meterRegistry);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void burstBeyondPermitsAndQueueGets429WithJitteredRetryAfter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(PERMITS);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        ITestResultService testResultService = mock(ITestResultService.class);
+        when(testResultService.addTestResult(any())).thenAnswer(invocation -> admissionControl.admit(GATE, PERMITS, QUEUE, () -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return new StartTestResponse();
+        }));
+        TestController controller = new TestController(mock(ITestService.class), testResultService, null, null);
+
+        // Fill every permit, then every queue slot
+        List<Future<ResponseEntity<ResponseAPI<StartTestResponse>>>> admitted = new ArrayList<>();
+        for (int i = 0; i < PERMITS; i++) {
+            admitted.add(executor.submit(() -> controller.startTest(new CreateTestResultRequest())));
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        List<Thread> waiters = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < QUEUE; i++) {
+            admitted.add(executor.submit(() -> {
+                waiters.add(Thread.currentThread());
+                return controller.startTest(new CreateTestResultRequest());
+            }));
+        }
+        awaitParked(waiters, QUEUE);
+
+        // Everything beyond that is turned away at once
+        int rejectedCount = 200;
+        List<Future<ResponseEntity<ResponseAPI<StartTestResponse>>>> rejected = new ArrayList<>();
+        for (int i = 0; i < rejectedCount; i++) {
+            rejected.add(executor.submit(() -> controller.startTest(new CreateTestResultRequest())));
+        }
+        Set<Integer> retryAfters = new HashSet<>();
+        for (Future<ResponseEntity<ResponseAPI<StartTestResponse>>> future : rejected) {
+            ResponseEntity<ResponseAPI<StartTestResponse>> response = future.get(1, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+            int retryAfter = Integer.parseInt(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+            assertTrue(retryAfter >= 1 && retryAfter <= 5, "Retry-After " + retryAfter);
+            retryAfters.add(retryAfter);
+        }
+        assertTrue(retryAfters.size() > 1, "Retry-After is not jittered: " + retryAfters);
+
+        // Once the running starts finish, every queued one gets a permit
+        release.countDown();
+        for (Future<ResponseEntity<ResponseAPI<StartTestResponse>>> future : admitted) {
+            assertEquals(HttpStatus.CREATED, future.get(5, TimeUnit.SECONDS).getStatusCode());
+        }
+        assertEquals(PERMITS, maxConcurrent.get());
+        assertEquals(PERMITS + QUEUE, count(GATE, "admitted"));
+        assertEquals(rejectedCount, count(GATE, "rejected"));
+    }
+
+    @Test
+    void waiterIsRejectedAfterMaxWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        Future<String> holder = executor.submit(() -> admissionControl.admit("slow", 1, 1, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        CustomException e = assertThrows(CustomException.class, () -> admissionControl.admit("slow", 1, 1, () -> "late"));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(AdmissionControl.BUSY_CODE, e.getErrorCode());
+        assertTrue(waitedMillis >= 2500, "waited " + waitedMillis + " ms");
+
+        release.countDown();
+        assertEquals("done", holder.get(5, TimeUnit.SECONDS));
+        // The permit is back: the gate admits again
+        assertEquals("again", admissionControl.admit("slow", 1, 1, () -> "again"));
+    }
+
+    @Test
+    void permitsAreReleasedWhenWorkFails() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalArgumentException.class, () -> admissionControl.admit("failing", 1, 0, () -> {
+                throw new IllegalArgumentException("Test does not exist");
+            }));
+        }
+        assertEquals("ok", admissionControl.admit("failing", 1, 0, () -> "ok"));
+        assertEquals(0, count("failing", "rejected"));
+    }
+
+    @Test
+    void neverRunsMoreThanPermitsUnderContention() throws Exception {
+        int permits = 4;
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> callers = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            callers.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 50; j++) {
+                    admissionControl.admit("contended", permits, 1000, () -> {
+                        maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                        Thread.yield();
+                        concurrent.decrementAndGet();
+                        return done.incrementAndGet();
+                    });
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> caller : callers) {
+            caller.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(64 * 50, done.get());
+        assertTrue(maxConcurrent.get() <= permits, "ran " + maxConcurrent.get() + " at once");
+    }
+
+    private long count(String gate, String outcome) {
+        Counter counter = meterRegistry.find("admission.requests").tag("gate", gate).tag("outcome", outcome).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    // Waits until the queued callers are all parked on the gate's semaphore
+    private static void awaitParked(List<Thread> waiters, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline) {
+            if (waiters.size() == expected && waiters.stream().allMatch(thread -> thread.getState() == Thread.State.TIMED_WAITING)) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Queued callers did not reach the gate in time");
+    }
+}
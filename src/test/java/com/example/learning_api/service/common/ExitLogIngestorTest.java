@@ -0,0 +1,133 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.dto.request.test.CreateExitLogRequest;
+import com.example.learning_api.entity.sql.database.StudentTestExitLogEntity;
+import com.example.learning_api.entity.sql.database.TestExitCountEntity;
+import com.example.learning_api.entity.sql.database.TestResultEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Acceptance checks and flush retries of {@link ExitLogIngestor}, against a mocked MongoTemplate whose bulk inserts
+ * fail for the attempts listed in {@link #failing}.
+ */
+class ExitLogIngestorTest {
+    private static final String STUDENT = "student-1";
+
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private ExitLogIngestor ingestor;
+    private final Set<String> failing = new HashSet<>();
+    private final List<String> inserted = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ingestor = new ExitLogIngestor(mongoTemplate, meterRegistry);
+        // Every attempt asked about is the student's and ongoing
+        when(mongoTemplate.count(any(Query.class), eq(TestResultEntity.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            return (long) ((Collection<?>) ((Document) query.getQueryObject().get("_id")).get("$in")).size();
+        });
+        when(mongoTemplate.find(any(Query.class), eq(TestResultEntity.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            List<TestResultEntity> attempts = new ArrayList<>();
+            for (Object id : (Collection<?>) ((Document) query.getQueryObject().get("_id")).get("$in")) {
+                TestResultEntity attempt = new TestResultEntity();
+                attempt.setId(id.toString());
+                attempt.setStudentId(STUDENT);
+                attempt.setTestId("test-1");
+                attempts.add(attempt);
+            }
+            return attempts;
+        });
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(StudentTestExitLogEntity.class))).thenAnswer(invocation -> {
+            BulkOperations bulk = mock(BulkOperations.class);
+            List<StudentTestExitLogEntity> logs = new ArrayList<>();
+            when(bulk.insert(anyList())).thenAnswer(insert -> {
+                logs.addAll((List<StudentTestExitLogEntity>) insert.getArgument(0));
+                return bulk;
+            });
+            when(bulk.execute()).thenAnswer(execute -> {
+                if (logs.stream().anyMatch(exitLog -> failing.contains(exitLog.getTestResultId()))) {
+                    throw new DataAccessResourceFailureException("write failed");
+                }
+                logs.forEach(exitLog -> inserted.add(exitLog.getTestResultId()));
+                return null;
+            });
+            return bulk;
+        });
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(TestExitCountEntity.class)))
+                .thenAnswer(invocation -> mock(BulkOperations.class));
+    }
+
+    @Test
+    void rejectsAttemptsThatAreNotTheStudentsOngoingOnes() {
+        when(mongoTemplate.count(any(Query.class), eq(TestResultEntity.class))).thenReturn(1L);
+
+        assertThrows(IllegalArgumentException.class, () -> ingestor.accept(STUDENT, List.of(event("mine"), event("finished"))));
+        assertEquals(0, count("accepted"));
+    }
+
+    @Test
+    void eventsAreRecordedForTheAuthenticatedStudent() {
+        assertEquals(2, ingestor.accept(STUDENT, List.of(event("result-1"), event("result-1"))));
+        ingestor.flush();
+
+        assertEquals(List.of("result-1", "result-1"), inserted);
+    }
+
+    @Test
+    void flushThatKeepsFailingIsAbandonedWithoutHoldingUpNewEvents() {
+        failing.add("stuck");
+        ingestor.accept(STUDENT, List.of(event("stuck")));
+        ingestor.flush(); // First attempt fails and parks it
+
+        for (int i = 0; i < 10; i++) {
+            ingestor.accept(STUDENT, List.of(event("fine-" + i)));
+            ingestor.flush();
+            assertTrue(inserted.contains("fine-" + i), "flush " + i + " was held up");
+        }
+        assertEquals(1, count("abandoned"));
+        assertFalse(inserted.contains("stuck"));
+    }
+
+    @Test
+    void parkedFlushIsWrittenOnceTheDatabaseRecovers() {
+        failing.add("late");
+        ingestor.accept(STUDENT, List.of(event("late")));
+        ingestor.flush();
+        failing.clear();
+
+        ingestor.flush();
+
+        assertEquals(List.of("late"), inserted);
+        assertEquals(0, count("abandoned"));
+    }
+
+    private static CreateExitLogRequest event(String testResultId) {
+        CreateExitLogRequest event = new CreateExitLogRequest();
+        event.setTestResultId(testResultId);
+        return event;
+    }
+
+    private long count(String outcome) {
+        Counter counter = meterRegistry.find("exit.log.events").tag("outcome", outcome).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+}
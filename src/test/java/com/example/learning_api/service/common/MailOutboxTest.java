@@ -0,0 +1,242 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.entity.sql.database.MailJobEntity;
+import com.example.learning_api.entity.sql.database.UserEntity;
+import com.example.learning_api.enums.MailJobStatus;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sends outbox batches through a real {@link JavaMailSenderImpl} and the application's templates to a local GreenMail
+ * SMTP server. MongoDB is mocked: the updates recording each job's outcome are captured instead.
+ */
+class MailOutboxTest {
+    private static final String FROM = "outbox@learning.test";
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private MongoTemplate mongoTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private final Map<String, Update> recorded = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MailJobEntity.class)).thenReturn(bulk);
+        when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            recorded.put(query.getQueryObject().getString("_id"), invocation.getArgument(1));
+            return bulk;
+        });
+    }
+
+    @Test
+    void sendsAWholeBatchOverOneConnection() throws Exception {
+        List<MailJobEntity> batch = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            batch.add(job("job-" + i, "student" + i + "@learning.test", "code-" + i));
+        }
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 20; i < 25; i++) {
+            MailJobEntity job = job("job-" + i, null, "code-" + i);
+            job.setUserId("user-" + i);
+            batch.add(job);
+            UserEntity user = new UserEntity();
+            user.setId("user-" + i);
+            user.setEmail("user" + i + "@learning.test");
+            users.add(user);
+        }
+        when(mongoTemplate.find(any(Query.class), eq(UserEntity.class))).thenReturn(users);
+        JavaMailSenderImpl sender = spy(sender(ServerSetupTest.SMTP.getPort()));
+
+        outbox(sender).send(batch);
+
+        verify(sender, times(1)).send(any(MimeMessage[].class));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(25, received.length);
+        Map<String, String> bodies = new HashMap<>();
+        for (MimeMessage message : received) {
+            bodies.put(GreenMailUtil.getAddressList(message.getAllRecipients()), GreenMailUtil.getBody(message));
+        }
+        assertTrue(bodies.get("student3@learning.test").contains("code-3"));
+        assertTrue(bodies.get("user21@learning.test").contains("code-21"));
+        assertEquals(25, recorded.size());
+        long now = System.currentTimeMillis();
+        for (MailJobEntity job : batch) {
+            Document set = set(job.getId());
+            assertEquals(MailJobStatus.SENT, set.get("status"));
+            assertTrue(((Date) set.get("expireAt")).getTime() > now);
+        }
+        assertEquals(25, count("sent"));
+    }
+
+    @Test
+    void failedSendIsRetriedLaterAndThenDelivered() throws Exception {
+        MailJobEntity job = job("job-1", "student@learning.test", "123456");
+
+        long before = System.currentTimeMillis();
+        outbox(sender(unusedPort())).send(List.of(job));
+
+        Document set = set("job-1");
+        assertEquals(MailJobStatus.PENDING, set.get("status"));
+        long nextAttemptAt = (Long) set.get("nextAttemptAt");
+        assertTrue(nextAttemptAt >= before + 60_000 && nextAttemptAt <= System.currentTimeMillis() + 60_000);
+        assertNotNull(set.get("lastError"));
+        assertFalse(set.containsKey("expireAt"));
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        assertEquals(1, count("retried"));
+
+        // The next attempt gets through
+        job.setAttempts(1);
+        recorded.clear();
+        outbox(sender(ServerSetupTest.SMTP.getPort())).send(List.of(job));
+
+        assertEquals(MailJobStatus.SENT, set("job-1").get("status"));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void timeSensitiveMailIsNotRetriedPastItsDeadline() throws Exception {
+        long now = System.currentTimeMillis();
+        MailJobEntity firstTry = job("first", "a@learning.test", "111111");
+        firstTry.setDeadline(now + 3 * 60_000); // The 1 minute retry still fits
+        MailJobEntity thirdTry = job("third", "b@learning.test", "222222");
+        thirdTry.setAttempts(2);
+        thirdTry.setDeadline(now + 3 * 60_000); // The 30 minute retry does not
+        MailJobEntity exhausted = job("exhausted", "c@learning.test", "report");
+        exhausted.setAttempts(5);
+
+        outbox(sender(unusedPort())).send(List.of(firstTry, thirdTry, exhausted));
+
+        assertEquals(MailJobStatus.PENDING, set("first").get("status"));
+        assertEquals(MailJobStatus.FAILED, set("third").get("status"));
+        // A failed code is purged at its deadline, other failures are kept a few days
+        assertEquals(new Date(thirdTry.getDeadline()), set("third").get("expireAt"));
+        assertEquals(MailJobStatus.FAILED, set("exhausted").get("status"));
+        long keptFor = ((Date) set("exhausted").get("expireAt")).getTime() - now;
+        assertTrue(keptFor > 24 * 60 * 60 * 1000L && keptFor <= 7 * 24 * 60 * 60 * 1000L, "kept " + keptFor);
+    }
+
+    @Test
+    void expiredMailIsFailedWithoutSending() {
+        MailJobEntity expired = job("expired", "student@learning.test", "123456");
+        expired.setDeadline(System.currentTimeMillis() - 1);
+
+        outbox(sender(ServerSetupTest.SMTP.getPort())).send(List.of(expired));
+
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        Document set = set("expired");
+        assertEquals(MailJobStatus.FAILED, set.get("status"));
+        assertEquals("Expired before it could be sent", set.get("lastError"));
+        assertEquals(new Date(expired.getDeadline()), set.get("expireAt"));
+    }
+
+    @Test
+    void transactionalMailIsClaimedAheadOfFanOut() {
+        MailOutbox outbox = outbox(sender(ServerSetupTest.SMTP.getPort()));
+        List<MailJobEntity> inserted = new ArrayList<>();
+        when(mongoTemplate.insert(any(MailJobEntity.class))).thenAnswer(invocation -> {
+            inserted.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(mongoTemplate.insert(anyCollection(), eq(MailJobEntity.class))).thenAnswer(invocation -> {
+            inserted.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        outbox.enqueueToUsers(List.of("user-1", "user-2"), "New lesson", "notification-email-template", Map.of());
+        outbox.enqueue("student@learning.test", "Code", "email-template", Map.of("body", "123456"), Duration.ofMinutes(5));
+
+        assertEquals(List.of(MailOutbox.PRIORITY_BULK, MailOutbox.PRIORITY_BULK, MailOutbox.PRIORITY_TRANSACTIONAL),
+                inserted.stream().map(MailJobEntity::getPriority).toList());
+        assertTrue(MailOutbox.PRIORITY_TRANSACTIONAL < MailOutbox.PRIORITY_BULK);
+
+        // Nothing due: the dispatcher only reads candidates, in claim order
+        ArgumentCaptor<Query> candidates = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(candidates.capture(), eq(MailJobEntity.class))).thenReturn(List.of());
+        outbox.dispatch();
+
+        assertEquals(List.of("priority", "nextAttemptAt"), new ArrayList<>(candidates.getValue().getSortObject().keySet()));
+    }
+
+    private MailOutbox outbox(JavaMailSenderImpl sender) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        MailOutbox outbox = new MailOutbox(mongoTemplate, sender, templateEngine, meterRegistry);
+        ReflectionTestUtils.setField(outbox, "mailFrom", FROM);
+        return outbox;
+    }
+
+    private static JavaMailSenderImpl sender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(port);
+        sender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        return sender;
+    }
+
+    private static MailJobEntity job(String id, String to, String code) {
+        MailJobEntity job = new MailJobEntity();
+        job.setId(id);
+        job.setTo(to);
+        job.setSubject("Get Password Code Learning App");
+        job.setTemplate("email-template");
+        job.setVariables(Map.of("body", code));
+        job.setStatus(MailJobStatus.SENDING);
+        job.setAttempts(0);
+        job.setClaimToken("claim");
+        return job;
+    }
+
+    private Document set(String jobId) {
+        Update update = recorded.get(jobId);
+        assertNotNull(update, "no outcome recorded for " + jobId);
+        return (Document) update.getUpdateObject().get("$set");
+    }
+
+    private long count(String outcome) {
+        Counter counter = meterRegistry.find("mail.outbox.jobs").tag("outcome", outcome).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    private static int unusedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
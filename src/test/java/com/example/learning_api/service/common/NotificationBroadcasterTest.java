@@ -0,0 +1,103 @@
+package com.example.learning_api.service.common;
+
+import com.example.learning_api.enums.RoleEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class-wide delivery through the same simple broker the application configures on {@code /topic}, with student
+ * sessions each subscribed to their own topic and to their classroom's. The channels are synchronous, so a send
+ * returns once every session has been handed its message. Timings at class scale are measured by
+ * {@code NotificationBroadcastBenchmark}, outside this suite.
+ */
+class NotificationBroadcasterTest {
+    private static final int SESSIONS = 200;
+    private static final String CLASSROOM = "classroom-1";
+
+    private SimpleBrokerMessageHandler broker;
+    private NotificationBroadcaster broadcaster;
+    private final Map<String, List<Message<?>>> delivered = new HashMap<>();
+    private final List<String> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            if (accessor.getMessageType() == SimpMessageType.MESSAGE) {
+                delivered.computeIfAbsent(accessor.getSessionId(), id -> new ArrayList<>()).add(message);
+            }
+        });
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+        broadcaster = new NotificationBroadcaster(new SimpMessagingTemplate(brokerChannel), new ObjectMapper());
+
+        for (int i = 0; i < SESSIONS; i++) {
+            String sessionId = "session-" + i;
+            String userId = "student-" + i;
+            userIds.add(userId);
+            broker.handleMessage(clientMessage(SimpMessageType.CONNECT, sessionId, null, null));
+            broker.handleMessage(clientMessage(SimpMessageType.SUBSCRIBE, sessionId, "user",
+                    NotificationBroadcaster.userTopic(userId)));
+            broker.handleMessage(clientMessage(SimpMessageType.SUBSCRIBE, sessionId, "classroom",
+                    NotificationBroadcaster.classroomTopic(CLASSROOM, RoleEnum.USER)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        broker.stop();
+    }
+
+    @Test
+    void classroomTopicReachesEverySessionOnce() throws Exception {
+        broadcaster.toClassroom(CLASSROOM, RoleEnum.USER, Map.of("title", "Quiz tomorrow"));
+
+        assertEachSessionGotOne("Quiz tomorrow");
+    }
+
+    @Test
+    void userTopicsReachEverySessionOnce() throws Exception {
+        broadcaster.toUsers(userIds, Map.of("title", "Quiz tomorrow"));
+
+        assertEachSessionGotOne("Quiz tomorrow");
+    }
+
+    private void assertEachSessionGotOne(String title) throws Exception {
+        assertEquals(SESSIONS, delivered.size());
+        byte[] body = null;
+        for (List<Message<?>> messages : delivered.values()) {
+            assertEquals(1, messages.size());
+            byte[] payload = (byte[]) messages.get(0).getPayload();
+            if (body == null) {
+                body = payload;
+                assertEquals(title, new ObjectMapper().readTree(payload).get("title").asText());
+            } else {
+                assertSame(body, payload); // Serialized once, shared by every session
+            }
+        }
+    }
+
+    private static Message<byte[]> clientMessage(SimpMessageType type, String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
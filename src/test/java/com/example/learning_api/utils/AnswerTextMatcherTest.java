@@ -0,0 +1,149 @@
+package com.example.learning_api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link AnswerTextMatcher} against the grading it replaced, kept as {@link FormerAnswerGrading}. Throughput and
+ * allocation are measured by {@code AnswerTextMatcherBenchmark}, outside this suite.
+ */
+class AnswerTextMatcherTest {
+    private static final String VIETNAMESE = "àáạảãâầấậẩẫăằắặẳẵèéẹẻẽêềếệểễìíịỉĩòóọỏõôồốộổỗơờớợởỡùúụủũưừứựửữỳýỵỷỹđ";
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+            + VIETNAMESE + VIETNAMESE.toUpperCase()
+            + "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~–—…«»"
+            + "      \t\n\r\f\u000B";
+
+    @Test
+    void normalizeFoldsVietnamese() {
+        assertEquals("ha noi", AnswerTextMatcher.normalize("  Hà   Nội "));
+        assertEquals("da nang", AnswerTextMatcher.normalize("Đà Nẵng!"));
+        assertEquals("thanh pho ho chi minh", AnswerTextMatcher.normalize("Thành phố Hồ Chí Minh."));
+        assertEquals("nguyen truong to", AnswerTextMatcher.normalize("NGUYỄN TRƯỜNG TỘ"));
+        assertEquals("", AnswerTextMatcher.normalize(null));
+    }
+
+    @Test
+    void normalizeDropsPunctuation() {
+        assertEquals("ab", AnswerTextMatcher.normalize("a–b"));
+        assertEquals("a b", AnswerTextMatcher.normalize("a , b"));
+        assertEquals("a b", AnswerTextMatcher.normalize("a ,\t\n b"));
+        assertEquals(" a", AnswerTextMatcher.normalize(", a"));
+        assertEquals("hello world", AnswerTextMatcher.normalize("\"Hello,\" (world)!?"));
+        assertEquals("", AnswerTextMatcher.normalize("  ...  "));
+    }
+
+    @Test
+    void normalizeMatchesReplaceAllChain() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String answer = randomText(random, random.nextInt(40));
+            assertEquals(FormerAnswerGrading.normalize(answer), AnswerTextMatcher.normalize(answer), () -> "normalize(\"" + answer + "\")");
+        }
+    }
+
+    @Test
+    void normalizeHandlesLongInputs() {
+        Random random = new Random(7);
+        // Longer than the per-thread buffer, and a short one afterwards to check the buffer is still usable
+        for (int length : new int[]{4095, 4096, 4097, 10000, 50000, 12}) {
+            String answer = randomText(random, length);
+            assertEquals(FormerAnswerGrading.normalize(answer), AnswerTextMatcher.normalize(answer));
+        }
+    }
+
+    @Test
+    void maxDistanceIsTheLastDistanceReachingTheThreshold() {
+        assertEquals(0, AnswerTextMatcher.maxDistance(0));
+        for (int length = 1; length <= 2000; length++) {
+            int distance = AnswerTextMatcher.maxDistance(length);
+            assertTrue(FormerAnswerGrading.similarity(distance, length) >= AnswerTextMatcher.SIMILARITY_THRESHOLD, "length " + length);
+            assertTrue(FormerAnswerGrading.similarity(distance + 1, length) < AnswerTextMatcher.SIMILARITY_THRESHOLD, "length " + length);
+        }
+        // 1 - 1/5 is exactly 0.8: one edit in five characters is still accepted
+        assertEquals(1, AnswerTextMatcher.maxDistance(5));
+        assertEquals(0, AnswerTextMatcher.maxDistance(4));
+        assertEquals(2, AnswerTextMatcher.maxDistance(10));
+    }
+
+    @Test
+    void boundedDistanceMatchesFullMatrix() {
+        Random random = new Random(11);
+        for (int i = 0; i < 20000; i++) {
+            String s1 = randomWord(random, random.nextInt(30));
+            String s2 = random.nextBoolean() ? mutate(random, s1) : randomWord(random, random.nextInt(30));
+            int limit = random.nextInt(12);
+            int expected = Math.min(FormerAnswerGrading.distance(s1, s2), limit + 1);
+            assertEquals(expected, AnswerTextMatcher.boundedDistance(s1, s2, limit),
+                    () -> "distance(\"" + s1 + "\", \"" + s2 + "\") limited to " + limit);
+        }
+    }
+
+    @Test
+    void isCorrectAtTheThresholdBoundary() {
+        assertTrue(AnswerTextMatcher.isCorrect("abcde", "abcdx"));   // 1 edit in 5: similarity 0.8
+        assertFalse(AnswerTextMatcher.isCorrect("abcd", "abcx"));    // 1 edit in 4: similarity 0.75
+        assertTrue(AnswerTextMatcher.isCorrect("abcdefghij", "abcdefghxy"));
+        assertFalse(AnswerTextMatcher.isCorrect("abcdefghij", "abcdefgxyz"));
+        assertTrue(AnswerTextMatcher.isCorrect("Hà Nội", "ha noi"));
+        assertTrue(AnswerTextMatcher.isCorrect("", "  "));
+        assertFalse(AnswerTextMatcher.isCorrect(null, "a"));
+        assertFalse(AnswerTextMatcher.isCorrect("a", null));
+    }
+
+    @Test
+    void isCorrectMatchesFormerGrading() {
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            String correct = randomText(random, 1 + random.nextInt(30));
+            String submitted = random.nextInt(4) == 0 ? randomText(random, random.nextInt(30)) : mutate(random, correct);
+            assertEquals(FormerAnswerGrading.isCorrect(submitted, correct), AnswerTextMatcher.isCorrect(submitted, correct),
+                    () -> "isCorrect(\"" + submitted + "\", \"" + correct + "\")");
+        }
+    }
+
+    @Test
+    void isCorrectMatchesFormerGradingOnLongInputs() {
+        Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            String correct = randomText(random, 500 + random.nextInt(1500));
+            String submitted = mutate(random, correct);
+            assertEquals(FormerAnswerGrading.isCorrect(submitted, correct), AnswerTextMatcher.isCorrect(submitted, correct));
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4))); // Small alphabet, so distances vary
+        }
+        return word.toString();
+    }
+
+    // A few random insertions, deletions and substitutions
+    private static String mutate(Random random, String text) {
+        StringBuilder mutated = new StringBuilder(text);
+        int edits = random.nextInt(Math.max(1, text.length() / 3) + 1);
+        for (int i = 0; i < edits; i++) {
+            int at = mutated.length() == 0 ? 0 : random.nextInt(mutated.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (mutated.length() == 0 ? 0 : random.nextInt(3)) {
+                case 0 -> mutated.insert(at, c);
+                case 1 -> mutated.deleteCharAt(at);
+                default -> mutated.setCharAt(at, c);
+            }
+        }
+        return mutated.toString();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.learning_api.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedRingBufferTest {
+    private static final int PRODUCERS = 8;
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(4, new BoundedRingBuffer<Integer>(1).capacity()); // Never fewer than 4 slots
+        assertEquals(4, new BoundedRingBuffer<Integer>(3).capacity());
+        assertEquals(8, new BoundedRingBuffer<Integer>(8).capacity());
+        assertEquals(16, new BoundedRingBuffer<Integer>(9).capacity());
+        assertEquals(1 << 16, new BoundedRingBuffer<Integer>(1 << 16).capacity());
+    }
+
+    @Test
+    void rejectsWhenFullAndAcceptsOnceDrained() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(List.of(0, 1), drained);
+        assertTrue(buffer.offer(4));
+        assertTrue(buffer.offer(5));
+        assertFalse(buffer.offer(6));
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+        assertEquals(0, buffer.drainTo(drained, 10));
+    }
+
+    @Test
+    void offerAllTakesEverythingOrNothing() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(8);
+        assertTrue(buffer.offerAll(List.of(0, 1, 2, 3, 4)));
+        assertFalse(buffer.offerAll(List.of(5, 6, 7, 8)));  // Only 3 slots left: nothing is taken
+        assertTrue(buffer.offerAll(List.of(5, 6, 7)));
+        assertFalse(buffer.offer(8));
+        assertTrue(buffer.offerAll(List.of()));
+        assertFalse(new BoundedRingBuffer<Integer>(4).offerAll(List.of(0, 1, 2, 3, 4))); // Larger than the buffer
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained, 3);
+        assertTrue(buffer.offerAll(List.of(8, 9, 10))); // Wraps around
+        buffer.drainTo(drained, 100);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), drained);
+    }
+
+    @Test
+    void manyProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int perProducer = 50_000;
+        // Small, so producers keep wrapping around and hitting a full buffer
+        BoundedRingBuffer<long[]> buffer = new BoundedRingBuffer<>(1024);
+        List<List<Long>> received = run(buffer, perProducer, (producer, next) -> {
+            long[] value = {producer, next};
+            while (!buffer.offer(value)) {
+                backOff();
+            }
+            return 1;
+        });
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            List<Long> sequence = received.get(producer);
+            assertEquals(perProducer, sequence.size(), "producer " + producer);
+            for (int i = 0; i < perProducer; i++) {
+                assertEquals(i, sequence.get(i), "producer " + producer + " out of order");
+            }
+        }
+    }
+
+    @Test
+    void manyBatchProducersLoseNothingAndKeepBatchesTogether() throws Exception {
+        int perProducer = 50_000;
+        BoundedRingBuffer<long[]> buffer = new BoundedRingBuffer<>(256);
+        List<List<Long>> received = run(buffer, perProducer, (producer, next) -> {
+            int size = (int) Math.min(1 + ThreadLocalRandom.current().nextInt(16), perProducer - next);
+            List<long[]> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(new long[]{producer, next + i});
+            }
+            while (!buffer.offerAll(batch)) {
+                backOff();
+            }
+            return size;
+        });
+        for (int producer = 0; producer < PRODUCERS; producer++) {
+            List<Long> sequence = received.get(producer);
+            assertEquals(perProducer, sequence.size(), "producer " + producer);
+            for (int i = 0; i < perProducer; i++) {
+                assertEquals(i, sequence.get(i), "producer " + producer + " out of order");
+            }
+        }
+    }
+
+    @Test
+    void batchesAreDrainedContiguously() throws Exception {
+        BoundedRingBuffer<long[]> buffer = new BoundedRingBuffer<>(64);
+        int batches = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int producer = 0; producer < PRODUCERS; producer++) {
+                long id = producer;
+                producers.add(executor.submit(() -> {
+                    for (int b = 0; b < batches; b++) {
+                        int size = 1 + (b % 7);
+                        List<long[]> batch = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++) {
+                            batch.add(new long[]{id, b, i, size});
+                        }
+                        while (!buffer.offerAll(batch)) {
+                            backOff();
+                        }
+                    }
+                }));
+            }
+            List<long[]> drained = new ArrayList<>();
+            boolean done = false;
+            while (!done) {
+                done = allDone(producers);
+                while (buffer.drainTo(drained, 64) > 0) {
+                    // Keep draining
+                }
+                Thread.yield();
+            }
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+            long expected = 0;
+            for (int b = 0; b < batches; b++) {
+                expected += 1 + (b % 7);
+            }
+            assertEquals(expected * PRODUCERS, drained.size());
+            // Every batch comes out as one run: value i of a batch of n is followed by value i + 1 of the same batch
+            for (int at = 0; at < drained.size(); ) {
+                long[] first = drained.get(at);
+                assertEquals(0, first[2], "batch split at " + at);
+                for (int i = 1; i < first[3]; i++) {
+                    long[] value = drained.get(at + i);
+                    assertEquals(first[0], value[0]);
+                    assertEquals(first[1], value[1]);
+                    assertEquals(i, value[2]);
+                }
+                at += (int) first[3];
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Producer {
+        /**
+         * Offers the values starting at {@code next} and returns how many it offered.
+         */
+        int offer(int producer, long next);
+    }
+
+    // Runs the producers against one draining consumer and returns what each producer's values came out as, in order
+    private static List<List<Long>> run(BoundedRingBuffer<long[]> buffer, int perProducer, Producer producer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                int id = p;
+                producers.add(executor.submit(() -> {
+                    start.await();
+                    for (long next = 0; next < perProducer; ) {
+                        next += producer.offer(id, next);
+                    }
+                    return null;
+                }));
+            }
+            List<List<Long>> received = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                received.add(new ArrayList<>(perProducer));
+            }
+            List<long[]> drained = new ArrayList<>();
+            start.countDown();
+            long deadline = System.currentTimeMillis() + 60_000;
+            boolean done = false;
+            while (!done) {
+                done = allDone(producers);
+                drained.clear();
+                while (buffer.drainTo(drained, 512) > 0) {
+                    for (long[] value : drained) {
+                        received.get((int) value[0]).add(value[1]);
+                    }
+                    drained.clear();
+                }
+                assertTrue(System.currentTimeMillis() < deadline, "producers did not finish in time");
+                Thread.yield();
+            }
+            for (Future<?> future : producers) {
+                future.get(); // Rethrows a producer's failure
+            }
+            return received;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Full: let the consumer run, which matters on a single core
+    private static void backOff() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("Interrupted while the buffer was full");
+        }
+        Thread.yield();
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        return futures.stream().allMatch(Future::isDone);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.learning_api.utils;
+
+/**
+ * The fill-in answer grading {@link AnswerTextMatcher} replaced: the chain of {@code replaceAll} calls and the full
+ * Levenshtein matrix that used to live in TestService, kept as the reference for tests and benchmarks.
+ */
+final class FormerAnswerGrading {
+    private FormerAnswerGrading() {
+    }
+
+    static boolean isCorrect(String submittedAnswer, String correctAnswer) {
+        if (submittedAnswer == null || correctAnswer == null) {
+            return false;
+        }
+        String normalizedSubmitted = normalize(submittedAnswer);
+        String normalizedCorrect = normalize(correctAnswer);
+        if (normalizedSubmitted.equals(normalizedCorrect)) {
+            return true;
+        }
+        int maxLength = Math.max(normalizedSubmitted.length(), normalizedCorrect.length());
+        return similarity(distance(normalizedSubmitted, normalizedCorrect), maxLength)
+                >= AnswerTextMatcher.SIMILARITY_THRESHOLD;
+    }
+
+    static String normalize(String answer) {
+        return answer.trim()
+                .toLowerCase()
+                .replaceAll("[àáạảãâầấậẩẫăằắặẳẵ]", "a")
+                .replaceAll("[èéẹẻẽêềếệểễ]", "e")
+                .replaceAll("[ìíịỉĩ]", "i")
+                .replaceAll("[òóọỏõôồốộổỗơờớợởỡ]", "o")
+                .replaceAll("[ùúụủũưừứựửữ]", "u")
+                .replaceAll("[ỳýỵỷỹ]", "y")
+                .replaceAll("[đ]", "d")
+                .replaceAll("–", "-")
+                .replaceAll("\\p{Punct}", "")
+                .replaceAll("\\s+", " ");
+    }
+
+    static double similarity(int distance, int maxLength) {
+        return 1.0 - ((double) distance / maxLength);
+    }
+
+    static int distance(String s1, String s2) {
+        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0) {
+                    dp[i][j] = j;
+                } else if (j == 0) {
+                    dp[i][j] = i;
+                } else {
+                    dp[i][j] = Math.min(
+                            Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
+                            dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1));
+                }
+            }
+        }
+        return dp[s1.length()][s2.length()];
+    }
+}